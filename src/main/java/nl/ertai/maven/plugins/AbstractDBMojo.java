@@ -17,18 +17,41 @@
 package nl.ertai.maven.plugins;
 
 import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.LogOutputStream;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.Executor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.settings.Server;
 import org.apache.maven.settings.Settings;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.regex.Pattern;
+
 /**
  * @see http://docs.oracle.com/cd/B19306_01/server.102/b14357/toc.htm (SQL*Plus User's Guide and Reference)
  */
 abstract class AbstractDBMojo extends AbstractMojo {
 
+	private static final int PROBE_TIMEOUT = 2000;
+
+	private static final Pattern URL_CREDENTIALS = Pattern.compile("(?<=:)[^:@/]+/.*@");
+	private static final Pattern URL_PASSWORD = Pattern.compile("(?i)(password=)[^&;]*");
+
 	/**
 	 * User name for your database.
 	 *
@@ -77,6 +100,74 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	 */
 	int port;
 
+	/**
+	 * More addresses of the database besides <code>hostname</code> and <code>port</code>, like the other nodes of a
+	 * RAC cluster, separated by commas: <code>node2:1521,node3</code>. An address without a port uses
+	 * <code>port</code>.
+	 *
+	 * @parameter
+	 */
+	String addresses;
+
+	/**
+	 * Should the connections be spread over the addresses in a random order? Otherwise the addresses are tried in
+	 * order. Not specified by default.
+	 * options: [true | false]
+	 *
+	 * @parameter
+	 */
+	Boolean loadBalance;
+
+	/**
+	 * Should the next address be tried when an address does not respond? Not specified by default, Oracle Net
+	 * fails over by default.
+	 * options: [true | false]
+	 *
+	 * @parameter
+	 */
+	Boolean failover;
+
+	/**
+	 * The <code>CONNECT_TIMEOUT</code> of the connect descriptor: the number of seconds in which a connection to an
+	 * address, including the handshake with the database, should be made. 0 to leave it to Oracle Net.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int netConnectTimeout;
+
+	/**
+	 * The <code>TRANSPORT_CONNECT_TIMEOUT</code> of the connect descriptor: the number of seconds in which the TCP
+	 * connection to an address should be made, so a node which is down is skipped quickly. 0 to leave it to Oracle
+	 * Net.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int transportConnectTimeout;
+
+	/**
+	 * The <code>RETRY_COUNT</code> of the connect descriptor: the number of times the list of addresses is tried
+	 * again. 0 to leave it to Oracle Net.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int connectRetryCount;
+
+	/**
+	 * The <code>RETRY_DELAY</code> of the connect descriptor: the number of seconds in between tries of the list of
+	 * addresses. 0 to leave it to Oracle Net.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int connectRetryDelay;
+
+	/**
+	 * Should the database use a dedicated server process for the connections, also when it has shared servers?
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean dedicatedServer;
+
 	/**
 	 * The serviceName of your oracle database instance.
 	 *
@@ -110,6 +201,46 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	 */
 	boolean useEasyConnect;
 
+	/**
+	 * The JDBC URL for goals which connect over JDBC. When not specified the Oracle thin driver is used with the
+	 * hostname, port and serviceName (or instanceName) settings, like
+	 * <code>jdbc:oracle:thin:@(DESCRIPTION=...)</code>. The JDBC driver should be a dependency of the plugin.
+	 *
+	 * @parameter
+	 */
+	String jdbcUrl;
+
+	/**
+	 * The class name of the JDBC driver. Optional, the driver is found by the <code>jdbcUrl</code> when not
+	 * specified.
+	 *
+	 * @parameter
+	 */
+	String jdbcDriver;
+
+	/**
+	 * Additional properties for the JDBC connection, besides the user and password.
+	 *
+	 * @parameter
+	 */
+	Properties jdbcProperties;
+
+	/**
+	 * The maximum number of JDBC connections with the same connection identifier which are kept open for the rest
+	 * of the build. Executions in all modules share these connections, and wait when all of them are in use. Use 0
+	 * to open a new connection for every execution.
+	 *
+	 * @parameter default-value="8"
+	 */
+	int jdbcPoolSize;
+
+	/**
+	 * The number of seconds after which a JDBC connection which is not used is closed.
+	 *
+	 * @parameter default-value="60"
+	 */
+	int jdbcPoolIdleTimeout;
+
 	/**
 	 * Should the plugin result in a failure when there is a application error?
 	 * options: [true | false]
@@ -118,6 +249,116 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	 */
 	boolean failOnError;
 
+	/**
+	 * Should the tool be stopped at the first error in its output, when <code>failOnError</code> is set? Otherwise
+	 * the build fails only when the tool has finished with an error.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean failFast;
+
+	/**
+	 * Rules which decide whether a line of output is an error for <code>failFast</code>, which should be of type
+	 * <code>&lt;errorRule&gt;</code> with a <code>&lt;pattern&gt;</code> (a regular expression) and a
+	 * <code>&lt;severity&gt;</code> (<code>error</code> or <code>warning</code>). The first matching rule counts.
+	 * After the configured rules lines starting with <code>ORA-</code>, <code>SP2-</code>, <code>IMP-</code>,
+	 * <code>EXP-</code>, <code>UDI-</code> or <code>UDE-</code> are errors, except ORA-31684 (object already exists)
+	 * and ORA-39082 (compiled with warnings).
+	 *
+	 * @parameter
+	 */
+	List<ErrorRule> errorRules;
+
+	/**
+	 * The number of seconds a tool may take to connect to the database, 0 for no limit. A tool which is not
+	 * connected in time is stopped.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int connectTimeout;
+
+	/**
+	 * The number of seconds a tool may take to finish, 0 for no limit. A tool which is not finished in time is
+	 * stopped.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int timeout;
+
+	/**
+	 * The encoding of the output of the tools. The platform encoding is used when not specified.
+	 *
+	 * @parameter
+	 */
+	String outputEncoding;
+
+	/**
+	 * The maximum number of lines of output waiting to be logged. Output is logged in the background, so a tool
+	 * never has to wait for Maven. When more lines are waiting new lines are dropped, and the number of dropped
+	 * lines is reported.
+	 *
+	 * @parameter default-value="10000"
+	 */
+	int outputQueueSize;
+
+	/**
+	 * The maximum number of lines of output logged per second, 0 for no limit. Lines above the limit are
+	 * suppressed, and the number of suppressed lines is reported.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int outputLinesPerSecond;
+
+	/**
+	 * Should the standard output of the tools only be summarized? The number of lines and the last lines are logged,
+	 * errors are always logged.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean outputSummary;
+
+	/**
+	 * The number of seconds in which a tool is started again after a transient error, 0 to never start it again.
+	 * Before the tool is started, <code>hostname</code> and <code>port</code> (and the <code>addresses</code>) are
+	 * probed until one of them accepts a connection. The tool only fails with an error when <code>failOnError</code>
+	 * is set, so a tool is only started again when <code>failOnError</code> is set as well.
+	 *
+	 * @parameter default-value="0"
+	 */
+	int retryTimeout;
+
+	/**
+	 * The errors after which a tool is started again, separated by commas: <code>connection</code> for a database
+	 * which is starting or not registered with the listener yet (like ORA-01033, ORA-12514 and ORA-12541),
+	 * <code>lock</code> for a resource which is locked by another session (like ORA-00054), or error codes like
+	 * <code>ORA-04068</code>. After a lock error the whole execution is repeated, also the statements which
+	 * succeeded before.
+	 *
+	 * @parameter default-value="connection"
+	 */
+	String retryOn;
+
+	/**
+	 * The number of milliseconds to wait before a tool is started again. The delay doubles with every attempt, and a
+	 * random part of up to half of it is taken off.
+	 *
+	 * @parameter default-value="1000"
+	 */
+	int retryDelay;
+
+	/**
+	 * The maximum number of milliseconds to wait before a tool is started again.
+	 *
+	 * @parameter default-value="30000"
+	 */
+	int retryMaxDelay;
+
+	private OutputPipeline outputPipeline;
+
+	private volatile RetryPolicy.Detector transientErrors;
+
 	AbstractDBMojo() {
 		super();
 	}
@@ -137,6 +378,97 @@ abstract class AbstractDBMojo extends AbstractMojo {
 		}
 	}
 
+	String getJdbcUrl() {
+		return StringUtils.isEmpty(jdbcUrl) ? "jdbc:oracle:thin:@" + getConnectDescriptor() : jdbcUrl;
+	}
+
+	/**
+	 * Opens a JDBC connection with the credentials of this goal, or borrows one from the pool of connections with
+	 * the same connection identifier. Closing the connection gives it back to the pool. Connecting as SYSDBA or
+	 * SYSOPER is supported by the Oracle driver.
+	 */
+	Connection openConnection() throws MojoExecutionException, MojoFailureException {
+		Credentials credentials = getCredentials();
+		final Properties properties = new Properties();
+		if (jdbcProperties != null) {
+			properties.putAll(jdbcProperties);
+		}
+		properties.setProperty("user", credentials.getUsername());
+		if (credentials.getPassword() != null) {
+			properties.setProperty("password", credentials.getPassword());
+		}
+		if (StringUtils.equalsIgnoreCase(asClause, "SYSDBA") || StringUtils.equalsIgnoreCase(asClause, "SYSOPER")) {
+			properties.setProperty("internal_logon", StringUtils.lowerCase(asClause));
+		}
+		final String url = getJdbcUrl();
+		final Driver driver = loadDriver();
+		JdbcConnectionPool.ConnectionFactory factory = new JdbcConnectionPool.ConnectionFactory() {
+			@Override
+			public Connection connect() throws SQLException {
+				if (driver == null) {
+					return DriverManager.getConnection(url, properties);
+				}
+				Connection connection = driver.connect(url, properties);
+				if (connection == null) {
+					throw new SQLException("JDBC driver " + jdbcDriver + " does not accept URL " + maskJdbcUrl(url));
+				}
+				return connection;
+			}
+		};
+		try {
+			if (jdbcPoolSize <= 0) {
+				return factory.connect();
+			}
+			String identity = getConnectionIdentifier() + " " + url + " " + jdbcProperties;
+			return JdbcConnectionPool.borrow(new JdbcConnectionPool.Key(identity, factory, jdbcPoolSize,
+					jdbcPoolIdleTimeout * 1000L));
+		} catch (SQLException e) {
+			throw new MojoExecutionException("Could not connect to " + maskJdbcUrl(url) + ": " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for a connection to " + maskJdbcUrl(url), e);
+		}
+	}
+
+	/**
+	 * Fails when no JDBC driver can connect to the URL, before anything is done which needs the connection later on.
+	 *
+	 * @param feature what needs the connection, used in the message
+	 */
+	void checkJdbcDriver(String feature) throws MojoFailureException {
+		if (loadDriver() != null) {
+			return;
+		}
+		try {
+			DriverManager.getDriver(getJdbcUrl());
+		} catch (SQLException e) {
+			throw new MojoFailureException(feature + " needs a JDBC connection, add the JDBC driver as a dependency of "
+					+ "the plugin, or set jdbcUrl and jdbcDriver");
+		}
+	}
+
+	private Driver loadDriver() throws MojoFailureException {
+		if (StringUtils.isEmpty(jdbcDriver)) {
+			return null;
+		}
+		try {
+			return (Driver) Class.forName(jdbcDriver, true, getClass().getClassLoader()).getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new MojoFailureException("Could not load JDBC driver " + jdbcDriver
+					+ ", it should be a dependency of the plugin", e);
+		}
+	}
+
+	/**
+	 * Returns the JDBC URL without the credentials it may contain, like <code>scott/tiger@</code> or
+	 * <code>password=tiger</code>, so it can be logged.
+	 */
+	static String maskJdbcUrl(String url) {
+		String masked = URL_CREDENTIALS.matcher(url).replaceFirst("<credentials>@");
+		return URL_PASSWORD.matcher(masked).replaceAll("$1<password>");
+	}
+
 	String obfuscateCredentials(CommandLine cmd, Credentials credentials) {
 		String replaced = StringUtils.replaceOnce(cmd.toString(), credentials.getUsername(), "<username>");
 		return StringUtils.replaceOnce(replaced, credentials.getPassword(), "<password>");
@@ -145,13 +477,22 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	String getConnectionIdentifier() throws MojoFailureException {
 		StringBuilder connectionId = new StringBuilder();
 		getUsernameAndPasswordForConnectionId(connectionId, getCredentials());
+		connectionId.append("@").append(getConnectDescriptor());
+		getConnectionIdentifierAsClause(connectionId);
+		return connectionId.toString();
+	}
+
+	/**
+	 * Returns the address of the database: a full connect descriptor, or an Easy Connect string.
+	 */
+	String getConnectDescriptor() {
+		StringBuilder descriptor = new StringBuilder();
 		if (!useEasyConnect) {
-			getConnectionIdentifier(connectionId);
+			getConnectionIdentifier(descriptor);
 		} else {
-			getConnectionIdentifierEasyConnect(connectionId);
+			getConnectionIdentifierEasyConnect(descriptor);
 		}
-		getConnectionIdentifierAsClause(connectionId);
-		return connectionId.toString();
+		return descriptor.toString();
 	}
 
 	private static void getUsernameAndPasswordForConnectionId(StringBuilder connectionId, Credentials credentials) {
@@ -165,9 +506,28 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	private void getConnectionIdentifier(StringBuilder connectionId) {
   		// To make it more robust and to not to rely on TNSNAMES we specify the full connect identifier like:
    		// (DESCRIPTION=(ADDRESS=(PROTOCOL=tcp)(HOST=<host>)(PORT=<port>))(CONNECT_DATA=(SERVICE_NAME=<serviceName>)))
-		connectionId.append("@(DESCRIPTION=(ADDRESS_LIST=(ADDRESS=(PROTOCOL=tcp)");
-		connectionId.append("(HOST=").append(hostname).append(")(PORT=").append(port).append(")))");
-		connectionId.append("(CONNECT_DATA=(SERVICE_NAME=").append(serviceName).append(")");
+		connectionId.append("(DESCRIPTION=");
+		appendDescriptorParameter(connectionId, "CONNECT_TIMEOUT", netConnectTimeout);
+		appendDescriptorParameter(connectionId, "TRANSPORT_CONNECT_TIMEOUT", transportConnectTimeout);
+		appendDescriptorParameter(connectionId, "RETRY_COUNT", connectRetryCount);
+		appendDescriptorParameter(connectionId, "RETRY_DELAY", connectRetryDelay);
+		connectionId.append("(ADDRESS_LIST=");
+		if (loadBalance != null) {
+			connectionId.append("(LOAD_BALANCE=").append(loadBalance ? "on" : "off").append(")");
+		}
+		if (failover != null) {
+			connectionId.append("(FAILOVER=").append(failover ? "on" : "off").append(")");
+		}
+		for (Address address : getAddresses()) {
+			connectionId.append("(ADDRESS=(PROTOCOL=tcp)");
+			connectionId.append("(HOST=").append(address.host).append(")(PORT=").append(address.port).append("))");
+		}
+		connectionId.append(")");
+		connectionId.append("(CONNECT_DATA=");
+		if (dedicatedServer) {
+			connectionId.append("(SERVER=DEDICATED)");
+		}
+		connectionId.append("(SERVICE_NAME=").append(serviceName).append(")");
 		if (!StringUtils.isEmpty(instanceName)) {
 			// (INSTANCE_NAME=<instanceName>)
 			connectionId.append("(INSTANCE_NAME=").append(instanceName).append(")");
@@ -176,8 +536,62 @@ abstract class AbstractDBMojo extends AbstractMojo {
 	}
 
 	private void getConnectionIdentifierEasyConnect(StringBuilder connectionId) {
-		// @//<host>>:<port>/<serviceName>
-		connectionId.append("@//").append(hostname).append(":").append(port).append("/").append(serviceName);
+		// //<host>>:<port>[,<host>:<port>...]/<serviceName>[:dedicated][?<parameter>=<value>&...]
+		List<String> hosts = new ArrayList<>();
+		for (Address address : getAddresses()) {
+			hosts.add(address.host + ":" + address.port);
+		}
+		connectionId.append("//").append(StringUtils.join(hosts, ",")).append("/").append(serviceName);
+		if (dedicatedServer) {
+			connectionId.append(":dedicated");
+		}
+		// Easy Connect Plus, supported by Oracle 19c clients and later
+		List<String> parameters = new ArrayList<>();
+		if (netConnectTimeout > 0) {
+			parameters.add("connect_timeout=" + netConnectTimeout);
+		}
+		if (transportConnectTimeout > 0) {
+			parameters.add("transport_connect_timeout=" + transportConnectTimeout);
+		}
+		if (connectRetryCount > 0) {
+			parameters.add("retry_count=" + connectRetryCount);
+		}
+		if (connectRetryDelay > 0) {
+			parameters.add("retry_delay=" + connectRetryDelay);
+		}
+		if (loadBalance != null) {
+			parameters.add("load_balance=" + (loadBalance ? "on" : "off"));
+		}
+		if (failover != null) {
+			parameters.add("failover=" + (failover ? "on" : "off"));
+		}
+		if (!parameters.isEmpty()) {
+			connectionId.append("?").append(StringUtils.join(parameters, "&"));
+		}
+	}
+
+	private static void appendDescriptorParameter(StringBuilder connectionId, String name, int value) {
+		if (value > 0) {
+			connectionId.append("(").append(name).append("=").append(value).append(")");
+		}
+	}
+
+	/**
+	 * Returns the addresses of the database: <code>hostname</code> and <code>port</code> first, followed by the
+	 * <code>addresses</code>.
+	 */
+	List<Address> getAddresses() {
+		List<Address> all = new ArrayList<>();
+		all.add(new Address(hostname, port));
+		for (String address : StringUtils.split(StringUtils.defaultString(addresses), ", ")) {
+			String portNumber = StringUtils.substringAfterLast(address, ":");
+			if (StringUtils.isNumeric(portNumber) && !portNumber.isEmpty()) {
+				all.add(new Address(StringUtils.substringBeforeLast(address, ":"), Integer.parseInt(portNumber)));
+			} else {
+				all.add(new Address(address, port));
+			}
+		}
+		return all;
 	}
 
 	private void getConnectionIdentifierAsClause(StringBuilder connectionId) {
@@ -187,17 +601,353 @@ abstract class AbstractDBMojo extends AbstractMojo {
 		}
 	}
 
-	class ErrorLogOutputStream extends LogOutputStream {
+	/**
+	 * Creates a detector for the output of a tool, or returns null when the tool should not be stopped at the first
+	 * error.
+	 */
+	ErrorDetector createErrorDetector() throws MojoFailureException {
+		return failFast && failOnError ? new ErrorDetector(getOutputCharset(), errorRules) : null;
+	}
+
+	/**
+	 * Fails when the detector has seen an error, and reports the warnings it has seen.
+	 *
+	 * @param detector the detector, may be null
+	 * @param cause the exception of the tool, may be null
+	 */
+	void checkOutput(ErrorDetector detector, Exception cause) throws MojoExecutionException {
+		if (detector == null) {
+			return;
+		}
+		if (detector.getWarnings() > 0) {
+			getLog().warn(detector.getWarnings() + " warning(s) in the output, the first: " + detector.getWarning());
+		}
+		if (detector.getError() != null) {
+			throw new MojoExecutionException("Stopped at error: " + detector.getError(), cause);
+		}
+	}
+
+	/**
+	 * Fails with the message when <code>failOnError</code> is set, and only logs it as a warning otherwise.
+	 *
+	 * @param cause the cause of the failure, may be null
+	 */
+	void handleFailure(String message, Exception cause) throws MojoExecutionException {
+		if (failOnError) {
+			throw new MojoExecutionException(message, cause);
+		} else {
+			getLog().warn(message);
+		}
+	}
+
+	/**
+	 * Creates a watchdog which stops a tool when it does not connect or finish in time, or when Maven is stopped.
+	 */
+	ToolWatchdog createWatchdog(String tool) {
+		return new ToolWatchdog(tool, connectTimeout, timeout, getOutputCharset());
+	}
+
+	/**
+	 * Creates an executor which stops the tool when the detector sees an error, or when the watchdog fires.
+	 *
+	 * @param detector the detector, may be null
+	 * @param toolWatchdog the watchdog, may be null
+	 */
+	static Executor createExecutor(ErrorDetector detector, ToolWatchdog toolWatchdog) {
+		Executor exec = new DefaultExecutor();
+		if (detector != null || toolWatchdog != null) {
+			final ExecuteWatchdog watchdog = new ExecuteWatchdog(ExecuteWatchdog.INFINITE_TIMEOUT);
+			exec.setWatchdog(watchdog);
+			Runnable destroy = new Runnable() {
+				@Override
+				public void run() {
+					watchdog.destroyProcess();
+				}
+			};
+			if (detector != null) {
+				detector.stopOnError(destroy);
+			}
+			if (toolWatchdog != null) {
+				toolWatchdog.stopWith(destroy);
+			}
+		}
+		return exec;
+	}
+
+	/**
+	 * Returns a stream which passes everything on to the given stream, and hands the lines passing by to the
+	 * listeners which are not null.
+	 */
+	OutputStream watch(OutputStream out, LineTee.Listener... listeners) {
+		List<LineTee.Listener> watching = new ArrayList<>();
+		for (LineTee.Listener listener : listeners) {
+			if (listener != null) {
+				watching.add(listener);
+			}
+		}
+		if (transientErrors != null) {
+			watching.add(transientErrors);
+		}
+		return watching.isEmpty() ? out : new LineTee(out, getOutputCharset(), watching);
+	}
+
+	RetryPolicy createRetryPolicy() throws MojoFailureException {
+		return new RetryPolicy(retryOn, retryTimeout * 1000L, retryDelay, retryMaxDelay, new Random());
+	}
+
+	/**
+	 * Makes an attempt, and makes it again when it failed because of a transient error in the output of a tool or of
+	 * a JDBC connection, until <code>retryTimeout</code> has passed. Before the first attempt the addresses of the
+	 * database are probed until one of them accepts a connection.
+	 */
+	<T> T retrying(Attempt<T> attempt) throws MojoExecutionException, MojoFailureException {
+		RetryPolicy policy = createRetryPolicy();
+		if (!policy.isEnabled()) {
+			return attempt.run();
+		}
+		long start = System.currentTimeMillis();
+		awaitListener(policy, start);
+		for (int i = 0; ; i++) {
+			RetryPolicy.Detector detector = policy.newDetector();
+			transientErrors = detector;
+			try {
+				return attempt.run();
+			} catch (MojoExecutionException e) {
+				String error = detector.getError() != null ? detector.getError() : policy.findTransient(e);
+				if (error == null) {
+					throw e;
+				}
+				long delay = policy.getDelay(i);
+				long elapsed = System.currentTimeMillis() - start;
+				if (elapsed + delay > policy.getTimeoutMillis()) {
+					getLog().warn("Giving up after " + (i + 1) + " attempt(s) in " + elapsed + " ms");
+					throw e;
+				}
+				getLog().warn(error + " is transient, attempt " + (i + 2) + " in " + delay + " ms");
+				sleep(delay);
+			} finally {
+				transientErrors = null;
+			}
+		}
+	}
+
+	/**
+	 * Waits until one of the addresses of the database accepts a connection. A <code>jdbcUrl</code> may point
+	 * elsewhere than the addresses, so then only the attempts are retried.
+	 */
+	private void awaitListener(RetryPolicy policy, long start) throws MojoExecutionException {
+		if (StringUtils.isEmpty(hostname) || port <= 0 || StringUtils.isNotEmpty(jdbcUrl)) {
+			return;
+		}
+		List<Address> all = getAddresses();
+		for (int i = 0; !probe(all); i++) {
+			long delay = policy.getDelay(i);
+			long elapsed = System.currentTimeMillis() - start;
+			if (elapsed + delay > policy.getTimeoutMillis()) {
+				throw new MojoExecutionException("Nothing accepts connections on " + StringUtils.join(all, ",")
+						+ " after " + elapsed + " ms");
+			}
+			if (i == 0) {
+				getLog().info("Waiting for " + StringUtils.join(all, ",") + " to accept connections");
+			}
+			sleep(delay);
+		}
+	}
+
+	private static boolean probe(List<Address> all) {
+		for (Address address : all) {
+			if (RetryPolicy.probe(address.host, address.port, PROBE_TIMEOUT)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void sleep(long millis) throws MojoExecutionException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for the next attempt", e);
+		}
+	}
+
+	/**
+	 * A host and port of the database.
+	 */
+	static class Address {
+		final String host;
+		final int port;
+
+		Address(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+
+		@Override
+		public String toString() {
+			return host + ":" + port;
+		}
+	}
+
+	/**
+	 * An attempt of {@link #retrying(Attempt)}.
+	 */
+	interface Attempt<T> {
+		T run() throws MojoExecutionException, MojoFailureException;
+	}
+
+	/**
+	 * Describes why a tool failed.
+	 */
+	static String describe(ExecuteException e) {
+		if (e instanceof ToolWatchdog.StoppedException) {
+			return e.getMessage();
+		}
+		return "program exited with exitCode: " + e.getExitValue();
+	}
+
+	Charset getOutputCharset() {
+		return StringUtils.isEmpty(outputEncoding) ? Charset.defaultCharset() : Charset.forName(outputEncoding);
+	}
+
+	synchronized OutputPipeline getOutputPipeline() {
+		if (outputPipeline == null) {
+			ErrorDetector classifier;
+			try {
+				classifier = new ErrorDetector(getOutputCharset(), errorRules);
+			} catch (MojoFailureException e) {
+				// invalid rules fail the goal when its detector is created, only the standard error is kept then
+				classifier = null;
+			}
+			outputPipeline = new OutputPipeline(getLog(), outputQueueSize, outputLinesPerSecond, outputSummary,
+					classifier);
+		}
+		return outputPipeline;
+	}
+
+	/**
+	 * Logs the lines written to it in the background. Flushing waits until all lines are logged.
+	 */
+	abstract class PipelineOutputStream extends LineOutputStream {
+		final OutputPipeline pipeline = getOutputPipeline();
+
+		PipelineOutputStream() {
+			super(getOutputCharset());
+		}
+
+		@Override
+		public void flush() throws IOException {
+			super.flush();
+			try {
+				pipeline.drain();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while logging output");
+			}
+		}
+	}
+
+	class ErrorLogOutputStream extends PipelineOutputStream {
 		@Override
-		protected void processLine(String s, int i) {
-			getLog().error(s);
+		protected void processLine(String line) {
+			if (!line.startsWith(ScriptBatch.MARKER)) {
+				pipeline.error(line);
+			}
 		}
 	}
 
-	class InfoLogOutputStream extends LogOutputStream {
+	class InfoLogOutputStream extends PipelineOutputStream {
 		@Override
-		protected void processLine(String s, int i) {
-			getLog().info(s);
+		protected void processLine(String line) {
+			if (!line.startsWith(ScriptBatch.MARKER)) {
+				pipeline.info(line);
+			}
+		}
+	}
+
+	/**
+	 * Collects the output of a tool running in the background, so it can be logged in one piece afterwards.
+	 */
+	class BufferedLog {
+		private final String prefix;
+		private final List<String> lines = new ArrayList<>();
+		private final List<Boolean> errors = new ArrayList<>();
+
+		BufferedLog(String prefix) {
+			this.prefix = prefix;
+		}
+
+		OutputStream info() {
+			return new LineOutputStream(getOutputCharset()) {
+				@Override
+				protected void processLine(String line) {
+					if (!line.startsWith(ScriptBatch.MARKER)) {
+						add(line, false);
+					}
+				}
+			};
+		}
+
+		OutputStream error() {
+			return new LineOutputStream(getOutputCharset()) {
+				@Override
+				protected void processLine(String line) {
+					if (!line.startsWith(ScriptBatch.MARKER)) {
+						add(line, true);
+					}
+				}
+			};
+		}
+
+		synchronized void add(String line, boolean error) {
+			lines.add(line);
+			errors.add(error);
+		}
+
+		synchronized void flush() {
+			for (int i = 0; i < lines.size(); i++) {
+				if (errors.get(i)) {
+					getLog().error(prefix + lines.get(i));
+				} else {
+					getLog().info(prefix + lines.get(i));
+				}
+			}
+			lines.clear();
+			errors.clear();
+		}
+	}
+
+	/**
+	 * Logs the output of tools running in the background in a fixed order, regardless of the order in which they
+	 * finish.
+	 */
+	class OrderedLog {
+		private final BufferedLog[] logs;
+		private int next;
+
+		OrderedLog(int size) {
+			logs = new BufferedLog[size];
+		}
+
+		synchronized void complete(int index, BufferedLog log) {
+			logs[index] = log;
+			while (next < logs.length && logs[next] != null) {
+				logs[next].flush();
+				next++;
+			}
+		}
+
+		/**
+		 * Logs all remaining output, also the output which is still waiting for an earlier tool.
+		 */
+		synchronized void completeAll() {
+			while (next < logs.length) {
+				if (logs[next] != null) {
+					logs[next].flush();
+				}
+				next++;
+			}
 		}
 	}
 
@@ -21,10 +21,52 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 abstract class AbstractDatapumpMojo extends AbstractDBMojo {
 
+	private static final Pattern JOB = Pattern.compile("^(?:Starting|Master table) \"(\\w+)\"\\.\"(\\w+)\"");
+	private static final long STOP_JOB_TIMEOUT = 60000;
+	private static final Pattern TUNING = Pattern.compile("^(?:PARALLEL|FILESIZE|STATUS|METRICS|LOGTIME)=");
+	static final Pattern SUBSTITUTION = Pattern.compile("%[UuLl]");
+
+	/**
+	 * The degree of parallelism which is chosen by the plugin.
+	 */
+	static final String AUTO = "auto";
+
+	/**
+	 * The estimated export size per worker when the degree of parallelism is chosen by the plugin.
+	 */
+	static final long AUTO_BYTES_PER_WORKER = 1024L * 1024 * 1024;
+
+	/**
+	 * The job is run by the expdp or impdp client.
+	 */
+	static final String CLIENT = "client";
+
+	/**
+	 * The job is run through the DBMS_DATAPUMP package over a JDBC connection.
+	 */
+	static final String API = "api";
+
 	/**
 	 * Enables you to filter what is loaded during the import operation.
 	 * options: [ALL | DATA_ONLY | METADATA_ONLY]
@@ -65,6 +107,27 @@ abstract class AbstractDatapumpMojo extends AbstractDBMojo {
 	 */
 	String include;
 
+	/**
+	 * The name of the job. The job is killed with <code>KILL_JOB</code>, or stopped with
+	 * <code>STOP_JOB=IMMEDIATE</code> when it is <code>resumable</code>, when the client is stopped by an error, a
+	 * timeout or because Maven is stopped. Without a name the job is stopped by the name Data Pump reports.
+	 *
+	 * @parameter
+	 */
+	String jobName;
+
+	/**
+	 * Resumes a job which was stopped or lost its client in an earlier build, instead of starting it over. Without a
+	 * <code>jobName</code> the job is named after a fingerprint of its parameters, like
+	 * <code>EXPDP_1A2B3C4D5E6F</code>, so the job of the next build finds it. A stopped job whose master table
+	 * cannot be used anymore is dropped, and the job is started anew. The job is looked up over JDBC, also for the
+	 * <code>client</code> engine, so the JDBC driver has to be a dependency of the plugin.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean resumable;
+
 	/**
 	 * Specifies the name, and optionally, a directory object, for the log file of the import job.
 	 *
@@ -91,6 +154,25 @@ abstract class AbstractDatapumpMojo extends AbstractDBMojo {
 	 */
 	String networkLink;
 
+	/**
+	 * The maximum number of workers of the job, or <code>auto</code> to let the plugin choose. An export chooses one
+	 * worker per GB of estimated export size, an import one worker per dump file, both at most
+	 * <code>parallelMax</code>. With more than one worker a single <code>dumpfile</code> of an export becomes a
+	 * <code>%U</code> dump file set, like <code>export_%U.dmp</code> for <code>export.dmp</code>, and the dump file set
+	 * should have at least as many files as workers.
+	 * oracle-default: 1
+	 *
+	 * @parameter
+	 */
+	String parallel;
+
+	/**
+	 * The maximum number of workers when <code>parallel</code> is <code>auto</code>.
+	 *
+	 * @parameter default-value="8"
+	 */
+	int parallelMax;
+
 	/**
 	 * Specifies that a schema-mode import is to be performed.
 	 *
@@ -105,46 +187,888 @@ abstract class AbstractDatapumpMojo extends AbstractDBMojo {
 	 */
 	String tables;
 
+	/**
+	 * Runs a separate job for every schema of <code>schemas</code>, with its own dump and log files like
+	 * <code>export_HR.dmp</code> for <code>export.dmp</code>.
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean fanOut;
+
+	/**
+	 * Groups of tables, separated by commas, which are each exported or imported by a separate job with its own
+	 * dump and log files, like <code>export_GROUP2.dmp</code> for the second group.
+	 *
+	 * @parameter
+	 */
+	List<String> tableGroups;
+
+	/**
+	 * The number of fanned out jobs which run at the same time.
+	 *
+	 * @parameter default-value="4"
+	 */
+	int fanOutThreads;
+
+	/**
+	 * How the job is run: <code>client</code> starts the expdp or impdp client, <code>api</code> runs the job through
+	 * the DBMS_DATAPUMP package over a JDBC connection, so no Oracle client has to be installed.
+	 *
+	 * @parameter default-value="client"
+	 */
+	String engine;
+
+	/**
+	 * The seconds between two progress reports of a job which is run through the DBMS_DATAPUMP package.
+	 *
+	 * @parameter default-value="10"
+	 */
+	int pollInterval;
+
+	/**
+	 * The seconds between two progress lines of a Data Pump client, with the tables, rows and bytes per second so far
+	 * and the estimated time left. The client is started with <code>STATUS</code> set to this interval and
+	 * <code>METRICS=YES</code>, and a table with the throughput per object type is logged when it has finished. Use 0
+	 * to turn the progress lines off.
+	 *
+	 * @parameter default-value="60"
+	 */
+	int progressInterval;
+
+	/**
+	 * The degree of parallelism chosen by the plugin, 0 when it is not chosen.
+	 */
+	int autoDegree;
+
+	/**
+	 * Receives the output of the jobs as well, may be null.
+	 */
+	LineTee.Listener outputListener;
+
 	AbstractDatapumpMojo() {
 		super();
 	}
 
 	public void execute() throws MojoExecutionException, MojoFailureException {
-		CommandLine commandLine = buildCommandline();
+		runJobs();
+	}
 
-		Executor exec = new DefaultExecutor();
-		exec.setStreamHandler(new PumpStreamHandler(new InfoLogOutputStream(), new ErrorLogOutputStream()));
+	/**
+	 * Runs the job, or the fanned out jobs, and runs them again after a transient error.
+	 *
+	 * @return true when the jobs succeeded, false when they failed and <code>failOnError</code> is false
+	 */
+	boolean runJobs() throws MojoExecutionException, MojoFailureException {
+		if (resumable && !isApiEngine()) {
+			// the client cannot tell whether a job exists without attaching to it, and failing when it does not
+			checkJdbcDriver("A resumable job");
+		}
+		return retrying(new Attempt<Boolean>() {
+			@Override
+			public Boolean run() throws MojoExecutionException, MojoFailureException {
+				return runJobsOnce();
+			}
+		});
+	}
 
-		getLog().debug("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
+	private boolean runJobsOnce() throws MojoExecutionException, MojoFailureException {
+		prepare();
+		String originalJobName = jobName;
 		try {
-			exec.execute(commandLine);
+			jobName = getJobName();
+			return runNamedJobs();
+		} finally {
+			jobName = originalJobName;
+		}
+	}
+
+	private boolean runNamedJobs() throws MojoExecutionException, MojoFailureException {
+		Map<String, Job> jobs = buildJobs();
+		if (jobs != null) {
+			return executeJobs(jobs);
+		}
+		if (isApiEngine()) {
+			try {
+				runApiJob(buildApiJob(), new InfoLogOutputStream(), new ErrorLogOutputStream());
+			} catch (MojoExecutionException e) {
+				if (failOnError) {
+					throw e;
+				}
+				getLog().warn(e.getMessage());
+				return false;
+			}
+			return true;
+		}
+		CommandLine commandLine = buildCommandline();
+		try {
+			runJob(commandLine, jobName, new InfoLogOutputStream(), new ErrorLogOutputStream(), createMonitor(""));
 		} catch (ExecuteException e) {
 			if (failOnError) {
-				throw new MojoExecutionException("program exited with exitCode: " + e.getExitValue(), e);
+				throw new MojoExecutionException(describe(e), e);
 			} else {
-				getLog().warn("program exited with exitCode: " + e.getExitValue());
+				getLog().warn(describe(e));
 			}
+			return false;
 		} catch (IOException e) {
 			throw new MojoExecutionException("Command execution failed.", e);
 		}
+		return true;
+	}
+
+	/**
+	 * Prepares the jobs just before they run, by choosing the degree of parallelism when <code>parallel</code> is
+	 * <code>auto</code>.
+	 */
+	void prepare() throws MojoExecutionException, MojoFailureException {
+		if (StringUtils.equalsIgnoreCase(parallel, AUTO)) {
+			autoDegree = Math.max(1, Math.min(chooseDegree(), parallelMax));
+			getLog().info("Using PARALLEL=" + autoDegree);
+		}
+	}
+
+	/**
+	 * Returns the name of the job: <code>jobName</code>, or a name made from a fingerprint of the parameters of the
+	 * job when it is resumable. Parameters which only tune the job are left out, so they can change in between.
+	 */
+	String getJobName() throws MojoFailureException {
+		if (!resumable || StringUtils.isNotEmpty(jobName)) {
+			return jobName;
+		}
+		List<String> definition = new ArrayList<>();
+		definition.add(getClass().getName());
+		String[] arguments = buildCommandline().getArguments();
+		// the first argument is the connection identifier, with the password
+		for (int i = 1; i < arguments.length; i++) {
+			if (!TUNING.matcher(arguments[i]).find()) {
+				definition.add(arguments[i]);
+			}
+		}
+		return StringUtils.removeEnd(getClass().getSimpleName(), "Mojo").toUpperCase(Locale.ROOT) + "_"
+				+ ExportCache.fingerprint(definition).substring(0, 12).toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Looks for a job of an earlier build which can be resumed. The master table of a stopped job which cannot be
+	 * restarted is dropped.
+	 *
+	 * @return the state of the job, or null when a new job has to be started
+	 */
+	String findResumableJob(Connection connection, String job) throws SQLException {
+		String name = DatapumpApiJob.toIdentifier(job);
+		String state = DatapumpApiJob.getState(connection, name);
+		if (state == null) {
+			return null;
+		}
+		if (!DatapumpApiJob.isRunning(state) && !DatapumpApiJob.canAttach(connection, name)) {
+			getLog().warn("Dropping the master table of Data Pump job " + job + ", which cannot be restarted");
+			DatapumpApiJob.dropMasterTable(connection, name);
+			return null;
+		}
+		getLog().info("Resuming Data Pump job " + job + " (" + state + ")");
+		return state;
+	}
+
+	/**
+	 * Returns the commands which make a client that is attached to a job of the given state run it to the end.
+	 */
+	static String getResumeCommands(String state) {
+		return (DatapumpApiJob.isRunning(state) ? "" : "START_JOB\n") + "CONTINUE_CLIENT\n";
+	}
+
+	/**
+	 * Runs a Data Pump client, and stops its job when the client is stopped.
+	 *
+	 * @param job the name of the job, may be null when Data Pump chooses the name
+	 * @param monitor the monitor of the output, may be null
+	 * @throws ExecuteException when the client fails or is stopped
+	 * @throws MojoExecutionException when the output contains an error
+	 */
+	private void runJob(CommandLine commandLine, final String job, OutputStream out, OutputStream err,
+			DatapumpMonitor monitor) throws IOException, MojoExecutionException, MojoFailureException {
+		final String executable = commandLine.getExecutable();
+		InputStream input = null;
+		String state = null;
+		if (resumable && StringUtils.isNotEmpty(job)) {
+			try (Connection connection = openConnection()) {
+				state = findResumableJob(connection, job);
+			} catch (SQLException e) {
+				throw new MojoExecutionException("Could not look for Data Pump job " + job + ": " + e.getMessage(), e);
+			}
+		}
+		if (state != null) {
+			commandLine = buildAttachCommandline(executable, job);
+			input = new ByteArrayInputStream(getResumeCommands(state).getBytes(UTF_8));
+		}
+		ErrorDetector detector = createErrorDetector();
+		final ToolWatchdog toolWatchdog = createWatchdog(executable);
+		final JobName name = new JobName();
+		Executor exec = createExecutor(detector, toolWatchdog);
+		final ExecuteWatchdog watchdog = exec.getWatchdog();
+		Runnable stop = new Runnable() {
+			@Override
+			public void run() {
+				watchdog.destroyProcess();
+				// the job keeps running on the server without the client
+				stopJob(executable, StringUtils.defaultIfEmpty(job, name.job));
+			}
+		};
+		toolWatchdog.stopWith(stop);
+		BackgroundStop stopOnError = new BackgroundStop(stop);
+		if (detector != null) {
+			detector.stopOnError(stopOnError);
+		}
+		exec.setStreamHandler(new PumpStreamHandler(
+				watch(out, name, detector, toolWatchdog, monitor, outputListener),
+				watch(err, detector, toolWatchdog), input));
+
+		getLog().debug("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
+		toolWatchdog.start();
+		try {
+			exec.execute(commandLine);
+		} catch (ExecuteException e) {
+			checkOutput(detector, e);
+			throw toolWatchdog.explain(e);
+		} finally {
+			toolWatchdog.cancel();
+			stopOnError.await();
+			if (monitor != null) {
+				monitor.finish();
+			}
+		}
+		checkOutput(detector, null);
+	}
+
+	/**
+	 * Creates the monitor of a Data Pump client, which logs its progress right away, also for a job which runs in
+	 * the background.
+	 *
+	 * @param prefix the prefix of the logged lines
+	 * @return the monitor, or null when <code>progressInterval</code> is 0
+	 */
+	DatapumpMonitor createMonitor(final String prefix) {
+		if (progressInterval <= 0) {
+			return null;
+		}
+		return new DatapumpMonitor(new LineTee.Listener() {
+			@Override
+			public void processLine(String line) {
+				getLog().info(prefix + line);
+			}
+		}, progressInterval * 1000L);
+	}
+
+	/**
+	 * Runs a job through the DBMS_DATAPUMP package, reporting its progress every <code>pollInterval</code> seconds.
+	 * The job is stopped when it is stopped by a timeout or because Maven is stopped.
+	 *
+	 * @throws MojoExecutionException when the job fails, or when its output contains an error
+	 */
+	void runApiJob(final DatapumpApiJob job, OutputStream out, OutputStream err)
+			throws MojoExecutionException, MojoFailureException {
+		ErrorDetector detector = createErrorDetector();
+		ToolWatchdog toolWatchdog = createWatchdog("DBMS_DATAPUMP");
+		Runnable stop = new Runnable() {
+			@Override
+			public void run() {
+				// the session which polls the job may be busy, so the job is stopped from another session
+				stopApiJob(job.getName());
+			}
+		};
+		toolWatchdog.stopWith(stop);
+		if (detector != null) {
+			detector.stopOnError(stop);
+		}
+		OutputStream info = watch(out, detector, toolWatchdog, outputListener);
+		OutputStream error = watch(err, detector, toolWatchdog);
+		int interval = Math.max(1, pollInterval);
+		DatapumpApiJob.Status status = null;
+		toolWatchdog.start();
+		try (Connection connection = openConnection()) {
+			toolWatchdog.connected();
+			long start = System.currentTimeMillis();
+			String state = resumable ? findResumableJob(connection, job.getName()) : null;
+			long handle = state == null ? job.start(connection)
+					: DatapumpApiJob.attach(connection, DatapumpApiJob.toIdentifier(job.getName()),
+							!DatapumpApiJob.isRunning(state));
+			long reported = start;
+			try {
+				do {
+					status = job.poll(connection, handle, interval);
+					write(info, status.log);
+					write(error, status.errors);
+					long now = System.currentTimeMillis();
+					if (now - reported >= interval * 1000L || status.isFinished()) {
+						write(info, Collections.singletonList(DatapumpApiJob.progress(status, now - start)));
+						reported = now;
+					}
+				} while (!status.isFinished());
+			} finally {
+				DatapumpApiJob.detach(connection, handle);
+			}
+		} catch (SQLException e) {
+			checkOutput(detector, e);
+			String stopped = toolWatchdog.getReason();
+			throw new MojoExecutionException("DBMS_DATAPUMP " + (stopped == null ? "failed: " + e.getMessage()
+					: "was stopped: " + stopped), e);
+		} finally {
+			toolWatchdog.cancel();
+		}
+		checkOutput(detector, null);
+		if (toolWatchdog.getReason() != null) {
+			throw new MojoExecutionException("DBMS_DATAPUMP was stopped: " + toolWatchdog.getReason());
+		}
+		if (!"COMPLETED".equals(status.state)) {
+			throw new MojoExecutionException("Data Pump job " + job.getName() + " ended in state " + status.state);
+		}
+		if (job.getErrors() > 0) {
+			throw new MojoExecutionException("Data Pump job " + job.getName() + " completed with " + job.getErrors()
+					+ " error(s)");
+		}
+	}
+
+	private void write(OutputStream out, List<String> lines) throws MojoExecutionException {
+		try {
+			for (String line : lines) {
+				out.write((line + "\n").getBytes(getOutputCharset()));
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not write the output of the job", e);
+		}
+	}
+
+	/**
+	 * Stops a job which is run through the DBMS_DATAPUMP package by attaching to it.
+	 *
+	 * @param job the name of the job, may be null when it is not known
+	 */
+	void stopApiJob(String job) {
+		if (StringUtils.isEmpty(job)) {
+			getLog().warn("The Data Pump job may still be running, its name is not known");
+			return;
+		}
+		getLog().warn("Stopping Data Pump job " + job);
+		try (Connection connection = openConnection()) {
+			DatapumpApiJob.stop(connection, job, resumable);
+		} catch (MojoExecutionException | MojoFailureException | SQLException e) {
+			getLog().warn("Could not stop Data Pump job " + job + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns true when the job is run through the DBMS_DATAPUMP package.
+	 */
+	boolean isApiEngine() throws MojoFailureException {
+		if (StringUtils.isEmpty(engine) || CLIENT.equalsIgnoreCase(engine)) {
+			return false;
+		}
+		if (API.equalsIgnoreCase(engine)) {
+			return true;
+		}
+		throw new MojoFailureException("Unknown engine '" + engine + "'. Use one of: " + CLIENT + ", " + API);
+	}
+
+	/**
+	 * Builds a job per schema or per table group when the work is fanned out.
+	 *
+	 * @return the jobs by their label, or null when the work is done by a single job
+	 */
+	Map<String, Job> buildJobs() throws MojoFailureException {
+		Map<String, String> work = getFanOutWork();
+		if (work == null) {
+			return null;
+		}
+		boolean byTables = tableGroups != null && !tableGroups.isEmpty();
+		String originalSchemas = schemas;
+		String originalTables = tables;
+		String originalDumpfile = dumpfile;
+		String originalLogfile = logfile;
+		String originalJobName = jobName;
+		Map<String, Job> jobs = new LinkedHashMap<>();
+		try {
+			for (Map.Entry<String, String> entry : work.entrySet()) {
+				String label = entry.getKey();
+				schemas = byTables ? originalSchemas : entry.getValue();
+				tables = byTables ? entry.getValue() : originalTables;
+				dumpfile = withLabel(originalDumpfile, label);
+				logfile = withLabel(originalLogfile, label);
+				jobName = StringUtils.isEmpty(originalJobName) ? null : originalJobName + "_" + label;
+				jobs.put(label, isApiEngine() ? new Job(null, buildApiJob(), jobName)
+						: new Job(buildCommandline(), null, jobName));
+			}
+		} finally {
+			schemas = originalSchemas;
+			tables = originalTables;
+			dumpfile = originalDumpfile;
+			logfile = originalLogfile;
+			jobName = originalJobName;
+		}
+		return jobs;
+	}
+
+	/**
+	 * Returns the schemas or table groups of the fanned out jobs by their label, or null when the work is done by a
+	 * single job.
+	 */
+	private Map<String, String> getFanOutWork() {
+		Map<String, String> work = new LinkedHashMap<>();
+		if (tableGroups != null && !tableGroups.isEmpty()) {
+			for (int i = 0; i < tableGroups.size(); i++) {
+				work.put("GROUP" + (i + 1), tableGroups.get(i));
+			}
+		} else if (fanOut && StringUtils.isNotBlank(schemas)) {
+			for (String schema : StringUtils.split(schemas, ", ")) {
+				work.put(schema.toUpperCase(), schema);
+			}
+		} else {
+			return null;
+		}
+		return work;
+	}
+
+	/**
+	 * Returns the dump files of all jobs, like <code>DIR:export_HR_%U.dmp</code>, with the labels of fanned out jobs
+	 * and the substitution variable of a dump file set.
+	 */
+	List<String> getJobDumpfiles() throws MojoFailureException {
+		String files = getDumpfile(getDegree());
+		Map<String, String> work = getFanOutWork();
+		List<String> all = new ArrayList<>();
+		for (String label : work == null ? Collections.singleton((String) null) : work.keySet()) {
+			String labelled = label == null ? files : withLabel(files, label);
+			for (String file : StringUtils.split(StringUtils.defaultString(labelled), ",")) {
+				if (StringUtils.isNotBlank(file)) {
+					all.add(file.trim());
+				}
+			}
+		}
+		return all;
+	}
+
+	private boolean executeJobs(final Map<String, Job> jobs) throws MojoExecutionException {
+		final List<String> labels = new ArrayList<>(jobs.keySet());
+		final OrderedLog orderedLog = new OrderedLog(labels.size());
+		getLog().info("Running " + labels.size() + " Data Pump jobs, " + Math.max(1, fanOutThreads) + " at a time");
+		ParallelExecutor<String> executor = new ParallelExecutor<>(fanOutThreads, false);
+		Map<String, ParallelExecutor.Status> result;
+		try {
+			result = executor.execute(labels, Collections.<String, Set<String>>emptyMap(),
+					new ParallelExecutor.Task<String>() {
+						@Override
+						public boolean run(String label) {
+							Job job = jobs.get(label);
+							BufferedLog log = new BufferedLog("[" + label + "] ");
+							long start = System.currentTimeMillis();
+							try {
+								if (job.apiJob != null) {
+									runApiJob(job.apiJob, log.info(), log.error());
+								} else {
+									runJob(job.commandLine, job.name, log.info(), log.error(),
+											createMonitor("[" + label + "] "));
+								}
+								log.add("completed in " + (System.currentTimeMillis() - start) + " ms", false);
+								return true;
+							} catch (ExecuteException e) {
+								log.add(describe(e) + " after " + (System.currentTimeMillis() - start) + " ms", true);
+							} catch (IOException e) {
+								log.add("Command execution failed: " + e.getMessage(), true);
+							} catch (MojoExecutionException | MojoFailureException e) {
+								log.add(e.getMessage(), true);
+							} finally {
+								orderedLog.complete(labels.indexOf(label), log);
+							}
+							return false;
+						}
+					});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while running Data Pump jobs", e);
+		} finally {
+			orderedLog.completeAll();
+		}
+		List<String> failed = new ArrayList<>();
+		for (Map.Entry<String, ParallelExecutor.Status> entry : result.entrySet()) {
+			if (entry.getValue() != ParallelExecutor.Status.SUCCEEDED) {
+				failed.add(entry.getKey());
+			}
+		}
+		getLog().info((labels.size() - failed.size()) + " of " + labels.size() + " Data Pump jobs succeeded");
+		if (!failed.isEmpty()) {
+			String message = "Data Pump job(s) failed: " + StringUtils.join(failed, ", ");
+			if (failOnError) {
+				throw new MojoExecutionException(message);
+			}
+			getLog().warn(message);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the label of a job to the names of a list of files, like <code>DIR:export_HR_%U.dmp</code> for
+	 * <code>DIR:export_%U.dmp</code>.
+	 */
+	static String withLabel(String files, String label) {
+		if (StringUtils.isEmpty(files)) {
+			return files;
+		}
+		List<String> labelled = new ArrayList<>();
+		for (String file : StringUtils.split(files, ",")) {
+			labelled.add(insertBeforeExtension(file.trim(), "_" + label));
+		}
+		return StringUtils.join(labelled, ",");
 	}
 
 	abstract CommandLine buildCommandline() throws MojoFailureException;
 
+	/**
+	 * Builds the job which is run through the DBMS_DATAPUMP package, with the same parameters as
+	 * {@link #buildCommandline()}.
+	 */
+	abstract DatapumpApiJob buildApiJob() throws MojoFailureException;
+
+	/**
+	 * Chooses the degree of parallelism when <code>parallel</code> is <code>auto</code>: one worker per dump file,
+	 * or <code>parallelMax</code> workers for a <code>%U</code> dump file set.
+	 */
+	int chooseDegree() throws MojoExecutionException, MojoFailureException {
+		List<String> files = getDumpfiles();
+		for (String file : files) {
+			if (SUBSTITUTION.matcher(file).find()) {
+				return parallelMax;
+			}
+		}
+		return files.size();
+	}
+
+	/**
+	 * Returns true when the job writes the dump file set, so a <code>%U</code> dump file set may be generated.
+	 */
+	boolean writesDumpfiles() {
+		return false;
+	}
+
+	/**
+	 * Returns the degree of parallelism, or 0 when it is neither specified nor chosen by the plugin.
+	 */
+	int getDegree() throws MojoFailureException {
+		if (StringUtils.isEmpty(parallel)) {
+			return autoDegree;
+		}
+		if (StringUtils.equalsIgnoreCase(parallel, AUTO)) {
+			return autoDegree;
+		}
+		if (!StringUtils.isNumeric(parallel) || Integer.parseInt(parallel) < 1) {
+			throw new MojoFailureException("parallel should be a positive number or " + AUTO + ": '" + parallel
+					+ "'");
+		}
+		return Integer.parseInt(parallel);
+	}
+
+	/**
+	 * Returns the dump file set for the degree of parallelism. A single dump file becomes a <code>%U</code> dump
+	 * file set when the job writes it. Fails when there are fewer dump files than workers.
+	 */
+	String getDumpfile(int degree) throws MojoFailureException {
+		List<String> files = getDumpfiles();
+		if (degree <= 1 || files.isEmpty()) {
+			return dumpfile;
+		}
+		for (String file : files) {
+			if (SUBSTITUTION.matcher(file).find()) {
+				return dumpfile;
+			}
+		}
+		if (files.size() == 1 && writesDumpfiles()) {
+			return toDumpfileSet(files.get(0));
+		}
+		if (files.size() < degree) {
+			throw new MojoFailureException("PARALLEL=" + degree + " needs at least " + degree
+					+ " dump files, but dumpfile names " + files.size() + ": " + dumpfile);
+		}
+		return dumpfile;
+	}
+
+	List<String> getDumpfiles() {
+		List<String> files = new ArrayList<>();
+		for (String file : StringUtils.split(StringUtils.defaultString(dumpfile), ",")) {
+			if (StringUtils.isNotBlank(file)) {
+				files.add(file.trim());
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Turns a dump file like <code>DIR:export.dmp</code> into the dump file set <code>DIR:export_%U.dmp</code>.
+	 */
+	static String toDumpfileSet(String file) {
+		return insertBeforeExtension(file, "_%U");
+	}
+
+	/**
+	 * Inserts text before the extension of a file name, or before its <code>%U</code> substitution variable.
+	 */
+	private static String insertBeforeExtension(String file, String text) {
+		int name = file.indexOf(':') + 1;
+		Matcher substitution = SUBSTITUTION.matcher(file);
+		int position = file.lastIndexOf('.');
+		if (substitution.find(name)) {
+			position = substitution.start();
+			// keep the separator before the substitution variable with it
+			if (position > name && file.charAt(position - 1) == '_') {
+				position--;
+			}
+		} else if (position < name) {
+			position = file.length();
+		}
+		return file.substring(0, position) + text + file.substring(position);
+	}
+
+	/**
+	 * Stops a job on the server by attaching to it. The job is killed, unless it is resumable.
+	 *
+	 * @param job the name of the job, optionally prefixed with its owner, may be null when it is not known
+	 */
+	void stopJob(String executable, String job) {
+		if (StringUtils.isEmpty(job)) {
+			getLog().warn("The Data Pump job may still be running, its name is not known");
+			return;
+		}
+		getLog().warn("Stopping Data Pump job " + job);
+		try {
+			CommandLine commandLine = buildAttachCommandline(executable, job);
+			Executor exec = new DefaultExecutor();
+			exec.setWatchdog(new ExecuteWatchdog(STOP_JOB_TIMEOUT));
+			// the second line confirms the stop
+			String command = resumable ? "STOP_JOB=IMMEDIATE\nyes\n" : "KILL_JOB\nyes\n";
+			exec.setStreamHandler(new PumpStreamHandler(new InfoLogOutputStream(), new ErrorLogOutputStream(),
+					new ByteArrayInputStream(command.getBytes(UTF_8))));
+			exec.execute(commandLine);
+		} catch (MojoFailureException | IOException e) {
+			getLog().warn("Could not stop Data Pump job " + job + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Builds the command line of a client which attaches to a job, and reads its commands from the standard input.
+	 */
+	CommandLine buildAttachCommandline(String executable, String job) throws MojoFailureException {
+		CommandLine commandLine = new CommandLine(executable);
+		commandLine.addArgument("'" + getConnectionIdentifier() + "'", false);
+		commandLine.addArgument("ATTACH=" + job);
+		return commandLine;
+	}
+
 	void addCommonArguments(CommandLine commandLine)
 			throws MojoFailureException {
 		commandLine.addArgument("'" + getConnectionIdentifier() + "'", false);
 
 		addStringArgument(commandLine, "CONTENT", content);
 		addStringArgument(commandLine, "DIRECTORY", directory);
-		addStringArgument(commandLine, "DUMPFILE", dumpfile);
+		int degree = getDegree();
+		addStringArgument(commandLine, "DUMPFILE", getDumpfile(degree));
 		addStringArgument(commandLine, "EXCLUDE", exclude);
 		addStringArgument(commandLine, "INCLUDE", include);
+		addStringArgument(commandLine, "JOB_NAME", jobName);
 		addStringArgument(commandLine, "LOGFILE", logfile);
 		addStringArgument(commandLine, "LOGTIME", logtime);
 		addStringArgument(commandLine, "NETWORK_LINK", networkLink);
 		addStringArgument(commandLine, "SCHEMAS", schemas);
 		addStringArgument(commandLine, "TABLES", tables);
+		if (degree > 0) {
+			commandLine.addArgument("PARALLEL=" + degree);
+		}
+		if (progressInterval > 0) {
+			commandLine.addArgument("STATUS=" + progressInterval);
+			commandLine.addArgument("METRICS=YES");
+		}
+	}
+
+	/**
+	 * Creates a job which is run through the DBMS_DATAPUMP package, with the calls for the common parameters.
+	 *
+	 * @param operation {@link DatapumpApiJob#EXPORT} or {@link DatapumpApiJob#IMPORT}
+	 * @param defaultMode the job mode without <code>schemas</code> and <code>tables</code>
+	 * @param filesize the maximum size of a dump file, may be null
+	 * @param reuse true to overwrite existing dump files
+	 */
+	DatapumpApiJob createApiJob(String operation, String defaultMode, String filesize, boolean reuse)
+			throws MojoFailureException {
+		String mode = defaultMode;
+		if (StringUtils.isNotBlank(tables)) {
+			mode = DatapumpApiJob.TABLE;
+		} else if (StringUtils.isNotBlank(schemas)) {
+			mode = DatapumpApiJob.SCHEMA;
+		}
+		DatapumpApiJob job = new DatapumpApiJob(operation, mode, StringUtils.defaultIfEmpty(networkLink, null),
+				StringUtils.defaultIfEmpty(jobName, null));
+
+		int degree = getDegree();
+		String files = getDumpfile(degree);
+		for (String file : StringUtils.split(StringUtils.defaultString(files), ",")) {
+			if (StringUtils.isNotBlank(file)) {
+				job.addFile(file, directory, filesize, false, reuse);
+			}
+		}
+		if (StringUtils.isNotEmpty(logfile)) {
+			job.addFile(logfile, directory, null, true, false);
+		}
+		if (StringUtils.equalsIgnoreCase(content, "DATA_ONLY")) {
+			job.setParameter("INCLUDE_METADATA", 0);
+		} else if (StringUtils.equalsIgnoreCase(content, "METADATA_ONLY")) {
+			job.dataFilter("INCLUDE_ROWS", 0);
+		}
+		if (StringUtils.isNotBlank(schemas)) {
+			Set<String> names = new LinkedHashSet<>();
+			for (String schema : StringUtils.split(schemas, ",")) {
+				names.add(DatapumpApiJob.toIdentifier(schema));
+			}
+			job.metadataFilter("SCHEMA_EXPR", DatapumpApiJob.inList(names), null);
+		}
+		if (StringUtils.isNotBlank(tables)) {
+			addTableFilters(job);
+		}
+		addObjectFilters(job, exclude, false);
+		addObjectFilters(job, include, true);
+		if (StringUtils.isNotEmpty(logtime)) {
+			job.setParameter("LOGTIME", logtime);
+		}
+		if (degree > 0) {
+			job.setParallel(degree);
+		}
+		return job;
+	}
+
+	private void addTableFilters(DatapumpApiJob job) throws MojoFailureException {
+		Set<String> owners = new LinkedHashSet<>();
+		Set<String> names = new LinkedHashSet<>();
+		for (String table : StringUtils.split(tables, ",")) {
+			if (table.contains(":")) {
+				throw new MojoFailureException("Partitions in tables are not supported by engine " + API + ": "
+						+ table.trim());
+			}
+			if (table.contains(".")) {
+				owners.add(DatapumpApiJob.toIdentifier(StringUtils.substringBefore(table, ".")));
+				table = StringUtils.substringAfter(table, ".");
+			}
+			names.add(DatapumpApiJob.toIdentifier(table));
+		}
+		if (!owners.isEmpty() && StringUtils.isBlank(schemas)) {
+			job.metadataFilter("SCHEMA_EXPR", DatapumpApiJob.inList(owners), null);
+		}
+		job.metadataFilter("NAME_EXPR", DatapumpApiJob.inList(names), DatapumpApiJob.TABLE);
+	}
+
+	/**
+	 * Turns <code>INCLUDE</code> or <code>EXCLUDE</code> into metadata filters: every name clause into a name filter
+	 * for its object type, and the object types into a single path filter. An excluded object type with a name
+	 * clause is only excluded by name.
+	 */
+	private static void addObjectFilters(DatapumpApiJob job, String value, boolean include) {
+		if (StringUtils.isBlank(value)) {
+			return;
+		}
+		Set<String> types = new LinkedHashSet<>();
+		for (String[] filter : DatapumpApiJob.parseObjectFilters(value)) {
+			if (filter[1] != null) {
+				job.metadataFilter(include ? "NAME_EXPR" : "EXCLUDE_NAME_EXPR", filter[1], filter[0]);
+			}
+			if (include || filter[1] == null) {
+				types.add(filter[0]);
+			}
+		}
+		if (!types.isEmpty()) {
+			job.metadataFilter(include ? "INCLUDE_PATH_EXPR" : "EXCLUDE_PATH_EXPR", DatapumpApiJob.inList(types),
+					null);
+		}
+	}
+
+	/**
+	 * Adds remaps like <code>HR:HR_TEST,SCOTT:SCOTT_TEST</code> to the job.
+	 */
+	static void addRemaps(DatapumpApiJob job, String remap, String value) throws MojoFailureException {
+		if (StringUtils.isBlank(value)) {
+			return;
+		}
+		for (String pair : StringUtils.split(value, ",")) {
+			String[] names = StringUtils.split(pair, ":");
+			if (names.length != 2) {
+				throw new MojoFailureException("Invalid " + remap + " '" + pair.trim() + "', use old:new");
+			}
+			job.metadataRemap(remap, DatapumpApiJob.toIdentifier(names[0]), DatapumpApiJob.toIdentifier(names[1]));
+		}
+	}
+
+	/**
+	 * Picks the name of the job out of the output of Data Pump.
+	 */
+	static class JobName implements LineTee.Listener {
+		volatile String job;
+
+		@Override
+		public void processLine(String line) {
+			if (job == null) {
+				Matcher matcher = JOB.matcher(line);
+				if (matcher.find()) {
+					job = matcher.group(1) + "." + matcher.group(2);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops a job in a thread of its own. The first error is found by the thread which pumps the output of the client,
+	 * which should not wait up to a minute for the job to stop.
+	 */
+	static class BackgroundStop implements Runnable {
+		private final Runnable stop;
+		private Thread thread;
+
+		BackgroundStop(Runnable stop) {
+			this.stop = stop;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (thread == null) {
+				thread = new Thread(stop, "oracledb-tool-stop");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		/**
+		 * Waits until the job is stopped, when it is being stopped.
+		 */
+		void await() {
+			Thread stopping;
+			synchronized (this) {
+				stopping = thread;
+			}
+			if (stopping != null) {
+				try {
+					stopping.join(2 * STOP_JOB_TIMEOUT);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A fanned out job, run by a Data Pump client or through the DBMS_DATAPUMP package.
+	 */
+	static class Job {
+		final CommandLine commandLine;
+		final DatapumpApiJob apiJob;
+		final String name;
+
+		Job(CommandLine commandLine, DatapumpApiJob apiJob, String name) {
+			this.commandLine = commandLine;
+			this.apiJob = apiJob;
+			this.name = name;
+		}
 	}
 
 	void addStringArgument(CommandLine commandLine, String argumentName, String argumentValue) {
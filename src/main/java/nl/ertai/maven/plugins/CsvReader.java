@@ -0,0 +1,141 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV or TSV file one by one. Fields in double quotes may contain delimiters, line breaks
+ * and doubled quotes. Empty lines are skipped.
+ */
+class CsvReader implements Closeable {
+
+	private static final char QUOTE = '"';
+
+	private final Reader reader;
+	private final char delimiter;
+	private final char[] buffer = new char[64 * 1024];
+	private final StringBuilder field = new StringBuilder();
+	private final List<String> fields = new ArrayList<>();
+
+	private int position;
+	private int limit;
+	private long lineNumber = 1;
+	private long recordLineNumber;
+
+	CsvReader(Reader reader, char delimiter) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Returns the fields of the next record, or null at the end of the file.
+	 */
+	String[] next() throws IOException {
+		while (true) {
+			recordLineNumber = lineNumber;
+			int c = read();
+			if (c == -1) {
+				return null;
+			}
+			fields.clear();
+			field.setLength(0);
+			boolean quoted = false;
+			boolean wasQuoted = false;
+			while (true) {
+				if (quoted) {
+					if (c == -1) {
+						throw new IOException("Quote at line " + recordLineNumber + " is not closed");
+					} else if (c == QUOTE) {
+						if (peek() == QUOTE) {
+							read();
+							field.append(QUOTE);
+						} else {
+							quoted = false;
+						}
+					} else {
+						if (c == '\n') {
+							lineNumber++;
+						}
+						field.append((char) c);
+					}
+				} else if (c == QUOTE && field.length() == 0 && !wasQuoted) {
+					quoted = true;
+					wasQuoted = true;
+				} else if (c == delimiter) {
+					fields.add(field.toString());
+					field.setLength(0);
+					wasQuoted = false;
+				} else if (c == '\n' || c == -1) {
+					if (c == '\n') {
+						lineNumber++;
+					}
+					break;
+				} else if (c != '\r' || peek() != '\n') {
+					field.append((char) c);
+				}
+				c = read();
+			}
+			if (fields.isEmpty() && field.length() == 0 && !wasQuoted) {
+				// an empty line
+				continue;
+			}
+			fields.add(field.toString());
+			return fields.toArray(new String[fields.size()]);
+		}
+	}
+
+	/**
+	 * Returns the line at which the last record returned by {@link #next()} starts.
+	 */
+	long getLineNumber() {
+		return recordLineNumber;
+	}
+
+	private int read() throws IOException {
+		if (position >= limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private int peek() throws IOException {
+		if (position >= limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private boolean fill() throws IOException {
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		position = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a data file into parts of about the same size at line boundaries, so the parts can be loaded at the same
+ * time. Every line should hold a complete record. The bytes are copied by the file system, without passing through
+ * the JVM.
+ */
+final class DataFileSplitter {
+
+	private DataFileSplitter() {
+	}
+
+	/**
+	 * Splits the data file.
+	 *
+	 * @param data the data file
+	 * @param parts the number of parts, fewer parts are created for a file with fewer lines
+	 * @param skip the number of lines at the start of the file which are left out, like a header
+	 * @param directory the directory the parts are written to
+	 * @return the parts, named after the data file with the number of the part
+	 */
+	static List<File> split(File data, int parts, int skip, File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create directory " + directory);
+		}
+		List<File> files = new ArrayList<>();
+		try (FileInputStream in = new FileInputStream(data)) {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			long start = 0;
+			for (int i = 0; i < skip && start < size; i++) {
+				start = nextLine(channel, start);
+			}
+			long partSize = (size - start + parts - 1) / Math.max(1, parts);
+			while (start < size) {
+				long end = files.size() == parts - 1 ? size : nextLine(channel, Math.min(size, start + partSize) - 1);
+				File part = new File(directory, partName(data.getName(), files.size() + 1));
+				try (FileOutputStream out = new FileOutputStream(part)) {
+					long position = start;
+					while (position < end) {
+						position += channel.transferTo(position, end - position, out.getChannel());
+					}
+				}
+				files.add(part);
+				start = end;
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Returns the position after the first line break at or after the given position, or the end of the file.
+	 */
+	private static long nextLine(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long size = channel.size();
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the name of a part or a file belonging to a part, like <code>data_2.csv</code> for
+	 * <code>data.csv</code>.
+	 */
+	static String partName(String name, int part) {
+		int dot = name.lastIndexOf('.');
+		return dot < 0 ? name + "_" + part : name.substring(0, dot) + "_" + part + name.substring(dot);
+	}
+}
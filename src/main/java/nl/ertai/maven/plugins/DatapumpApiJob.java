@@ -0,0 +1,524 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A Data Pump job which is run through the DBMS_DATAPUMP package, without the expdp or impdp client.
+ *
+ * The job is defined and started by a single PL/SQL block, which returns the handle of the job. The handle is only
+ * valid in the session which opened the job, so the job is polled over the same connection.
+ */
+class DatapumpApiJob {
+
+	static final String EXPORT = "EXPORT";
+	static final String IMPORT = "IMPORT";
+
+	static final String FULL = "FULL";
+	static final String SCHEMA = "SCHEMA";
+	static final String TABLE = "TABLE";
+
+	private static final Set<String> FINISHED = new HashSet<>(Arrays.asList("COMPLETED", "STOPPED", "NOT RUNNING"));
+	private static final Set<String> RUNNING = new HashSet<>(Arrays.asList("EXECUTING", "COMPLETING",
+			"STOP PENDING"));
+
+	/**
+	 * ORA-31626 (job does not exist) and ORA-39002 (invalid operation) are raised on attaching to a job whose master
+	 * table cannot be used anymore.
+	 */
+	private static final Set<Integer> STALE = new HashSet<>(Arrays.asList(31626, 39002));
+	private static final Pattern ROWS = Pattern.compile("^\\.\\s+\\.\\s+(?:exported|imported)\\s.*\\s(\\d+)\\s+rows");
+
+	private static final String STATUS_BLOCK = "DECLARE\n"
+			+ "  job_state VARCHAR2(30);\n"
+			+ "  sts ku$_Status;\n"
+			+ "  log_text VARCHAR2(32767);\n"
+			+ "  error_text VARCHAR2(32767);\n"
+			+ "  rows_done NUMBER := 0;\n"
+			+ "  objects VARCHAR2(4000);\n"
+			+ "  PROCEDURE append(entries IN ku$_LogEntry, text IN OUT VARCHAR2) IS\n"
+			+ "  BEGIN\n"
+			+ "    IF entries IS NOT NULL THEN\n"
+			+ "      FOR i IN 1 .. entries.COUNT LOOP\n"
+			+ "        text := SUBSTR(text || entries(i).LogText || CHR(10), 1, 32000);\n"
+			+ "      END LOOP;\n"
+			+ "    END IF;\n"
+			+ "  END;\n"
+			+ "BEGIN\n"
+			+ "  DBMS_DATAPUMP.GET_STATUS(?, DBMS_DATAPUMP.KU$_STATUS_JOB_STATUS + DBMS_DATAPUMP.KU$_STATUS_WIP\n"
+			+ "      + DBMS_DATAPUMP.KU$_STATUS_JOB_ERROR, ?, job_state, sts);\n"
+			+ "  IF BITAND(sts.mask, DBMS_DATAPUMP.KU$_STATUS_WIP) != 0 THEN\n"
+			+ "    append(sts.wip, log_text);\n"
+			+ "  END IF;\n"
+			+ "  IF BITAND(sts.mask, DBMS_DATAPUMP.KU$_STATUS_JOB_ERROR) != 0 THEN\n"
+			+ "    append(sts.error, error_text);\n"
+			+ "  END IF;\n"
+			+ "  IF BITAND(sts.mask, DBMS_DATAPUMP.KU$_STATUS_JOB_STATUS) != 0 THEN\n"
+			+ "    ? := sts.job_status.job_name;\n"
+			+ "    ? := sts.job_status.percent_done;\n"
+			+ "    IF sts.job_status.worker_status_list IS NOT NULL THEN\n"
+			+ "      FOR i IN 1 .. sts.job_status.worker_status_list.COUNT LOOP\n"
+			+ "        IF sts.job_status.worker_status_list(i).name IS NOT NULL THEN\n"
+			+ "          rows_done := rows_done + NVL(sts.job_status.worker_status_list(i).completed_rows, 0);\n"
+			+ "          objects := SUBSTR(objects || CASE WHEN objects IS NOT NULL THEN ', ' END\n"
+			+ "              || sts.job_status.worker_status_list(i).schema || '.'\n"
+			+ "              || sts.job_status.worker_status_list(i).name, 1, 4000);\n"
+			+ "        END IF;\n"
+			+ "      END LOOP;\n"
+			+ "    END IF;\n"
+			+ "  END IF;\n"
+			+ "  ? := job_state;\n"
+			+ "  ? := rows_done;\n"
+			+ "  ? := objects;\n"
+			+ "  ? := log_text;\n"
+			+ "  ? := error_text;\n"
+			+ "END;";
+
+	private final List<Object> binds = new ArrayList<>();
+	private final StringBuilder calls = new StringBuilder();
+
+	private long loggedRows;
+	private int errors;
+	private volatile String name;
+
+	/**
+	 * @param operation {@link #EXPORT} or {@link #IMPORT}
+	 * @param jobMode {@link #FULL}, {@link #SCHEMA} or {@link #TABLE}
+	 * @param remoteLink the database link to export or import from, may be null
+	 * @param jobName the name of the job, may be null to let Data Pump choose the name
+	 */
+	DatapumpApiJob(String operation, String jobMode, String remoteLink, String jobName) {
+		binds.addAll(Arrays.<Object>asList(operation, jobMode, remoteLink, jobName));
+		name = jobName;
+	}
+
+	/**
+	 * Adds a dump file or log file, like <code>DIR:export.dmp</code> or <code>export.dmp</code>.
+	 *
+	 * @param directory the directory object of a file without one, may be null
+	 * @param filesize the maximum size of a dump file, may be null
+	 * @param reuse true to overwrite an existing dump file
+	 */
+	void addFile(String file, String directory, String filesize, boolean log, boolean reuse) {
+		int colon = file.indexOf(':');
+		if (colon >= 0) {
+			directory = file.substring(0, colon);
+			file = file.substring(colon + 1);
+		}
+		calls.append("  DBMS_DATAPUMP.ADD_FILE(handle => h, filename => ?, directory => ?, filesize => ?, filetype => ")
+				.append(log ? "DBMS_DATAPUMP.KU$_FILE_TYPE_LOG_FILE" : "DBMS_DATAPUMP.KU$_FILE_TYPE_DUMP_FILE")
+				.append(reuse ? ", reusefile => 1" : "").append(");\n");
+		binds.addAll(Arrays.<Object>asList(file.trim(), directory, filesize));
+	}
+
+	/**
+	 * @param objectPath the object type the filter applies to, may be null for all object types
+	 */
+	void metadataFilter(String filter, String value, String objectPath) {
+		calls.append("  DBMS_DATAPUMP.METADATA_FILTER(h, ?, ?, ?);\n");
+		binds.addAll(Arrays.<Object>asList(filter, value, objectPath));
+	}
+
+	void dataFilter(String filter, long value) {
+		calls.append("  DBMS_DATAPUMP.DATA_FILTER(h, ?, ?);\n");
+		binds.addAll(Arrays.<Object>asList(filter, value));
+	}
+
+	void metadataRemap(String remap, String oldValue, String newValue) {
+		calls.append("  DBMS_DATAPUMP.METADATA_REMAP(h, ?, ?, ?);\n");
+		binds.addAll(Arrays.<Object>asList(remap, oldValue, newValue));
+	}
+
+	void setParameter(String parameter, String value) {
+		calls.append("  DBMS_DATAPUMP.SET_PARAMETER(h, ?, ?);\n");
+		binds.addAll(Arrays.<Object>asList(parameter, value));
+	}
+
+	void setParameter(String parameter, long value) {
+		calls.append("  DBMS_DATAPUMP.SET_PARAMETER(h, ?, ?);\n");
+		binds.addAll(Arrays.<Object>asList(parameter, value));
+	}
+
+	void setParallel(int degree) {
+		calls.append("  DBMS_DATAPUMP.SET_PARALLEL(h, ?);\n");
+		binds.add((long) degree);
+	}
+
+	/**
+	 * Returns the PL/SQL block which defines and starts the job. The last bind variable receives the handle.
+	 */
+	String getStartBlock() {
+		return "DECLARE\n"
+				+ "  h NUMBER;\n"
+				+ "BEGIN\n"
+				+ "  h := DBMS_DATAPUMP.OPEN(operation => ?, job_mode => ?, remote_link => ?, job_name => ?);\n"
+				+ calls
+				+ "  DBMS_DATAPUMP.START_JOB(h);\n"
+				+ "  ? := h;\n"
+				+ "EXCEPTION\n"
+				+ "  WHEN OTHERS THEN\n"
+				+ "    IF h IS NOT NULL THEN\n"
+				+ "      BEGIN\n"
+				+ "        DBMS_DATAPUMP.STOP_JOB(h);\n"
+				+ "      EXCEPTION\n"
+				+ "        WHEN OTHERS THEN NULL;\n"
+				+ "      END;\n"
+				+ "    END IF;\n"
+				+ "    RAISE;\n"
+				+ "END;";
+	}
+
+	/**
+	 * Returns the values of the bind variables of the start block, without the handle.
+	 */
+	List<Object> getBinds() {
+		return Collections.unmodifiableList(binds);
+	}
+
+	/**
+	 * Returns the name of the job, or null when Data Pump chooses the name and the job has not reported it yet.
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of errors the job has reported.
+	 */
+	int getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Defines and starts the job.
+	 *
+	 * @return the handle of the job
+	 */
+	long start(Connection connection) throws SQLException {
+		try (CallableStatement statement = connection.prepareCall(getStartBlock())) {
+			for (int i = 0; i < binds.size(); i++) {
+				Object value = binds.get(i);
+				if (value == null) {
+					statement.setNull(i + 1, Types.VARCHAR);
+				} else if (value instanceof Long) {
+					statement.setLong(i + 1, (Long) value);
+				} else {
+					statement.setString(i + 1, (String) value);
+				}
+			}
+			statement.registerOutParameter(binds.size() + 1, Types.NUMERIC);
+			statement.execute();
+			return statement.getLong(binds.size() + 1);
+		}
+	}
+
+	/**
+	 * Waits for the job to report its status.
+	 *
+	 * @param timeout the seconds to wait for new status information
+	 */
+	Status poll(Connection connection, long handle, int timeout) throws SQLException {
+		try (CallableStatement statement = connection.prepareCall(STATUS_BLOCK)) {
+			statement.setLong(1, handle);
+			statement.setInt(2, timeout);
+			statement.registerOutParameter(3, Types.VARCHAR);
+			statement.registerOutParameter(4, Types.NUMERIC);
+			statement.registerOutParameter(5, Types.VARCHAR);
+			statement.registerOutParameter(6, Types.NUMERIC);
+			for (int i = 7; i <= 9; i++) {
+				statement.registerOutParameter(i, Types.VARCHAR);
+			}
+			statement.execute();
+			if (statement.getString(3) != null) {
+				name = statement.getString(3);
+			}
+			int percentDone = statement.getInt(4);
+			if (statement.wasNull()) {
+				percentDone = -1;
+			}
+			return process(statement.getString(5), percentDone, statement.getLong(6), statement.getString(7),
+					split(statement.getString(8)), split(statement.getString(9)));
+		}
+	}
+
+	/**
+	 * Turns what the job reported into its status, counting the rows of the objects which are done.
+	 *
+	 * @param percentDone the percentage of the job which is done, or -1 when it is not known
+	 * @param workerRows the rows of the objects the workers are busy with
+	 */
+	Status process(String state, int percentDone, long workerRows, String objects, List<String> log,
+			List<String> errorLog) {
+		for (String line : log) {
+			Matcher matcher = ROWS.matcher(line.trim());
+			if (matcher.find()) {
+				loggedRows += Long.parseLong(matcher.group(1));
+			}
+		}
+		errors += errorLog.size();
+		return new Status(state, percentDone, loggedRows + workerRows, objects, log, errorLog);
+	}
+
+	private static List<String> split(String text) {
+		List<String> lines = new ArrayList<>();
+		for (String line : StringUtils.split(StringUtils.defaultString(text), '\n')) {
+			if (StringUtils.isNotBlank(line)) {
+				lines.add(StringUtils.stripEnd(line, null));
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Stops a job by attaching to it, from another session than the one which started it.
+	 *
+	 * @param job the name of the job, optionally prefixed with its owner
+	 * @param keepMaster keep the master table, so the job can be resumed, instead of killing the job
+	 */
+	static void stop(Connection connection, String job, boolean keepMaster) throws SQLException {
+		String owner = null;
+		if (job.contains(".")) {
+			owner = StringUtils.substringBefore(job, ".");
+			job = StringUtils.substringAfter(job, ".");
+		}
+		try (CallableStatement statement = connection.prepareCall("DECLARE\n"
+				+ "  h NUMBER;\n"
+				+ "BEGIN\n"
+				+ "  h := DBMS_DATAPUMP.ATTACH(?, ?);\n"
+				+ "  DBMS_DATAPUMP.STOP_JOB(h, 1, ?);\n"
+				+ "END;")) {
+			statement.setString(1, job);
+			statement.setString(2, owner);
+			statement.setInt(3, keepMaster ? 1 : 0);
+			statement.execute();
+		}
+	}
+
+	/**
+	 * Detaches from the job, which keeps running when it has not finished.
+	 */
+	static void detach(Connection connection, long handle) throws SQLException {
+		try (CallableStatement statement = connection.prepareCall("BEGIN DBMS_DATAPUMP.DETACH(?); END;")) {
+			statement.setLong(1, handle);
+			statement.execute();
+		}
+	}
+
+	/**
+	 * Returns the state of a job of the user, like <code>NOT RUNNING</code> for a stopped job.
+	 *
+	 * @return the state, or null when there is no such job
+	 */
+	static String getState(Connection connection, String job) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT state FROM user_datapump_jobs WHERE job_name = ?")) {
+			statement.setString(1, job);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				return resultSet.next() ? resultSet.getString(1) : null;
+			}
+		}
+	}
+
+	/**
+	 * Returns true when the job runs, so it is not started again when a client attaches to it.
+	 */
+	static boolean isRunning(String state) {
+		return RUNNING.contains(StringUtils.upperCase(state));
+	}
+
+	/**
+	 * Attaches to a job of the user, and starts it again when it does not run.
+	 *
+	 * @param start true to start the job
+	 * @return the handle of the job
+	 */
+	static long attach(Connection connection, String job, boolean start) throws SQLException {
+		try (CallableStatement statement = connection.prepareCall("DECLARE\n"
+				+ "  h NUMBER;\n"
+				+ "BEGIN\n"
+				+ "  h := DBMS_DATAPUMP.ATTACH(?, USER);\n"
+				+ (start ? "  DBMS_DATAPUMP.START_JOB(h);\n" : "")
+				+ "  ? := h;\n"
+				+ "END;")) {
+			statement.setString(1, job);
+			statement.registerOutParameter(2, Types.NUMERIC);
+			statement.execute();
+			return statement.getLong(2);
+		}
+	}
+
+	/**
+	 * Checks whether a client can attach to a job of the user, and detaches again.
+	 *
+	 * @return false when the master table of the job cannot be used anymore
+	 * @throws SQLException when attaching fails for another reason
+	 */
+	static boolean canAttach(Connection connection, String job) throws SQLException {
+		try {
+			detach(connection, attach(connection, job, false));
+			return true;
+		} catch (SQLException e) {
+			if (STALE.contains(e.getErrorCode())) {
+				return false;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Drops the master table of a job of the user, which removes a job that is not running.
+	 */
+	static void dropMasterTable(Connection connection, String job) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE \"" + StringUtils.replace(job, "\"", "") + "\"");
+		}
+	}
+
+	/**
+	 * Turns a list of names into an <code>IN</code> clause, like <code>IN ('HR', 'SCOTT')</code>.
+	 */
+	static String inList(Collection<String> values) {
+		List<String> quoted = new ArrayList<>();
+		for (String value : values) {
+			quoted.add("'" + StringUtils.replace(value, "'", "''") + "'");
+		}
+		return "IN (" + StringUtils.join(quoted, ", ") + ")";
+	}
+
+	/**
+	 * Returns a name the way the database stores it: unquoted names in upper case, quoted names as they are.
+	 */
+	static String toIdentifier(String name) {
+		name = name.trim();
+		if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+			return name.substring(1, name.length() - 1);
+		}
+		return name.toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Splits the value of <code>INCLUDE</code> or <code>EXCLUDE</code> into its object types with their optional
+	 * name clauses, like <code>TABLE:"IN ('EMP')"</code>. The surrounding double quotes of a name clause are
+	 * removed.
+	 *
+	 * @return pairs of an object type and a name clause, which is null when there is none
+	 */
+	static List<String[]> parseObjectFilters(String value) {
+		List<String[]> filters = new ArrayList<>();
+		for (String filter : splitOutsideQuotes(value)) {
+			if (StringUtils.isBlank(filter)) {
+				continue;
+			}
+			String type = StringUtils.substringBefore(filter, ":").trim().toUpperCase(Locale.ROOT);
+			String clause = filter.contains(":") ? StringUtils.substringAfter(filter, ":").trim() : null;
+			if (clause != null && clause.length() > 1 && clause.startsWith("\"") && clause.endsWith("\"")) {
+				clause = clause.substring(1, clause.length() - 1).trim();
+			}
+			filters.add(new String[] {type, StringUtils.defaultIfEmpty(clause, null)});
+		}
+		return filters;
+	}
+
+	private static List<String> splitOutsideQuotes(String value) {
+		List<String> parts = new ArrayList<>();
+		StringBuilder part = new StringBuilder();
+		char quote = 0;
+		int depth = 0;
+		for (char c : value.toCharArray()) {
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (c == ',' && depth == 0) {
+				parts.add(part.toString());
+				part.setLength(0);
+				continue;
+			}
+			part.append(c);
+		}
+		parts.add(part.toString());
+		return parts;
+	}
+
+	/**
+	 * Describes the progress of the job in one line.
+	 *
+	 * @param elapsedMillis the time since the job was started
+	 */
+	static String progress(Status status, long elapsedMillis) {
+		StringBuilder line = new StringBuilder(StringUtils.defaultString(status.state, "UNKNOWN"));
+		if (status.percentDone >= 0) {
+			line.append(", ").append(status.percentDone).append("% done");
+		}
+		long seconds = Math.max(1, elapsedMillis / 1000);
+		line.append(String.format(Locale.ROOT, ", %,d rows, %,d rows/s", status.rows, status.rows / seconds));
+		if (StringUtils.isNotEmpty(status.objects)) {
+			line.append(", current object: ").append(status.objects);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * The status of a job at one moment.
+	 */
+	static class Status {
+		final String state;
+		final int percentDone;
+		final long rows;
+		final String objects;
+		final List<String> log;
+		final List<String> errors;
+
+		Status(String state, int percentDone, long rows, String objects, List<String> log, List<String> errors) {
+			this.state = state;
+			this.percentDone = percentDone;
+			this.rows = rows;
+			this.objects = objects;
+			this.log = log;
+			this.errors = errors;
+		}
+
+		boolean isFinished() {
+			return state != null && FINISHED.contains(state);
+		}
+	}
+}
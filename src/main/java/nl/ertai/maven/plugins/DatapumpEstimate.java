@@ -0,0 +1,95 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the estimated size of an export out of the output of <code>expdp ESTIMATE_ONLY=YES</code>.
+ */
+class DatapumpEstimate implements LineTee.Listener {
+
+	private static final Pattern TOTAL = Pattern.compile(
+			"^Total estimation using \\w+ method:\\s+([\\d.,]+)\\s*(B|KB|MB|GB|TB)\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern TABLE = Pattern.compile(
+			"^\\.\\s+estimated\\s+(\"[^\"]+\"\\.\"[^\"]+\"(?::\"[^\"]+\")?)\\s+([\\d.,]+)\\s*(B|KB|MB|GB|TB)\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	private final Map<String, Long> tables = new LinkedHashMap<>();
+
+	private long totalBytes = -1;
+
+	@Override
+	public synchronized void processLine(String line) {
+		String trimmed = line.trim();
+		Matcher table = TABLE.matcher(trimmed);
+		if (table.find()) {
+			String name = table.group(1).replace("\"", "");
+			Long bytes = tables.get(name);
+			tables.put(name, (bytes == null ? 0 : bytes) + toBytes(table.group(2), table.group(3)));
+			return;
+		}
+		Matcher total = TOTAL.matcher(trimmed);
+		if (total.find()) {
+			totalBytes = toBytes(total.group(1), total.group(2));
+		}
+	}
+
+	/**
+	 * Returns the estimated size of the export in bytes, or -1 when Data Pump did not report it.
+	 */
+	synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Returns the estimated size in bytes of every table, or table partition, like <code>HR.EMP</code> or
+	 * <code>HR.SALES:P2019</code>.
+	 */
+	synchronized Map<String, Long> getTables() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(tables));
+	}
+
+	/**
+	 * Converts a size like <code>1.5 GB</code> into bytes. Data Pump uses units of 1024.
+	 */
+	static long toBytes(String number, String unit) {
+		BigDecimal value = new BigDecimal(number.replace(",", ""));
+		int power = "BKMGT".indexOf(Character.toUpperCase(unit.charAt(0)));
+		return value.multiply(BigDecimal.valueOf(1024).pow(power)).longValue();
+	}
+
+	/**
+	 * Formats a number of bytes like Data Pump does.
+	 */
+	static String format(long bytes) {
+		String[] units = {"B", "KB", "MB", "GB", "TB"};
+		double value = bytes;
+		int unit = 0;
+		while (value >= 1024 && unit < units.length - 1) {
+			value /= 1024;
+			unit++;
+		}
+		return unit == 0 ? bytes + " B" : String.format(Locale.ROOT, "%.2f %s", value, units[unit]);
+	}
+}
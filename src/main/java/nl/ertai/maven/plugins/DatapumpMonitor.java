@@ -0,0 +1,259 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Keeps running totals of the tables, rows and bytes a Data Pump client reports, and reports its throughput.
+ *
+ * The totals come from the <code>. . exported</code> and <code>. . imported</code> lines, the object types from the
+ * <code>Processing object type</code> lines, and the percentage done and the objects the workers are busy with from
+ * the status the client prints every <code>STATUS</code> seconds. Timestamps of <code>LOGTIME</code> and worker
+ * prefixes of <code>METRICS=YES</code> are ignored.
+ */
+class DatapumpMonitor implements LineTee.Listener {
+
+	private static final Pattern PREFIX = Pattern.compile(
+			"^(?:\\d{1,2}-\\w{3}-\\d{2,4} \\d{2}:\\d{2}:\\d{2}(?:\\.\\d+)?:\\s*)?(?:W-\\d+\\s+)?");
+	private static final Pattern OBJECT_TYPE = Pattern.compile("^Processing object type (\\S+)");
+	static final Pattern ROWS = Pattern.compile(
+			"^\\.\\s+\\.\\s+(?:exported|imported)\\s+(.+?)\\s+([\\d.,]+)\\s*(B|KB|MB|GB|TB)\\s+([\\d,]+)\\s+rows",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern PERCENT = Pattern.compile("^Percent Done:\\s*(\\d+)");
+	private static final Pattern WORKER = Pattern.compile("^Worker (\\d+) Status:");
+	private static final Pattern OBJECT = Pattern.compile("^Object (Schema|Name):\\s*(\\S+)");
+
+	private final LineTee.Listener report;
+	private final long intervalMillis;
+	private final long start;
+
+	private final Map<String, Totals> byType = new LinkedHashMap<>();
+	private final Map<Integer, String> workers = new TreeMap<>();
+	private final Map<String, Long> tableBytes = new LinkedHashMap<>();
+	private final Totals total = new Totals();
+
+	private Totals current;
+	private long currentSince;
+	private long lastReport;
+	private int percentDone = -1;
+	private Integer worker;
+	private String schema;
+
+	/**
+	 * @param report receives the progress lines and the throughput table
+	 * @param intervalMillis the time between two progress lines
+	 */
+	DatapumpMonitor(LineTee.Listener report, long intervalMillis) {
+		this(report, intervalMillis, System.currentTimeMillis());
+	}
+
+	DatapumpMonitor(LineTee.Listener report, long intervalMillis, long start) {
+		this.report = report;
+		this.intervalMillis = intervalMillis;
+		this.start = start;
+		this.lastReport = start;
+		this.currentSince = start;
+	}
+
+	@Override
+	public void processLine(String line) {
+		processLine(line, System.currentTimeMillis());
+	}
+
+	void processLine(String line, long now) {
+		String progress;
+		synchronized (this) {
+			parse(PREFIX.matcher(line.trim()).replaceFirst(""), now);
+			if (now - lastReport < intervalMillis) {
+				return;
+			}
+			lastReport = now;
+			progress = getProgress(now);
+		}
+		report.processLine(progress);
+	}
+
+	private void parse(String line, long now) {
+		Matcher matcher = OBJECT_TYPE.matcher(line);
+		if (matcher.find()) {
+			switchTo(matcher.group(1), now);
+			return;
+		}
+		matcher = ROWS.matcher(line);
+		if (matcher.find()) {
+			long bytes = DatapumpEstimate.toBytes(matcher.group(2), matcher.group(3));
+			long rows = Long.parseLong(matcher.group(4).replace(",", ""));
+			total.add(bytes, rows);
+			String table = matcher.group(1).replace("\"", "");
+			Long tableTotal = tableBytes.get(table);
+			tableBytes.put(table, (tableTotal == null ? 0 : tableTotal) + bytes);
+			if (current != null) {
+				current.add(bytes, rows);
+			}
+			return;
+		}
+		matcher = PERCENT.matcher(line);
+		if (matcher.find()) {
+			percentDone = Integer.parseInt(matcher.group(1));
+			// a new status report, the workers report what they are busy with now
+			workers.clear();
+			return;
+		}
+		matcher = WORKER.matcher(line);
+		if (matcher.find()) {
+			worker = Integer.valueOf(matcher.group(1));
+			schema = null;
+			return;
+		}
+		matcher = OBJECT.matcher(line);
+		if (matcher.find() && worker != null) {
+			if ("Schema".equals(matcher.group(1))) {
+				schema = matcher.group(2);
+			} else {
+				workers.put(worker, schema == null ? matcher.group(2) : schema + "." + matcher.group(2));
+			}
+		}
+	}
+
+	private void switchTo(String type, long now) {
+		if (current != null) {
+			current.millis += now - currentSince;
+		}
+		current = byType.get(type);
+		if (current == null) {
+			current = new Totals();
+			byType.put(type, current);
+		}
+		currentSince = now;
+	}
+
+	/**
+	 * Describes the progress so far in one line.
+	 */
+	synchronized String getProgress(long now) {
+		long elapsed = Math.max(1, now - start);
+		StringBuilder line = new StringBuilder("Progress:");
+		if (percentDone >= 0) {
+			line.append(" ").append(percentDone).append("% done,");
+		}
+		line.append(String.format(Locale.ROOT, " %,d tables, %,d rows, %s, %.1f tables/s, %,d rows/s, %s/s",
+				total.tables, total.rows, DatapumpEstimate.format(total.bytes), total.tables * 1000.0 / elapsed,
+				total.rows * 1000 / elapsed, DatapumpEstimate.format(total.bytes * 1000 / elapsed)));
+		if (percentDone > 0 && percentDone < 100) {
+			line.append(", ETA ").append(formatDuration(elapsed * (100 - percentDone) / percentDone));
+		}
+		if (!workers.isEmpty()) {
+			line.append(", current: ").append(StringUtils.join(workers.values(), ", "));
+		} else if (current != null) {
+			line.append(", current: ").append(getCurrentType());
+		}
+		return line.toString();
+	}
+
+	private String getCurrentType() {
+		for (Map.Entry<String, Totals> entry : byType.entrySet()) {
+			if (entry.getValue() == current) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the throughput per object type and in total, as lines of a table. The time of an object type is the
+	 * time from its <code>Processing object type</code> line to the next one.
+	 */
+	synchronized List<String> getTable(long now) {
+		List<String> table = new ArrayList<>();
+		String format = "%-50s %10s %8s %15s %12s %12s";
+		table.add(String.format(Locale.ROOT, format, "Object type", "Seconds", "Tables", "Rows", "Size", "Rows/s"));
+		for (Map.Entry<String, Totals> entry : byType.entrySet()) {
+			Totals totals = entry.getValue();
+			long millis = totals.millis + (totals == current ? now - currentSince : 0);
+			if (totals.tables > 0 || millis >= 1000) {
+				table.add(row(format, entry.getKey(), millis, totals));
+			}
+		}
+		table.add(row(format, "Total", now - start, total));
+		return table;
+	}
+
+	private static String row(String format, String name, long millis, Totals totals) {
+		return String.format(Locale.ROOT, format, StringUtils.abbreviate(name, 50),
+				String.format(Locale.ROOT, "%.1f", millis / 1000.0), String.format(Locale.ROOT, "%,d", totals.tables),
+				String.format(Locale.ROOT, "%,d", totals.rows), DatapumpEstimate.format(totals.bytes),
+				String.format(Locale.ROOT, "%,d", totals.rows * 1000 / Math.max(1, millis)));
+	}
+
+	/**
+	 * Reports the throughput table, when the client has finished.
+	 */
+	void finish() {
+		List<String> table = getTable(System.currentTimeMillis());
+		report.processLine("Data Pump throughput:");
+		for (String line : table) {
+			report.processLine(line);
+		}
+	}
+
+	synchronized long getRows() {
+		return total.rows;
+	}
+
+	synchronized long getBytes() {
+		return total.bytes;
+	}
+
+	synchronized int getTables() {
+		return total.tables;
+	}
+
+	/**
+	 * Returns the bytes of every table, or table partition, like <code>HR.EMP</code> or <code>HR.SALES:P2019</code>.
+	 */
+	synchronized Map<String, Long> getTableBytes() {
+		return new LinkedHashMap<>(tableBytes);
+	}
+
+	static String formatDuration(long millis) {
+		long seconds = millis / 1000;
+		return String.format(Locale.ROOT, "%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
+
+	private static class Totals {
+		private int tables;
+		private long rows;
+		private long bytes;
+		private long millis;
+
+		void add(long bytes, long rows) {
+			this.tables++;
+			this.rows += rows;
+			this.bytes += bytes;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Watches the output of a tool while it is running, and stops the tool at the first error.
+ *
+ * Every line is matched against the rules in order, the first matching rule decides the severity of the line. The
+ * configured rules come before the {@link #DEFAULT_RULES}.
+ */
+class ErrorDetector implements LineTee.Listener {
+
+	static final String ERROR = "error";
+	static final String WARNING = "warning";
+
+	static final List<ErrorRule> DEFAULT_RULES = Arrays.asList(
+			// object already exists
+			new ErrorRule("^ORA-31684", WARNING),
+			// object created with compilation warnings
+			new ErrorRule("^ORA-39082", WARNING),
+			// table exists, skipped or appended to with TABLE_EXISTS_ACTION=SKIP or APPEND
+			new ErrorRule("^ORA-3915[12]", WARNING),
+			new ErrorRule("^ORA-\\d{5}", ERROR),
+			new ErrorRule("^SP2-\\d{4}", ERROR),
+			new ErrorRule("^(IMP|EXP|UDI|UDE)-\\d{5}", ERROR),
+			new ErrorRule("^SQL\\*Loader-\\d+", ERROR));
+
+	private final Charset charset;
+	private final List<Pattern> patterns = new ArrayList<>();
+	private final List<Boolean> errors = new ArrayList<>();
+
+	private Runnable stop;
+	private String error;
+	private String warning;
+	private int warnings;
+
+	/**
+	 * @param charset the charset of the output
+	 * @param rules the configured rules, may be null
+	 */
+	ErrorDetector(Charset charset, List<ErrorRule> rules) throws MojoFailureException {
+		this.charset = charset;
+		if (rules != null) {
+			addRules(rules);
+		}
+		addRules(DEFAULT_RULES);
+	}
+
+	private void addRules(List<ErrorRule> rules) throws MojoFailureException {
+		for (ErrorRule rule : rules) {
+			if (StringUtils.isEmpty(rule.getPattern())) {
+				throw new MojoFailureException("An error rule needs a pattern");
+			}
+			if (!StringUtils.equalsIgnoreCase(rule.getSeverity(), ERROR)
+					&& !StringUtils.equalsIgnoreCase(rule.getSeverity(), WARNING)) {
+				throw new MojoFailureException("Unknown severity '" + rule.getSeverity() + "' of error rule '"
+						+ rule.getPattern() + "'. Use one of: " + ERROR + ", " + WARNING);
+			}
+			try {
+				patterns.add(Pattern.compile(rule.getPattern()));
+			} catch (PatternSyntaxException e) {
+				throw new MojoFailureException("Invalid pattern of error rule '" + rule.getPattern() + "'", e);
+			}
+			errors.add(StringUtils.equalsIgnoreCase(rule.getSeverity(), ERROR));
+		}
+	}
+
+	/**
+	 * Sets what is done to stop the tool at the first error.
+	 */
+	void stopOnError(Runnable stop) {
+		boolean stopNow;
+		synchronized (this) {
+			this.stop = stop;
+			stopNow = error != null;
+		}
+		if (stopNow) {
+			stop.run();
+		}
+	}
+
+	/**
+	 * Returns a stream which passes everything on to the given stream, and watches the lines passing by.
+	 */
+	OutputStream watch(OutputStream out) {
+		return new LineTee(out, charset, Collections.singletonList(this));
+	}
+
+	@Override
+	public void processLine(String line) {
+		Runnable stopNow = null;
+		for (int i = 0; i < patterns.size(); i++) {
+			if (patterns.get(i).matcher(line).find()) {
+				synchronized (this) {
+					if (!errors.get(i)) {
+						warnings++;
+						if (warning == null) {
+							warning = line;
+						}
+					} else if (error == null) {
+						error = line;
+						stopNow = stop;
+					}
+				}
+				break;
+			}
+		}
+		if (stopNow != null) {
+			stopNow.run();
+		}
+	}
+
+	/**
+	 * Returns true when the first rule matching the line makes it an error, without recording it.
+	 */
+	boolean isError(String line) {
+		for (int i = 0; i < patterns.size(); i++) {
+			if (patterns.get(i).matcher(line).find()) {
+				return errors.get(i);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the first line with an error, or null when there was none.
+	 */
+	synchronized String getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the first line with a warning, or null when there was none.
+	 */
+	synchronized String getWarning() {
+		return warning;
+	}
+
+	synchronized int getWarnings() {
+		return warnings;
+	}
+}
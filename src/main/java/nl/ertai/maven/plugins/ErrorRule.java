@@ -0,0 +1,50 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+/**
+ * Decides how serious a line of tool output is, when it matches the pattern.
+ */
+public class ErrorRule {
+
+	/**
+	 * Regular expression which is searched for in a line of output, like <code>^ORA-31684</code>.
+	 */
+	String pattern;
+
+	/**
+	 * The severity of a matching line.
+	 * options: [error | warning]
+	 */
+	String severity;
+
+	public ErrorRule() {
+	}
+
+	ErrorRule(String pattern, String severity) {
+		this.pattern = pattern;
+		this.severity = severity;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public String getSeverity() {
+		return severity;
+	}
+}
@@ -16,7 +16,24 @@
 
 package nl.ertai.maven.plugins;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 /**
@@ -49,14 +66,448 @@ public class ExpdpMojo extends AbstractDatapumpMojo {
 	 */
 	boolean reuseDumpFiles;
 
+	/**
+	 * The maximum size of every dump file, like <code>10G</code>.
+	 *
+	 * @parameter
+	 */
+	String filesize;
+
+	/**
+	 * The algorithm which compresses the data when <code>compression</code> is <code>ALL</code> or
+	 * <code>DATA_ONLY</code>.
+	 * options: [BASIC | LOW | MEDIUM | HIGH]
+	 * oracle-default: BASIC
+	 *
+	 * @parameter
+	 */
+	String compressionAlgorithm;
+
+	/**
+	 * The method of the pass which estimates the size of the export, for <code>parallel</code> <code>auto</code> and
+	 * for <code>autoTune</code>. <code>STATISTICS</code> is fast, but relies on up to date optimizer statistics.
+	 * options: [BLOCKS | STATISTICS]
+	 *
+	 * @parameter default-value="STATISTICS"
+	 */
+	String estimateMethod;
+
+	/**
+	 * Estimates the size of the export first, and chooses the settings which are not configured from it:
+	 * <code>parallel</code>, <code>filesize</code> with the number of dump files, <code>compression</code> and
+	 * <code>compressionAlgorithm</code>. The plan is logged, and the estimated size is compared with the exported
+	 * size afterwards.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean autoTune;
+
+	/**
+	 * The estimated export size per worker of <code>autoTune</code>.
+	 *
+	 * @parameter default-value="1G"
+	 */
+	String autoTuneBytesPerWorker;
+
+	/**
+	 * The largest dump file of <code>autoTune</code>.
+	 *
+	 * @parameter default-value="10G"
+	 */
+	String autoTuneMaxFilesize;
+
+	/**
+	 * The estimated export size from which <code>autoTune</code> uses <code>autoTuneCompression</code>.
+	 *
+	 * @parameter default-value="1G"
+	 */
+	String autoTuneCompressionThreshold;
+
+	/**
+	 * The compression <code>autoTune</code> uses for large exports. Compressing data with <code>ALL</code> or
+	 * <code>DATA_ONLY</code> needs the Advanced Compression option.
+	 * options: [ALL | DATA_ONLY | METADATA_ONLY | NONE]
+	 *
+	 * @parameter
+	 */
+	String autoTuneCompression;
+
+	/**
+	 * The compression algorithm <code>autoTune</code> uses when <code>autoTuneCompression</code> compresses data.
+	 *
+	 * @parameter default-value="MEDIUM"
+	 */
+	String autoTuneCompressionAlgorithm;
+
+	/**
+	 * Reuses an earlier export with the same parameters of an unchanged source, instead of exporting again. Whether
+	 * the source has changed is probed with <code>cacheProbe</code> over a JDBC connection.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean cache;
+
+	/**
+	 * The directory the cached exports are kept in.
+	 *
+	 * @parameter default-value="${user.home}/.oracledb-maven-plugin/expdp-cache"
+	 */
+	File cacheDirectory;
+
+	/**
+	 * The local path of the directory object the dump files are written to. Needed by <code>cache</code>, which keeps
+	 * copies of the dump files and copies them back when the export is reused, as the directory object is shared with
+	 * other builds which may have overwritten them.
+	 *
+	 * @parameter
+	 */
+	File dumpDirectoryPath;
+
+	/**
+	 * The query which probes the state of the source, its rows are part of the fingerprint of the export. By default
+	 * the latest DDL time and the object count of every exported schema and the DML counts and statistics of its
+	 * tables are used.
+	 *
+	 * @parameter
+	 */
+	String cacheProbe;
+
+	private ExportPlan plan;
+	private DatapumpEstimate planEstimate;
+	private List<String> writtenDumpfiles = Collections.emptyList();
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (!cache) {
+			super.execute();
+			return;
+		}
+		if (dumpDirectoryPath == null) {
+			throw new MojoFailureException("cache needs dumpDirectoryPath, the local path of the directory object");
+		}
+		String fingerprint = fingerprint();
+		ExportCache exportCache = new ExportCache(cacheDirectory);
+		try {
+			if (exportCache.contains(fingerprint)) {
+				List<File> restored = exportCache.restore(fingerprint, dumpDirectoryPath);
+				getLog().info("The source is unchanged, reusing cached export " + fingerprint + " with "
+						+ restored.size() + " dump file(s) in " + dumpDirectoryPath);
+				return;
+			}
+			getLog().info("No cached export " + fingerprint);
+			if (!runJobs()) {
+				return;
+			}
+			List<File> files = ExportCache.findDumpfiles(dumpDirectoryPath, writtenDumpfiles);
+			if (files.isEmpty()) {
+				getLog().warn("No dump files found in " + dumpDirectoryPath + ", the export is not cached");
+				return;
+			}
+			exportCache.store(fingerprint, files);
+			getLog().info("Cached export " + fingerprint + " in " + cacheDirectory);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not use the export cache " + cacheDirectory + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Calculates the fingerprint of the export from its parameters and the state of the source.
+	 */
+	String fingerprint() throws MojoExecutionException, MojoFailureException {
+		List<String> values = new ArrayList<>();
+		values.add(getJdbcUrl());
+		values.add(getCredentials().getUsername());
+		String[] arguments = buildCommandline().getArguments();
+		// the connection identifier contains the password, the progress reports do not change the export
+		for (String argument : Arrays.asList(arguments).subList(1, arguments.length)) {
+			if (!argument.startsWith("STATUS=") && !argument.startsWith("METRICS=")) {
+				values.add(argument);
+			}
+		}
+		values.add("parallel=" + parallel);
+		values.add("fanOut=" + fanOut);
+		values.add("tableGroups=" + tableGroups);
+		values.add("engine=" + engine);
+		try (Connection connection = openConnection()) {
+			if (StringUtils.isBlank(cacheProbe)) {
+				flushMonitoringInfo(connection);
+			}
+			values.addAll(ExportCache.probe(connection, getCacheProbe()));
+		} catch (SQLException e) {
+			throw new MojoExecutionException("Could not probe the source of the export: " + e.getMessage(), e);
+		}
+		return ExportCache.fingerprint(values);
+	}
+
+	/**
+	 * Returns the query which probes the state of the source: <code>cacheProbe</code>, or the latest DDL time, the
+	 * DML counts and the table statistics of the exported schemas.
+	 */
+	String getCacheProbe() {
+		if (StringUtils.isNotBlank(cacheProbe)) {
+			return cacheProbe;
+		}
+		Set<String> owners = new LinkedHashSet<>();
+		for (String schema : StringUtils.split(StringUtils.defaultString(schemas), ",")) {
+			owners.add(DatapumpApiJob.toIdentifier(schema));
+		}
+		for (String table : StringUtils.split(StringUtils.defaultString(tables), ",")) {
+			if (table.contains(".")) {
+				owners.add(DatapumpApiJob.toIdentifier(StringUtils.substringBefore(table, ".")));
+			}
+		}
+		String owner = owners.isEmpty() ? "= USER" : DatapumpApiJob.inList(owners);
+		String link = StringUtils.isEmpty(networkLink) ? "" : "@" + networkLink;
+		return "SELECT 'DDL', owner, TO_CHAR(MAX(last_ddl_time), 'YYYY-MM-DD HH24:MI:SS'), COUNT(*)"
+				+ " FROM all_objects" + link + " WHERE owner " + owner + " GROUP BY owner"
+				+ " UNION ALL SELECT 'DML', table_owner || '.' || table_name || NVL2(partition_name, ':'"
+				+ " || partition_name, NULL) || NVL2(subpartition_name, ':' || subpartition_name, NULL),"
+				+ " TO_CHAR(timestamp, 'YYYY-MM-DD HH24:MI:SS'), inserts + updates + deletes"
+				+ " FROM all_tab_modifications" + link + " WHERE table_owner " + owner
+				// gathering statistics clears the DML counts, but changes the statistics instead
+				+ " UNION ALL SELECT 'STATS', owner || '.' || table_name || NVL2(partition_name, ':'"
+				+ " || partition_name, NULL) || NVL2(subpartition_name, ':' || subpartition_name, NULL),"
+				+ " TO_CHAR(last_analyzed, 'YYYY-MM-DD HH24:MI:SS'), num_rows"
+				+ " FROM all_tab_statistics" + link + " WHERE owner " + owner
+				+ " ORDER BY 1, 2";
+	}
+
+	/**
+	 * Writes the pending DML counts to the dictionary, so the probe sees recent changes. Needs the ANALYZE ANY
+	 * privilege, without it the counts may be a few hours behind.
+	 */
+	private void flushMonitoringInfo(Connection connection) {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("BEGIN DBMS_STATS.FLUSH_DATABASE_MONITORING_INFO; END;");
+		} catch (SQLException e) {
+			getLog().debug("Could not flush the DML counts: " + e.getMessage());
+		}
+	}
+
 	@Override
 	CommandLine buildCommandline() throws MojoFailureException {
 		CommandLine commandLine = new CommandLine(expdp);
 		addCommonArguments(commandLine);
 
-		addStringArgument(commandLine, "COMPRESSION", compression);
+		addStringArgument(commandLine, "COMPRESSION", getCompression());
 		addBooleanArgument(commandLine, "REUSE_DUMPFILES", reuseDumpFiles);
+		addStringArgument(commandLine, "FILESIZE", getFilesize());
+		addStringArgument(commandLine, "COMPRESSION_ALGORITHM", getCompressionAlgorithm());
 		return commandLine;
 	}
 
+	@Override
+	DatapumpApiJob buildApiJob() throws MojoFailureException {
+		DatapumpApiJob job = createApiJob(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, getFilesize(),
+				reuseDumpFiles);
+		if (StringUtils.isNotEmpty(getCompression())) {
+			job.setParameter("COMPRESSION", getCompression());
+		}
+		if (StringUtils.isNotEmpty(getCompressionAlgorithm())) {
+			job.setParameter("COMPRESSION_ALGORITHM", getCompressionAlgorithm());
+		}
+		return job;
+	}
+
+	String getFilesize() {
+		return StringUtils.isEmpty(filesize) && plan != null ? plan.filesize : filesize;
+	}
+
+	String getCompression() {
+		return StringUtils.isEmpty(compression) && plan != null ? plan.compression : compression;
+	}
+
+	String getCompressionAlgorithm() {
+		return StringUtils.isEmpty(compressionAlgorithm) && plan != null ? plan.compressionAlgorithm
+				: compressionAlgorithm;
+	}
+
+	/**
+	 * A single dump file becomes a dump file set when the plan spreads the export over more than one dump file.
+	 */
+	@Override
+	String getDumpfile(int degree) throws MojoFailureException {
+		if (plan != null && plan.files > 1 && StringUtils.isEmpty(filesize)) {
+			return super.getDumpfile(Math.max(degree, 2));
+		}
+		return super.getDumpfile(degree);
+	}
+
+	/**
+	 * Estimates the export and chooses its plan when <code>autoTune</code> is set.
+	 */
+	@Override
+	void prepare() throws MojoExecutionException, MojoFailureException {
+		if (!autoTune) {
+			super.prepare();
+			return;
+		}
+		DatapumpEstimate estimate = estimate();
+		if (estimate.getTotalBytes() < 0) {
+			throw new MojoExecutionException("Could not tune the export, "
+					+ "Data Pump did not report the estimated size of the export");
+		}
+		List<String> files = getDumpfiles();
+		boolean named = files.size() > 1 && !SUBSTITUTION.matcher(dumpfile).find();
+		plan = ExportPlan.choose(estimate.getTotalBytes(), estimate.getTables().size(),
+				ExportPlan.parseSize(autoTuneBytesPerWorker, "autoTuneBytesPerWorker"),
+				named ? Math.min(parallelMax, files.size()) : parallelMax,
+				ExportPlan.parseSize(autoTuneMaxFilesize, "autoTuneMaxFilesize"),
+				ExportPlan.parseSize(autoTuneCompressionThreshold, "autoTuneCompressionThreshold"),
+				autoTuneCompression, autoTuneCompressionAlgorithm);
+		if (named) {
+			// named dump files do not grow into a dump file set, so they are not limited in size either
+			plan = new ExportPlan(plan.estimatedBytes, plan.tables, plan.degree, files.size(), null,
+					plan.compression, plan.compressionAlgorithm);
+		}
+		planEstimate = estimate;
+		if (StringUtils.isEmpty(parallel) || StringUtils.equalsIgnoreCase(parallel, AUTO)) {
+			autoDegree = plan.degree;
+		}
+		getLog().info(plan.describe());
+	}
+
+	/**
+	 * Compares the estimated size with the exported size when <code>autoTune</code> is set.
+	 */
+	@Override
+	boolean runJobs() throws MojoExecutionException, MojoFailureException {
+		writtenDumpfiles = Collections.emptyList();
+		if (!autoTune) {
+			boolean succeeded = super.runJobs();
+			writtenDumpfiles = getJobDumpfiles();
+			return succeeded;
+		}
+		long start = System.currentTimeMillis();
+		DatapumpMonitor exported = new DatapumpMonitor(new LineTee.Listener() {
+			@Override
+			public void processLine(String line) {
+				// only the totals are used
+			}
+		}, Long.MAX_VALUE);
+		outputListener = exported;
+		try {
+			boolean succeeded = super.runJobs();
+			// the dump file set depends on the plan, which is forgotten below
+			writtenDumpfiles = getJobDumpfiles();
+			if (succeeded && planEstimate != null) {
+				for (String line : ExportPlan.compare(planEstimate.getTotalBytes(), exported.getBytes(),
+						planEstimate.getTables(), exported.getTableBytes(), 10)) {
+					getLog().info(line);
+				}
+				getLog().info("Exported with PARALLEL=" + getDegree() + " in "
+						+ DatapumpMonitor.formatDuration(System.currentTimeMillis() - start));
+			}
+			return succeeded;
+		} finally {
+			outputListener = null;
+			plan = null;
+			planEstimate = null;
+			autoDegree = 0;
+		}
+	}
+
+	@Override
+	boolean writesDumpfiles() {
+		return true;
+	}
+
+	/**
+	 * Chooses one worker per {@link #AUTO_BYTES_PER_WORKER} of estimated export size.
+	 */
+	@Override
+	int chooseDegree() throws MojoExecutionException, MojoFailureException {
+		DatapumpEstimate estimate = estimate();
+		if (estimate.getTotalBytes() < 0) {
+			throw new MojoExecutionException("Could not choose the degree of parallelism, "
+					+ "Data Pump did not report the estimated size of the export");
+		}
+		getLog().info("Estimated export size: " + DatapumpEstimate.format(estimate.getTotalBytes()));
+		return (int) Math.min(Integer.MAX_VALUE, (estimate.getTotalBytes() + AUTO_BYTES_PER_WORKER - 1)
+				/ AUTO_BYTES_PER_WORKER);
+	}
+
+	/**
+	 * Estimates the size of the export, without exporting.
+	 */
+	DatapumpEstimate estimate() throws MojoExecutionException, MojoFailureException {
+		if (isApiEngine()) {
+			DatapumpEstimate estimate = new DatapumpEstimate();
+			try {
+				runApiJob(buildApiEstimateJob(), watch(new InfoLogOutputStream(), estimate), new ErrorLogOutputStream());
+			} catch (MojoExecutionException e) {
+				throw new MojoExecutionException("Could not estimate the size of the export: " + e.getMessage(), e);
+			}
+			return estimate;
+		}
+		CommandLine commandLine = buildEstimateCommandline();
+		DatapumpEstimate estimate = new DatapumpEstimate();
+		ToolWatchdog toolWatchdog = createWatchdog(commandLine.getExecutable());
+		Executor exec = createExecutor(null, toolWatchdog);
+		exec.setStreamHandler(new PumpStreamHandler(watch(new InfoLogOutputStream(), estimate, toolWatchdog),
+				watch(new ErrorLogOutputStream(), toolWatchdog)));
+		getLog().debug("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
+		toolWatchdog.start();
+		try {
+			exec.execute(commandLine);
+		} catch (ExecuteException e) {
+			throw new MojoExecutionException("Could not estimate the size of the export: "
+					+ describe(toolWatchdog.explain(e)), e);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Command execution failed.", e);
+		} finally {
+			toolWatchdog.cancel();
+		}
+		return estimate;
+	}
+
+	/**
+	 * Builds the command line which estimates the size of the export, with the filters of the export.
+	 */
+	CommandLine buildEstimateCommandline() throws MojoFailureException {
+		CommandLine commandLine = new CommandLine(expdp);
+		commandLine.addArgument("'" + getConnectionIdentifier() + "'", false);
+		addStringArgument(commandLine, "CONTENT", content);
+		addStringArgument(commandLine, "EXCLUDE", exclude);
+		addStringArgument(commandLine, "INCLUDE", include);
+		addStringArgument(commandLine, "NETWORK_LINK", networkLink);
+		addStringArgument(commandLine, "SCHEMAS", schemas);
+		addStringArgument(commandLine, "TABLES", tables);
+		addStringArgument(commandLine, "ESTIMATE", estimateMethod);
+		commandLine.addArgument("ESTIMATE_ONLY=YES");
+		commandLine.addArgument("NOLOGFILE=YES");
+		return commandLine;
+	}
+
+	/**
+	 * Builds the job which estimates the size of the export through the DBMS_DATAPUMP package, with the filters of
+	 * the export.
+	 */
+	DatapumpApiJob buildApiEstimateJob() throws MojoFailureException {
+		String originalDumpfile = dumpfile;
+		String originalLogfile = logfile;
+		String originalJobName = jobName;
+		String originalParallel = parallel;
+		try {
+			dumpfile = null;
+			logfile = null;
+			jobName = null;
+			parallel = null;
+			DatapumpApiJob job = createApiJob(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, false);
+			if (StringUtils.isNotEmpty(estimateMethod)) {
+				job.setParameter("ESTIMATE", estimateMethod);
+			}
+			job.setParameter("ESTIMATE_ONLY", 1);
+			return job;
+		} finally {
+			dumpfile = originalDumpfile;
+			logfile = originalLogfile;
+			jobName = originalJobName;
+			parallel = originalParallel;
+		}
+	}
+
 }
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps exports in a local directory by their fingerprint, so an export of an unchanged source does not have to run
+ * again.
+ *
+ * Every entry is a directory named after the fingerprint, with copies of the dump files and an
+ * <code>export.properties</code> file. The entry is built next to its final place and renamed when it is complete,
+ * so an interrupted build does not leave half an entry behind.
+ */
+class ExportCache {
+
+	private static final String PROPERTIES = "export.properties";
+	private static final Pattern SUBSTITUTION = Pattern.compile("%[UuLl]");
+
+	private final File directory;
+
+	ExportCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns true when there is a complete entry for the fingerprint.
+	 */
+	boolean contains(String fingerprint) {
+		return new File(new File(directory, fingerprint), PROPERTIES).isFile();
+	}
+
+	/**
+	 * Copies the dump files of an entry to a directory, replacing the files which are there already. Dump files are
+	 * written in blocks, so another export may well have the same size.
+	 *
+	 * @param target the directory, may be null when the entry has no dump files
+	 * @return the dump files in the target directory
+	 */
+	List<File> restore(String fingerprint, File target) throws IOException {
+		File entry = new File(directory, fingerprint);
+		File[] files = entry.listFiles();
+		if (target == null || files == null) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(files);
+		List<File> restored = new ArrayList<>();
+		for (File file : files) {
+			if (file.getName().equals(PROPERTIES)) {
+				continue;
+			}
+			File copy = new File(target, file.getName());
+			Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			restored.add(copy);
+		}
+		return restored;
+	}
+
+	/**
+	 * Stores copies of the dump files of an export as the entry of the fingerprint.
+	 *
+	 * @param files the dump files, may be empty to only remember that the export was done
+	 */
+	void store(String fingerprint, List<File> files) throws IOException {
+		File entry = new File(directory, fingerprint);
+		File building = new File(directory, fingerprint + ".tmp" + System.nanoTime());
+		if (!building.mkdirs()) {
+			throw new IOException("Could not create directory " + building);
+		}
+		try {
+			List<String> names = new ArrayList<>();
+			for (File file : files) {
+				Files.copy(file.toPath(), new File(building, file.getName()).toPath());
+				names.add(file.getName());
+			}
+			Properties properties = new Properties();
+			properties.setProperty("fingerprint", fingerprint);
+			properties.setProperty("created", String.valueOf(System.currentTimeMillis()));
+			properties.setProperty("dumpfiles", StringUtils.join(names, ","));
+			try (OutputStream out = new FileOutputStream(new File(building, PROPERTIES))) {
+				properties.store(out, "oracledb-maven-plugin export cache");
+			}
+			if (!entry.exists() && !building.renameTo(entry)) {
+				throw new IOException("Could not rename " + building + " to " + entry);
+			}
+		} finally {
+			delete(building);
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Finds the dump files of an export in the directory they were written to.
+	 *
+	 * @param names the dump files of the export, like <code>DIR:export_%U.dmp</code>, where the directory object is
+	 * ignored and the substitution variables match any number
+	 */
+	static List<File> findDumpfiles(File directory, List<String> names) {
+		List<Pattern> patterns = new ArrayList<>();
+		for (String name : names) {
+			patterns.add(toPattern(name.contains(":") ? StringUtils.substringAfter(name, ":") : name));
+		}
+		List<File> found = new ArrayList<>();
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return found;
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			for (Pattern pattern : patterns) {
+				if (file.isFile() && pattern.matcher(file.getName()).matches()) {
+					found.add(file);
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	private static Pattern toPattern(String name) {
+		StringBuilder regex = new StringBuilder();
+		Matcher matcher = SUBSTITUTION.matcher(name);
+		int position = 0;
+		while (matcher.find()) {
+			regex.append(Pattern.quote(name.substring(position, matcher.start())));
+			regex.append(Character.toUpperCase(matcher.group().charAt(1)) == 'U' ? "\\d{2,3}" : "\\d+");
+			position = matcher.end();
+		}
+		regex.append(Pattern.quote(name.substring(position)));
+		// Data Pump adds the extension .dmp to a file without one
+		if (!name.contains(".")) {
+			regex.append("(?:\\.dmp)?");
+		}
+		return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+	}
+
+	/**
+	 * Runs the query which probes the state of the source, and returns its rows with the columns separated by
+	 * <code>|</code>.
+	 */
+	static List<String> probe(Connection connection, String query) throws SQLException {
+		List<String> rows = new ArrayList<>();
+		try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(query)) {
+			int columns = resultSet.getMetaData().getColumnCount();
+			while (resultSet.next()) {
+				StringBuilder row = new StringBuilder();
+				for (int i = 1; i <= columns; i++) {
+					row.append(i > 1 ? "|" : "").append(resultSet.getString(i));
+				}
+				rows.add(row.toString());
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Calculates the SHA-256 fingerprint of a list of values.
+	 */
+	static String fingerprint(List<String> values) {
+		MessageDigest digest = Sha256.newDigest();
+		for (String value : values) {
+			digest.update(StringUtils.defaultString(value).getBytes(UTF_8));
+			digest.update((byte) '\n');
+		}
+		return Sha256.toHex(digest);
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * The settings of an export, chosen from its estimated size.
+ *
+ * <ul>
+ * <li>One worker per <code>bytesPerWorker</code>, at most one per table and at most <code>maxDegree</code>.</li>
+ * <li>At least one dump file per worker, and no dump file larger than <code>maxFilesize</code>. The size of the
+ * estimate is spread over the dump files, and <code>FILESIZE</code> is only set when there is more than one.</li>
+ * <li><code>compression</code> and <code>compressionAlgorithm</code> from <code>compressionThreshold</code> on.</li>
+ * </ul>
+ */
+class ExportPlan {
+
+	private static final Pattern SIZE = Pattern.compile("^(\\d+)\\s*([KMGT]?)B?$", Pattern.CASE_INSENSITIVE);
+	private static final long MB = 1024L * 1024;
+	private static final long MIN_FILESIZE = 64 * MB;
+
+	final long estimatedBytes;
+	final int tables;
+	final int degree;
+	final int files;
+	final String filesize;
+	final String compression;
+	final String compressionAlgorithm;
+
+	ExportPlan(long estimatedBytes, int tables, int degree, int files, String filesize, String compression,
+			String compressionAlgorithm) {
+		this.estimatedBytes = estimatedBytes;
+		this.tables = tables;
+		this.degree = degree;
+		this.files = files;
+		this.filesize = filesize;
+		this.compression = compression;
+		this.compressionAlgorithm = compressionAlgorithm;
+	}
+
+	/**
+	 * Chooses the settings for an export of the estimated size.
+	 *
+	 * @param compression the compression from <code>compressionThreshold</code> on, may be null for none
+	 * @param compressionAlgorithm the algorithm when data is compressed, may be null for the default
+	 */
+	static ExportPlan choose(long estimatedBytes, int tables, long bytesPerWorker, int maxDegree, long maxFilesize,
+			long compressionThreshold, String compression, String compressionAlgorithm) {
+		long bytes = Math.max(0, estimatedBytes);
+		int degree = (int) Math.min(Integer.MAX_VALUE, divideRoundingUp(bytes, Math.max(1, bytesPerWorker)));
+		degree = Math.max(1, Math.min(degree, Math.min(Math.max(1, maxDegree), Math.max(1, tables))));
+		int files = (int) Math.max(degree, Math.min(Integer.MAX_VALUE, divideRoundingUp(bytes,
+				Math.max(1, maxFilesize))));
+		String filesize = null;
+		if (files > 1) {
+			long size = divideRoundingUp(divideRoundingUp(bytes, files), MB) * MB;
+			filesize = (Math.max(MIN_FILESIZE, Math.min(maxFilesize, size)) / MB) + "M";
+		}
+		String chosenCompression = null;
+		String chosenAlgorithm = null;
+		if (StringUtils.isNotEmpty(compression) && bytes >= compressionThreshold) {
+			chosenCompression = compression.toUpperCase(Locale.ROOT);
+			if (("ALL".equals(chosenCompression) || "DATA_ONLY".equals(chosenCompression))
+					&& StringUtils.isNotEmpty(compressionAlgorithm)) {
+				chosenAlgorithm = compressionAlgorithm.toUpperCase(Locale.ROOT);
+			}
+		}
+		return new ExportPlan(bytes, tables, degree, files, filesize, chosenCompression, chosenAlgorithm);
+	}
+
+	private static long divideRoundingUp(long value, long divisor) {
+		return (value + divisor - 1) / divisor;
+	}
+
+	/**
+	 * Parses a size like <code>10G</code>, <code>512MB</code> or <code>1048576</code>.
+	 */
+	static long parseSize(String size, String name) throws MojoFailureException {
+		Matcher matcher = SIZE.matcher(StringUtils.trimToEmpty(size));
+		if (!matcher.matches()) {
+			throw new MojoFailureException(name + " should be a size like 512M or 10G: '" + size + "'");
+		}
+		String unit = matcher.group(2).isEmpty() ? "B" : matcher.group(2);
+		return DatapumpEstimate.toBytes(matcher.group(1), unit);
+	}
+
+	/**
+	 * Describes the plan in one line.
+	 */
+	String describe() {
+		StringBuilder line = new StringBuilder("Export plan for " + DatapumpEstimate.format(estimatedBytes) + " in "
+				+ tables + " table(s): PARALLEL=" + degree + ", " + files + " dump file(s)");
+		if (filesize != null) {
+			line.append(", FILESIZE=").append(filesize);
+		}
+		if (compression != null) {
+			line.append(", COMPRESSION=").append(compression);
+		}
+		if (compressionAlgorithm != null) {
+			line.append(", COMPRESSION_ALGORITHM=").append(compressionAlgorithm);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Compares the estimated size of the largest tables with their exported size.
+	 *
+	 * @param estimated the estimated bytes per table
+	 * @param exported the exported bytes per table
+	 * @param top the number of tables to compare
+	 */
+	static List<String> compare(long estimatedTotal, long exportedTotal, final Map<String, Long> estimated,
+			Map<String, Long> exported, int top) {
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format(Locale.ROOT, "Estimated %s, exported %s%s", DatapumpEstimate.format(estimatedTotal),
+				DatapumpEstimate.format(exportedTotal), estimatedTotal > 0
+						? String.format(Locale.ROOT, " (%d%% of the estimate)", exportedTotal * 100 / estimatedTotal)
+						: ""));
+		List<String> names = new ArrayList<>(estimated.keySet());
+		Collections.sort(names, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Long.compare(estimated.get(b), estimated.get(a));
+			}
+		});
+		if (!names.isEmpty()) {
+			lines.add(String.format(Locale.ROOT, "%12s %12s  %s", "Estimated", "Exported", "Table"));
+		}
+		for (String name : names.subList(0, Math.min(top, names.size()))) {
+			Long bytes = exported.get(name);
+			lines.add(String.format(Locale.ROOT, "%12s %12s  %s", DatapumpEstimate.format(estimated.get(name)),
+					bytes == null ? "-" : DatapumpEstimate.format(bytes), name));
+		}
+		return lines;
+	}
+}
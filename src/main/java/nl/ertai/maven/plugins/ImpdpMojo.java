@@ -16,7 +16,23 @@
 
 package nl.ertai.maven.plugins;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.commons.exec.CommandLine;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 /**
@@ -55,6 +71,149 @@ public class ImpdpMojo extends AbstractDatapumpMojo {
 	 */
 	String tableExistsAction;
 
+	/**
+	 * Only imports the tables which have changed since the last import, by their size and row count in
+	 * <code>exportLogFile</code>, and the tables which no longer have the exported number of rows in the target. The
+	 * fingerprints of the imported tables are kept by their target name in <code>incrementalTable</code> in the
+	 * target database, over a JDBC connection. Use it with a <code>tableExistsAction</code> of <code>REPLACE</code>
+	 * or <code>TRUNCATE</code>.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean incremental;
+
+	/**
+	 * The log file of the export which wrote the dump, with a line like
+	 * <code>. . exported "HR"."EMP" 17.08 KB 107 rows</code> for every table.
+	 *
+	 * @parameter
+	 */
+	File exportLogFile;
+
+	/**
+	 * The table the fingerprints of the imported tables are kept in, optionally prefixed with a schema. It is
+	 * created when it does not exist.
+	 *
+	 * @parameter default-value="IMPDP_STATE"
+	 */
+	String incrementalTable;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (!incremental) {
+			super.execute();
+			return;
+		}
+		if (exportLogFile == null) {
+			throw new MojoFailureException("exportLogFile is needed for an incremental import");
+		}
+		if (StringUtils.isNotBlank(tables) || (tableGroups != null && !tableGroups.isEmpty())) {
+			throw new MojoFailureException("An incremental import chooses the tables itself, "
+					+ "it can not be combined with tables or tableGroups");
+		}
+		if (!StringUtils.equalsIgnoreCase(tableExistsAction, "REPLACE")
+				&& !StringUtils.equalsIgnoreCase(tableExistsAction, "TRUNCATE")) {
+			getLog().warn("Changed tables which exist already are only reloaded with a tableExistsAction of "
+					+ "REPLACE or TRUNCATE");
+		}
+		Map<String, Long> rows = new HashMap<>();
+		Map<String, String> exported = readExportLog(rows);
+		Map<String, String> targets = IncrementalImport.remap(exported.keySet(), remapSchema);
+		if (StringUtils.isNotBlank(remapTablespace)) {
+			// the same table in other tablespaces is another import
+			for (Map.Entry<String, String> entry : exported.entrySet()) {
+				entry.setValue(ExportCache.fingerprint(Arrays.asList(entry.getValue(),
+						remapTablespace.toUpperCase(Locale.ROOT))));
+			}
+		}
+		IncrementalImport state = new IncrementalImport(incrementalTable);
+		List<String> changed;
+		try (Connection connection = openConnection()) {
+			Map<String, String> imported = state.read(connection);
+			Map<String, String> importedAs = new HashMap<>();
+			for (String table : exported.keySet()) {
+				importedAs.put(table, imported.get(targets.get(table)));
+			}
+			changed = IncrementalImport.getChanged(exported, importedAs);
+			for (String table : exported.keySet()) {
+				if (!changed.contains(table)
+						&& !IncrementalImport.isLoaded(connection, targets.get(table), rows.get(table))) {
+					changed.add(table);
+				}
+			}
+		} catch (SQLException e) {
+			throw new MojoExecutionException("Could not read " + incrementalTable + ": " + e.getMessage(), e);
+		}
+		if (changed.isEmpty()) {
+			getLog().info("All " + exported.size() + " table(s) are unchanged since the last import");
+			return;
+		}
+		getLog().info(changed.size() + " of " + exported.size() + " table(s) changed: "
+				+ StringUtils.abbreviate(StringUtils.join(changed, ", "), 1000));
+		List<String> arguments = new ArrayList<>();
+		for (String table : changed) {
+			arguments.add(IncrementalImport.toTablesArgument(table));
+		}
+		String originalSchemas = schemas;
+		String originalTables = tables;
+		boolean originalFanOut = fanOut;
+		boolean succeeded;
+		try {
+			schemas = null;
+			fanOut = false;
+			tables = StringUtils.join(arguments, ",");
+			succeeded = runJobs();
+		} finally {
+			schemas = originalSchemas;
+			fanOut = originalFanOut;
+			tables = originalTables;
+		}
+		if (!succeeded) {
+			return;
+		}
+		Map<String, String> imported = new LinkedHashMap<>();
+		for (String table : changed) {
+			imported.put(targets.get(table), exported.get(table));
+		}
+		try (Connection connection = openConnection()) {
+			state.record(connection, imported);
+		} catch (SQLException e) {
+			throw new MojoExecutionException("Could not record the imported tables in " + incrementalTable + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the tables of the export, only those of <code>schemas</code> when it is set.
+	 */
+	private Map<String, String> readExportLog(Map<String, Long> rows) throws MojoExecutionException {
+		Map<String, String> exported;
+		try {
+			exported = IncrementalImport.readExportLog(exportLogFile, getOutputCharset(), rows);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not read " + exportLogFile, e);
+		}
+		if (StringUtils.isNotBlank(schemas)) {
+			Set<String> owners = new HashSet<>();
+			for (String schema : StringUtils.split(schemas, ",")) {
+				owners.add(DatapumpApiJob.toIdentifier(schema));
+			}
+			exported.keySet().retainAll(filter(exported.keySet(), owners));
+		}
+		return exported;
+	}
+
+	private static Set<String> filter(Set<String> tableNames, Set<String> owners) {
+		Set<String> kept = new HashSet<>();
+		for (String tableName : tableNames) {
+			if (owners.contains(StringUtils.substringBefore(tableName, "."))) {
+				kept.add(tableName);
+			}
+		}
+		return kept;
+	}
+
 	@Override
 	CommandLine buildCommandline() throws MojoFailureException {
 		CommandLine commandLine = new CommandLine(impdp);
@@ -67,4 +226,15 @@ public class ImpdpMojo extends AbstractDatapumpMojo {
 		return commandLine;
 	}
 
+	@Override
+	DatapumpApiJob buildApiJob() throws MojoFailureException {
+		DatapumpApiJob job = createApiJob(DatapumpApiJob.IMPORT, DatapumpApiJob.FULL, null, false);
+		addRemaps(job, "REMAP_TABLESPACE", remapTablespace);
+		addRemaps(job, "REMAP_SCHEMA", remapSchema);
+		if (StringUtils.isNotEmpty(tableExistsAction)) {
+			job.setParameter("TABLE_EXISTS_ACTION", tableExistsAction);
+		}
+		return job;
+	}
+
 }
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Keeps track of the tables which are imported into a schema, in a table in that schema, so an import only has to
+ * load the tables which have changed since the last import.
+ *
+ * The fingerprint of a table is made from the size and the row count of the table and its partitions in the log of
+ * the export which wrote the dump. The tables are kept by the name they are imported as, after
+ * <code>REMAP_SCHEMA</code>. A table which was imported with the same fingerprint, and which still has the rows it
+ * was exported with, does not have to be imported again.
+ */
+class IncrementalImport {
+
+	private static final Pattern NAME = Pattern.compile(
+			"^\"?([^\".]+)\"?\\.\"?([^\":]+)\"?(?::\"?([^\"]+)\"?)?$");
+
+	/**
+	 * ORA-00942: table or view does not exist.
+	 */
+	private static final int TABLE_DOES_NOT_EXIST = 942;
+
+	/**
+	 * The SQL state of a missing table, used by other databases.
+	 */
+	private static final String BASE_TABLE_NOT_FOUND = "42S02";
+
+	private final String table;
+
+	/**
+	 * @param table name of the state table, optionally prefixed with a schema
+	 */
+	IncrementalImport(String table) throws MojoFailureException {
+		if (!table.matches("[A-Za-z][A-Za-z0-9_$#]*(\\.[A-Za-z][A-Za-z0-9_$#]*)?")) {
+			throw new MojoFailureException("Invalid incremental state table name '" + table + "'");
+		}
+		this.table = table;
+	}
+
+	/**
+	 * Reads the tables and their fingerprints from the log of an export.
+	 *
+	 * @return the fingerprints by table name, like <code>HR.EMP</code>, in the order of the log
+	 */
+	static Map<String, String> readExportLog(File log, Charset charset) throws IOException {
+		return readExportLog(log, charset, new HashMap<String, Long>());
+	}
+
+	/**
+	 * Reads the tables and their fingerprints from the log of an export.
+	 *
+	 * @param rows receives the number of exported rows by table name
+	 * @return the fingerprints by table name, like <code>HR.EMP</code>, in the order of the log
+	 */
+	static Map<String, String> readExportLog(File log, Charset charset, Map<String, Long> rows) throws IOException {
+		Map<String, List<String>> sizes = new LinkedHashMap<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(log), charset))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int start = line.indexOf(". . exported");
+				Matcher matcher = DatapumpMonitor.ROWS.matcher(start < 0 ? line : line.substring(start));
+				if (start < 0 || !matcher.find()) {
+					continue;
+				}
+				Matcher name = NAME.matcher(matcher.group(1));
+				if (!name.matches()) {
+					continue;
+				}
+				String tableName = name.group(1) + "." + name.group(2);
+				if (!sizes.containsKey(tableName)) {
+					sizes.put(tableName, new ArrayList<String>());
+					rows.put(tableName, 0L);
+				}
+				rows.put(tableName, rows.get(tableName) + Long.parseLong(matcher.group(4).replace(",", "")));
+				sizes.get(tableName).add((name.group(3) == null ? "" : name.group(3)) + "=" + matcher.group(2)
+						+ matcher.group(3) + "/" + matcher.group(4));
+			}
+		}
+		Map<String, String> fingerprints = new LinkedHashMap<>();
+		for (Map.Entry<String, List<String>> entry : sizes.entrySet()) {
+			List<String> partitions = entry.getValue();
+			Collections.sort(partitions);
+			fingerprints.put(entry.getKey(), ExportCache.fingerprint(partitions));
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Reads the fingerprints of the imported tables, and creates the state table when it does not exist.
+	 */
+	Map<String, String> read(Connection connection) throws SQLException {
+		Map<String, String> imported = new HashMap<>();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet;
+			try {
+				resultSet = statement.executeQuery("SELECT table_name, fingerprint FROM " + table);
+			} catch (SQLException e) {
+				if (!isMissingTable(e)) {
+					throw e;
+				}
+				statement.execute("CREATE TABLE " + table + " (table_name VARCHAR(300) NOT NULL PRIMARY KEY, "
+						+ "fingerprint VARCHAR(64) NOT NULL, imported_at TIMESTAMP NOT NULL)");
+				return imported;
+			}
+			try (ResultSet rows = resultSet) {
+				while (rows.next()) {
+					imported.put(rows.getString(1), rows.getString(2));
+				}
+			}
+		}
+		return imported;
+	}
+
+	/**
+	 * Returns true when the table exists with the number of rows it was exported with. A table which was changed or
+	 * dropped since it was imported, by the tests it holds the data of for example, has to be imported again.
+	 */
+	static boolean isLoaded(Connection connection, String tableName, long rows) throws SQLException {
+		StringBuilder name = new StringBuilder();
+		for (String part : tableName.split("\\.", 2)) {
+			name.append(name.length() > 0 ? "." : "").append('"').append(part.replace("\"", "\"\"")).append('"');
+		}
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + name)) {
+			return resultSet.next() && resultSet.getLong(1) == rows;
+		} catch (SQLException e) {
+			if (isMissingTable(e)) {
+				return false;
+			}
+			throw e;
+		}
+	}
+
+	private static boolean isMissingTable(SQLException e) {
+		return e.getErrorCode() == TABLE_DOES_NOT_EXIST || BASE_TABLE_NOT_FOUND.equals(e.getSQLState());
+	}
+
+	/**
+	 * Returns the name every table is imported as, with the schemas of <code>REMAP_SCHEMA</code>.
+	 *
+	 * @param remapSchema the remaps like <code>HR:HR_TEST,SCOTT:SCOTT_TEST</code>, may be empty
+	 * @return the target by table name
+	 */
+	static Map<String, String> remap(Collection<String> tableNames, String remapSchema) throws MojoFailureException {
+		Map<String, String> schemas = new HashMap<>();
+		for (String pair : StringUtils.split(StringUtils.defaultString(remapSchema), ",")) {
+			String[] names = StringUtils.split(pair, ":");
+			if (names.length != 2) {
+				throw new MojoFailureException("Invalid REMAP_SCHEMA '" + pair.trim() + "', use old:new");
+			}
+			schemas.put(DatapumpApiJob.toIdentifier(names[0]), DatapumpApiJob.toIdentifier(names[1]));
+		}
+		Map<String, String> targets = new LinkedHashMap<>();
+		for (String tableName : tableNames) {
+			String owner = StringUtils.substringBefore(tableName, ".");
+			targets.put(tableName, schemas.containsKey(owner)
+					? schemas.get(owner) + "." + StringUtils.substringAfter(tableName, ".") : tableName);
+		}
+		return targets;
+	}
+
+	/**
+	 * Returns the tables of the export which are not imported yet, or which have changed since they were imported.
+	 */
+	static List<String> getChanged(Map<String, String> exported, Map<String, String> imported) {
+		List<String> changed = new ArrayList<>();
+		for (Map.Entry<String, String> entry : exported.entrySet()) {
+			if (!entry.getValue().equals(imported.get(entry.getKey()))) {
+				changed.add(entry.getKey());
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Records the fingerprints of the imported tables.
+	 */
+	void record(Connection connection, Map<String, String> fingerprints) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (PreparedStatement update = connection.prepareStatement("UPDATE " + table
+				+ " SET fingerprint = ?, imported_at = CURRENT_TIMESTAMP WHERE table_name = ?");
+				PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+						+ " (table_name, fingerprint, imported_at) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+			for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+				update.setString(1, entry.getValue());
+				update.setString(2, entry.getKey());
+				if (update.executeUpdate() == 0) {
+					insert.setString(1, entry.getKey());
+					insert.setString(2, entry.getValue());
+					insert.executeUpdate();
+				}
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Turns a table name like <code>HR.EMP</code> into the form for <code>TABLES</code>, with double quotes around
+	 * the parts which are not plain upper case names.
+	 */
+	static String toTablesArgument(String tableName) {
+		StringBuilder argument = new StringBuilder();
+		for (String part : tableName.split("\\.", 2)) {
+			if (argument.length() > 0) {
+				argument.append('.');
+			}
+			argument.append(part.matches("[A-Z][A-Z0-9_$#]*") ? part : "\"" + part + "\"");
+		}
+		return argument.toString();
+	}
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps JDBC connections open for the rest of the build, so executions with the same connection (also in other
+ * modules of a parallel build) share a few connections instead of logging on again and again.
+ *
+ * Every connection is validated before it is handed out. Connections which were not used for the idle timeout of
+ * their pool are closed, and all connections are closed when the JVM shuts down.
+ */
+final class JdbcConnectionPool {
+
+	/**
+	 * The number of seconds a connection may take to answer whether it is still valid.
+	 */
+	static final int VALIDATION_TIMEOUT = 5;
+
+	private static final long EVICTION_INTERVAL = 5000;
+
+	private static final Map<Key, Pool> POOLS = new HashMap<>();
+
+	private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "jdbc-pool-evictor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	static {
+		EVICTOR.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				evictIdle();
+			}
+		}, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread("jdbc-pool-shutdown") {
+			@Override
+			public void run() {
+				closeAll();
+			}
+		});
+	}
+
+	private JdbcConnectionPool() {
+	}
+
+	/**
+	 * Returns a valid idle connection, or opens a new one when there is none. When the pool is at its maximum size,
+	 * waits until a connection is given back. Closing the returned connection gives it back to the pool.
+	 */
+	static Connection borrow(Key key) throws SQLException, InterruptedException {
+		Pool pool;
+		synchronized (POOLS) {
+			pool = POOLS.get(key);
+			if (pool == null) {
+				pool = new Pool();
+				POOLS.put(key, pool);
+			}
+		}
+		while (true) {
+			Idle idle;
+			synchronized (pool) {
+				while (pool.idle.isEmpty() && pool.size >= key.maxSize) {
+					pool.wait();
+				}
+				idle = pool.idle.poll();
+				if (idle == null) {
+					// reserve the place before connecting, so the pool does not grow beyond its size
+					pool.size++;
+				}
+			}
+			if (idle == null) {
+				try {
+					return wrap(key, pool, key.factory.connect());
+				} catch (SQLException | RuntimeException e) {
+					discard(pool, null);
+					throw e;
+				}
+			}
+			if (isValid(idle.connection)) {
+				return wrap(key, pool, idle.connection);
+			}
+			discard(pool, idle.connection);
+		}
+	}
+
+	private static boolean isValid(Connection connection) {
+		try {
+			return connection.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gives a connection back to the pool. A pending transaction is rolled back, connections which cannot be reset
+	 * are closed.
+	 */
+	private static void release(Pool pool, Connection connection) {
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			discard(pool, connection);
+			return;
+		}
+		synchronized (pool) {
+			if (pool.closed) {
+				pool.size--;
+				closeQuietly(connection);
+			} else {
+				pool.idle.push(new Idle(connection));
+			}
+			pool.notifyAll();
+		}
+	}
+
+	private static void discard(Pool pool, Connection connection) {
+		closeQuietly(connection);
+		synchronized (pool) {
+			pool.size--;
+			pool.notifyAll();
+		}
+	}
+
+	/**
+	 * Closes the connections which were idle for longer than the idle timeout of their pool.
+	 */
+	static void evictIdle() {
+		List<Connection> evicted = new ArrayList<>();
+		synchronized (POOLS) {
+			long now = System.currentTimeMillis();
+			for (Map.Entry<Key, Pool> entry : POOLS.entrySet()) {
+				Pool pool = entry.getValue();
+				synchronized (pool) {
+					// the longest idle connections are at the end
+					Iterator<Idle> iterator = pool.idle.descendingIterator();
+					while (iterator.hasNext()) {
+						Idle idle = iterator.next();
+						if (now - idle.since < entry.getKey().idleTimeout) {
+							break;
+						}
+						iterator.remove();
+						pool.size--;
+						evicted.add(idle.connection);
+					}
+					pool.notifyAll();
+				}
+			}
+		}
+		for (Connection connection : evicted) {
+			closeQuietly(connection);
+		}
+	}
+
+	/**
+	 * Returns the number of open connections of a pool, both idle and borrowed.
+	 */
+	static int size(Key key) {
+		Pool pool;
+		synchronized (POOLS) {
+			pool = POOLS.get(key);
+		}
+		if (pool == null) {
+			return 0;
+		}
+		synchronized (pool) {
+			return pool.size;
+		}
+	}
+
+	static void closeAll() {
+		List<Connection> connections = new ArrayList<>();
+		synchronized (POOLS) {
+			for (Pool pool : POOLS.values()) {
+				synchronized (pool) {
+					pool.closed = true;
+					for (Idle idle : pool.idle) {
+						connections.add(idle.connection);
+					}
+					pool.size -= pool.idle.size();
+					pool.idle.clear();
+				}
+			}
+			POOLS.clear();
+		}
+		for (Connection connection : connections) {
+			closeQuietly(connection);
+		}
+	}
+
+	private static void closeQuietly(Connection connection) {
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// nothing to do about it
+			}
+		}
+	}
+
+	/**
+	 * Wraps a connection, so closing it gives it back to the pool instead.
+	 */
+	private static Connection wrap(Key key, final Pool pool, final Connection connection) {
+		return (Connection) Proxy.newProxyInstance(JdbcConnectionPool.class.getClassLoader(),
+				new Class<?>[] {Connection.class}, new InvocationHandler() {
+					private boolean closed;
+
+					@Override
+					public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						switch (method.getName()) {
+						case "close":
+							if (!closed) {
+								closed = true;
+								release(pool, connection);
+							}
+							return null;
+						case "isClosed":
+							return closed || connection.isClosed();
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						default:
+							if (closed) {
+								throw new SQLException("Connection is closed");
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						}
+					}
+				});
+	}
+
+	/**
+	 * Opens a new connection for a pool.
+	 */
+	interface ConnectionFactory {
+		Connection connect() throws SQLException;
+	}
+
+	/**
+	 * Identifies the connections which can be shared. Connections are only shared by executions with the same
+	 * identity, usually made up of the connection identifier and the JDBC URL.
+	 */
+	static class Key {
+		private final String identity;
+		private final ConnectionFactory factory;
+		private final int maxSize;
+		private final long idleTimeout;
+
+		/**
+		 * @param identity the identity of the connections
+		 * @param factory opens a new connection
+		 * @param maxSize the maximum number of open connections
+		 * @param idleTimeout the number of milliseconds after which an idle connection is closed
+		 */
+		Key(String identity, ConnectionFactory factory, int maxSize, long idleTimeout) {
+			this.identity = identity;
+			this.factory = factory;
+			this.maxSize = maxSize;
+			this.idleTimeout = idleTimeout;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && identity.equals(((Key) o).identity);
+		}
+
+		@Override
+		public int hashCode() {
+			return identity.hashCode();
+		}
+	}
+
+	private static class Pool {
+		private final Deque<Idle> idle = new ArrayDeque<>();
+		private int size;
+		private boolean closed;
+	}
+
+	private static class Idle {
+		private final Connection connection;
+		private final long since = System.currentTimeMillis();
+
+		Idle(Connection connection) {
+			this.connection = connection;
+		}
+	}
+}
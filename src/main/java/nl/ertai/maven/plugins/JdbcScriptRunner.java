@@ -0,0 +1,262 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Executes the statements of scripts over a JDBC connection.
+ *
+ * Consecutive DML statements are sent to the database in batches. Other DML statements and queries are prepared once
+ * and kept in a small cache, so a statement which occurs more than once is parsed only once. DDL and PL/SQL are
+ * executed as they are, without escape processing, so bind-like names such as <code>:NEW</code> in triggers reach the
+ * database unchanged. Queries are fetched in chunks of the fetch size, and their rows are written to the output.
+ */
+class JdbcScriptRunner implements Closeable {
+
+	private final Connection connection;
+	private final int batchSize;
+	private final int fetchSize;
+	private final LineTee.Listener output;
+	private final Map<String, PreparedStatement> cache;
+	private final List<String> batch = new ArrayList<>();
+	private final List<String> batchLocations = new ArrayList<>();
+
+	private Statement batchStatement;
+	private String location;
+	private String failedStatement;
+	private String failedLocation;
+	private int executed;
+
+	/**
+	 * @param connection the connection, the runner does not commit
+	 * @param batchSize the maximum number of DML statements in a batch, 1 or less to execute them one by one
+	 * @param fetchSize the number of rows fetched at once, 0 for the default of the driver
+	 * @param statementCacheSize the number of prepared statements which are kept
+	 * @param output receives the rows of the queries
+	 */
+	JdbcScriptRunner(Connection connection, int batchSize, int fetchSize, final int statementCacheSize,
+			LineTee.Listener output) {
+		this.connection = connection;
+		this.batchSize = batchSize;
+		this.fetchSize = fetchSize;
+		this.output = output;
+		this.cache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > statementCacheSize) {
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Executes all statements of a script.
+	 *
+	 * @return the number of executed statements
+	 */
+	int run(SqlScriptReader script) throws IOException, SQLException {
+		failedStatement = null;
+		failedLocation = null;
+		int before = executed;
+		String sql;
+		while ((sql = script.next()) != null) {
+			location = script.getLocation();
+			execute(sql);
+		}
+		flush();
+		return executed - before;
+	}
+
+	void execute(String sql) throws SQLException {
+		String keyword = getKeyword(sql);
+		if (batchSize > 1 && isDml(keyword)) {
+			if (batchStatement == null) {
+				batchStatement = connection.createStatement();
+			}
+			batchStatement.addBatch(sql);
+			batch.add(sql);
+			batchLocations.add(location);
+			if (batch.size() >= batchSize) {
+				flush();
+			}
+			return;
+		}
+		flush();
+		try {
+			if (isDml(keyword) || isQuery(keyword)) {
+				PreparedStatement statement = prepare(sql);
+				if (statement.execute()) {
+					print(statement);
+				}
+			} else {
+				try (Statement statement = connection.createStatement()) {
+					statement.setEscapeProcessing(false);
+					if (statement.execute(sql)) {
+						print(statement);
+					}
+				}
+			}
+			executed++;
+		} catch (SQLException e) {
+			failedStatement = sql;
+			failedLocation = location;
+			throw e;
+		}
+	}
+
+	/**
+	 * Executes the pending batch of DML statements.
+	 */
+	void flush() throws SQLException {
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			batchStatement.executeBatch();
+			executed += batch.size();
+		} catch (BatchUpdateException e) {
+			// drivers either stop at the failed statement, or mark it and go on
+			int failed = 0;
+			int[] counts = e.getUpdateCounts();
+			if (counts != null) {
+				failed = counts.length;
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] == Statement.EXECUTE_FAILED) {
+						failed = i;
+						break;
+					}
+				}
+			}
+			failed = Math.min(failed, batch.size() - 1);
+			failedStatement = batch.get(failed);
+			failedLocation = batchLocations.get(failed);
+			throw e;
+		} finally {
+			batch.clear();
+			batchLocations.clear();
+			batchStatement.clearBatch();
+		}
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = cache.get(sql);
+		if (statement == null) {
+			statement = connection.prepareStatement(sql);
+			if (fetchSize > 0) {
+				statement.setFetchSize(fetchSize);
+			}
+			cache.put(sql, statement);
+		}
+		return statement;
+	}
+
+	private void print(Statement statement) throws SQLException {
+		try (ResultSet resultSet = statement.getResultSet()) {
+			print(resultSet);
+		}
+	}
+
+	private void print(ResultSet resultSet) throws SQLException {
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		int columns = metaData.getColumnCount();
+		List<String> values = new ArrayList<>(columns);
+		for (int i = 1; i <= columns; i++) {
+			values.add(metaData.getColumnLabel(i));
+		}
+		output.processLine(StringUtils.join(values, "\t"));
+		int rows = 0;
+		while (resultSet.next()) {
+			values.clear();
+			for (int i = 1; i <= columns; i++) {
+				values.add(StringUtils.defaultString(resultSet.getString(i)));
+			}
+			output.processLine(StringUtils.join(values, "\t"));
+			rows++;
+		}
+		output.processLine(rows + " row(s) selected.");
+	}
+
+	/**
+	 * Returns the statement which failed, or null when no statement failed.
+	 */
+	String getFailedStatement() {
+		return failedStatement;
+	}
+
+	/**
+	 * Returns where the statement which failed starts, or null when it is not known.
+	 */
+	String getFailedLocation() {
+		return failedLocation;
+	}
+
+	static String getKeyword(String sql) {
+		String stripped = SqlScriptReader.stripComments(sql);
+		int end = 0;
+		while (end < stripped.length() && Character.isLetter(stripped.charAt(end))) {
+			end++;
+		}
+		return stripped.substring(0, end).toUpperCase();
+	}
+
+	private static boolean isDml(String keyword) {
+		return keyword.equals("INSERT") || keyword.equals("UPDATE") || keyword.equals("DELETE")
+				|| keyword.equals("MERGE");
+	}
+
+	private static boolean isQuery(String keyword) {
+		return keyword.equals("SELECT") || keyword.equals("WITH");
+	}
+
+	@Override
+	public void close() {
+		for (PreparedStatement statement : cache.values()) {
+			closeQuietly(statement);
+		}
+		cache.clear();
+		closeQuietly(batchStatement);
+		batchStatement = null;
+	}
+
+	private static void closeQuietly(Statement statement) {
+		if (statement != null) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				// nothing to do about it
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits the bytes written to it into lines, and decodes every line with a fixed charset.
+ *
+ * Lines are split on the bytes, so no characters are decoded before a line is complete, and the line buffer is
+ * reused for all lines.
+ */
+abstract class LineOutputStream extends OutputStream {
+
+	private static final int INITIAL_SIZE = 256;
+
+	private final Charset charset;
+	private byte[] buffer = new byte[INITIAL_SIZE];
+	private int size;
+
+	LineOutputStream(Charset charset) {
+		this.charset = charset;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (b == '\n') {
+			processBuffer();
+		} else if (b != '\r') {
+			append((byte) b);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int start = off;
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			if (b[i] == '\n' || b[i] == '\r') {
+				append(b, start, i - start);
+				if (b[i] == '\n') {
+					processBuffer();
+				}
+				start = i + 1;
+			}
+		}
+		append(b, start, end - start);
+	}
+
+	/**
+	 * Processes the last line, also when it is not terminated.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (size > 0) {
+			processBuffer();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * Processes a complete line, without the line terminator.
+	 */
+	protected abstract void processLine(String line);
+
+	private void processBuffer() {
+		String line = new String(buffer, 0, size, charset);
+		size = 0;
+		processLine(line);
+	}
+
+	private void append(byte b) {
+		ensureCapacity(size + 1);
+		buffer[size++] = b;
+	}
+
+	private void append(byte[] b, int off, int len) {
+		if (len > 0) {
+			ensureCapacity(size + len);
+			System.arraycopy(b, off, buffer, size, len);
+			size += len;
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Passes everything on to another stream, and hands the lines passing by to listeners. Every line is decoded once,
+ * however many listeners there are.
+ */
+class LineTee extends LineOutputStream {
+
+	/**
+	 * Receives the lines passing by.
+	 */
+	interface Listener {
+		void processLine(String line);
+	}
+
+	private final OutputStream out;
+	private final List<? extends Listener> listeners;
+
+	LineTee(OutputStream out, Charset charset, List<? extends Listener> listeners) {
+		super(charset);
+		this.out = out;
+		this.listeners = listeners;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		super.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		super.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		super.flush();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.flush();
+		out.close();
+	}
+
+	@Override
+	protected void processLine(String line) {
+		for (Listener listener : listeners) {
+			listener.processLine(line);
+		}
+	}
+}
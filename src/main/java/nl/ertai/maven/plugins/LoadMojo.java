@@ -0,0 +1,222 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Loads CSV and TSV files into tables over JDBC. The files are streamed, so they can be larger than the memory of
+ * the JVM, and the rows are inserted in batches. The JDBC driver should be a dependency of the plugin.
+ *
+ * @goal load
+ */
+public class LoadMojo extends AbstractDBMojo {
+
+	/**
+	 * File which should be loaded into <code>table</code>.
+	 *
+	 * @parameter
+	 */
+	File loadFile;
+
+	/**
+	 * The table <code>loadFile</code> is loaded into, optionally prefixed with a schema.
+	 *
+	 * @parameter
+	 */
+	String table;
+
+	/**
+	 * Set of files which should be loaded. Every file is loaded into the table with the name of the file without
+	 * its extension, like <code>EMP.csv</code> into <code>EMP</code> and <code>HR.EMP.csv</code> into
+	 * <code>HR.EMP</code>. When no includes are specified all <code>*.csv</code> and <code>*.tsv</code> files in the
+	 * directory are loaded.
+	 *
+	 * @parameter
+	 */
+	FileSet loadFiles;
+
+	/**
+	 * The base directory of the project, used to resolve the directory of <code>loadFiles</code>.
+	 *
+	 * @parameter default-value="${basedir}"
+	 * @readonly
+	 */
+	File basedir;
+
+	/**
+	 * Does the first line of a file contain the names of the columns?
+	 *
+	 * @parameter default-value="true"
+	 */
+	boolean header;
+
+	/**
+	 * The columns the fields are loaded into, separated by commas. By default the columns come from the first line
+	 * when <code>header</code> is true, or else all columns of the table are loaded in order.
+	 *
+	 * @parameter
+	 */
+	String columns;
+
+	/**
+	 * The character which separates the fields, <code>\t</code> for a tab. By default a tab for <code>*.tsv</code>
+	 * and <code>*.tab</code> files, and a comma for other files.
+	 *
+	 * @parameter
+	 */
+	String delimiter;
+
+	/**
+	 * The encoding of the files.
+	 *
+	 * @parameter default-value="${project.build.sourceEncoding}"
+	 */
+	String encoding;
+
+	/**
+	 * The number of rows which are sent to the database at once.
+	 *
+	 * @parameter default-value="1000"
+	 */
+	int batchSize;
+
+	/**
+	 * The number of rows after which is committed, rounded up to whole batches. Use 0 to commit a file only when it
+	 * is loaded completely.
+	 *
+	 * @parameter default-value="50000"
+	 */
+	int commitSize;
+
+	/**
+	 * The number of files which are loaded at the same time, each over its own connection.
+	 *
+	 * @parameter default-value="1"
+	 */
+	int threads;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		final List<File> files = new ArrayList<>();
+		if (loadFiles != null) {
+			files.addAll(ScriptFiles.scan(loadFiles, basedir, "*.csv", "*.tsv"));
+		} else if (loadFile != null) {
+			if (StringUtils.isEmpty(table)) {
+				throw new MojoFailureException("Specify the table loadFile should be loaded into");
+			}
+			files.add(loadFile);
+		}
+		if (files.isEmpty()) {
+			getLog().info("No files to load");
+			return;
+		}
+
+		ParallelExecutor<File> executor = new ParallelExecutor<>(threads, failOnError);
+		Map<File, ParallelExecutor.Status> result;
+		try {
+			result = executor.execute(files, Collections.<File, Set<File>>emptyMap(), new ParallelExecutor.Task<File>() {
+				@Override
+				public boolean run(File file) throws MojoExecutionException, MojoFailureException {
+					return load(file, loadFiles != null ? getTableName(file) : table);
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while loading files", e);
+		}
+		int failed = 0;
+		for (ParallelExecutor.Status status : result.values()) {
+			if (status != ParallelExecutor.Status.SUCCEEDED) {
+				failed++;
+			}
+		}
+		if (failed > 0 && failOnError) {
+			throw new MojoExecutionException(failed + " of " + files.size() + " file(s) could not be loaded");
+		}
+	}
+
+	private boolean load(File file, String tableName) throws MojoExecutionException, MojoFailureException {
+		long start = System.currentTimeMillis();
+		Charset charset = StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding);
+		TableLoader loader = null;
+		try (Connection connection = openConnection();
+				CsvReader reader = new CsvReader(new MappedFileReader(file, charset), getDelimiter(file))) {
+			connection.setAutoCommit(false);
+			List<String> names = null;
+			if (!StringUtils.isEmpty(columns)) {
+				names = Arrays.asList(StringUtils.stripAll(StringUtils.split(columns, ",")));
+			}
+			if (header) {
+				String[] first = reader.next();
+				if (names == null && first != null) {
+					names = Arrays.asList(StringUtils.stripAll(first));
+				}
+			}
+			loader = new TableLoader(connection, tableName, batchSize, commitSize);
+			long rows = loader.load(reader, names);
+			long millis = Math.max(1, System.currentTimeMillis() - start);
+			getLog().info("Loaded " + rows + " row(s) from " + file.getName() + " into " + tableName + " in "
+					+ millis + " ms (" + rows * 1000 / millis + " rows/s)");
+			return true;
+		} catch (IOException | SQLException e) {
+			String message = "Could not load " + file.getName() + " into " + tableName + ": " + e.getMessage();
+			if (loader != null && loader.getCommitted() > 0) {
+				message += " (" + loader.getCommitted() + " row(s) were committed)";
+			}
+			getLog().error(message);
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	char getDelimiter(File file) throws MojoFailureException {
+		if (StringUtils.isEmpty(delimiter)) {
+			String name = file.getName().toLowerCase();
+			return name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+		}
+		if (delimiter.equals("\\t")) {
+			return '\t';
+		}
+		if (delimiter.length() != 1) {
+			throw new MojoFailureException("The delimiter should be a single character: '" + delimiter + "'");
+		}
+		return delimiter.charAt(0);
+	}
+
+	static String getTableName(File file) {
+		String name = file.getName();
+		return name.lastIndexOf('.') < 0 ? name : name.substring(0, name.lastIndexOf('.'));
+	}
+}
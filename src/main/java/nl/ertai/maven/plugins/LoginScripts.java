@@ -0,0 +1,87 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Directories containing nothing but a login.sql, to be used as SQLPATH.
+ *
+ * There is one directory for every distinct content, shared by all executions in the build. All directories are
+ * removed when the JVM shuts down.
+ */
+final class LoginScripts {
+
+	static final String LOGIN_SQL = "login.sql";
+
+	private static final Map<String, File> DIRECTORIES = new HashMap<>();
+
+	private static File root;
+
+	private LoginScripts() {
+	}
+
+	/**
+	 * Returns the directory with a login.sql containing the given SQL.
+	 */
+	static synchronized File getDirectory(String sql) throws IOException {
+		String hash = sha256(sql);
+		File directory = DIRECTORIES.get(hash);
+		if (directory == null) {
+			directory = new File(getRoot(), hash);
+			if (!directory.mkdir()) {
+				throw new IOException("Could not create directory " + directory);
+			}
+			Files.write(new File(directory, LOGIN_SQL).toPath(), sql.getBytes(UTF_8));
+			DIRECTORIES.put(hash, directory);
+		}
+		return directory;
+	}
+
+	private static File getRoot() throws IOException {
+		if (root == null) {
+			root = Files.createTempDirectory("oracledb-maven-plugin-").toFile();
+			final File directory = root;
+			Runtime.getRuntime().addShutdownHook(new Thread("oracledb-login-scripts-cleanup") {
+				@Override
+				public void run() {
+					try {
+						FileUtils.deleteDirectory(directory);
+					} catch (IOException e) {
+						// nothing more to do, the JVM is shutting down
+					}
+				}
+			});
+		}
+		return root;
+	}
+
+	private static String sha256(String sql) {
+		MessageDigest digest = Sha256.newDigest();
+		digest.update(sql.getBytes(UTF_8));
+		return Sha256.toHex(digest);
+	}
+}
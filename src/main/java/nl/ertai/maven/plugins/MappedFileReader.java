@@ -0,0 +1,107 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads a text file through a memory-mapped window which slides over the file, so files of several gigabytes can be
+ * read without copying them onto the heap first. Just like {@link java.io.InputStreamReader} malformed input is
+ * replaced.
+ */
+class MappedFileReader extends Reader {
+
+	static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+	private final CharsetDecoder decoder;
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private boolean partial;
+	private boolean finished;
+
+	MappedFileReader(File file, Charset charset) throws IOException {
+		this(file, charset, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param windowSize the number of bytes which are mapped at once
+	 */
+	MappedFileReader(File file, Charset charset, int windowSize) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.size = channel.size();
+		this.windowSize = windowSize;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public int read(char[] chars, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		CharBuffer out = CharBuffer.wrap(chars, offset, length);
+		while (out.position() == offset) {
+			if (finished) {
+				return -1;
+			}
+			long position = window == null ? 0 : windowStart + window.position();
+			if ((window == null || !window.hasRemaining() || partial) && position < size) {
+				// a character which was cut off at the end of the window starts the next window
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+				windowStart = position;
+				partial = false;
+			}
+			boolean endOfInput = window == null || windowStart + window.limit() >= size;
+			CoderResult result = decoder.decode(window == null ? EMPTY : window, out, endOfInput);
+			if (result.isUnderflow()) {
+				if (endOfInput) {
+					decoder.flush(out);
+					finished = true;
+				} else {
+					partial = window.hasRemaining();
+				}
+			}
+		}
+		return out.position() - offset;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+}
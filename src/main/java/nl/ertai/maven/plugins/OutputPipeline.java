@@ -0,0 +1,228 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Logs the output of a tool in the background, so the tool never has to wait for Maven.
+ *
+ * Lines are put in a bounded queue which is drained by a single logger thread. When the queue is full new lines are
+ * dropped instead of blocking. Optionally the number of lines per second is limited, or the standard output is only
+ * summarized. Errors are never dropped, suppressed or summarized: lines of the standard error and lines the error rules
+ * classify as errors wait for room in the queue instead. Dropped, suppressed and summarized lines are reported by
+ * {@link #drain()}.
+ */
+class OutputPipeline {
+
+	static final int DEFAULT_QUEUE_SIZE = 10000;
+
+	private static final int SUMMARY_LINES = 10;
+	private static final long IDLE_MILLIS = 1000;
+
+	private final Log log;
+	private final BlockingQueue<Line> queue;
+	private final int linesPerSecond;
+	private final boolean summarize;
+	private final ErrorDetector classifier;
+
+	private final Deque<String> lastLines = new ArrayDeque<>();
+	private long windowStart;
+	private int windowLines;
+	private long suppressed;
+	private long dropped;
+	private long summarized;
+	private long offered;
+	private long logged;
+	private Thread logger;
+
+	/**
+	 * @param log the log to write the lines to
+	 * @param queueSize the maximum number of lines waiting to be logged
+	 * @param linesPerSecond the maximum number of lines logged per second, 0 for no limit
+	 * @param summarize log a summary of the standard output instead of every line
+	 * @param classifier tells which lines of the standard output are errors, may be null
+	 */
+	OutputPipeline(Log log, int queueSize, int linesPerSecond, boolean summarize, ErrorDetector classifier) {
+		this.log = log;
+		this.queue = new ArrayBlockingQueue<>(queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE);
+		this.linesPerSecond = linesPerSecond;
+		this.summarize = summarize;
+		this.classifier = classifier;
+	}
+
+	void info(String line) {
+		add(new Line(line, false));
+	}
+
+	void error(String line) {
+		add(new Line(line, true));
+	}
+
+	private void add(Line line) {
+		boolean important = line.error || classifier != null && classifier.isError(line.text);
+		synchronized (this) {
+			if (linesPerSecond > 0) {
+				long now = System.currentTimeMillis();
+				if (now - windowStart >= 1000) {
+					windowStart = now;
+					windowLines = 0;
+				}
+				if (++windowLines > linesPerSecond && !important) {
+					suppressed++;
+					return;
+				}
+			}
+			if (summarize && !important) {
+				summarized++;
+				lastLines.addLast(line.text);
+				if (lastLines.size() > SUMMARY_LINES) {
+					lastLines.removeFirst();
+				}
+				return;
+			}
+			if (queue.offer(line)) {
+				offered++;
+				startLogger();
+				return;
+			}
+			if (!important) {
+				dropped++;
+				return;
+			}
+			// counted before waiting, so drain() waits for it too
+			offered++;
+		}
+		try {
+			// not while holding the lock, the logger needs it to go on
+			queue.put(line);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			synchronized (this) {
+				offered--;
+				dropped++;
+				notifyAll();
+			}
+			return;
+		}
+		synchronized (this) {
+			// the logger may have emptied the queue and stopped in the meantime
+			startLogger();
+		}
+	}
+
+	private void startLogger() {
+		if (logger == null) {
+			logger = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					drainQueue();
+				}
+			}, "oracledb-output-logger");
+			logger.setDaemon(true);
+			logger.start();
+		}
+	}
+
+	/**
+	 * Waits until all lines added so far are logged, and reports the lines which were not logged.
+	 */
+	void drain() throws InterruptedException {
+		synchronized (this) {
+			long target = offered;
+			while (logged < Math.min(target, offered)) {
+				wait();
+			}
+		}
+		report();
+	}
+
+	private void report() {
+		long reportSuppressed;
+		long reportDropped;
+		long reportSummarized;
+		String[] reportLines;
+		synchronized (this) {
+			reportSuppressed = suppressed;
+			reportDropped = dropped;
+			reportSummarized = summarized;
+			reportLines = lastLines.toArray(new String[0]);
+			suppressed = 0;
+			dropped = 0;
+			summarized = 0;
+			lastLines.clear();
+		}
+		if (reportSummarized > 0) {
+			log.info(reportSummarized + " line(s) of output, the last " + reportLines.length + ":");
+			for (String line : reportLines) {
+				log.info(line);
+			}
+		}
+		if (reportSuppressed > 0) {
+			log.warn(reportSuppressed + " line(s) of output suppressed, more than " + linesPerSecond
+					+ " lines per second");
+		}
+		if (reportDropped > 0) {
+			log.warn(reportDropped + " line(s) of output dropped, logging could not keep up");
+		}
+	}
+
+	private void drainQueue() {
+		while (true) {
+			Line line;
+			try {
+				line = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				line = null;
+			}
+			if (line == null) {
+				synchronized (this) {
+					if (queue.isEmpty()) {
+						logger = null;
+						return;
+					}
+				}
+				continue;
+			}
+			if (line.error) {
+				log.error(line.text);
+			} else {
+				log.info(line.text);
+			}
+			synchronized (this) {
+				logged++;
+				notifyAll();
+			}
+		}
+	}
+
+	private static class Line {
+		private final String text;
+		private final boolean error;
+
+		Line(String text, boolean error) {
+			this.text = text;
+			this.error = error;
+		}
+	}
+}
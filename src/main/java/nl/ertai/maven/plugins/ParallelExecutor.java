@@ -0,0 +1,167 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks with a bounded number of threads. A task is started as soon as all tasks it depends on have
+ * succeeded. Tasks depending on a failed task are skipped, and with fail-fast all remaining tasks are cancelled
+ * after the first failure.
+ *
+ * @param <T> the items the tasks work on
+ */
+class ParallelExecutor<T> {
+
+	enum Status {
+		SUCCEEDED, FAILED, CANCELLED, SKIPPED
+	}
+
+	interface Task<T> {
+		/**
+		 * Runs the task for the given item.
+		 *
+		 * @return true if the task succeeded
+		 */
+		boolean run(T item) throws Exception;
+	}
+
+	private final int threads;
+	private final boolean failFast;
+
+	ParallelExecutor(int threads, boolean failFast) {
+		this.threads = Math.max(1, threads);
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Runs the task for all items.
+	 *
+	 * @param items the items in their preferred order of execution
+	 * @param dependencies for every item the items which should succeed before it is started, may be incomplete
+	 * @return the status of every item, in the order of the given items
+	 */
+	Map<T, Status> execute(List<T> items, Map<T, Set<T>> dependencies, final Task<T> task)
+			throws InterruptedException {
+		Map<T, Status> result = new LinkedHashMap<>();
+		Map<T, Integer> waitingFor = new HashMap<>();
+		Map<T, List<T>> dependents = new HashMap<>();
+		for (T item : items) {
+			Set<T> itemDependencies = dependencies.get(item);
+			waitingFor.put(item, itemDependencies == null ? 0 : itemDependencies.size());
+			if (itemDependencies != null) {
+				for (T dependency : itemDependencies) {
+					if (!dependents.containsKey(dependency)) {
+						dependents.put(dependency, new ArrayList<T>());
+					}
+					dependents.get(dependency).add(item);
+				}
+			}
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		CompletionService<T> completionService = new ExecutorCompletionService<>(executorService);
+		Map<Future<T>, T> running = new HashMap<>();
+		boolean cancelled = false;
+		try {
+			List<T> ready = new ArrayList<>();
+			for (T item : items) {
+				if (waitingFor.get(item) == 0) {
+					ready.add(item);
+				}
+			}
+			while (!ready.isEmpty() || !running.isEmpty()) {
+				for (final T item : ready) {
+					running.put(completionService.submit(new Callable<T>() {
+						@Override
+						public T call() throws Exception {
+							if (!task.run(item)) {
+								throw new TaskFailedException();
+							}
+							return item;
+						}
+					}), item);
+				}
+				ready.clear();
+				if (running.isEmpty()) {
+					break;
+				}
+
+				Future<T> future = completionService.take();
+				T item = running.remove(future);
+				if (succeeded(future)) {
+					result.put(item, Status.SUCCEEDED);
+					List<T> itemDependents = dependents.get(item);
+					for (T dependent : itemDependents == null ? Collections.<T>emptyList() : itemDependents) {
+						int remaining = waitingFor.get(dependent) - 1;
+						waitingFor.put(dependent, remaining);
+						if (remaining == 0 && !cancelled) {
+							ready.add(dependent);
+						}
+					}
+				} else if (future.isCancelled()) {
+					result.put(item, Status.CANCELLED);
+				} else {
+					result.put(item, Status.FAILED);
+					if (failFast && !cancelled) {
+						cancelled = true;
+						for (Future<T> other : running.keySet()) {
+							other.cancel(true);
+						}
+					}
+				}
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		Map<T, Status> ordered = new LinkedHashMap<>();
+		for (T item : items) {
+			ordered.put(item, result.containsKey(item) ? result.get(item) : Status.SKIPPED);
+		}
+		return ordered;
+	}
+
+	private static boolean succeeded(Future<?> future) throws InterruptedException {
+		if (future.isCancelled()) {
+			return false;
+		}
+		try {
+			future.get();
+			return true;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	private static class TaskFailedException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes the characters of a reader into bytes, one fixed-size chunk at a time.
+ */
+class ReaderInputStream extends InputStream {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private final Reader reader;
+	private final CharsetEncoder encoder;
+	private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+	private final ByteBuffer bytes;
+	private boolean endOfInput;
+
+	ReaderInputStream(Reader reader, Charset charset) {
+		this.reader = reader;
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.bytes = ByteBuffer.allocate((int) Math.ceil(CHUNK_SIZE * encoder.maxBytesPerChar()));
+		chars.flip();
+		bytes.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int read = read(b, 0, 1);
+		return read == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		while (!bytes.hasRemaining()) {
+			if (endOfInput && !chars.hasRemaining()) {
+				return -1;
+			}
+			fill();
+		}
+		int read = Math.min(len, bytes.remaining());
+		bytes.get(b, off, read);
+		return read;
+	}
+
+	private void fill() throws IOException {
+		if (!endOfInput) {
+			chars.compact();
+			int read = reader.read(chars);
+			endOfInput = read == -1;
+			chars.flip();
+		}
+		bytes.compact();
+		CoderResult result = encoder.encode(chars, bytes, endOfInput);
+		if (endOfInput && !chars.hasRemaining()) {
+			encoder.flush(bytes);
+		}
+		bytes.flip();
+		if (result.isError()) {
+			result.throwException();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
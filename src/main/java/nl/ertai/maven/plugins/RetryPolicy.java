@@ -0,0 +1,187 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Decides which errors are transient, and how long to wait before the next attempt.
+ *
+ * The delay doubles with every attempt up to a maximum, and a random part of up to half the delay is taken off, so
+ * builds which wait for the same database do not retry at the same moment.
+ */
+class RetryPolicy {
+
+	/**
+	 * The database is starting, or its service is not registered with the listener yet.
+	 */
+	static final String CONNECTION = "connection";
+
+	/**
+	 * A resource is locked by another session.
+	 */
+	static final String LOCK = "lock";
+
+	private static final List<Integer> CONNECTION_ERRORS = Arrays.asList(
+			// initialization or shutdown in progress, not available, shutdown in progress
+			1033, 1034, 1089,
+			// service or instance not known by the listener, or blocking new connections
+			12514, 12516, 12518, 12520, 12521, 12526, 12528,
+			// connection closed, no listener
+			12537, 12541);
+
+	private static final List<Integer> LOCK_ERRORS = Arrays.asList(
+			// resource busy, timeout waiting to lock object, resource busy after WAIT timeout
+			54, 4021, 30006);
+
+	private static final Pattern ERROR = Pattern.compile("\\b(?:ORA|TNS)-(\\d{5})\\b");
+
+	private final Set<Integer> codes = new HashSet<>();
+	private final long timeoutMillis;
+	private final long initialDelay;
+	private final long maxDelay;
+	private final Random random;
+
+	/**
+	 * @param retryOn the error classes and codes, like <code>connection,lock,ORA-04068</code>
+	 * @param timeoutMillis the time in which attempts may be made, 0 for a single attempt
+	 * @param initialDelay the delay before the second attempt
+	 * @param maxDelay the maximum delay between attempts
+	 */
+	RetryPolicy(String retryOn, long timeoutMillis, long initialDelay, long maxDelay, Random random)
+			throws MojoFailureException {
+		for (String entry : StringUtils.split(StringUtils.defaultString(retryOn), ", ")) {
+			Matcher matcher = ERROR.matcher(entry.toUpperCase(Locale.ROOT));
+			if (CONNECTION.equalsIgnoreCase(entry)) {
+				codes.addAll(CONNECTION_ERRORS);
+			} else if (LOCK.equalsIgnoreCase(entry)) {
+				codes.addAll(LOCK_ERRORS);
+			} else if (matcher.matches()) {
+				codes.add(Integer.parseInt(matcher.group(1)));
+			} else {
+				throw new MojoFailureException("Unknown error class '" + entry + "' in retryOn. Use one of: "
+						+ CONNECTION + ", " + LOCK + " or an error code like ORA-04068");
+			}
+		}
+		this.timeoutMillis = timeoutMillis;
+		this.initialDelay = Math.max(1, initialDelay);
+		this.maxDelay = Math.max(this.initialDelay, maxDelay);
+		this.random = random;
+	}
+
+	boolean isEnabled() {
+		return timeoutMillis > 0;
+	}
+
+	long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Returns the transient error in a line of output, like <code>ORA-12514</code>, or null when there is none.
+	 */
+	String findTransient(String line) {
+		Matcher matcher = ERROR.matcher(line);
+		while (matcher.find()) {
+			if (codes.contains(Integer.parseInt(matcher.group(1)))) {
+				return "ORA-" + matcher.group(1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the transient error which caused an exception, or null when it was not caused by a transient error.
+	 */
+	String findTransient(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLException && codes.contains(((SQLException) cause).getErrorCode())) {
+				return String.format("ORA-%05d", ((SQLException) cause).getErrorCode());
+			}
+			String error = findTransient(StringUtils.defaultString(cause.getMessage()));
+			if (error != null) {
+				return error;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the delay after the given attempt.
+	 *
+	 * @param attempt the attempt, starting at 0
+	 */
+	long getDelay(int attempt) {
+		long delay = initialDelay << Math.min(attempt, 30);
+		if (delay <= 0 || delay > maxDelay) {
+			delay = maxDelay;
+		}
+		return delay - (long) (random.nextDouble() * (delay / 2));
+	}
+
+	/**
+	 * Creates a listener which picks the first transient error out of the output of a tool.
+	 */
+	Detector newDetector() {
+		return new Detector();
+	}
+
+	/**
+	 * Checks whether something accepts connections on the port, without logging on.
+	 */
+	static boolean probe(String host, int port, int timeoutMillis) {
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Picks the first transient error out of the output of a tool.
+	 */
+	class Detector implements LineTee.Listener {
+		private volatile String error;
+
+		@Override
+		public void processLine(String line) {
+			if (error == null) {
+				error = findTransient(line);
+			}
+		}
+
+		String getError() {
+			return error;
+		}
+	}
+}
@@ -17,9 +17,15 @@
 package nl.ertai.maven.plugins;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.commons.exec.CommandLine;
@@ -28,8 +34,11 @@ import org.apache.commons.exec.ExecuteException;
 import org.apache.commons.exec.Executor;
 import org.apache.commons.exec.PumpStreamHandler;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.InterpolationFilterReader;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -82,28 +91,600 @@ public class SQLPlusMojo extends AbstractDBMojo {
 	 */
 	List<String> arguments;
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
-    	File file = getFile();
-    	if (file != null) {
-    		CommandLine cmd = buildCommandline(file);
+	/**
+	 * Set of files containing commands which SQL*Plus should execute. All files are executed in a single SQL*Plus
+	 * session, in alphabetical order of their path relative to the directory of the file set. When no includes are
+	 * specified all <code>*.sql</code> files in the directory are executed.
+	 *
+	 * @parameter
+	 */
+	FileSet sqlFiles;
 
-			Executor exec = new DefaultExecutor();
-			exec.setWorkingDirectory(file.getParentFile());
-			exec.setStreamHandler(new PumpStreamHandler(new InfoLogOutputStream(), new ErrorLogOutputStream()));
-			try {
-				exec.execute(cmd, getEnvVars());
-			} catch (ExecuteException e) {
-				if (failOnError) {
-					throw new MojoExecutionException("program exited with exitCode: " + e.getExitValue(), e);
-				} else {
-					getLog().warn("program exited with exitCode: " + e.getExitValue());
+	/**
+	 * The base directory of the project, used to resolve the directory of <code>sqlFiles</code>.
+	 *
+	 * @parameter default-value="${basedir}"
+	 * @readonly
+	 */
+	File basedir;
+
+	/**
+	 * Number of SQL*Plus sessions used to execute the <code>sqlFiles</code>. With more than one thread every script
+	 * runs in its own session, and scripts which do not depend on each other run at the same time. The output of
+	 * every script is logged in one piece, prefixed with the name of the script.
+	 *
+	 * @parameter default-value="1"
+	 */
+	int threads;
+
+	/**
+	 * Naming convention which determines which <code>sqlFiles</code> may run at the same time when more than one
+	 * thread is used. With <code>prefix</code> scripts in the same directory starting with the same number run
+	 * together, with <code>directory</code> all scripts in the same directory run together, with <code>none</code>
+	 * all scripts run together. Every group starts when the previous group has finished. Additional dependencies can
+	 * be declared with a <code>-- depends: &lt;script&gt;, ...</code> comment at the top of a script.
+	 * options: [prefix | directory | none]
+	 *
+	 * @parameter default-value="prefix"
+	 */
+	String dependencyConvention;
+
+	/**
+	 * Keep track of the applied <code>sqlFiles</code> in a ledger table in the target schema. Scripts which were
+	 * applied successfully before and did not change since, are skipped. The SHA-256 checksum of the content of a
+	 * script is used to detect changes.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean ledger;
+
+	/**
+	 * Name of the ledger table, which is created when it does not exist.
+	 *
+	 * @parameter default-value="ORACLEDB_PLUGIN_LEDGER"
+	 */
+	String ledgerTable;
+
+	/**
+	 * Should the plugin result in a failure when a script in the ledger has changed since it was applied? Otherwise
+	 * changed scripts are executed again.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean failOnChangedScript;
+
+	/**
+	 * Execute the scripts in SQL*Plus sessions which are kept open until the end of the build, instead of starting
+	 * SQL*Plus for every script. Sessions are shared by all executions with the same <code>sqlplus</code> command,
+	 * connection and <code>beforeSql</code>, also across modules. Note that relative paths in scripts are resolved
+	 * against the directory the session was started in, and that settings like SET and DEFINE are kept for the
+	 * next script. A pending transaction is committed after every script.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean reuseSessions;
+
+	/**
+	 * Send the SQL to SQL*Plus over its standard input, instead of writing <code>beforeSql</code> and
+	 * <code>sqlCommand</code> to temporary files. The <code>sqlFile</code> is streamed as well, so it can be filtered
+	 * without writing a copy. Note that <code>@@</code> in a streamed <code>sqlFile</code> is resolved against the
+	 * directory of the <code>sqlFile</code>, and that <code>arguments</code> are defined as substitution variables
+	 * <code>&amp;1</code>, <code>&amp;2</code>, ... instead of being passed on the command line.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean streamSql;
+
+	/**
+	 * Replace <code>${...}</code> expressions in the <code>sqlFile</code> by the project and system properties while
+	 * it is streamed to SQL*Plus. Only used together with <code>streamSql</code>.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean filterSqlFile;
+
+	/**
+	 * The encoding of the <code>sqlFile</code>, used when it is filtered.
+	 *
+	 * @parameter default-value="${project.build.sourceEncoding}"
+	 */
+	String encoding;
+
+	/**
+	 * The properties of the project, used to filter the <code>sqlFile</code>.
+	 *
+	 * @parameter default-value="${project.properties}"
+	 * @readonly
+	 */
+	Properties projectProperties;
+
+	/**
+	 * Report the elapsed time of every statement. <code>SET TIMING ON</code> and <code>SET ECHO ON</code> are added
+	 * to the <code>beforeSql</code>, and the timings are picked out of the output. All timings are written to the
+	 * <code>timingReportFile</code>, the slowest statements are logged.
+	 * options: [true | false]
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean timingReport;
+
+	/**
+	 * The JSON file the timings are written to. By default every execution writes its own file.
+	 *
+	 * @parameter default-value="${project.build.directory}/oracledb/sqlplus-timings-${mojoExecution.executionId}.json"
+	 */
+	File timingReportFile;
+
+	/**
+	 * The number of slowest statements which are logged.
+	 *
+	 * @parameter default-value="10"
+	 */
+	int timingReportTop;
+
+	private SqlPlusSessionPool.Key sessionKey;
+
+	private TimingReport timings;
+
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (reuseSessions) {
+			sessionKey = getSessionKey();
+		}
+		retrying(new Attempt<Void>() {
+			@Override
+			public Void run() throws MojoExecutionException, MojoFailureException {
+				executeOnce();
+				return null;
+			}
+		});
+	}
+
+	private void executeOnce() throws MojoExecutionException, MojoFailureException {
+		if (timingReport) {
+			timings = new TimingReport();
+			if (streamSql && sqlFiles == null) {
+				getLog().warn("SQL*Plus does not echo SQL sent over the standard input, the timings are labeled by the "
+						+ "position of the statements instead");
+			}
+		}
+		try {
+			if (sqlFiles != null) {
+				executeFileSet();
+			} else if (streamSql && !StringUtils.isEmpty(sqlCommand)) {
+				executeSql(sqlCommand, null, timed(new InfoLogOutputStream(), "sqlCommand", null, false));
+			} else if (streamSql && sqlFile != null) {
+				executeStream(openSqlFile(), sqlFile.getParentFile(),
+						timed(new InfoLogOutputStream(), sqlFile.getName(), null, false));
+			} else {
+				File file = getFile();
+				if (file != null) {
+					execute(buildCommandline(file), file, file.getParentFile(),
+							timed(new InfoLogOutputStream(), file.getName(), null, true));
 				}
-			} catch (IOException e) {
-				throw new MojoExecutionException("Command execution failed.", e);
+			}
+		} finally {
+			if (timings != null) {
+				reportTimings();
+			}
+		}
+	}
+
+	/**
+	 * Returns a stream which passes everything on to the given stream, and collects the timings passing by.
+	 *
+	 * @param echoed whether the statements are echoed, which SQL*Plus only does for scripts
+	 */
+	private OutputStream timed(OutputStream out, String script, ScriptBatch batch, boolean echoed) {
+		return timings == null ? out : watch(out, timings.collector(script, batch, echoed));
+	}
+
+	private void reportTimings() throws MojoExecutionException {
+		List<TimingReport.Timing> all = timings.getTimings();
+		try {
+			timings.write(timingReportFile);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not write " + timingReportFile, e);
+		}
+		getLog().info("Timings of " + all.size() + " statement(s) written to " + timingReportFile);
+		List<TimingReport.Timing> slowest = timings.getSlowest(timingReportTop);
+		if (!slowest.isEmpty()) {
+			getLog().info("Slowest statements:");
+			for (TimingReport.Timing timing : slowest) {
+				getLog().info(String.format("%10d ms  %s: %s", timing.getElapsedMillis(), timing.getScript(),
+						timing.getStatement()));
 			}
 		}
 	}
 
+	private void executeFileSet() throws MojoExecutionException, MojoFailureException {
+		List<File> all = getFiles();
+		if (all.isEmpty()) {
+			getLog().info("No sql files found in " + getFileSetDirectory());
+			return;
+		}
+		List<File> files = all;
+		ScriptLedger scriptLedger = null;
+		if (ledger) {
+			scriptLedger = readLedger(files);
+			files = scriptLedger.getPending();
+			if (files.isEmpty()) {
+				getLog().info("All sql files are up to date according to " + ledgerTable);
+				return;
+			}
+		}
+
+		Map<File, ParallelExecutor.Status> result = new LinkedHashMap<>();
+		try {
+			if (threads > 1) {
+				executeScriptsParallel(files, all, result);
+			} else {
+				executeScripts(files, result);
+			}
+		} finally {
+			if (scriptLedger != null) {
+				recordLedger(scriptLedger, result);
+			}
+		}
+	}
+
+	private ScriptLedger readLedger(List<File> files) throws MojoExecutionException, MojoFailureException {
+		final ScriptLedger scriptLedger = new ScriptLedger(ledgerTable, getFileSetDirectory(), files);
+		executeSql(scriptLedger.toReadScript(!reuseSessions), getFileSetDirectory(), new LineOutputStream(getOutputCharset()) {
+			@Override
+			protected void processLine(String line) {
+				if (!scriptLedger.processLine(line)) {
+					getLog().debug(line);
+				}
+			}
+		});
+
+		List<File> changed = scriptLedger.getChanged();
+		for (File file : changed) {
+			getLog().warn("Script " + scriptLedger.getName(file) + " changed since it was applied (checksum "
+					+ scriptLedger.getAppliedChecksum(file) + " is now " + scriptLedger.getChecksum(file) + ")");
+		}
+		if (failOnChangedScript && !changed.isEmpty()) {
+			throw new MojoFailureException(changed.size() + " script(s) changed since they were applied");
+		}
+		getLog().info((files.size() - scriptLedger.getPending().size()) + " of " + files.size()
+				+ " sql file(s) are up to date, " + changed.size() + " changed");
+		return scriptLedger;
+	}
+
+	private void recordLedger(ScriptLedger scriptLedger, Map<File, ParallelExecutor.Status> result)
+			throws MojoExecutionException, MojoFailureException {
+		String record = scriptLedger.toRecordScript(result, !reuseSessions);
+		if (record != null) {
+			executeSql(record, getFileSetDirectory(), new InfoLogOutputStream());
+		}
+	}
+
+	private void executeScripts(List<File> files, Map<File, ParallelExecutor.Status> result)
+			throws MojoExecutionException, MojoFailureException {
+		ScriptBatch batch = new ScriptBatch(files);
+		try {
+			executeSql(batch.toDriverScript(arguments), getFileSetDirectory(),
+					timed(new ScriptBatchOutputStream(batch), null, batch, true));
+		} finally {
+			report(batch, result);
+		}
+		ScriptBatch.ScriptResult unfinished = batch.getUnfinished();
+		if (unfinished != null) {
+			handleFailure("SQL*Plus session ended during script " + unfinished.getScript().getName(), null);
+		}
+	}
+
+	/**
+	 * Executes the scripts in parallel, in the order of their dependencies.
+	 *
+	 * @param files the scripts to execute
+	 * @param all all scripts of the file set, including the scripts which were applied already
+	 */
+	private void executeScriptsParallel(final List<File> files, List<File> all,
+			Map<File, ParallelExecutor.Status> result) throws MojoExecutionException, MojoFailureException {
+		final File directory = getFileSetDirectory();
+		Map<File, Set<File>> dependencies = ScriptDependencies.retain(
+				ScriptDependencies.resolve(directory, all, dependencyConvention), files);
+		final Map<File, CommandLine> commandLines = new HashMap<>();
+		for (File file : files) {
+			commandLines.put(file, streamSql ? buildStreamCommandline() : buildCommandline("@" + file.getAbsolutePath()));
+		}
+		final Map<String, String> envVars = streamSql ? null : getEnvVars();
+		// validates the error rules before any script runs
+		createErrorDetector();
+		final OrderedLog orderedLog = new OrderedLog(files.size());
+
+		ParallelExecutor<File> executor = new ParallelExecutor<>(threads, failOnError);
+		try {
+			result.putAll(executor.execute(files, dependencies, new ParallelExecutor.Task<File>() {
+				@Override
+				public boolean run(File file) {
+					BufferedLog log = new BufferedLog("[" + file.getName() + "] ");
+					try {
+						return executeScript(commandLines.get(file), file, directory, envVars, log);
+					} finally {
+						orderedLog.complete(files.indexOf(file), log);
+					}
+				}
+			}));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while executing sql files", e);
+		} finally {
+			orderedLog.completeAll();
+		}
+
+		List<String> failed = new ArrayList<>();
+		for (Map.Entry<File, ParallelExecutor.Status> entry : result.entrySet()) {
+			String name = entry.getKey().getName();
+			switch (entry.getValue()) {
+				case FAILED:
+					failed.add(name);
+					break;
+				case CANCELLED:
+					getLog().warn("Script " + name + " was cancelled");
+					break;
+				case SKIPPED:
+					getLog().warn("Script " + name + " was not executed");
+					break;
+				default:
+					break;
+			}
+		}
+		if (!failed.isEmpty()) {
+			handleFailure("Script(s) failed: " + StringUtils.join(failed, ", "), null);
+		}
+	}
+
+	private boolean executeScript(CommandLine cmd, File script, File workingDirectory, Map<String, String> envVars,
+			BufferedLog log) {
+		long start = System.currentTimeMillis();
+		ErrorDetector detector = null;
+		try {
+			detector = createErrorDetector();
+			run(cmd, script, workingDirectory, envVars, timed(log.info(), script.getName(), null, true), log.error(),
+					detector);
+			if (detector == null || detector.getError() == null) {
+				log.add("completed in " + (System.currentTimeMillis() - start) + " ms", false);
+				return true;
+			}
+		} catch (ExecuteException e) {
+			if (detector == null || detector.getError() == null) {
+				log.add(describe(e) + " after " + (System.currentTimeMillis() - start) + " ms", true);
+			}
+		} catch (IOException | MojoFailureException e) {
+			log.add("Command execution failed: " + e.getMessage(), true);
+		}
+		if (detector != null && detector.getError() != null) {
+			log.add("stopped at error after " + (System.currentTimeMillis() - start) + " ms: " + detector.getError(),
+					true);
+		}
+		return false;
+	}
+
+	private void report(ScriptBatch batch, Map<File, ParallelExecutor.Status> statuses) {
+		for (ScriptBatch.ScriptResult result : batch.getResults()) {
+			String name = result.getScript().getName();
+			if (result.isFinished() && result.getErrors() == 0) {
+				getLog().info("Script " + name + " completed in " + result.getElapsedMillis() + " ms");
+				statuses.put(result.getScript(), ParallelExecutor.Status.SUCCEEDED);
+			} else if (result.isFinished()) {
+				getLog().warn("Script " + name + " completed with " + result.getErrors() + " error(s) in "
+						+ result.getElapsedMillis() + " ms");
+				statuses.put(result.getScript(), ParallelExecutor.Status.FAILED);
+			} else if (result.isStarted()) {
+				getLog().error("Script " + name + " failed");
+				statuses.put(result.getScript(), ParallelExecutor.Status.FAILED);
+			} else {
+				getLog().warn("Script " + name + " was not executed");
+				statuses.put(result.getScript(), ParallelExecutor.Status.SKIPPED);
+			}
+		}
+	}
+
+	private void execute(CommandLine cmd, File script, File workingDirectory, OutputStream out)
+			throws MojoExecutionException, MojoFailureException {
+		ErrorDetector detector = createErrorDetector();
+		try {
+			run(cmd, script, workingDirectory, getEnvVars(), out, new ErrorLogOutputStream(), detector);
+		} catch (ExecuteException e) {
+			checkOutput(detector, e);
+			handleFailure(describe(e), e);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Command execution failed.", e);
+		}
+		checkOutput(detector, null);
+	}
+
+	/**
+	 * Executes generated SQL, streamed or from a temporary file.
+	 */
+	private void executeSql(String sql, File workingDirectory, OutputStream out)
+			throws MojoExecutionException, MojoFailureException {
+		if (streamSql) {
+			executeStream(new ByteArrayInputStream(sql.getBytes(UTF_8)), workingDirectory, out);
+		} else {
+			File script = printToTempFile(sql);
+			execute(buildCommandline("@" + script.getAbsolutePath()), script, workingDirectory, out);
+		}
+	}
+
+	private void executeStream(InputStream sql, File workingDirectory, OutputStream out)
+			throws MojoExecutionException, MojoFailureException {
+		ErrorDetector detector = createErrorDetector();
+		try {
+			runStream(buildStreamCommandline(), sql, workingDirectory, out, new ErrorLogOutputStream(), detector);
+		} catch (ExecuteException e) {
+			checkOutput(detector, e);
+			handleFailure(describe(e), e);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Command execution failed.", e);
+		} finally {
+			IOUtil.close(sql);
+		}
+		checkOutput(detector, null);
+	}
+
+	/**
+	 * @param detector stops SQL*Plus at the first error, may be null
+	 */
+	private void run(CommandLine cmd, File script, File workingDirectory, Map<String, String> envVars, OutputStream out,
+			OutputStream err, ErrorDetector detector) throws IOException {
+		InputStream start = new ByteArrayInputStream(ScriptBatch.startCommand(script, arguments).getBytes(UTF_8));
+		if (streamSql) {
+			runStream(cmd, start, workingDirectory, out, err, detector);
+		} else if (reuseSessions) {
+			runInSession(start, script.getName(), out, detector);
+		} else {
+			runProcess(cmd, workingDirectory, envVars, out, err, null, detector);
+		}
+	}
+
+	private void runStream(CommandLine cmd, InputStream sql, File workingDirectory, OutputStream out,
+			OutputStream err, ErrorDetector detector) throws IOException {
+		InputStream input = new SequenceInputStream(new ByteArrayInputStream(getStreamHeader().getBytes(UTF_8)), sql);
+		if (reuseSessions) {
+			runInSession(input, "sql", out, detector);
+		} else {
+			runProcess(cmd, workingDirectory, null, out, err, input, detector);
+		}
+	}
+
+	/**
+	 * Runs SQL*Plus under a watchdog.
+	 *
+	 * @param envVars the environment, or null to inherit the environment
+	 * @param input the standard input, may be null
+	 */
+	private void runProcess(CommandLine cmd, File workingDirectory, Map<String, String> envVars, OutputStream out,
+			OutputStream err, InputStream input, ErrorDetector detector) throws IOException {
+		ToolWatchdog toolWatchdog = createWatchdog("SQL*Plus");
+		Executor exec = createExecutor(detector, toolWatchdog);
+		exec.setWorkingDirectory(workingDirectory);
+		exec.setStreamHandler(new PumpStreamHandler(watch(out, detector, toolWatchdog),
+				watch(err, detector, toolWatchdog), input));
+		toolWatchdog.start();
+		try {
+			exec.execute(cmd, envVars);
+		} catch (ExecuteException e) {
+			throw toolWatchdog.explain(e);
+		} finally {
+			toolWatchdog.cancel();
+		}
+	}
+
+	/**
+	 * The SQL which is streamed before the actual SQL: the <code>beforeSql</code> and the <code>arguments</code>.
+	 */
+	String getStreamHeader() {
+		StringBuilder header = new StringBuilder();
+		if (connectTimeout > 0) {
+			// silent mode does not show when SQL*Plus has logged on
+			header.append("PROMPT ").append(ToolWatchdog.CONNECTED).append("\n");
+		}
+		String loginSql = getLoginSql();
+		if (loginSql != null) {
+			header.append(loginSql).append("\n");
+		}
+		if (arguments != null) {
+			for (int i = 0; i < arguments.size(); i++) {
+				header.append("DEFINE ").append(i + 1).append(" = \"").append(arguments.get(i)).append("\"\n");
+			}
+		}
+		return header.toString();
+	}
+
+	InputStream openSqlFile() throws MojoExecutionException {
+		try {
+			InputStream in = new FileInputStream(sqlFile);
+			if (!filterSqlFile) {
+				return in;
+			}
+			Charset charset = StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding);
+			Map<String, Object> properties = new HashMap<>();
+			if (projectProperties != null) {
+				for (String name : projectProperties.stringPropertyNames()) {
+					properties.put(name, projectProperties.getProperty(name));
+				}
+			}
+			for (String name : System.getProperties().stringPropertyNames()) {
+				properties.put(name, System.getProperty(name));
+			}
+			Reader reader = new InterpolationFilterReader(new BufferedReader(new InputStreamReader(in, charset)),
+					properties);
+			return new ReaderInputStream(reader, charset);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not read " + sqlFile, e);
+		}
+	}
+
+	private void runInSession(InputStream script, String name, OutputStream out, ErrorDetector detector)
+			throws IOException {
+		int exitValue;
+		ToolWatchdog toolWatchdog = createWatchdog("SQL*Plus");
+		try {
+			final SqlPlusSession session = SqlPlusSessionPool.borrow(sessionKey);
+			Runnable destroy = new Runnable() {
+				@Override
+				public void run() {
+					session.destroy();
+				}
+			};
+			if (detector != null) {
+				out = detector.watch(out);
+				detector.stopOnError(destroy);
+			}
+			// the session has logged on already
+			toolWatchdog.connected();
+			toolWatchdog.stopWith(destroy);
+			toolWatchdog.start();
+			try {
+				exitValue = session.execute(script, out, timeout * 1000L);
+			} catch (InterruptedException e) {
+				// the script is still running, so the session can not be used anymore
+				session.destroy();
+				throw e;
+			} finally {
+				toolWatchdog.cancel();
+				SqlPlusSessionPool.release(sessionKey, session);
+				out.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while executing " + name);
+		}
+		if (exitValue != 0) {
+			throw toolWatchdog.explain(new ExecuteException("Process exited with an error: " + exitValue, exitValue));
+		}
+	}
+
+	SqlPlusSessionPool.Key getSessionKey() throws MojoExecutionException, MojoFailureException {
+		CommandLine commandLine = new CommandLine(sqlplus);
+		// logon only once, and no banner or prompts in between the output of the scripts
+		commandLine.addArgument("-L");
+		commandLine.addArgument("-S");
+		StringTokenizer stringTokenizer = new StringTokenizer(getConnectionIdentifier());
+		while (stringTokenizer.hasMoreTokens()) {
+			commandLine.addArgument(stringTokenizer.nextToken());
+		}
+		String identity = sqlplus + "\n" + getConnectionIdentifier() + "\n" + getOutputCharset() + "\n" + getLoginSql();
+		return new SqlPlusSessionPool.Key(identity, Arrays.asList(commandLine.toStrings()),
+				streamSql ? null : getEnvVars(), basedir, getOutputCharset());
+	}
+
+	List<File> getFiles() {
+		return ScriptFiles.scan(sqlFiles, basedir);
+	}
+
+	private File getFileSetDirectory() {
+		return ScriptFiles.getDirectory(sqlFiles, basedir);
+	}
+
 	File getFile() throws MojoExecutionException {
 		if (!StringUtils.isEmpty(sqlCommand)) {
 			return printToTempFile(sqlCommand);
@@ -113,6 +694,10 @@ public class SQLPlusMojo extends AbstractDBMojo {
 	}
 
 	CommandLine buildCommandline(File file) throws MojoFailureException {
+		return buildCommandline("@" + file.getName());
+	}
+
+	private CommandLine buildCommandline(String script) throws MojoFailureException {
 		CommandLine commandLine = new CommandLine(sqlplus);
 		// logon only once, else it would prompt for credentials after failure
 		commandLine.addArgument("-L");
@@ -120,7 +705,7 @@ public class SQLPlusMojo extends AbstractDBMojo {
 		while (stringTokenizer.hasMoreTokens()) {
 			commandLine.addArgument(stringTokenizer.nextToken());
 		}
-		commandLine.addArgument("@" + file.getName());
+		commandLine.addArgument(script);
 		addSqlArguments(commandLine);
 		
 		getLog().info("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
@@ -128,6 +713,21 @@ public class SQLPlusMojo extends AbstractDBMojo {
 		return commandLine;
 	}
 
+	CommandLine buildStreamCommandline() throws MojoFailureException {
+		CommandLine commandLine = new CommandLine(sqlplus);
+		// logon only once, and no banner or prompts in between the output
+		commandLine.addArgument("-L");
+		commandLine.addArgument("-S");
+		StringTokenizer stringTokenizer = new StringTokenizer(getConnectionIdentifier());
+		while (stringTokenizer.hasMoreTokens()) {
+			commandLine.addArgument(stringTokenizer.nextToken());
+		}
+
+		getLog().info("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
+
+		return commandLine;
+	}
+
 	private void addSqlArguments(CommandLine commandLine) {
 		if (arguments != null) {
 			for (String argument : arguments) {
@@ -136,11 +736,26 @@ public class SQLPlusMojo extends AbstractDBMojo {
 		}
 	}
 
-	Map getEnvVars() throws MojoExecutionException {
-		if (beforeSql != null) {
-			Map<Object, Object> envVars = copySystemEnvVars();
-			File tmpSqlFile = printToTempFile(beforeSql);
-			envVars.put("SQLPATH", tmpSqlFile.getParent());
+	/**
+	 * The SQL which is executed as soon as SQL*Plus has logged on: the <code>beforeSql</code> and the settings of
+	 * the timing report.
+	 */
+	String getLoginSql() {
+		if (!timingReport) {
+			return beforeSql;
+		}
+		return beforeSql == null ? TimingReport.SETTINGS : beforeSql + "\n" + TimingReport.SETTINGS;
+	}
+
+	Map<String, String> getEnvVars() throws MojoExecutionException {
+		String loginSql = getLoginSql();
+		if (loginSql != null) {
+			Map<String, String> envVars = copySystemEnvVars();
+			try {
+				envVars.put("SQLPATH", LoginScripts.getDirectory(loginSql).getAbsolutePath());
+			} catch (IOException e) {
+				throw new MojoExecutionException("Could not write login.sql", e);
+			}
 			return envVars;
 		} else {
 			return null;
@@ -148,9 +763,13 @@ public class SQLPlusMojo extends AbstractDBMojo {
 
 	}
 
-	private static Map<Object, Object> copySystemEnvVars() throws MojoExecutionException {
+	private static Map<String, String> copySystemEnvVars() throws MojoExecutionException {
 		try {
-			return new HashMap<>(CommandLineUtils.getSystemEnvVars());
+			Map<String, String> envVars = new HashMap<>();
+			for (Map.Entry<Object, Object> entry : CommandLineUtils.getSystemEnvVars().entrySet()) {
+				envVars.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+			}
+			return envVars;
 		} catch (IOException e) {
 			throw new MojoExecutionException("Could not copy system environment variables.", e);
 		}
@@ -160,6 +779,7 @@ public class SQLPlusMojo extends AbstractDBMojo {
 		File tmpSqlFile;
 		try {
 			tmpSqlFile = File.createTempFile("statement-", ".sql");
+			tmpSqlFile.deleteOnExit();
 			try (OutputStreamWriter p = new OutputStreamWriter(new FileOutputStream(tmpSqlFile), UTF_8)) {
 				p.write(data);
 			}
@@ -169,4 +789,19 @@ public class SQLPlusMojo extends AbstractDBMojo {
 		return tmpSqlFile;
 	}
 
+	class ScriptBatchOutputStream extends InfoLogOutputStream {
+		private final ScriptBatch batch;
+
+		ScriptBatchOutputStream(ScriptBatch batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		protected void processLine(String line) {
+			if (!batch.processLine(line)) {
+				super.processLine(line);
+			}
+		}
+	}
+
 }
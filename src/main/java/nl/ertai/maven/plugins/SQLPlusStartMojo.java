@@ -0,0 +1,44 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Starts SQL*Plus sessions in the background, which are used by later <code>sqlplus</code> executions with
+ * <code>reuseSessions</code> and the same connection. Bind this goal to an early phase, so the sessions are logged
+ * on while Maven runs the phases in between.
+ *
+ * @goal sqlplus-start
+ */
+public class SQLPlusStartMojo extends SQLPlusMojo {
+
+	/**
+	 * Number of sessions to start.
+	 *
+	 * @parameter default-value="1"
+	 */
+	int sessions;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		getLog().info("Starting " + sessions + " SQL*Plus session(s) in the background");
+		SqlPlusSessionPool.prestart(getSessionKey(), sessions);
+	}
+
+}
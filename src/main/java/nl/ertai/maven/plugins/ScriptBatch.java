@@ -0,0 +1,166 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A list of scripts which are executed one after the other in a single SQL*Plus session.
+ *
+ * The session is driven by a generated script which calls every script and prints a marker line before and after
+ * it. The markers are picked out of the output again, so errors and timings can still be reported per script.
+ */
+class ScriptBatch {
+
+	static final String MARKER = "#oracledb-maven-plugin#";
+
+	private static final String START = "start";
+	private static final String END = "end";
+
+	private final List<ScriptResult> results = new ArrayList<>();
+
+	private ScriptResult current;
+
+	ScriptBatch(List<File> scripts) {
+		for (File script : scripts) {
+			results.add(new ScriptResult(script));
+		}
+	}
+
+	List<ScriptResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Creates the script which drives the SQL*Plus session.
+	 *
+	 * @param arguments arguments passed to every script, may be null
+	 */
+	String toDriverScript(List<String> arguments) {
+		StringBuilder driver = new StringBuilder();
+		for (int i = 0; i < results.size(); i++) {
+			driver.append("PROMPT ").append(MARKER).append(START).append(" ").append(i).append("\n");
+			driver.append(startCommand(results.get(i).getScript(), arguments)).append("\n");
+			driver.append("PROMPT ").append(MARKER).append(END).append(" ").append(i).append("\n");
+		}
+		return driver.toString();
+	}
+
+	/**
+	 * Creates the SQL*Plus command which starts a script.
+	 *
+	 * @param arguments arguments passed to the script, may be null
+	 */
+	static String startCommand(File script, List<String> arguments) {
+		StringBuilder command = new StringBuilder();
+		command.append("@\"").append(script.getAbsolutePath()).append("\"");
+		if (arguments != null) {
+			for (String argument : arguments) {
+				command.append(" \"").append(argument).append("\"");
+			}
+		}
+		return command.toString();
+	}
+
+	/**
+	 * Processes a line of SQL*Plus output.
+	 *
+	 * @return true if the line was a marker and should not be shown
+	 */
+	boolean processLine(String line) {
+		if (!line.startsWith(MARKER)) {
+			if (current != null && isError(line)) {
+				current.errors++;
+			}
+			return false;
+		}
+		String[] marker = StringUtils.split(line.substring(MARKER.length()));
+		if (marker.length == 2 && StringUtils.isNumeric(marker[1])) {
+			int index = Integer.parseInt(marker[1]);
+			if (index < results.size()) {
+				if (START.equals(marker[0])) {
+					current = results.get(index);
+					current.start = System.currentTimeMillis();
+				} else if (END.equals(marker[0])) {
+					ScriptResult result = results.get(index);
+					result.end = System.currentTimeMillis();
+					current = null;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the script which is running, if any.
+	 */
+	ScriptResult getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Returns the script which was started but did not finish, if any.
+	 */
+	ScriptResult getUnfinished() {
+		for (ScriptResult result : results) {
+			if (result.isStarted() && !result.isFinished()) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isError(String line) {
+		return line.startsWith("ORA-") || line.startsWith("SP2-");
+	}
+
+	static class ScriptResult {
+		private final File script;
+		private long start = -1;
+		private long end = -1;
+		private int errors;
+
+		ScriptResult(File script) {
+			this.script = script;
+		}
+
+		File getScript() {
+			return script;
+		}
+
+		boolean isStarted() {
+			return start >= 0;
+		}
+
+		boolean isFinished() {
+			return end >= 0;
+		}
+
+		long getElapsedMillis() {
+			return isFinished() ? end - start : -1;
+		}
+
+		int getErrors() {
+			return errors;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Determines which scripts of a file set have to be finished before another script can be started.
+ *
+ * Dependencies come from the naming convention and from <code>-- depends: &lt;script&gt;, ...</code> comments at
+ * the top of a script.
+ */
+class ScriptDependencies {
+
+	/**
+	 * All scripts with the same number prefix in the same directory can run together.
+	 */
+	static final String PREFIX = "prefix";
+
+	/**
+	 * All scripts in the same directory can run together.
+	 */
+	static final String DIRECTORY = "directory";
+
+	/**
+	 * Only declared dependencies are used.
+	 */
+	static final String NONE = "none";
+
+	private static final Pattern DEPENDS = Pattern.compile("^--\\s*depends\\s*:(.*)$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern NUMBER_PREFIX = Pattern.compile("^(\\d+)");
+
+	private ScriptDependencies() {
+	}
+
+	/**
+	 * Resolves the dependencies of the scripts.
+	 *
+	 * @param directory the directory the script names are relative to
+	 * @param scripts the scripts in alphabetical order
+	 * @param convention one of {@link #PREFIX}, {@link #DIRECTORY} or {@link #NONE}
+	 */
+	static Map<File, Set<File>> resolve(File directory, List<File> scripts, String convention)
+			throws MojoFailureException, MojoExecutionException {
+		Map<File, Set<File>> dependencies = new HashMap<>();
+		for (File script : scripts) {
+			dependencies.put(script, new LinkedHashSet<File>());
+		}
+		addConventionDependencies(directory, scripts, convention, dependencies);
+		for (File script : scripts) {
+			for (String name : readDeclaredDependencies(script)) {
+				dependencies.get(script).add(find(directory, scripts, script, name));
+			}
+		}
+		checkForCycles(scripts, dependencies);
+		return dependencies;
+	}
+
+	/**
+	 * Leaves out the scripts which do not have to run, like the scripts the ledger records as applied. A script which
+	 * depends on such a script waits for the dependencies of that script instead.
+	 *
+	 * @param dependencies the dependencies of all scripts
+	 * @param pending the scripts which have to run
+	 */
+	static Map<File, Set<File>> retain(Map<File, Set<File>> dependencies, List<File> pending) {
+		Set<File> running = new HashSet<>(pending);
+		Map<File, Set<File>> retained = new HashMap<>();
+		for (File script : pending) {
+			Set<File> waitFor = new LinkedHashSet<>();
+			addRunning(dependencies.get(script), dependencies, running, waitFor, new HashSet<File>());
+			retained.put(script, waitFor);
+		}
+		return retained;
+	}
+
+	private static void addRunning(Set<File> scripts, Map<File, Set<File>> dependencies, Set<File> running,
+			Set<File> waitFor, Set<File> visited) {
+		for (File script : scripts) {
+			if (!visited.add(script)) {
+				continue;
+			}
+			if (running.contains(script)) {
+				waitFor.add(script);
+			} else {
+				addRunning(dependencies.get(script), dependencies, running, waitFor, visited);
+			}
+		}
+	}
+
+	private static void addConventionDependencies(File directory, List<File> scripts, String convention,
+			Map<File, Set<File>> dependencies) throws MojoFailureException {
+		if (StringUtils.equalsIgnoreCase(convention, NONE)) {
+			return;
+		}
+		if (!StringUtils.equalsIgnoreCase(convention, PREFIX) && !StringUtils.equalsIgnoreCase(convention, DIRECTORY)) {
+			throw new MojoFailureException("Unknown dependency convention '" + convention + "'. Use one of: "
+					+ PREFIX + ", " + DIRECTORY + ", " + NONE);
+		}
+		// consecutive scripts with the same group form a stage which waits for the complete previous stage
+		List<File> previousStage = new ArrayList<>();
+		List<File> currentStage = new ArrayList<>();
+		String currentGroup = null;
+		for (File script : scripts) {
+			String group = getGroup(directory, script, convention);
+			if (!group.equals(currentGroup)) {
+				previousStage = currentStage;
+				currentStage = new ArrayList<>();
+				currentGroup = group;
+			}
+			currentStage.add(script);
+			dependencies.get(script).addAll(previousStage);
+		}
+	}
+
+	private static String getGroup(File directory, File script, String convention) {
+		String parent = relativePath(directory, script.getParentFile());
+		if (StringUtils.equalsIgnoreCase(convention, DIRECTORY)) {
+			return parent;
+		}
+		Matcher matcher = NUMBER_PREFIX.matcher(script.getName());
+		// scripts without a number are not grouped with any other script
+		return parent + "/" + (matcher.find() ? matcher.group(1) : script.getName());
+	}
+
+	/**
+	 * Reads the declared dependencies from the comment lines at the top of the script.
+	 */
+	static List<String> readDeclaredDependencies(File script) throws MojoExecutionException {
+		List<String> names = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(script), UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (!line.startsWith("--")) {
+					break;
+				}
+				Matcher matcher = DEPENDS.matcher(line);
+				if (matcher.matches()) {
+					for (String name : StringUtils.split(matcher.group(1), ", ")) {
+						names.add(name);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not read dependencies of " + script, e);
+		}
+		return names;
+	}
+
+	private static File find(File directory, List<File> scripts, File script, String name)
+			throws MojoFailureException {
+		String normalized = name.replace('\\', '/');
+		for (File candidate : scripts) {
+			if (relativePath(directory, candidate).equals(normalized) || candidate.getName().equals(normalized)) {
+				return candidate;
+			}
+		}
+		throw new MojoFailureException("Script " + script.getName() + " depends on unknown script " + name);
+	}
+
+	private static void checkForCycles(List<File> scripts, Map<File, Set<File>> dependencies)
+			throws MojoFailureException {
+		Set<File> done = new HashSet<>();
+		for (File script : scripts) {
+			visit(script, dependencies, done, new LinkedHashSet<File>());
+		}
+	}
+
+	private static void visit(File script, Map<File, Set<File>> dependencies, Set<File> done, Set<File> path)
+			throws MojoFailureException {
+		if (done.contains(script)) {
+			return;
+		}
+		if (!path.add(script)) {
+			throw new MojoFailureException("Cyclic dependency between scripts: " + names(path) + " -> "
+					+ script.getName());
+		}
+		for (File dependency : dependencies.get(script)) {
+			visit(dependency, dependencies, done, path);
+		}
+		path.remove(script);
+		done.add(script);
+	}
+
+	private static String names(Set<File> scripts) {
+		List<String> names = new ArrayList<>();
+		for (File script : scripts) {
+			names.add(script.getName());
+		}
+		return StringUtils.join(names, " -> ");
+	}
+
+	static String relativePath(File directory, File file) {
+		String base = directory.getAbsolutePath();
+		String path = file.getAbsolutePath();
+		if (path.startsWith(base)) {
+			path = StringUtils.removeStart(path.substring(base.length()), File.separator);
+		}
+		return path.replace('\\', '/');
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.model.FileSet;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * Finds the scripts of a file set.
+ */
+final class ScriptFiles {
+
+	private ScriptFiles() {
+	}
+
+	/**
+	 * Returns the directory of the file set, resolved against the base directory when it is relative.
+	 */
+	static File getDirectory(FileSet fileSet, File basedir) {
+		File directory = new File(StringUtils.defaultString(fileSet.getDirectory()));
+		if (!directory.isAbsolute() && basedir != null) {
+			directory = new File(basedir, directory.getPath());
+		}
+		return directory;
+	}
+
+	/**
+	 * Returns the scripts of the file set in alphabetical order of their relative path. When no includes are
+	 * specified all <code>*.sql</code> files in the directory are included.
+	 */
+	static List<File> scan(FileSet fileSet, File basedir) {
+		return scan(fileSet, basedir, "*.sql");
+	}
+
+	/**
+	 * Returns the files of the file set in alphabetical order of their relative path.
+	 *
+	 * @param defaultIncludes the files which are included when no includes are specified
+	 */
+	static List<File> scan(FileSet fileSet, File basedir, String... defaultIncludes) {
+		File directory = getDirectory(fileSet, basedir);
+		if (!directory.isDirectory()) {
+			return Collections.emptyList();
+		}
+		DirectoryScanner scanner = new DirectoryScanner();
+		scanner.setBasedir(directory);
+		if (fileSet.getIncludes().isEmpty()) {
+			scanner.setIncludes(defaultIncludes);
+		} else {
+			scanner.setIncludes(fileSet.getIncludes().toArray(new String[0]));
+		}
+		scanner.setExcludes(fileSet.getExcludes().toArray(new String[0]));
+		scanner.addDefaultExcludes();
+		scanner.scan();
+
+		String[] names = scanner.getIncludedFiles();
+		Arrays.sort(names);
+		List<File> files = new ArrayList<>();
+		for (String name : names) {
+			files.add(new File(directory, name));
+		}
+		return files;
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Keeps track of the scripts which are already applied to a schema, in a table in that schema.
+ *
+ * For every script the SHA-256 checksum of its content and the outcome of its last execution are recorded. A script
+ * which was applied successfully with the same checksum does not have to be executed again.
+ */
+class ScriptLedger {
+
+	static final String SUCCESS = "SUCCESS";
+	static final String FAILED = "FAILED";
+
+	private static final String ROW = ScriptBatch.MARKER + "ledger ";
+
+	private final String table;
+	private final File directory;
+	private final Map<File, String> checksums = new LinkedHashMap<>();
+	private final Map<String, String> applied = new HashMap<>();
+
+	/**
+	 * @param table name of the ledger table, optionally prefixed with a schema
+	 * @param directory the directory the script names are relative to
+	 * @param scripts the scripts to calculate the checksums for
+	 */
+	ScriptLedger(String table, File directory, List<File> scripts) throws MojoFailureException, MojoExecutionException {
+		if (!table.matches("[A-Za-z][A-Za-z0-9_$#]*(\\.[A-Za-z][A-Za-z0-9_$#]*)?")) {
+			throw new MojoFailureException("Invalid ledger table name '" + table + "'");
+		}
+		this.table = table;
+		this.directory = directory;
+		for (File script : scripts) {
+			checksums.put(script, checksum(script));
+		}
+	}
+
+	/**
+	 * Creates the script which creates the ledger table when it does not exist and prints its content.
+	 *
+	 * @param exit end with <code>EXIT</code>, which would end a pooled session
+	 */
+	String toReadScript(boolean exit) {
+		return "SET PAGESIZE 0\n"
+				+ "SET FEEDBACK OFF\n"
+				+ "SET HEADING OFF\n"
+				+ "SET VERIFY OFF\n"
+				+ "SET LINESIZE 32767\n"
+				+ "SET TRIMOUT ON\n"
+				+ "DECLARE\n"
+				+ "  table_exists EXCEPTION;\n"
+				+ "  PRAGMA EXCEPTION_INIT(table_exists, -955);\n"
+				+ "BEGIN\n"
+				+ "  EXECUTE IMMEDIATE 'CREATE TABLE " + table + " ("
+				+ "script VARCHAR2(1000) NOT NULL PRIMARY KEY, "
+				+ "checksum VARCHAR2(64) NOT NULL, "
+				+ "status VARCHAR2(10) NOT NULL, "
+				+ "applied_at TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL)';\n"
+				+ "EXCEPTION\n"
+				+ "  WHEN table_exists THEN NULL;\n"
+				+ "END;\n"
+				+ "/\n"
+				+ "SELECT '" + ROW + "' || status || '|' || checksum || '|' || script FROM " + table + ";\n"
+				+ (exit ? "EXIT\n" : "");
+	}
+
+	/**
+	 * Processes a line of output of the script created by {@link #toReadScript()}.
+	 *
+	 * @return true if the line was a row of the ledger
+	 */
+	boolean processLine(String line) {
+		if (!line.startsWith(ROW)) {
+			return false;
+		}
+		String[] row = StringUtils.split(line.substring(ROW.length()), "|", 3);
+		if (row.length == 3 && SUCCESS.equals(row[0])) {
+			applied.put(row[2].trim(), row[1]);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the scripts which are not yet applied, or which have changed since they were applied.
+	 */
+	List<File> getPending() {
+		List<File> pending = new ArrayList<>();
+		for (Map.Entry<File, String> entry : checksums.entrySet()) {
+			if (!entry.getValue().equals(applied.get(getName(entry.getKey())))) {
+				pending.add(entry.getKey());
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * Returns the scripts which were applied before, but have changed since.
+	 */
+	List<File> getChanged() {
+		List<File> changed = new ArrayList<>();
+		for (Map.Entry<File, String> entry : checksums.entrySet()) {
+			String appliedChecksum = applied.get(getName(entry.getKey()));
+			if (appliedChecksum != null && !entry.getValue().equals(appliedChecksum)) {
+				changed.add(entry.getKey());
+			}
+		}
+		return changed;
+	}
+
+	String getChecksum(File script) {
+		return checksums.get(script);
+	}
+
+	String getAppliedChecksum(File script) {
+		return applied.get(getName(script));
+	}
+
+	String getName(File script) {
+		return ScriptDependencies.relativePath(directory, script);
+	}
+
+	/**
+	 * Creates the script which records the outcome of the executed scripts. Scripts which were not executed are not
+	 * recorded.
+	 *
+	 * @param exit end with <code>EXIT</code>, which would end a pooled session
+	 */
+	String toRecordScript(Map<File, ParallelExecutor.Status> results, boolean exit) {
+		StringBuilder script = new StringBuilder();
+		for (Map.Entry<File, ParallelExecutor.Status> entry : results.entrySet()) {
+			String status;
+			if (entry.getValue() == ParallelExecutor.Status.SUCCEEDED) {
+				status = SUCCESS;
+			} else if (entry.getValue() == ParallelExecutor.Status.SKIPPED) {
+				continue;
+			} else {
+				status = FAILED;
+			}
+			script.append("MERGE INTO ").append(table).append(" l USING (SELECT ")
+					.append(quote(getName(entry.getKey()))).append(" script, ")
+					.append(quote(getChecksum(entry.getKey()))).append(" checksum, ")
+					.append(quote(status)).append(" status FROM dual) s ON (l.script = s.script)\n")
+					.append("WHEN MATCHED THEN UPDATE SET l.checksum = s.checksum, l.status = s.status, ")
+					.append("l.applied_at = SYSTIMESTAMP\n")
+					.append("WHEN NOT MATCHED THEN INSERT (script, checksum, status, applied_at) ")
+					.append("VALUES (s.script, s.checksum, s.status, SYSTIMESTAMP);\n");
+		}
+		if (script.length() == 0) {
+			return null;
+		}
+		return "SET FEEDBACK OFF\nSET DEFINE OFF\n" + script + "COMMIT;\n" + (exit ? "EXIT\n" : "");
+	}
+
+	private static String quote(String value) {
+		return "'" + StringUtils.replace(value, "'", "''") + "'";
+	}
+
+	/**
+	 * Calculates the SHA-256 checksum of the file, without reading the whole file into memory.
+	 */
+	static String checksum(File file) throws MojoExecutionException {
+		try (InputStream in = new FileInputStream(file)) {
+			MessageDigest digest = Sha256.newDigest();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			return Sha256.toHex(digest);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not calculate checksum of " + file, e);
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Loads flat files with SQL*Loader. A large data file can be split into parts which are loaded by concurrent
+ * direct path sessions.
+ *
+ * @goal sqlldr
+ */
+public class SqlLoaderMojo extends AbstractDBMojo {
+
+	/**
+	 * SQL*Loader exits with this code when rows were rejected or discarded.
+	 */
+	static final int EXIT_WARNING = 2;
+
+	/**
+	 * The sqlldr command to execute. Optional. If not specified, sqlldr will be used.
+	 *
+	 * @parameter default-value="sqlldr"
+	 */
+	String sqlldr;
+
+	/**
+	 * The control file, which describes how the data is loaded.
+	 *
+	 * @parameter
+	 * @required
+	 */
+	File controlFile;
+
+	/**
+	 * The data file. Optional when the control file names the data.
+	 *
+	 * @parameter
+	 */
+	File dataFile;
+
+	/**
+	 * The log file. With more than one session every session writes its own log file, like <code>load_2.log</code>
+	 * for <code>load.log</code>. Without a log file the sessions write their logs to the <code>partsDirectory</code>,
+	 * named after the control file like <code>load_2.log</code>.
+	 *
+	 * @parameter
+	 */
+	File logFile;
+
+	/**
+	 * The file for rejected records, numbered per session like the <code>logFile</code>.
+	 *
+	 * @parameter
+	 */
+	File badFile;
+
+	/**
+	 * The file for discarded records, numbered per session like the <code>logFile</code>.
+	 *
+	 * @parameter
+	 */
+	File discardFile;
+
+	/**
+	 * Use a direct path load, which formats data blocks and writes them to the data files, instead of conventional
+	 * inserts.
+	 * options: [true | false]
+	 * oracle-default: false
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean direct;
+
+	/**
+	 * Allow other direct path sessions to load the same table at the same time. The control file should use
+	 * <code>APPEND</code>.
+	 * options: [true | false]
+	 * oracle-default: false
+	 *
+	 * @parameter default-value="false"
+	 */
+	boolean parallel;
+
+	/**
+	 * Convert the data into column arrays and load those arrays in separate threads, for direct path loads.
+	 * options: [true | false]
+	 * oracle-default: true on systems with more than one CPU
+	 *
+	 * @parameter
+	 */
+	Boolean multithreading;
+
+	/**
+	 * The number of rows per commit for conventional path loads, or between data saves for direct path loads.
+	 *
+	 * @parameter
+	 */
+	Integer rows;
+
+	/**
+	 * The size in bytes of the bind array of conventional path loads.
+	 *
+	 * @parameter
+	 */
+	Integer bindsize;
+
+	/**
+	 * The size in bytes of the read buffer.
+	 *
+	 * @parameter
+	 */
+	Integer readsize;
+
+	/**
+	 * The number of rejected rows after which the load stops.
+	 * oracle-default: 50
+	 *
+	 * @parameter
+	 */
+	Integer errors;
+
+	/**
+	 * The number of lines at the start of the data file which are not loaded, like a header.
+	 *
+	 * @parameter
+	 */
+	Integer skip;
+
+	/**
+	 * The number of direct path sessions which load the data file at the same time. With more than one session the
+	 * data file is split into parts at line boundaries, so every line should hold a complete record, and the load
+	 * runs with <code>DIRECT=TRUE</code> and <code>PARALLEL=TRUE</code>.
+	 *
+	 * @parameter default-value="1"
+	 */
+	int sessions;
+
+	/**
+	 * The directory the parts of the data file are written to when it is loaded by more than one session. The parts
+	 * are deleted when the sessions have finished.
+	 *
+	 * @parameter default-value="${project.build.directory}/oracledb/sqlldr"
+	 */
+	File partsDirectory;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (sessions <= 1) {
+			try {
+				load(buildCommandline(dataFile, 0), new InfoLogOutputStream(), new ErrorLogOutputStream());
+			} catch (ExecuteException e) {
+				handleFailure(describeExit(e), e);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Command execution failed.", e);
+			}
+			return;
+		}
+		if (dataFile == null) {
+			throw new MojoFailureException("Specify the dataFile which should be split over " + sessions
+					+ " sessions");
+		}
+		final List<File> parts;
+		try {
+			parts = DataFileSplitter.split(dataFile, sessions, skip == null ? 0 : skip, partsDirectory);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Could not split " + dataFile, e);
+		}
+		getLog().info("Loading " + dataFile.getName() + " in " + parts.size() + " parts");
+		final OrderedLog orderedLog = new OrderedLog(parts.size());
+		ParallelExecutor<File> executor = new ParallelExecutor<>(parts.size(), failOnError);
+		Map<File, ParallelExecutor.Status> result;
+		try {
+			result = executor.execute(parts, Collections.<File, Set<File>>emptyMap(), new ParallelExecutor.Task<File>() {
+				@Override
+				public boolean run(File part) throws MojoFailureException {
+					int index = parts.indexOf(part);
+					BufferedLog log = new BufferedLog("[" + part.getName() + "] ");
+					try {
+						load(buildCommandline(part, index + 1), log.info(), log.error());
+						return true;
+					} catch (ExecuteException e) {
+						log.add(describeExit(e), true);
+						return false;
+					} catch (IOException e) {
+						log.add("Command execution failed: " + e.getMessage(), true);
+						return false;
+					} catch (MojoExecutionException e) {
+						log.add(e.getMessage(), true);
+						return false;
+					} finally {
+						orderedLog.complete(index, log);
+					}
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while loading " + dataFile, e);
+		} finally {
+			orderedLog.completeAll();
+			deleteParts(parts);
+		}
+		List<String> failed = new ArrayList<>();
+		for (Map.Entry<File, ParallelExecutor.Status> entry : result.entrySet()) {
+			if (entry.getValue() != ParallelExecutor.Status.SUCCEEDED) {
+				failed.add(entry.getKey().getName());
+			}
+		}
+		if (!failed.isEmpty()) {
+			handleFailure("Part(s) failed: " + StringUtils.join(failed, ", "), null);
+		}
+	}
+
+	private void deleteParts(List<File> parts) {
+		for (File part : parts) {
+			if (!part.delete() && part.exists()) {
+				getLog().warn("Could not delete " + part);
+			}
+		}
+	}
+
+	private void load(CommandLine commandLine, OutputStream out, OutputStream err)
+			throws IOException, MojoExecutionException, MojoFailureException {
+		ErrorDetector detector = createErrorDetector();
+		final ToolWatchdog toolWatchdog = createWatchdog("SQL*Loader");
+		Executor exec = createExecutor(detector, toolWatchdog);
+		// SQL*Loader reports the path once it has logged on
+		LineTee.Listener connected = new LineTee.Listener() {
+			@Override
+			public void processLine(String line) {
+				if (line.startsWith("Path used:")) {
+					toolWatchdog.connected();
+				}
+			}
+		};
+		exec.setStreamHandler(new PumpStreamHandler(watch(out, detector, toolWatchdog, connected),
+				watch(err, detector, toolWatchdog)));
+
+		getLog().debug("Executing command line: " + obfuscateCredentials(commandLine, getCredentials()));
+		toolWatchdog.start();
+		try {
+			exec.execute(commandLine);
+		} catch (ExecuteException e) {
+			checkOutput(detector, e);
+			throw toolWatchdog.explain(e);
+		} finally {
+			toolWatchdog.cancel();
+		}
+		checkOutput(detector, null);
+	}
+
+	/**
+	 * Builds the command line for a session.
+	 *
+	 * @param data the data file, may be null
+	 * @param part the number of the part of the data file, or 0 when the data file is not split
+	 */
+	CommandLine buildCommandline(File data, int part) throws MojoFailureException {
+		CommandLine commandLine = new CommandLine(sqlldr);
+		commandLine.addArgument("'" + getConnectionIdentifier() + "'", false);
+		addFileArgument(commandLine, "CONTROL", controlFile, 0);
+		addFileArgument(commandLine, "DATA", data, 0);
+		File log = logFile;
+		if (log == null && part > 0) {
+			// otherwise all sessions write the log named after the control file in the working directory
+			log = new File(partsDirectory, StringUtils.substringBeforeLast(controlFile.getName(), ".") + ".log");
+		}
+		addFileArgument(commandLine, "LOG", log, part);
+		addFileArgument(commandLine, "BAD", badFile, part);
+		addFileArgument(commandLine, "DISCARD", discardFile, part);
+		addBooleanArgument(commandLine, "DIRECT", direct || part > 0);
+		addBooleanArgument(commandLine, "PARALLEL", parallel || part > 0);
+		if (multithreading != null) {
+			commandLine.addArgument("MULTITHREADING=" + (multithreading ? "TRUE" : "FALSE"));
+		}
+		addNumberArgument(commandLine, "ROWS", rows);
+		addNumberArgument(commandLine, "BINDSIZE", bindsize);
+		addNumberArgument(commandLine, "READSIZE", readsize);
+		addNumberArgument(commandLine, "ERRORS", errors);
+		// the header is left out of the parts
+		addNumberArgument(commandLine, "SKIP", part > 0 ? null : skip);
+		return commandLine;
+	}
+
+	private static void addFileArgument(CommandLine commandLine, String argumentName, File file, int part) {
+		if (file != null) {
+			String path = part > 0 ? new File(file.getParentFile(), DataFileSplitter.partName(file.getName(), part))
+					.getPath() : file.getPath();
+			commandLine.addArgument(argumentName + "=" + path);
+		}
+	}
+
+	private static void addBooleanArgument(CommandLine commandLine, String argumentName, boolean argumentValue) {
+		if (argumentValue) {
+			commandLine.addArgument(argumentName + "=TRUE");
+		}
+	}
+
+	private static void addNumberArgument(CommandLine commandLine, String argumentName, Integer argumentValue) {
+		if (argumentValue != null) {
+			commandLine.addArgument(argumentName + "=" + argumentValue);
+		}
+	}
+
+	private static String describeExit(ExecuteException e) {
+		if (!(e instanceof ToolWatchdog.StoppedException) && e.getExitValue() == EXIT_WARNING) {
+			return "SQL*Loader rejected or discarded rows, see the log, bad and discard files";
+		}
+		return describe(e);
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Executes scripts or code snippets over JDBC, without SQL*Plus. The JDBC driver should be a dependency of the
+ * plugin. Scripts are read a statement at a time, so they can be larger than the
+ * memory of the JVM. <code>PROMPT</code> commands are logged and <code>@</code> and <code>@@</code> include other
+ * scripts, other SQL*Plus commands like <code>SET</code> are skipped.
+ *
+ * @goal sql
+ */
+public class SqlMojo extends AbstractDBMojo {
+
+	/**
+	 * Specify the SQL which should be executed.
+	 *
+	 * @parameter
+	 */
+	String sqlCommand;
+
+	/**
+	 * File containing the SQL which should be executed.
+	 *
+	 * @parameter
+	 */
+	File sqlFile;
+
+	/**
+	 * Set of files containing the SQL which should be executed, in alphabetical order of their path relative to the
+	 * directory of the file set. When no includes are specified all <code>*.sql</code> files in the directory are
+	 * executed.
+	 *
+	 * @parameter
+	 */
+	FileSet sqlFiles;
+
+	/**
+	 * The base directory of the project, used to resolve the directory of <code>sqlFiles</code>.
+	 *
+	 * @parameter default-value="${basedir}"
+	 * @readonly
+	 */
+	File basedir;
+
+	/**
+	 * The encoding of the scripts.
+	 *
+	 * @parameter default-value="${project.build.sourceEncoding}"
+	 */
+	String encoding;
+
+	/**
+	 * The maximum number of consecutive DML statements (INSERT, UPDATE, DELETE and MERGE) which are sent to the
+	 * database at once. Use 1 to send every statement on its own.
+	 *
+	 * @parameter default-value="100"
+	 */
+	int batchSize;
+
+	/**
+	 * The number of rows fetched at once by queries, 0 for the default of the JDBC driver.
+	 *
+	 * @parameter default-value="100"
+	 */
+	int fetchSize;
+
+	/**
+	 * The number of prepared statements which are kept, so statements which occur more than once are parsed once.
+	 *
+	 * @parameter default-value="20"
+	 */
+	int statementCacheSize;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		List<File> files = new ArrayList<>();
+		if (sqlFiles != null) {
+			files.addAll(ScriptFiles.scan(sqlFiles, basedir));
+		} else if (StringUtils.isEmpty(sqlCommand) && sqlFile != null) {
+			files.add(sqlFile);
+		}
+		if (StringUtils.isEmpty(sqlCommand) && files.isEmpty()) {
+			getLog().info("No sql to execute");
+			return;
+		}
+
+		Charset charset = StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding);
+		LineTee.Listener output = new LineTee.Listener() {
+			@Override
+			public void processLine(String line) {
+				getOutputPipeline().info(line);
+			}
+		};
+		getLog().info("Connecting to " + maskJdbcUrl(getJdbcUrl()));
+		try (Connection connection = openConnection()) {
+			connection.setAutoCommit(false);
+			try (JdbcScriptRunner runner = new JdbcScriptRunner(connection, batchSize, fetchSize, statementCacheSize,
+					output)) {
+				if (!StringUtils.isEmpty(sqlCommand)) {
+					execute(connection, runner, "sqlCommand", new SqlScriptReader(new StringReader(sqlCommand),
+							"sqlCommand", basedir, charset, output));
+				}
+				for (File file : files) {
+					try {
+						execute(connection, runner, file.getName(), SqlScriptReader.open(file, charset, output));
+					} catch (IOException e) {
+						throw new MojoExecutionException("Could not read " + file, e);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new MojoExecutionException("Could not close connection: " + e.getMessage(), e);
+		} finally {
+			try {
+				getOutputPipeline().drain();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Executes a script and commits, or rolls back at the first failing statement.
+	 */
+	private void execute(Connection connection, JdbcScriptRunner runner, String name, SqlScriptReader reader)
+			throws MojoExecutionException, SQLException {
+		long start = System.currentTimeMillis();
+		try (SqlScriptReader script = reader) {
+			int statements = runner.run(script);
+			connection.commit();
+			getLog().info("Script " + name + ": " + statements + " statement(s) completed in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		} catch (SQLException e) {
+			connection.rollback();
+			String message = "Script " + name + " failed: " + StringUtils.trim(e.getMessage());
+			if (runner.getFailedLocation() != null) {
+				message += "\nat " + runner.getFailedLocation();
+			}
+			if (runner.getFailedStatement() != null) {
+				message += "\n" + StringUtils.abbreviate(runner.getFailedStatement(), 1000);
+			}
+			if (failOnError) {
+				throw new MojoExecutionException(message, e);
+			}
+			getLog().warn(message);
+		} catch (IOException e) {
+			connection.rollback();
+			throw new MojoExecutionException("Could not read " + name, e);
+		}
+	}
+}
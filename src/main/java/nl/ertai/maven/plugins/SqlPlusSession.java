@@ -0,0 +1,238 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A long-lived SQL*Plus process which executes scripts sent over its standard input.
+ *
+ * After every script a marker line is printed. When the marker shows up in the output the script is finished and
+ * the session can execute the next script. When the process ends before the marker shows up, its exit value is the
+ * exit status of the script. A statement or PL/SQL block which the script leaves unterminated is ended before the
+ * marker, without executing it, as SQL*Plus would take the marker for its text otherwise.
+ */
+class SqlPlusSession {
+
+	private static final String COMMIT = ScriptBatch.MARKER + "session-commit ";
+	private static final String END = ScriptBatch.MARKER + "session-end ";
+
+	private final Process process;
+	private final OutputStream input;
+	private final Charset charset;
+	private final Object lock = new Object();
+
+	private OutputStream output;
+	private boolean committing;
+	private int started;
+	private int finished;
+	private boolean ended;
+
+	/**
+	 * Starts the SQL*Plus process.
+	 *
+	 * @param command the command line, which should not contain a script
+	 * @param envVars the environment of the process, or null to inherit the environment
+	 * @param charset the charset of the output
+	 */
+	SqlPlusSession(List<String> command, Map<String, String> envVars, File workingDirectory, Charset charset)
+			throws IOException {
+		this.charset = charset;
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		builder.directory(workingDirectory);
+		if (envVars != null) {
+			builder.environment().clear();
+			builder.environment().putAll(envVars);
+		}
+		process = builder.start();
+		input = new BufferedOutputStream(process.getOutputStream());
+
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				read(new BufferedInputStream(process.getInputStream()));
+			}
+		}, "sqlplus-session-reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Waits until the session has logged on, by executing an empty script.
+	 *
+	 * @return true if the session is ready for the next script
+	 */
+	boolean awaitReady() throws IOException, InterruptedException {
+		return execute(new ByteArrayInputStream(new byte[0]), null, 0) == 0 && isAlive();
+	}
+
+	/**
+	 * Executes a script and waits for it to finish. A pending transaction is committed afterwards, just like
+	 * SQL*Plus does when it exits.
+	 *
+	 * @param script the script, or a command which starts the script like <code>@script.sql</code>
+	 * @param out receives the output of the script, may be null
+	 * @param timeout the milliseconds the script may take, 0 for no limit, after which the session is destroyed
+	 * @return the exit status of the script
+	 * @throws ToolWatchdog.StoppedException when the script did not finish in time
+	 */
+	int execute(InputStream script, OutputStream out, long timeout) throws IOException, InterruptedException {
+		int id;
+		synchronized (lock) {
+			if (ended) {
+				throw new IOException("SQL*Plus session has ended");
+			}
+			id = ++started;
+			output = out;
+		}
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = script.read(buffer)) != -1) {
+				input.write(buffer, 0, read);
+			}
+			// a lone dot ends a statement or block without executing it, and is ignored otherwise
+			input.write(("\n"
+					+ ".\n"
+					+ "PROMPT " + COMMIT + id + "\n"
+					+ "COMMIT;\n"
+					+ "PROMPT " + END + id + "\n").getBytes(UTF_8));
+			input.flush();
+		} catch (IOException e) {
+			// the process has ended, its exit value tells what happened
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (lock) {
+			while (finished < id && !ended) {
+				if (timeout <= 0) {
+					lock.wait();
+				} else if (deadline > System.currentTimeMillis()) {
+					lock.wait(deadline - System.currentTimeMillis());
+				} else {
+					break;
+				}
+			}
+			output = null;
+			if (finished >= id) {
+				return 0;
+			}
+			if (!ended) {
+				destroy();
+				throw new ToolWatchdog.StoppedException("SQL*Plus was stopped: not finished within "
+						+ timeout / 1000 + " s", -1);
+			}
+		}
+		return process.waitFor();
+	}
+
+	boolean isAlive() {
+		synchronized (lock) {
+			return !ended;
+		}
+	}
+
+	/**
+	 * Ends the session, giving SQL*Plus a moment to log off.
+	 */
+	void close() {
+		try {
+			input.write("EXIT\n".getBytes(UTF_8));
+			input.flush();
+		} catch (IOException e) {
+			// the process has ended already
+		}
+		synchronized (lock) {
+			if (!ended) {
+				try {
+					lock.wait(5000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		process.destroy();
+	}
+
+	/**
+	 * Ends the session right away, also when a script is still running.
+	 */
+	void destroy() {
+		synchronized (lock) {
+			// not alive anymore, also before the process has gone
+			ended = true;
+			lock.notifyAll();
+		}
+		process.destroy();
+	}
+
+	private void read(InputStream in) {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		try {
+			int b;
+			while ((b = in.read()) != -1) {
+				if (b == '\n') {
+					processLine(line.toByteArray());
+					line.reset();
+				} else if (b != '\r') {
+					line.write(b);
+				}
+			}
+			if (line.size() > 0) {
+				processLine(line.toByteArray());
+			}
+		} catch (IOException e) {
+			// the process has ended
+		} finally {
+			synchronized (lock) {
+				ended = true;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private void processLine(byte[] bytes) throws IOException {
+		String line = new String(bytes, charset);
+		synchronized (lock) {
+			if (line.startsWith(COMMIT)) {
+				committing = true;
+			} else if (line.startsWith(END)) {
+				committing = false;
+				finished = Integer.parseInt(line.substring(END.length()).trim());
+				lock.notifyAll();
+			} else if (committing && line.trim().equals("Commit complete.")) {
+				// not part of the output of the script
+				return;
+			} else if (output != null) {
+				output.write(bytes);
+				output.write('\n');
+			}
+		}
+	}
+}
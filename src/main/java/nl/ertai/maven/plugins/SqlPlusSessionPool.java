@@ -0,0 +1,217 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps SQL*Plus sessions open for the rest of the build, so executions with the same connection do not have to
+ * start SQL*Plus and log on again. At most {@link #MAX_IDLE} idle sessions are kept per identity, sessions given back
+ * beyond that are ended. All sessions are ended when the JVM shuts down.
+ */
+final class SqlPlusSessionPool {
+
+	static final int MAX_IDLE = 16;
+
+	private static final Map<Key, Deque<Future<SqlPlusSession>>> IDLE = new HashMap<>();
+	private static final List<SqlPlusSession> SESSIONS = new ArrayList<>();
+
+	private static final ExecutorService STARTER = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "sqlplus-session-starter");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("sqlplus-session-shutdown") {
+			@Override
+			public void run() {
+				closeAll();
+			}
+		});
+	}
+
+	private SqlPlusSessionPool() {
+	}
+
+	/**
+	 * Starts sessions in the background, so they are logged on by the time they are needed.
+	 */
+	static void prestart(final Key key, int count) {
+		for (int i = 0; i < Math.min(count, MAX_IDLE); i++) {
+			Future<SqlPlusSession> future = STARTER.submit(new Callable<SqlPlusSession>() {
+				@Override
+				public SqlPlusSession call() throws Exception {
+					SqlPlusSession session = start(key);
+					if (!session.awaitReady()) {
+						throw new IOException("SQL*Plus session could not log on");
+					}
+					return session;
+				}
+			});
+			add(key, future);
+		}
+	}
+
+	/**
+	 * Returns an idle session, or starts a new one when there is none. The session should be given back with
+	 * {@link #release(Key, SqlPlusSession)}.
+	 */
+	static SqlPlusSession borrow(Key key) throws IOException, InterruptedException {
+		while (true) {
+			Future<SqlPlusSession> future;
+			synchronized (IDLE) {
+				Deque<Future<SqlPlusSession>> idle = IDLE.get(key);
+				future = idle == null ? null : idle.poll();
+			}
+			if (future == null) {
+				return start(key);
+			}
+			try {
+				SqlPlusSession session = future.get();
+				if (session.isAlive()) {
+					return session;
+				}
+				forget(session);
+			} catch (ExecutionException e) {
+				// starting in the background failed, try the next one
+			}
+		}
+	}
+
+	/**
+	 * Gives a session back to the pool. Sessions which have ended are dropped, and so are sessions which are not
+	 * needed anymore as there are enough idle sessions already.
+	 */
+	static void release(Key key, final SqlPlusSession session) {
+		if (!session.isAlive()) {
+			forget(session);
+			return;
+		}
+		FutureTask<SqlPlusSession> future = new FutureTask<>(new Callable<SqlPlusSession>() {
+			@Override
+			public SqlPlusSession call() {
+				return session;
+			}
+		});
+		future.run();
+		if (!add(key, future)) {
+			forget(session);
+			session.close();
+		}
+	}
+
+	/**
+	 * @return false when there are enough idle sessions already
+	 */
+	private static boolean add(Key key, Future<SqlPlusSession> future) {
+		synchronized (IDLE) {
+			if (!IDLE.containsKey(key)) {
+				IDLE.put(key, new ArrayDeque<Future<SqlPlusSession>>());
+			}
+			Deque<Future<SqlPlusSession>> idle = IDLE.get(key);
+			if (idle.size() >= MAX_IDLE) {
+				return false;
+			}
+			idle.add(future);
+			return true;
+		}
+	}
+
+	private static void forget(SqlPlusSession session) {
+		synchronized (SESSIONS) {
+			SESSIONS.remove(session);
+		}
+	}
+
+	private static SqlPlusSession start(Key key) throws IOException {
+		SqlPlusSession session = new SqlPlusSession(key.command, key.envVars, key.workingDirectory, key.charset);
+		synchronized (SESSIONS) {
+			SESSIONS.add(session);
+		}
+		return session;
+	}
+
+	static void closeAll() {
+		List<SqlPlusSession> sessions;
+		synchronized (SESSIONS) {
+			sessions = new ArrayList<>(SESSIONS);
+			SESSIONS.clear();
+		}
+		synchronized (IDLE) {
+			IDLE.clear();
+		}
+		for (SqlPlusSession session : sessions) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Identifies the sessions which can be used for an execution. Sessions are only shared by executions with the
+	 * same identity, usually made up of the sqlplus command, the connection identifier and the login script.
+	 */
+	static class Key {
+		private final String identity;
+		private final List<String> command;
+		private final Map<String, String> envVars;
+		private final File workingDirectory;
+		private final Charset charset;
+
+		/**
+		 * @param identity the identity of the sessions
+		 * @param command the command line to start a session, which should not contain a script
+		 * @param envVars the environment of a new session, or null to inherit the environment
+		 * @param workingDirectory the working directory of a new session
+		 * @param charset the charset of the output of a new session
+		 */
+		Key(String identity, List<String> command, Map<String, String> envVars, File workingDirectory, Charset charset) {
+			this.identity = identity;
+			this.command = command;
+			this.envVars = envVars;
+			this.workingDirectory = workingDirectory;
+			this.charset = charset;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && identity.equals(((Key) o).identity);
+		}
+
+		@Override
+		public int hashCode() {
+			return identity.hashCode();
+		}
+	}
+}
@@ -0,0 +1,403 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the SQL statements of a script one by one, without reading the whole script into memory.
+ *
+ * A statement ends at a <code>;</code> or at a line containing only a <code>/</code>. PL/SQL blocks and stored
+ * code only end at a <code>/</code>. Quotes, <code>q'[...]'</code> quotes and comments are respected. SQL*Plus
+ * commands take up a single line at the start of a statement: <code>PROMPT</code> writes its text to the output,
+ * <code>@</code>, <code>@@</code> and <code>START</code> read the statements of another script,
+ * <code>EXECUTE</code> becomes an anonymous block and <code>EXIT</code> ends the script. Formatting commands like
+ * <code>SET</code>, <code>REM</code> and <code>SPOOL</code> are skipped, and so is
+ * <code>WHENEVER SQLERROR EXIT</code>, as the first error stops the script anyway. Commands which have no JDBC
+ * equivalent, like <code>HOST</code>, <code>CONNECT</code> and <code>VARIABLE</code>, fail. Arguments of included
+ * scripts are ignored, as substitution variables are not supported.
+ */
+class SqlScriptReader implements Closeable {
+
+	/**
+	 * The maximum depth of nested scripts, like SQL*Plus.
+	 */
+	static final int MAX_DEPTH = 20;
+
+	private static final Pattern PLSQL = Pattern.compile("^(DECLARE|BEGIN|CREATE\\s+(OR\\s+REPLACE\\s+)?"
+			+ "((NON)?EDITIONABLE\\s+)?(PROCEDURE|FUNCTION|PACKAGE|TRIGGER|TYPE|LIBRARY|JAVA))\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * <code>SET</code>, except the statements SQL*Plus passes to the server.
+	 */
+	private static final String SET = "SET(?!\\s+(TRANSACTION|ROLE|CONSTRAINTS?)\\b)";
+
+	private static final Pattern SQLPLUS_COMMAND = Pattern.compile("^(@|@@|(" + SET + "|PROMPT|REM|REMARK|WHENEVER|SPOOL|"
+			+ "SHOW|DEFINE|UNDEFINE|COLUMN|COL|EXIT|QUIT|START|TTITLE|BTITLE|BREAK|COMPUTE|PAUSE|ACCEPT|VARIABLE|VAR|"
+			+ "PRINT|HOST|CLEAR|CONNECT|DISCONNECT|EXECUTE|EXEC)\\b)", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern PROMPT = Pattern.compile("^PROMPT(\\s+(.*))?$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern SKIPPED = Pattern.compile("^(" + SET + "|REM|REMARK|SPOOL|SHOW|COLUMN|COL|TTITLE|BTITLE|"
+			+ "BREAK|COMPUTE|CLEAR|PAUSE|WHENEVER\\s+(SQLERROR\\s+EXIT|OSERROR))\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern EXECUTE = Pattern.compile("^EXEC(UTE)?\\s+(.*?)[\\s;]*$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern EXIT = Pattern.compile("^(EXIT|QUIT)\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern INCLUDE = Pattern.compile("^(@@|@|START\\s)\\s*(\"([^\"]+)\"|(\\S+))",
+			Pattern.CASE_INSENSITIVE);
+
+	private final Deque<Source> sources = new ArrayDeque<>();
+	private final File directory;
+	private final Charset charset;
+	private final LineTee.Listener output;
+	private final StringBuilder statement = new StringBuilder();
+
+	private String line;
+	private int position;
+	private char quote;
+	private char qQuote;
+	private boolean blockComment;
+	private Boolean plsql;
+	private String location;
+	private String lastLocation;
+	private boolean exited;
+
+	SqlScriptReader(Reader reader) {
+		this(reader, null, null, Charset.defaultCharset(), null);
+	}
+
+	/**
+	 * @param reader the script
+	 * @param name the name of the script in locations, may be null
+	 * @param directory the directory scripts included with <code>@</code> are relative to, may be null for the
+	 * working directory
+	 * @param charset the encoding of included scripts
+	 * @param output receives the text of <code>PROMPT</code> commands, may be null
+	 */
+	SqlScriptReader(Reader reader, String name, File directory, Charset charset, LineTee.Listener output) {
+		this.directory = directory;
+		this.charset = charset;
+		this.output = output;
+		sources.push(new Source(reader, name, directory));
+	}
+
+	/**
+	 * Opens a script file. The file is mapped into memory a window at a time instead of being read onto the heap.
+	 * Scripts included with <code>@</code> are relative to the directory of the file.
+	 */
+	static SqlScriptReader open(File script, Charset charset, LineTee.Listener output) throws IOException {
+		return new SqlScriptReader(new MappedFileReader(script, charset), script.getName(),
+				script.getAbsoluteFile().getParentFile(), charset, output);
+	}
+
+	/**
+	 * Returns the next statement without its terminator, or null at the end of the script.
+	 */
+	String next() throws IOException {
+		while (!exited) {
+			if (line == null || position >= line.length()) {
+				Source source = sources.peek();
+				line = source.reader.readLine();
+				position = 0;
+				if (line == null) {
+					String finished = finish();
+					if (sources.size() == 1) {
+						return finished;
+					}
+					sources.pop().reader.close();
+					if (finished != null) {
+						return finished;
+					}
+					continue;
+				}
+				source.lineNumber++;
+				if (quote == 0 && qQuote == 0 && !blockComment) {
+					String trimmed = line.trim();
+					if (trimmed.equals("/")) {
+						line = null;
+						String finished = finish();
+						if (finished != null) {
+							return finished;
+						}
+						continue;
+					}
+					if (SQLPLUS_COMMAND.matcher(trimmed).find() && isEmpty(statement)) {
+						line = null;
+						statement.setLength(0);
+						String translated = command(trimmed);
+						if (translated != null) {
+							lastLocation = source.getLocation();
+							return translated;
+						}
+						continue;
+					}
+				}
+				if (isEmpty(statement)) {
+					location = source.getLocation();
+				}
+				if (statement.length() > 0) {
+					statement.append('\n');
+				}
+			}
+			String finished = scan();
+			if (finished != null) {
+				return finished;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns where the last statement returned by {@link #next()} starts, like <code>script.sql:12</code>.
+	 */
+	String getLocation() {
+		return lastLocation;
+	}
+
+	/**
+	 * Executes a SQL*Plus command.
+	 *
+	 * @return the statement the command translates to, or null when there is nothing to execute
+	 */
+	private String command(String command) throws IOException {
+		Matcher prompt = PROMPT.matcher(command);
+		if (prompt.matches()) {
+			if (output != null) {
+				output.processLine(prompt.group(2) == null ? "" : prompt.group(2));
+			}
+			return null;
+		}
+		Matcher include = INCLUDE.matcher(command);
+		if (include.find()) {
+			String name = include.group(3) != null ? include.group(3) : include.group(4);
+			include(name, include.group(1).equals("@@"));
+			return null;
+		}
+		Matcher execute = EXECUTE.matcher(command);
+		if (execute.matches()) {
+			return "BEGIN " + execute.group(2) + "; END;";
+		}
+		if (EXIT.matcher(command).find()) {
+			// like SQL*Plus, this also ends the scripts which included this one
+			exited = true;
+			return null;
+		}
+		if (SKIPPED.matcher(command).find()) {
+			return null;
+		}
+		throw new IOException("SQL*Plus command " + command.split("\\s+")[0].toUpperCase()
+				+ " is not supported over JDBC at " + sources.peek().getLocation());
+	}
+
+	private void include(String name, boolean nested) throws IOException {
+		if (sources.size() >= MAX_DEPTH) {
+			throw new IOException("Scripts may only be nested to a depth of " + MAX_DEPTH + ": " + name);
+		}
+		File script = new File(name);
+		if (script.getName().indexOf('.') < 0) {
+			// just like SQL*Plus
+			script = new File(name + ".sql");
+		}
+		if (!script.isAbsolute()) {
+			File parent = nested ? sources.peek().directory : directory;
+			script = new File(parent, script.getPath());
+		}
+		if (!script.isFile()) {
+			throw new IOException("Could not find script " + script + " at " + sources.peek().getLocation());
+		}
+		sources.push(new Source(new MappedFileReader(script, charset), script.getName(),
+				script.getAbsoluteFile().getParentFile()));
+	}
+
+	/**
+	 * Scans the rest of the current line, and returns a statement when it ends on this line.
+	 */
+	private String scan() {
+		while (position < line.length()) {
+			char c = line.charAt(position);
+			char next = position + 1 < line.length() ? line.charAt(position + 1) : 0;
+			if (blockComment) {
+				if (c == '*' && next == '/') {
+					statement.append("*/");
+					position += 2;
+					blockComment = false;
+					continue;
+				}
+			} else if (qQuote != 0) {
+				if (c == qQuote && next == '\'') {
+					statement.append(c).append('\'');
+					position += 2;
+					qQuote = 0;
+					continue;
+				}
+			} else if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '-' && next == '-') {
+				statement.append(line, position, line.length());
+				position = line.length();
+				return null;
+			} else if (c == '/' && next == '*') {
+				statement.append("/*");
+				position += 2;
+				blockComment = true;
+				continue;
+			} else if ((c == 'q' || c == 'Q') && next == '\'' && position + 2 < line.length() && startsLiteral()) {
+				char delimiter = line.charAt(position + 2);
+				qQuote = closing(delimiter);
+				statement.append(line, position, position + 3);
+				position += 3;
+				continue;
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == ';' && !isPlsql()) {
+				position++;
+				String finished = finish();
+				if (finished != null) {
+					return finished;
+				}
+				continue;
+			}
+			statement.append(c);
+			position++;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true when a <code>q</code> at the current position starts a literal instead of ending a name, which
+	 * also holds for national literals like <code>nq'[...]'</code>.
+	 */
+	private boolean startsLiteral() {
+		int i = statement.length() - 1;
+		if (i >= 0 && (statement.charAt(i) == 'n' || statement.charAt(i) == 'N')) {
+			i--;
+		}
+		return i < 0 || !isNamePart(statement.charAt(i));
+	}
+
+	private static boolean isNamePart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+
+	private static char closing(char delimiter) {
+		switch (delimiter) {
+		case '[':
+			return ']';
+		case '{':
+			return '}';
+		case '(':
+			return ')';
+		case '<':
+			return '>';
+		default:
+			return delimiter;
+		}
+	}
+
+	private boolean isPlsql() {
+		if (plsql == null) {
+			// the leading keywords are known by the first semicolon
+			plsql = PLSQL.matcher(stripComments(statement)).find();
+		}
+		return plsql;
+	}
+
+	private String finish() {
+		String finished = isEmpty(statement) ? null : statement.toString().trim();
+		statement.setLength(0);
+		plsql = null;
+		if (finished != null) {
+			lastLocation = location;
+		}
+		// the next statement may start on the same line
+		location = sources.peek().getLocation();
+		return finished;
+	}
+
+	private static boolean isEmpty(CharSequence sql) {
+		return skipComments(sql) == sql.length();
+	}
+
+	/**
+	 * Returns the SQL without the leading whitespace and comments.
+	 */
+	static String stripComments(CharSequence sql) {
+		return sql.subSequence(skipComments(sql), sql.length()).toString();
+	}
+
+	private static int skipComments(CharSequence sql) {
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			char next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '-' && next == '-') {
+				while (i < sql.length() && sql.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '/' && next == '*') {
+				// the shortest comment is /**/
+				i += 3;
+				while (i < sql.length() && !(sql.charAt(i - 1) == '*' && sql.charAt(i) == '/')) {
+					i++;
+				}
+				i++;
+			} else {
+				break;
+			}
+		}
+		return Math.min(i, sql.length());
+	}
+
+	@Override
+	public void close() throws IOException {
+		while (!sources.isEmpty()) {
+			sources.pop().reader.close();
+		}
+	}
+
+	/**
+	 * A script which is being read.
+	 */
+	private static class Source {
+		private final BufferedReader reader;
+		private final String name;
+		private final File directory;
+		private int lineNumber;
+
+		Source(Reader reader, String name, File directory) {
+			this.reader = new BufferedReader(reader);
+			this.name = name;
+			this.directory = directory;
+		}
+
+		String getLocation() {
+			return (name == null ? "line " : name + ":") + lineNumber;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Loads the records of a CSV file into a table with a single prepared insert, sending the rows to the database in
+ * batches so the driver binds whole arrays of values at once.
+ *
+ * The file is parsed by a separate thread which hands complete batches over through a small bounded queue. Parsing
+ * and inserting overlap, and a reader which is faster than the database waits instead of filling the memory.
+ */
+class TableLoader {
+
+	/**
+	 * The number of parsed batches which may wait for the database.
+	 */
+	static final int QUEUE_SIZE = 4;
+
+	private static final Pattern NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_$#]*(\\.[A-Za-z][A-Za-z0-9_$#]*)?");
+
+	private final Connection connection;
+	private final String table;
+	private final int batchSize;
+	private final int commitSize;
+
+	private long committed;
+
+	/**
+	 * @param connection the connection, without auto-commit
+	 * @param table the name of the table, optionally prefixed with a schema
+	 * @param batchSize the number of rows sent to the database at once
+	 * @param commitSize the number of rows after which is committed, rounded up to whole batches, 0 to commit only
+	 * at the end
+	 */
+	TableLoader(Connection connection, String table, int batchSize, int commitSize) {
+		this.connection = connection;
+		this.table = table;
+		this.batchSize = Math.max(1, batchSize);
+		this.commitSize = commitSize;
+	}
+
+	/**
+	 * Loads all records. The rows which were not committed yet are rolled back when loading fails.
+	 *
+	 * @param columns the columns the fields are loaded into, or null for all columns of the table
+	 * @return the number of loaded rows
+	 */
+	long load(final CsvReader reader, List<String> columns) throws IOException, SQLException, InterruptedException {
+		for (String column : columns == null ? Collections.<String>emptyList() : columns) {
+			checkName(column);
+		}
+		checkName(table);
+		int[] types = getTypes(columns);
+		if (columns == null) {
+			columns = getColumns();
+		}
+		String sql = "INSERT INTO " + table + " (" + StringUtils.join(columns, ", ") + ") VALUES ("
+				+ StringUtils.repeat("?", ", ", columns.size()) + ")";
+
+		final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		Thread parser = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				parse(reader, queue);
+			}
+		}, "load-" + table);
+		parser.setDaemon(true);
+		parser.start();
+		committed = 0;
+		long loaded = 0;
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			Batch batch;
+			while ((batch = queue.take()).rows != null) {
+				for (int i = 0; i < batch.rows.size(); i++) {
+					bind(statement, columns, types, batch.rows.get(i), batch.lineNumbers[i]);
+					statement.addBatch();
+				}
+				execute(statement, batch);
+				loaded += batch.rows.size();
+				if (commitSize > 0 && loaded - committed >= commitSize) {
+					connection.commit();
+					committed = loaded;
+				}
+			}
+			if (batch.error != null) {
+				throw batch.error;
+			}
+			connection.commit();
+			committed = loaded;
+			return loaded;
+		} catch (IOException | SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			parser.interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of rows which were committed by the last load.
+	 */
+	long getCommitted() {
+		return committed;
+	}
+
+	private void parse(CsvReader reader, BlockingQueue<Batch> queue) {
+		try {
+			while (true) {
+				Batch batch = new Batch(batchSize);
+				String[] record;
+				while (batch.rows.size() < batchSize && (record = reader.next()) != null) {
+					batch.lineNumbers[batch.rows.size()] = reader.getLineNumber();
+					batch.rows.add(record);
+				}
+				if (batch.rows.isEmpty()) {
+					queue.put(new Batch((IOException) null));
+					return;
+				}
+				queue.put(batch);
+			}
+		} catch (IOException e) {
+			putQuietly(queue, new Batch(e));
+		} catch (InterruptedException e) {
+			// loading has failed
+		}
+	}
+
+	private static void putQuietly(BlockingQueue<Batch> queue, Batch batch) {
+		try {
+			queue.put(batch);
+		} catch (InterruptedException e) {
+			// loading has failed already
+		}
+	}
+
+	private void execute(PreparedStatement statement, Batch batch) throws SQLException {
+		try {
+			statement.executeBatch();
+		} catch (BatchUpdateException e) {
+			// drivers either stop at the failed row, or mark it and go on
+			int failed = 0;
+			int[] counts = e.getUpdateCounts();
+			if (counts != null) {
+				failed = counts.length;
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] == Statement.EXECUTE_FAILED) {
+						failed = i;
+						break;
+					}
+				}
+			}
+			long line = batch.lineNumbers[Math.min(failed, batch.rows.size() - 1)];
+			throw new SQLException("Could not insert the row at line " + line + ": " + e.getMessage(),
+					e.getSQLState(), e.getErrorCode(), e);
+		}
+	}
+
+	private static void bind(PreparedStatement statement, List<String> columns, int[] types, String[] row,
+			long lineNumber) throws SQLException {
+		for (int i = 0; i < types.length; i++) {
+			String value = i < row.length ? row[i] : null;
+			int type = types[i];
+			try {
+				if (StringUtils.isEmpty(value)) {
+					statement.setNull(i + 1, type);
+				} else if (isNumeric(type)) {
+					statement.setBigDecimal(i + 1, new BigDecimal(value.trim()));
+				} else if (type == Types.DATE || type == Types.TIMESTAMP) {
+					statement.setTimestamp(i + 1, toTimestamp(value.trim()));
+				} else {
+					statement.setString(i + 1, value);
+				}
+			} catch (IllegalArgumentException e) {
+				throw new SQLException("Invalid value '" + value + "' for column " + columns.get(i) + " at line "
+						+ lineNumber, e);
+			}
+		}
+	}
+
+	private static boolean isNumeric(int type) {
+		return type == Types.NUMERIC || type == Types.DECIMAL || type == Types.INTEGER || type == Types.BIGINT
+				|| type == Types.SMALLINT || type == Types.TINYINT || type == Types.DOUBLE || type == Types.FLOAT
+				|| type == Types.REAL;
+	}
+
+	/**
+	 * Parses an ISO date like <code>2019-12-31</code>, optionally followed by a time like <code>23:59:59.999</code>.
+	 */
+	static Timestamp toTimestamp(String value) {
+		String timestamp = value.replace('T', ' ');
+		return Timestamp.valueOf(timestamp.length() == 10 ? timestamp + " 00:00:00" : timestamp);
+	}
+
+	/**
+	 * Returns the types of the columns, or of all columns of the table.
+	 */
+	private int[] getTypes(List<String> columns) throws SQLException {
+		String select = columns == null ? "*" : StringUtils.join(columns, ", ");
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT " + select + " FROM " + table + " WHERE 1 = 0")) {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			int[] types = new int[metaData.getColumnCount()];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = metaData.getColumnType(i + 1);
+			}
+			return types;
+		}
+	}
+
+	private List<String> getColumns() throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			List<String> columns = new ArrayList<>();
+			for (int i = 1; i <= metaData.getColumnCount(); i++) {
+				columns.add(metaData.getColumnName(i));
+			}
+			return columns;
+		}
+	}
+
+	private static void checkName(String name) throws SQLException {
+		if (!NAME.matcher(name).matches()) {
+			throw new SQLException("Invalid name '" + name + "'");
+		}
+	}
+
+	/**
+	 * Parsed rows, or the end of the file, or the reason parsing failed.
+	 */
+	private static class Batch {
+		private final List<String[]> rows;
+		private final long[] lineNumbers;
+		private final IOException error;
+
+		Batch(int size) {
+			this.rows = new ArrayList<>(size);
+			this.lineNumbers = new long[size];
+			this.error = null;
+		}
+
+		Batch(IOException error) {
+			this.rows = null;
+			this.lineNumbers = null;
+			this.error = error;
+		}
+	}
+}
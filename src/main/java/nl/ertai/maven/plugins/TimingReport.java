@@ -0,0 +1,195 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Collects the elapsed time of every statement from SQL*Plus output with <code>SET TIMING ON</code>.
+ *
+ * A statement is identified by the first line of output after the previous statement, which is the statement itself
+ * when SQL*Plus echoes it (<code>SET ECHO ON</code>). SQL*Plus only echoes the statements of scripts, other statements
+ * are identified by their position, followed by their first line of output like <code>1 row created.</code>
+ */
+class TimingReport {
+
+	/**
+	 * Turns on the output the report is made from.
+	 */
+	static final String SETTINGS = "SET TIMING ON\nSET ECHO ON\n";
+
+	private static final Pattern ELAPSED = Pattern.compile("^Elapsed: (\\d+):(\\d{2}):(\\d{2})\\.(\\d+)");
+	private static final Pattern PROMPT = Pattern.compile("^SQL>\\s*");
+	private static final int MAX_STATEMENT_LENGTH = 200;
+
+	private final List<Timing> timings = new ArrayList<>();
+
+	/**
+	 * Returns a listener for the output of a single SQL*Plus run.
+	 *
+	 * @param script the name of the script, or null when the script is taken from the batch
+	 * @param batch the batch of scripts which is run, may be null
+	 * @param echoed whether SQL*Plus echoes the statements, which it only does for scripts
+	 */
+	LineTee.Listener collector(final String script, final ScriptBatch batch, final boolean echoed) {
+		return new LineTee.Listener() {
+			private String statement;
+			private int count;
+
+			@Override
+			public void processLine(String line) {
+				if (line.startsWith(ScriptBatch.MARKER)) {
+					statement = null;
+					return;
+				}
+				Matcher matcher = ELAPSED.matcher(line);
+				if (matcher.find()) {
+					add(new Timing(getScript(), statement, toMillis(matcher)));
+					statement = null;
+				} else if (statement == null && !line.trim().isEmpty()) {
+					statement = PROMPT.matcher(line).replaceFirst("").trim();
+					if (!echoed) {
+						statement = "statement " + ++count + " (" + statement + ")";
+					}
+					statement = StringUtils.abbreviate(statement, MAX_STATEMENT_LENGTH);
+				}
+			}
+
+			private String getScript() {
+				if (batch != null && batch.getCurrent() != null) {
+					return batch.getCurrent().getScript().getName();
+				}
+				return script;
+			}
+		};
+	}
+
+	private static long toMillis(Matcher matcher) {
+		String fraction = StringUtils.rightPad(matcher.group(4), 3, '0').substring(0, 3);
+		return ((Long.parseLong(matcher.group(1)) * 60 + Long.parseLong(matcher.group(2))) * 60
+				+ Long.parseLong(matcher.group(3))) * 1000 + Long.parseLong(fraction);
+	}
+
+	private synchronized void add(Timing timing) {
+		timings.add(timing);
+	}
+
+	synchronized List<Timing> getTimings() {
+		return new ArrayList<>(timings);
+	}
+
+	/**
+	 * Returns the slowest statements, the slowest first.
+	 */
+	List<Timing> getSlowest(int count) {
+		List<Timing> slowest = getTimings();
+		Collections.sort(slowest, new Comparator<Timing>() {
+			@Override
+			public int compare(Timing a, Timing b) {
+				return Long.compare(b.getElapsedMillis(), a.getElapsedMillis());
+			}
+		});
+		return slowest.subList(0, Math.min(count, slowest.size()));
+	}
+
+	/**
+	 * Writes all timings as a JSON array, in the order the statements were executed.
+	 */
+	void write(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create directory " + parent);
+		}
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)) {
+			writer.write("[");
+			List<Timing> all = getTimings();
+			for (int i = 0; i < all.size(); i++) {
+				Timing timing = all.get(i);
+				writer.write(i == 0 ? "\n" : ",\n");
+				writer.write("  {\"script\": " + quote(timing.getScript())
+						+ ", \"statement\": " + quote(timing.getStatement())
+						+ ", \"elapsedMillis\": " + timing.getElapsedMillis() + "}");
+			}
+			writer.write("\n]\n");
+		}
+	}
+
+	private static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"':
+					quoted.append("\\\"");
+					break;
+				case '\\':
+					quoted.append("\\\\");
+					break;
+				case '\t':
+					quoted.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						quoted.append(String.format("\\u%04x", (int) c));
+					} else {
+						quoted.append(c);
+					}
+			}
+		}
+		return quoted.append("\"").toString();
+	}
+
+	static class Timing {
+		private final String script;
+		private final String statement;
+		private final long elapsedMillis;
+
+		Timing(String script, String statement, long elapsedMillis) {
+			this.script = script;
+			this.statement = statement;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		String getScript() {
+			return script;
+		}
+
+		String getStatement() {
+			return statement;
+		}
+
+		long getElapsedMillis() {
+			return elapsedMillis;
+		}
+	}
+}
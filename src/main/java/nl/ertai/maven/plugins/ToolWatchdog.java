@@ -0,0 +1,224 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *	 http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.ExecuteException;
+
+/**
+ * Stops a tool which does not connect or does not finish in time, or which is still running when Maven is stopped.
+ *
+ * The tool counts as connected at the first line of output starting with <code>Connected</code>, or at the
+ * {@link #CONNECTED} marker line.
+ */
+class ToolWatchdog implements LineTee.Listener {
+
+	/**
+	 * Printed by SQL*Plus in silent mode as soon as it has logged on.
+	 */
+	static final String CONNECTED = ScriptBatch.MARKER + "connected";
+
+	private static final Set<ToolWatchdog> RUNNING = new LinkedHashSet<>();
+
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "oracledb-tool-watchdog");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("oracledb-tool-shutdown") {
+			@Override
+			public void run() {
+				List<ToolWatchdog> running;
+				synchronized (RUNNING) {
+					running = new ArrayList<>(RUNNING);
+				}
+				for (ToolWatchdog watchdog : running) {
+					watchdog.fire("Maven was stopped");
+				}
+			}
+		});
+	}
+
+	private final String tool;
+	private final int connectTimeout;
+	private final int timeout;
+	private final Charset charset;
+
+	private Runnable stop;
+	private ScheduledFuture<?> connectTimer;
+	private ScheduledFuture<?> timer;
+	private volatile boolean connected;
+	private String reason;
+
+	/**
+	 * @param tool the name of the tool, used in messages
+	 * @param connectTimeout the seconds the tool may take to connect, 0 for no limit
+	 * @param timeout the seconds the tool may take to finish, 0 for no limit
+	 * @param charset the charset of the output
+	 */
+	ToolWatchdog(String tool, int connectTimeout, int timeout, Charset charset) {
+		this.tool = tool;
+		this.connectTimeout = connectTimeout;
+		this.timeout = timeout;
+		this.charset = charset;
+	}
+
+	/**
+	 * Sets what is done to stop the tool.
+	 */
+	synchronized void stopWith(Runnable stop) {
+		this.stop = stop;
+	}
+
+	/**
+	 * Starts the timers, just before the tool is started.
+	 */
+	void start() {
+		synchronized (RUNNING) {
+			RUNNING.add(this);
+		}
+		synchronized (this) {
+			if (connectTimeout > 0 && !connected) {
+				connectTimer = schedule("no connection within " + connectTimeout + " s", connectTimeout);
+			}
+			if (timeout > 0) {
+				timer = schedule("not finished within " + timeout + " s", timeout);
+			}
+		}
+	}
+
+	private ScheduledFuture<?> schedule(final String reason, int seconds) {
+		return TIMER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				// stopping may take a while, the other timers should not wait for it
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						fire(reason);
+					}
+				}, "oracledb-tool-stop");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}, seconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the timers, when the tool has finished.
+	 */
+	void cancel() {
+		synchronized (RUNNING) {
+			RUNNING.remove(this);
+		}
+		synchronized (this) {
+			if (connectTimer != null) {
+				connectTimer.cancel(false);
+			}
+			if (timer != null) {
+				timer.cancel(false);
+			}
+		}
+	}
+
+	void connected() {
+		connected = true;
+		synchronized (this) {
+			if (connectTimer != null) {
+				connectTimer.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Stops the tool, unless it has been stopped already.
+	 */
+	void fire(String reason) {
+		Runnable stopNow;
+		synchronized (this) {
+			if (this.reason != null) {
+				return;
+			}
+			this.reason = reason;
+			stopNow = stop;
+		}
+		if (stopNow != null) {
+			stopNow.run();
+		}
+	}
+
+	/**
+	 * Returns why the tool was stopped, or null when it was not stopped.
+	 */
+	synchronized String getReason() {
+		return reason;
+	}
+
+	/**
+	 * Returns an exception describing why the tool was stopped, or the given exception when it was not stopped.
+	 */
+	ExecuteException explain(ExecuteException e) {
+		String stopped = getReason();
+		if (stopped == null) {
+			return e;
+		}
+		return new StoppedException(tool + " was stopped: " + stopped, e.getExitValue());
+	}
+
+	/**
+	 * Returns a stream which passes everything on to the given stream, and watches for the connection.
+	 */
+	OutputStream watch(OutputStream out) {
+		return new LineTee(out, charset, Collections.singletonList(this));
+	}
+
+	@Override
+	public void processLine(String line) {
+		if (!connected && (line.startsWith("Connected") || line.startsWith(CONNECTED))) {
+			connected();
+		}
+	}
+
+	/**
+	 * Thrown when a tool was stopped by the watchdog.
+	 */
+	static class StoppedException extends ExecuteException {
+		private static final long serialVersionUID = 1L;
+
+		StoppedException(String message, int exitValue) {
+			super(message, exitValue);
+		}
+	}
+}
@@ -168,6 +168,58 @@ public class AbstractDBMojoTest {
         Assert.assertEquals(expectedId, connectionId);
     }
 
+    @Test
+    public void testGetConnectionIdentifierAddressesNonEasyConnect() throws MojoFailureException {
+        DBMojo mojo = new DBMojo();
+        mojo.username = USERNAME;
+        mojo.hostname = "node1";
+        mojo.port = 1521;
+        mojo.addresses = "node2:1522, node3";
+        mojo.serviceName = SERVICE_NAME;
+        mojo.loadBalance = Boolean.TRUE;
+        mojo.failover = Boolean.TRUE;
+        mojo.netConnectTimeout = 10;
+        mojo.transportConnectTimeout = 3;
+        mojo.connectRetryCount = 2;
+        mojo.connectRetryDelay = 1;
+        mojo.dedicatedServer = true;
+
+        String connectionId = mojo.getConnectionIdentifier();
+        String expectedId = USERNAME
+                + "@(DESCRIPTION=(CONNECT_TIMEOUT=10)(TRANSPORT_CONNECT_TIMEOUT=3)(RETRY_COUNT=2)(RETRY_DELAY=1)"
+                + "(ADDRESS_LIST=(LOAD_BALANCE=on)(FAILOVER=on)"
+                + "(ADDRESS=(PROTOCOL=tcp)(HOST=node1)(PORT=1521))"
+                + "(ADDRESS=(PROTOCOL=tcp)(HOST=node2)(PORT=1522))"
+                + "(ADDRESS=(PROTOCOL=tcp)(HOST=node3)(PORT=1521)))"
+                + "(CONNECT_DATA=(SERVER=DEDICATED)(SERVICE_NAME=" + SERVICE_NAME + ")))";
+        Assert.assertEquals(expectedId, connectionId);
+    }
+
+    @Test
+    public void testGetConnectionIdentifierAddressesEasyConnect() throws MojoFailureException {
+        DBMojo mojo = new DBMojo();
+        mojo.useEasyConnect = Boolean.TRUE;
+        mojo.username = USERNAME;
+        mojo.hostname = "node1";
+        mojo.port = 1521;
+        mojo.addresses = "node2:1522,node3";
+        mojo.serviceName = SERVICE_NAME;
+        mojo.loadBalance = Boolean.TRUE;
+        mojo.failover = Boolean.FALSE;
+        mojo.netConnectTimeout = 10;
+        mojo.transportConnectTimeout = 3;
+        mojo.connectRetryCount = 2;
+        mojo.connectRetryDelay = 1;
+        mojo.dedicatedServer = true;
+        mojo.asClause = SYSDBA;
+
+        String connectionId = mojo.getConnectionIdentifier();
+        String expectedId = USERNAME + "@//node1:1521,node2:1522,node3:1521/" + SERVICE_NAME + ":dedicated"
+                + "?connect_timeout=10&transport_connect_timeout=3&retry_count=2&retry_delay=1"
+                + "&load_balance=on&failover=off AS " + SYSDBA;
+        Assert.assertEquals(expectedId, connectionId);
+    }
+
     @Test
     public void testObfuscateCredentials() {
         DBMojo mojo = new DBMojo();
@@ -180,6 +232,16 @@ public class AbstractDBMojoTest {
         Assert.assertEquals("[exe, \"Test <username> <password>\"]", result);
     }
 
+    @Test
+    public void testMaskJdbcUrl() {
+        Assert.assertEquals("jdbc:oracle:thin:<credentials>@//localhost:1521/ORCL",
+                AbstractDBMojo.maskJdbcUrl("jdbc:oracle:thin:scott/tiger@//localhost:1521/ORCL"));
+        Assert.assertEquals("jdbc:oracle:thin:@//localhost:1521/ORCL",
+                AbstractDBMojo.maskJdbcUrl("jdbc:oracle:thin:@//localhost:1521/ORCL"));
+        Assert.assertEquals("jdbc:h2:mem:x;USER=sa;PASSWORD=<password>",
+                AbstractDBMojo.maskJdbcUrl("jdbc:h2:mem:x;USER=sa;PASSWORD=secret"));
+    }
+
     private Server createServerObject() {
         Server server = new Server();
         server.setId(SERVER_ID);
@@ -22,6 +22,10 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
 public class AbstractDatapumpMojoTest {
 
     private static final String USERNAME = "username";
@@ -92,6 +96,16 @@ public class AbstractDatapumpMojoTest {
         Assert.assertEquals("INCLUDE=" + DATA, cmd.getArguments()[1]);
     }
 
+    @Test
+    public void testAddCommonArgumentsJobName() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.jobName = DATA;
+
+        CommandLine cmd = mojo.buildCommandline();
+
+        Assert.assertEquals("JOB_NAME=" + DATA, cmd.getArguments()[1]);
+    }
+
     @Test
     public void testAddCommonArgumentsLogfile() throws MojoFailureException {
         DatapumpMojo mojo = createBasicMojo();
@@ -161,6 +175,249 @@ public class AbstractDatapumpMojoTest {
         Assert.assertEquals(11, cmd.getArguments().length);
     }
 
+    @Test
+    public void testJobName() {
+        AbstractDatapumpMojo.JobName name = new AbstractDatapumpMojo.JobName();
+
+        name.processLine("Connected to: Oracle Database 19c Enterprise Edition");
+        name.processLine("Master table \"SCOTT\".\"SYS_EXPORT_SCHEMA_01\" successfully loaded/unloaded");
+        name.processLine("Starting \"SCOTT\".\"SYS_EXPORT_SCHEMA_02\":  scott/******** schemas=scott");
+
+        Assert.assertEquals("SCOTT.SYS_EXPORT_SCHEMA_01", name.job);
+    }
+
+    @Test
+    public void testResumableJobName() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.schemas = "HR";
+        mojo.dumpfile = "export_%U.dmp";
+        Assert.assertNull(mojo.getJobName());
+
+        mojo.resumable = true;
+        String name = mojo.getJobName();
+        Assert.assertTrue(name, name.matches("DATAPUMP_[0-9A-F]{12}"));
+        mojo.parallel = "4";
+        mojo.password = "secret";
+        Assert.assertEquals(name, mojo.getJobName());
+        mojo.schemas = "SCOTT";
+        Assert.assertNotEquals(name, mojo.getJobName());
+        mojo.jobName = "NIGHTLY";
+        Assert.assertEquals("NIGHTLY", mojo.getJobName());
+    }
+
+    @Test
+    public void testResumeCommands() {
+        Assert.assertEquals("START_JOB\nCONTINUE_CLIENT\n", AbstractDatapumpMojo.getResumeCommands("NOT RUNNING"));
+        Assert.assertEquals("START_JOB\nCONTINUE_CLIENT\n", AbstractDatapumpMojo.getResumeCommands("IDLING"));
+        Assert.assertEquals("CONTINUE_CLIENT\n", AbstractDatapumpMojo.getResumeCommands("EXECUTING"));
+    }
+
+    @Test
+    public void testBuildJobsPerSchema() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.fanOut = true;
+        mojo.schemas = "hr, scott";
+        mojo.dumpfile = "DIR:export_%U.dmp";
+        mojo.logfile = "export.log";
+        mojo.jobName = "REFRESH";
+
+        Map<String, AbstractDatapumpMojo.Job> jobs = mojo.buildJobs();
+
+        Assert.assertEquals(Arrays.asList("HR", "SCOTT"), new ArrayList<>(jobs.keySet()));
+        Assert.assertArrayEquals(new String[] {CONNECTION_STRING, "DUMPFILE=DIR:export_SCOTT_%U.dmp",
+                "JOB_NAME=REFRESH_SCOTT", "LOGFILE=export_SCOTT.log", "SCHEMAS=scott"},
+                jobs.get("SCOTT").commandLine.getArguments());
+        Assert.assertEquals("REFRESH_HR", jobs.get("HR").name);
+        Assert.assertEquals("hr, scott", mojo.schemas);
+        Assert.assertEquals("REFRESH", mojo.jobName);
+    }
+
+    @Test
+    public void testBuildJobsPerTableGroup() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.tableGroups = Arrays.asList("HR.EMP,HR.DEPT", "HR.SALES");
+        mojo.dumpfile = "export.dmp";
+
+        Map<String, AbstractDatapumpMojo.Job> jobs = mojo.buildJobs();
+
+        Assert.assertArrayEquals(new String[] {CONNECTION_STRING, "DUMPFILE=export_GROUP1.dmp",
+                "TABLES=HR.EMP,HR.DEPT"}, jobs.get("GROUP1").commandLine.getArguments());
+        Assert.assertArrayEquals(new String[] {CONNECTION_STRING, "DUMPFILE=export_GROUP2.dmp",
+                "TABLES=HR.SALES"}, jobs.get("GROUP2").commandLine.getArguments());
+        Assert.assertNull(jobs.get("GROUP1").name);
+    }
+
+    @Test
+    public void testBuildJobsWithoutFanOut() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.schemas = "hr, scott";
+
+        Assert.assertNull(mojo.buildJobs());
+    }
+
+    @Test
+    public void testAddCommonArgumentsParallel() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.parallel = "4";
+
+        CommandLine cmd = mojo.buildCommandline();
+
+        Assert.assertEquals("PARALLEL=4", cmd.getArguments()[1]);
+    }
+
+    @Test
+    public void testInvalidParallel() {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.parallel = "many";
+
+        try {
+            mojo.buildCommandline();
+            Assert.fail("parallel is not a number");
+        } catch (MojoFailureException e) {
+            Assert.assertEquals("parallel should be a positive number or auto: 'many'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTooFewDumpfiles() {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.parallel = "4";
+        mojo.dumpfile = "DIR:a.dmp, DIR:b.dmp";
+
+        try {
+            mojo.buildCommandline();
+            Assert.fail("there are fewer dump files than workers");
+        } catch (MojoFailureException e) {
+            Assert.assertEquals("PARALLEL=4 needs at least 4 dump files, but dumpfile names 2: DIR:a.dmp, DIR:b.dmp",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDumpfileSetForParallel() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.parallel = "4";
+        mojo.dumpfile = "export%U.dmp";
+
+        CommandLine cmd = mojo.buildCommandline();
+
+        Assert.assertEquals("DUMPFILE=export%U.dmp", cmd.getArguments()[1]);
+        Assert.assertEquals("PARALLEL=4", cmd.getArguments()[2]);
+    }
+
+    @Test
+    public void testChooseDegree() throws Exception {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.parallelMax = 8;
+        mojo.dumpfile = "a.dmp,b.dmp,c.dmp";
+        Assert.assertEquals(3, mojo.chooseDegree());
+
+        mojo.dumpfile = "DIR:export_%U.dmp";
+        Assert.assertEquals(8, mojo.chooseDegree());
+    }
+
+    @Test
+    public void testToDumpfileSet() {
+        Assert.assertEquals("export_%U.dmp", AbstractDatapumpMojo.toDumpfileSet("export.dmp"));
+        Assert.assertEquals("DIR:export_%U.dmp", AbstractDatapumpMojo.toDumpfileSet("DIR:export.dmp"));
+        Assert.assertEquals("DATA.DIR:export_%U", AbstractDatapumpMojo.toDumpfileSet("DATA.DIR:export"));
+    }
+
+    @Test
+    public void testAddCommonArgumentsProgressInterval() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.progressInterval = 30;
+
+        CommandLine cmd = mojo.buildCommandline();
+
+        Assert.assertArrayEquals(new String[] {CONNECTION_STRING, "STATUS=30", "METRICS=YES"}, cmd.getArguments());
+        Assert.assertNotNull(mojo.createMonitor(""));
+    }
+
+    @Test
+    public void testBuildApiJobSchemas() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.directory = "DATA_PUMP_DIR";
+        mojo.dumpfile = "export_%U.dmp";
+        mojo.logfile = "LOG_DIR:export.log";
+        mojo.schemas = "hr, scott";
+        mojo.jobName = "REFRESH";
+        mojo.parallel = "2";
+
+        DatapumpApiJob job = mojo.buildApiJob();
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, "REFRESH",
+                "export_%U.dmp", "DATA_PUMP_DIR", null,
+                "export.log", "LOG_DIR", null,
+                "SCHEMA_EXPR", "IN ('HR', 'SCOTT')", null,
+                2L), job.getBinds());
+        String block = job.getStartBlock();
+        Assert.assertTrue(block.contains("filetype => DBMS_DATAPUMP.KU$_FILE_TYPE_DUMP_FILE);"));
+        Assert.assertTrue(block.contains("filetype => DBMS_DATAPUMP.KU$_FILE_TYPE_LOG_FILE);"));
+        Assert.assertTrue(block.contains("DBMS_DATAPUMP.SET_PARALLEL(h, ?);\n  DBMS_DATAPUMP.START_JOB(h);"));
+    }
+
+    @Test
+    public void testBuildApiJobTablesAndFilters() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.tables = "HR.EMP,hr.\"Dept\"";
+        mojo.content = "METADATA_ONLY";
+        mojo.exclude = "STATISTICS,INDEX:\"LIKE 'TMP%'\"";
+        mojo.include = "TABLE:\"IN ('EMP', 'Dept')\"";
+
+        DatapumpApiJob job = mojo.buildApiJob();
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.TABLE, null, null,
+                "INCLUDE_ROWS", 0L,
+                "SCHEMA_EXPR", "IN ('HR')", null,
+                "NAME_EXPR", "IN ('EMP', 'Dept')", "TABLE",
+                "EXCLUDE_NAME_EXPR", "LIKE 'TMP%'", "INDEX",
+                "EXCLUDE_PATH_EXPR", "IN ('STATISTICS')", null,
+                "NAME_EXPR", "IN ('EMP', 'Dept')", "TABLE",
+                "INCLUDE_PATH_EXPR", "IN ('TABLE')", null), job.getBinds());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testBuildApiJobPartitions() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.tables = "HR.SALES:Q1";
+
+        mojo.buildApiJob();
+    }
+
+    @Test
+    public void testIsApiEngine() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        Assert.assertFalse(mojo.isApiEngine());
+        mojo.engine = "client";
+        Assert.assertFalse(mojo.isApiEngine());
+        mojo.engine = "API";
+        Assert.assertTrue(mojo.isApiEngine());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testUnknownEngine() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.engine = "sqlplus";
+
+        mojo.isApiEngine();
+    }
+
+    @Test
+    public void testBuildJobsWithApiEngine() throws MojoFailureException {
+        DatapumpMojo mojo = createBasicMojo();
+        mojo.engine = "api";
+        mojo.schemas = "hr,scott";
+        mojo.fanOut = true;
+        mojo.dumpfile = "export.dmp";
+
+        Map<String, AbstractDatapumpMojo.Job> jobs = mojo.buildJobs();
+
+        Assert.assertNull(jobs.get("HR").commandLine);
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, null,
+                "export_HR.dmp", null, null, "SCHEMA_EXPR", "IN ('HR')", null), jobs.get("HR").apiJob.getBinds());
+    }
+
     private DatapumpMojo createBasicMojo() {
         DatapumpMojo mojo = new DatapumpMojo();
         mojo.useEasyConnect = Boolean.TRUE;
@@ -179,5 +436,9 @@ public class AbstractDatapumpMojoTest {
 
             return commandLine;
         }
+
+        DatapumpApiJob buildApiJob() throws MojoFailureException {
+            return createApiJob(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, false);
+        }
     }
 }
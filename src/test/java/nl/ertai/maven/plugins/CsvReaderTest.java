@@ -0,0 +1,73 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CsvReaderTest {
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        List<String> records = read("id,name\r\n1,\"Smith, John\"\r\n2,\"say \"\"hi\"\"\"\r\n3,\r\n", ',');
+
+        Assert.assertEquals(Arrays.asList("[id, name]", "[1, Smith, John]", "[2, say \"hi\"]", "[3, ]"), records);
+    }
+
+    @Test
+    public void testLineBreakInQuotes() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("1,\"first\nsecond\"\n\n2,third"), ',');
+
+        Assert.assertArrayEquals(new String[] {"1", "first\nsecond"}, reader.next());
+        Assert.assertEquals(1, reader.getLineNumber());
+        Assert.assertArrayEquals(new String[] {"2", "third"}, reader.next());
+        Assert.assertEquals(4, reader.getLineNumber());
+        Assert.assertNull(reader.next());
+    }
+
+    @Test
+    public void testTabs() throws IOException {
+        Assert.assertEquals(Arrays.asList("[1, a,b, ]"), read("1\ta,b\t\n", '\t'));
+    }
+
+    @Test
+    public void testUnclosedQuote() {
+        try {
+            read("1,ok\n2,\"open\n", ',');
+            Assert.fail("the quote is not closed");
+        } catch (IOException e) {
+            Assert.assertEquals("Quote at line 2 is not closed", e.getMessage());
+        }
+    }
+
+    private static List<String> read(String csv, char delimiter) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv), delimiter)) {
+            String[] record;
+            while ((record = reader.next()) != null) {
+                records.add(Arrays.toString(record));
+            }
+        }
+        return records;
+    }
+}
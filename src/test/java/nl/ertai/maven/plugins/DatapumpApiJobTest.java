@@ -0,0 +1,133 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatapumpApiJobTest {
+
+    @Test
+    public void testAddFile() {
+        DatapumpApiJob job = new DatapumpApiJob(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, "JOB");
+        job.addFile("DIR:export_%U.dmp", "DEFAULT_DIR", "10G", false, true);
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, "JOB",
+                "export_%U.dmp", "DIR", "10G"), job.getBinds());
+        Assert.assertTrue(job.getStartBlock().contains(
+                "filetype => DBMS_DATAPUMP.KU$_FILE_TYPE_DUMP_FILE, reusefile => 1);"));
+        Assert.assertTrue(job.getStartBlock().endsWith("  ? := h;\nEXCEPTION\n  WHEN OTHERS THEN\n"
+                + "    IF h IS NOT NULL THEN\n      BEGIN\n        DBMS_DATAPUMP.STOP_JOB(h);\n      EXCEPTION\n"
+                + "        WHEN OTHERS THEN NULL;\n      END;\n    END IF;\n    RAISE;\nEND;"));
+    }
+
+    @Test
+    public void testParseObjectFilters() {
+        List<String[]> filters = DatapumpApiJob.parseObjectFilters(
+                "STATISTICS, TABLE:\"IN ('EMP', 'DEPT')\", VIEW:LIKE 'V%'");
+
+        Assert.assertEquals(3, filters.size());
+        Assert.assertArrayEquals(new String[] {"STATISTICS", null}, filters.get(0));
+        Assert.assertArrayEquals(new String[] {"TABLE", "IN ('EMP', 'DEPT')"}, filters.get(1));
+        Assert.assertArrayEquals(new String[] {"VIEW", "LIKE 'V%'"}, filters.get(2));
+    }
+
+    @Test
+    public void testInList() {
+        Assert.assertEquals("IN ('HR', 'O''BRIEN')", DatapumpApiJob.inList(Arrays.asList("HR", "O'BRIEN")));
+    }
+
+    @Test
+    public void testToIdentifier() {
+        Assert.assertEquals("EMP", DatapumpApiJob.toIdentifier(" emp "));
+        Assert.assertEquals("Emp", DatapumpApiJob.toIdentifier("\"Emp\""));
+    }
+
+    @Test
+    public void testProcessCountsRows() {
+        DatapumpApiJob job = new DatapumpApiJob(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, null);
+
+        DatapumpApiJob.Status status = job.process("EXECUTING", 10, 50, "HR.DEPT", Arrays.asList(
+                "Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA",
+                ". . exported \"HR\".\"EMPLOYEES\"                           17.08 KB     107 rows"),
+                Collections.<String>emptyList());
+        Assert.assertEquals(157, status.rows);
+        Assert.assertFalse(status.isFinished());
+
+        status = job.process("COMPLETED", 100, 0, null, Arrays.asList(
+                ". . exported \"HR\".\"DEPT\"                                7.12 KB      27 rows"),
+                Arrays.asList("ORA-39181: Only partial table data may be exported"));
+        Assert.assertEquals(134, status.rows);
+        Assert.assertTrue(status.isFinished());
+        Assert.assertEquals(1, job.getErrors());
+    }
+
+    @Test
+    public void testProgress() {
+        DatapumpApiJob.Status status = new DatapumpApiJob.Status("EXECUTING", 42, 1234567, "HR.EMP, HR.DEPT",
+                Collections.<String>emptyList(), Collections.<String>emptyList());
+
+        Assert.assertEquals("EXECUTING, 42% done, 1,234,567 rows, 12,345 rows/s, current object: HR.EMP, HR.DEPT",
+                DatapumpApiJob.progress(status, 100000));
+    }
+
+    @Test
+    public void testProgressWithoutStatus() {
+        DatapumpApiJob.Status status = new DatapumpApiJob.Status("DEFINING", -1, 0, null,
+                Collections.<String>emptyList(), Collections.<String>emptyList());
+
+        Assert.assertEquals("DEFINING, 0 rows, 0 rows/s", DatapumpApiJob.progress(status, 500));
+    }
+
+    @Test
+    public void testStateAndMasterTable() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:datapumpjobs;DB_CLOSE_DELAY=-1",
+                "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE user_datapump_jobs (job_name VARCHAR(128), state VARCHAR(30))");
+            statement.execute("INSERT INTO user_datapump_jobs VALUES ('EXPDP_NIGHTLY', 'NOT RUNNING')");
+            statement.execute("CREATE TABLE \"EXPDP_NIGHTLY\" (process_order INT)");
+
+            Assert.assertEquals("NOT RUNNING", DatapumpApiJob.getState(connection, "EXPDP_NIGHTLY"));
+            Assert.assertNull(DatapumpApiJob.getState(connection, "EXPDP_WEEKLY"));
+
+            DatapumpApiJob.dropMasterTable(connection, "EXPDP_NIGHTLY");
+            try (ResultSet tables = statement.executeQuery(
+                    "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'EXPDP_NIGHTLY'")) {
+                tables.next();
+                Assert.assertEquals(0, tables.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testIsRunning() {
+        Assert.assertTrue(DatapumpApiJob.isRunning("EXECUTING"));
+        Assert.assertFalse(DatapumpApiJob.isRunning("NOT RUNNING"));
+        Assert.assertFalse(DatapumpApiJob.isRunning("IDLING"));
+        Assert.assertFalse(DatapumpApiJob.isRunning(null));
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatapumpMonitorTest {
+
+    private final List<String> reported = new ArrayList<>();
+
+    private final LineTee.Listener report = new LineTee.Listener() {
+        @Override
+        public void processLine(String line) {
+            reported.add(line);
+        }
+    };
+
+    @Test
+    public void testTotals() {
+        DatapumpMonitor monitor = new DatapumpMonitor(report, 60000, 0);
+
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA", 1000);
+        monitor.processLine(". . exported \"HR\".\"EMPLOYEES\"                           17.08 KB     107 rows", 2000);
+        monitor.processLine("18-OCT-26 10:00:00.123: W-2 . . exported \"HR\".\"MY TABLE\"  1.5 MB   1,000 rows in 0 "
+                + "seconds using direct_path", 3000);
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/INDEX/INDEX", 4000);
+
+        Assert.assertEquals(2, monitor.getTables());
+        Assert.assertEquals(1107, monitor.getRows());
+        Assert.assertEquals(17489 + 1572864, monitor.getBytes());
+        Assert.assertTrue(reported.isEmpty());
+    }
+
+    @Test
+    public void testProgress() {
+        DatapumpMonitor monitor = new DatapumpMonitor(report, 10000, 0);
+
+        monitor.processLine("W-1 Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA", 0);
+        monitor.processLine(". . exported \"HR\".\"SALES\"  1.00 GB  10,000,000 rows", 5000);
+        monitor.processLine("Job: SYS_EXPORT_SCHEMA_01", 9000);
+        monitor.processLine("  Percent Done: 25", 9000);
+        monitor.processLine("Worker 1 Status:", 9000);
+        monitor.processLine("  Object Schema: HR", 9000);
+        monitor.processLine("  Object Name: ORDERS", 9000);
+        monitor.processLine("Worker 2 Status:", 9000);
+        monitor.processLine("  Object Schema: HR", 9000);
+        Assert.assertTrue(reported.isEmpty());
+        monitor.processLine("  Object Name: ITEMS", 10000);
+
+        Assert.assertEquals(1, reported.size());
+        Assert.assertEquals("Progress: 25% done, 1 tables, 10,000,000 rows, 1.00 GB, 0.1 tables/s, 1,000,000 rows/s, "
+                + "102.40 MB/s, ETA 00:00:30, current: HR.ORDERS, HR.ITEMS", reported.get(0));
+    }
+
+    @Test
+    public void testTable() {
+        DatapumpMonitor monitor = new DatapumpMonitor(report, 60000, 0);
+
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/TABLE", 0);
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA", 2000);
+        monitor.processLine(". . exported \"HR\".\"EMPLOYEES\"   10 KB   100 rows", 3000);
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/COMMENT", 4000);
+        monitor.processLine("Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA", 4100);
+        monitor.processLine(". . exported \"HR\".\"DEPARTMENTS\"   10 KB   100 rows", 5000);
+
+        List<String> table = monitor.getTable(6100);
+        Assert.assertEquals(4, table.size());
+        Assert.assertTrue(table.get(0).startsWith("Object type"));
+        Assert.assertEquals(String.format("%-50s %10s %8s %15s %12s %12s", "SCHEMA_EXPORT/TABLE/TABLE", "2.0", "0", "0",
+                "0 B", "0"), table.get(1));
+        Assert.assertEquals(String.format("%-50s %10s %8s %15s %12s %12s", "SCHEMA_EXPORT/TABLE/TABLE_DATA", "4.0",
+                "2", "200", "20.00 KB", "50"), table.get(2));
+        Assert.assertEquals(String.format("%-50s %10s %8s %15s %12s %12s", "Total", "6.1", "2", "200", "20.00 KB",
+                "32"), table.get(3));
+    }
+
+    @Test
+    public void testFinish() {
+        DatapumpMonitor monitor = new DatapumpMonitor(report, 60000);
+
+        monitor.finish();
+
+        Assert.assertEquals("Data Pump throughput:", reported.get(0));
+        Assert.assertTrue(reported.get(reported.size() - 1).startsWith("Total"));
+    }
+
+    @Test
+    public void testFormatDuration() {
+        Assert.assertEquals("01:02:03", DatapumpMonitor.formatDuration(3723000));
+    }
+}
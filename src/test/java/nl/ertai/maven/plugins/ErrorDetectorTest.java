@@ -0,0 +1,119 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ErrorDetectorTest {
+
+    @Test
+    public void testDefaultRules() throws MojoFailureException {
+        ErrorDetector detector = new ErrorDetector(UTF_8, null);
+
+        detector.processLine("Processing object type SCHEMA_EXPORT/TABLE/TABLE");
+        detector.processLine("ORA-31684: Object type USER:\"SCOTT\" already exists");
+        detector.processLine("ORA-39151: Table \"SCOTT\".\"EMP\" exists. All dependent metadata and data will be "
+                + "skipped due to table_exists_action of skip");
+        detector.processLine("ORA-39152: Table \"SCOTT\".\"DEPT\" exists. Data will be appended to existing table "
+                + "but all dependent metadata will be skipped due to table_exists_action of append");
+        Assert.assertNull(detector.getError());
+        Assert.assertEquals(3, detector.getWarnings());
+
+        detector.processLine("ORA-39083: Object type TABLE:\"SCOTT\".\"EMP\" failed to create with error:");
+        detector.processLine("SP2-0042: unknown command");
+        Assert.assertEquals("ORA-39083: Object type TABLE:\"SCOTT\".\"EMP\" failed to create with error:",
+                detector.getError());
+    }
+
+    @Test
+    public void testConfiguredRulesComeFirst() throws MojoFailureException {
+        ErrorDetector detector = new ErrorDetector(UTF_8,
+                Collections.singletonList(new ErrorRule("^ORA-00942", ErrorDetector.WARNING)));
+
+        detector.processLine("ORA-00942: table or view does not exist");
+
+        Assert.assertNull(detector.getError());
+        Assert.assertEquals("ORA-00942: table or view does not exist", detector.getWarning());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testUnknownSeverity() throws MojoFailureException {
+        new ErrorDetector(UTF_8, Collections.singletonList(new ErrorRule("^ORA-00942", "fatal")));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testInvalidPattern() throws MojoFailureException {
+        new ErrorDetector(UTF_8, Collections.singletonList(new ErrorRule("ORA-(", ErrorDetector.ERROR)));
+    }
+
+    @Test
+    public void testStopOnFirstError() throws MojoFailureException, IOException {
+        final AtomicInteger stopped = new AtomicInteger();
+        ErrorDetector detector = new ErrorDetector(UTF_8, null);
+        detector.stopOnError(new Runnable() {
+            @Override
+            public void run() {
+                stopped.incrementAndGet();
+            }
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream watched = detector.watch(out);
+
+        watched.write("Connected.\nORA-00942: table or view does not exist\nORA-00955: name is already used\n"
+                .getBytes(UTF_8));
+
+        Assert.assertEquals(1, stopped.get());
+        Assert.assertEquals("ORA-00942: table or view does not exist", detector.getError());
+        Assert.assertTrue(out.toString("UTF-8").startsWith("Connected.\nORA-00942"));
+    }
+
+    @Test
+    public void testStopRunningTool() throws MojoFailureException, IOException {
+        Assume.assumeTrue(new File("/bin/sh").exists());
+        ErrorDetector detector = new ErrorDetector(UTF_8, null);
+        Executor exec = AbstractDBMojo.createExecutor(detector, null);
+        exec.setStreamHandler(new PumpStreamHandler(detector.watch(new ByteArrayOutputStream())));
+        CommandLine commandLine = new CommandLine("/bin/sh");
+        commandLine.addArgument("-c");
+        commandLine.addArgument("echo ORA-39126: Worker unexpected fatal error; exec sleep 30", false);
+
+        long start = System.currentTimeMillis();
+        try {
+            exec.execute(commandLine);
+            Assert.fail("the tool should have been stopped");
+        } catch (ExecuteException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 20000);
+        }
+        Assert.assertEquals("ORA-39126: Worker unexpected fatal error", detector.getError());
+    }
+}
@@ -18,12 +18,30 @@ package nl.ertai.maven.plugins;
 
 import nl.ertai.maven.plugins.ExpdpMojo;
 import org.apache.commons.exec.CommandLine;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class ExpdpMojoTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static final String EXECUTABLE = "expdp";
     private static final String USERNAME = "username";
     private static final String HOSTNAME = "localhost";
@@ -68,6 +86,309 @@ public class ExpdpMojoTest {
         Assert.assertEquals("REUSE_DUMPFILES=YES", cmd.getArguments()[1]);
     }
 
+    @Test
+    public void testBuildCommandlineParallel() throws MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.dumpfile = "DIR:export.dmp";
+        mojo.parallel = "4";
+        mojo.filesize = "10G";
+        CommandLine cmd = mojo.buildCommandline();
+
+        Assert.assertEquals("DUMPFILE=DIR:export_%U.dmp", cmd.getArguments()[1]);
+        Assert.assertEquals("PARALLEL=4", cmd.getArguments()[2]);
+        Assert.assertEquals("FILESIZE=10G", cmd.getArguments()[3]);
+    }
+
+    @Test
+    public void testBuildEstimateCommandline() throws MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.dumpfile = "export.dmp";
+        mojo.schemas = DATA;
+        CommandLine cmd = mojo.buildEstimateCommandline();
+
+        Assert.assertArrayEquals(new String[] {CONNECTION_STRING, "SCHEMAS=" + DATA, "ESTIMATE_ONLY=YES",
+                "NOLOGFILE=YES"}, cmd.getArguments());
+        mojo.estimateMethod = "STATISTICS";
+        Assert.assertEquals("ESTIMATE=STATISTICS", mojo.buildEstimateCommandline().getArguments()[2]);
+    }
+
+    @Test
+    public void testChooseDegree() throws IOException, MojoExecutionException, MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.expdp = fakeExpdp(". estimated \"HR\".\"EMP\"  1.5 GB",
+                ". estimated \"HR\".\"SALES\":\"P2019\"  512 MB",
+                "Total estimation using BLOCKS method: 2.001 GB");
+
+        Assert.assertEquals(3, mojo.chooseDegree());
+    }
+
+    @Test
+    public void testEstimate() throws IOException, MojoExecutionException, MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.expdp = fakeExpdp(". estimated \"HR\".\"EMP\"  1.5 GB",
+                ". estimated \"HR\".\"SALES\":\"P2019\"  512 MB",
+                "Total estimation using BLOCKS method: 2 GB");
+
+        DatapumpEstimate estimate = mojo.estimate();
+
+        Assert.assertEquals(2L << 30, estimate.getTotalBytes());
+        Assert.assertEquals(Long.valueOf(3L << 29), estimate.getTables().get("HR.EMP"));
+        Assert.assertEquals(Long.valueOf(1L << 29), estimate.getTables().get("HR.SALES:P2019"));
+        Assert.assertEquals("2.00 GB", DatapumpEstimate.format(estimate.getTotalBytes()));
+    }
+
+    @Test
+    public void testFanOut() throws IOException, MojoFailureException {
+        File script = folder.newFile("fanout-expdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "case \"$*\" in *SCHEMAS=bad*) echo 'ORA-39001: invalid argument value'; exit 1;; esac\n"
+                + "echo exported\n").getBytes(UTF_8));
+        script.setExecutable(true);
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.expdp = script.getAbsolutePath();
+        mojo.fanOut = true;
+        mojo.fanOutThreads = 2;
+        mojo.schemas = "first,bad,second";
+        mojo.failOnError = true;
+
+        try {
+            mojo.execute();
+            Assert.fail("the job of schema bad fails");
+        } catch (MojoExecutionException e) {
+            Assert.assertEquals("Data Pump job(s) failed: BAD", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File dumps = folder.newFolder("dumps");
+        File runs = new File(folder.getRoot(), "runs");
+        File script = folder.newFile("caching-expdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "echo run >> '" + runs.getAbsolutePath() + "'\n"
+                + "echo dump > '" + dumps.getAbsolutePath() + "/export.dmp'\n").getBytes(UTF_8));
+        script.setExecutable(true);
+        String url = "jdbc:h2:mem:expdpcache;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE probe (version INT)");
+            statement.execute("INSERT INTO probe VALUES (1)");
+
+            ExpdpMojo mojo = createBasicMojo();
+            mojo.expdp = script.getAbsolutePath();
+            mojo.username = "sa";
+            mojo.password = "";
+            mojo.jdbcUrl = url;
+            mojo.dumpfile = "export.dmp";
+            mojo.cache = true;
+            mojo.cacheDirectory = new File(folder.getRoot(), "cache");
+            mojo.dumpDirectoryPath = dumps;
+            mojo.cacheProbe = "SELECT version FROM probe";
+
+            mojo.execute();
+            Assert.assertEquals(1, Files.readAllLines(runs.toPath(), UTF_8).size());
+
+            Assert.assertTrue(new File(dumps, "export.dmp").delete());
+            mojo.execute();
+            Assert.assertEquals(1, Files.readAllLines(runs.toPath(), UTF_8).size());
+            Assert.assertTrue(new File(dumps, "export.dmp").isFile());
+
+            statement.execute("UPDATE probe SET version = 2");
+            mojo.execute();
+            Assert.assertEquals(2, Files.readAllLines(runs.toPath(), UTF_8).size());
+
+            mojo.schemas = "HR";
+            mojo.execute();
+            Assert.assertEquals(3, Files.readAllLines(runs.toPath(), UTF_8).size());
+        }
+    }
+
+    @Test
+    public void testCacheWithoutDumpDirectoryPath() throws MojoExecutionException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.cache = true;
+        mojo.cacheDirectory = new File(folder.getRoot(), "cache");
+
+        try {
+            mojo.execute();
+            Assert.fail("the cache cannot tell whether the dump files are still in the directory object");
+        } catch (MojoFailureException e) {
+            Assert.assertTrue(e.getMessage().startsWith("cache needs dumpDirectoryPath"));
+        }
+    }
+
+    @Test
+    public void testCacheAutoTune() throws Exception {
+        File dumps = folder.newFolder("dumps");
+        File runs = new File(folder.getRoot(), "runs");
+        File script = folder.newFile("tuned-caching-expdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "case \"$*\" in\n"
+                + "*ESTIMATE_ONLY=YES*)\n"
+                + "  echo 'Total estimation using BLOCKS method: 5 GB' ;;\n"
+                + "*DUMPFILE=export_%U.dmp*)\n"
+                + "  echo run >> '" + runs.getAbsolutePath() + "'\n"
+                + "  echo one > '" + dumps.getAbsolutePath() + "/export_01.dmp'\n"
+                + "  echo two > '" + dumps.getAbsolutePath() + "/export_02.dmp' ;;\n"
+                + "esac\n").getBytes(UTF_8));
+        script.setExecutable(true);
+        Files.write(new File(dumps, "export.dmp").toPath(), "stale".getBytes(UTF_8));
+        String url = "jdbc:h2:mem:expdpcachetune;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE probe (version INT)");
+            statement.execute("INSERT INTO probe VALUES (1)");
+
+            ExpdpMojo mojo = createBasicMojo();
+            mojo.expdp = script.getAbsolutePath();
+            mojo.username = "sa";
+            mojo.password = "";
+            mojo.jdbcUrl = url;
+            mojo.dumpfile = "export.dmp";
+            mojo.parallelMax = 8;
+            mojo.autoTune = true;
+            mojo.autoTuneBytesPerWorker = "2G";
+            mojo.autoTuneMaxFilesize = "1G";
+            mojo.autoTuneCompressionThreshold = "10G";
+            mojo.cache = true;
+            mojo.cacheDirectory = new File(folder.getRoot(), "cache");
+            mojo.dumpDirectoryPath = dumps;
+            mojo.cacheProbe = "SELECT version FROM probe";
+
+            mojo.execute();
+            Assert.assertEquals(1, Files.readAllLines(runs.toPath(), UTF_8).size());
+
+            Assert.assertTrue(new File(dumps, "export_01.dmp").delete());
+            Assert.assertTrue(new File(dumps, "export_02.dmp").delete());
+            mojo.execute();
+            Assert.assertEquals(1, Files.readAllLines(runs.toPath(), UTF_8).size());
+            Assert.assertEquals(Arrays.asList("one"), Files.readAllLines(new File(dumps, "export_01.dmp").toPath(),
+                    UTF_8));
+            Assert.assertEquals(Arrays.asList("two"), Files.readAllLines(new File(dumps, "export_02.dmp").toPath(),
+                    UTF_8));
+            Assert.assertEquals(Arrays.asList("stale"), Files.readAllLines(new File(dumps, "export.dmp").toPath(),
+                    UTF_8));
+        }
+    }
+
+    @Test
+    public void testDefaultCacheProbe() {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.schemas = "hr,scott";
+        mojo.networkLink = "SOURCE";
+
+        String probe = mojo.getCacheProbe();
+
+        Assert.assertTrue(probe.contains(" FROM all_objects@SOURCE WHERE owner IN ('HR', 'SCOTT') GROUP BY owner"));
+        Assert.assertTrue(probe.contains(" FROM all_tab_modifications@SOURCE WHERE table_owner IN ('HR', 'SCOTT')"));
+        Assert.assertTrue(probe.contains(" num_rows FROM all_tab_statistics@SOURCE WHERE owner IN ('HR', 'SCOTT')"));
+        mojo.schemas = null;
+        mojo.networkLink = null;
+        Assert.assertTrue(mojo.getCacheProbe().contains(" FROM all_objects WHERE owner = USER GROUP BY owner"));
+    }
+
+    @Test
+    public void testAutoTune() throws Exception {
+        File arguments = new File(folder.getRoot(), "arguments");
+        File script = folder.newFile("tuned-expdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "case \"$*\" in\n"
+                + "*ESTIMATE_ONLY=YES*)\n"
+                + "  echo '. estimated \"HR\".\"EMP\"  3 GB'\n"
+                + "  echo '. estimated \"HR\".\"DEPT\"  1 GB'\n"
+                + "  echo '. estimated \"HR\".\"JOBS\"  1 GB'\n"
+                + "  echo 'Total estimation using STATISTICS method: 5 GB' ;;\n"
+                + "*)\n"
+                + "  echo \"$*\" > '" + arguments.getAbsolutePath() + "'\n"
+                + "  echo '. . exported \"HR\".\"EMP\"  2 GB  100 rows' ;;\n"
+                + "esac\n").getBytes(UTF_8));
+        script.setExecutable(true);
+
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.expdp = script.getAbsolutePath();
+        mojo.dumpfile = "DIR:export.dmp";
+        mojo.parallelMax = 8;
+        mojo.estimateMethod = "STATISTICS";
+        mojo.autoTune = true;
+        mojo.autoTuneBytesPerWorker = "2G";
+        mojo.autoTuneMaxFilesize = "1G";
+        mojo.autoTuneCompressionThreshold = "1G";
+        mojo.autoTuneCompression = "all";
+        mojo.autoTuneCompressionAlgorithm = "medium";
+        mojo.compressionAlgorithm = "HIGH";
+        mojo.execute();
+
+        List<String> exported = Arrays.asList(StringUtils.split(
+                Files.readAllLines(arguments.toPath(), UTF_8).get(0)));
+        Assert.assertTrue(exported.contains("DUMPFILE=DIR:export_%U.dmp"));
+        Assert.assertTrue(exported.contains("PARALLEL=3"));
+        Assert.assertTrue(exported.contains("FILESIZE=1024M"));
+        Assert.assertTrue(exported.contains("COMPRESSION=ALL"));
+        Assert.assertTrue(exported.contains("COMPRESSION_ALGORITHM=HIGH"));
+        Assert.assertEquals(0, mojo.getDegree());
+        Assert.assertNull(mojo.getFilesize());
+    }
+
+    @Test
+    public void testAutoTuneNamedDumpfiles() throws Exception {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.expdp = fakeExpdp(". estimated \"HR\".\"EMP\"  3 GB",
+                ". estimated \"HR\".\"DEPT\"  3 GB",
+                "Total estimation using STATISTICS method: 6 GB");
+        mojo.dumpfile = "a.dmp,b.dmp";
+        mojo.parallelMax = 8;
+        mojo.autoTune = true;
+        mojo.autoTuneBytesPerWorker = "1G";
+        mojo.autoTuneMaxFilesize = "1G";
+        mojo.autoTuneCompressionThreshold = "1G";
+        mojo.prepare();
+
+        Assert.assertEquals(2, mojo.getDegree());
+        Assert.assertEquals("a.dmp,b.dmp", mojo.getDumpfile(mojo.getDegree()));
+        Assert.assertNull(mojo.getFilesize());
+        Assert.assertNull(mojo.getCompression());
+    }
+
+    private String fakeExpdp(String... lines) throws IOException {
+        StringBuilder script = new StringBuilder("#!/bin/sh\n");
+        for (String line : lines) {
+            script.append("echo '").append(line).append("'\n");
+        }
+        File file = folder.newFile("expdp");
+        Files.write(file.toPath(), script.toString().getBytes(UTF_8));
+        file.setExecutable(true);
+        return file.getAbsolutePath();
+    }
+
+    @Test
+    public void testBuildApiJob() throws MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.dumpfile = "DIR:export.dmp";
+        mojo.parallel = "4";
+        mojo.filesize = "2G";
+        mojo.reuseDumpFiles = true;
+        mojo.compression = "ALL";
+        DatapumpApiJob job = mojo.buildApiJob();
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, null,
+                "export_%U.dmp", "DIR", "2G", 4L, "COMPRESSION", "ALL"), job.getBinds());
+        Assert.assertTrue(job.getStartBlock().contains("reusefile => 1);"));
+    }
+
+    @Test
+    public void testBuildApiEstimateJob() throws MojoFailureException {
+        ExpdpMojo mojo = createBasicMojo();
+        mojo.dumpfile = "export.dmp";
+        mojo.parallel = "auto";
+        mojo.schemas = "HR";
+        DatapumpApiJob job = mojo.buildApiEstimateJob();
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.EXPORT, DatapumpApiJob.SCHEMA, null, null,
+                "SCHEMA_EXPR", "IN ('HR')", null, "ESTIMATE_ONLY", 1L), job.getBinds());
+        Assert.assertEquals("export.dmp", mojo.dumpfile);
+        Assert.assertEquals("auto", mojo.parallel);
+    }
+
     private ExpdpMojo createBasicMojo() {
         ExpdpMojo mojo = new ExpdpMojo();
         mojo.useEasyConnect = Boolean.TRUE;
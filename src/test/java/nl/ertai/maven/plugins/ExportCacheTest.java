@@ -0,0 +1,93 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ExportCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprint() {
+        String fingerprint = ExportCache.fingerprint(Arrays.asList("a", "b"));
+
+        Assert.assertEquals(64, fingerprint.length());
+        Assert.assertEquals(fingerprint, ExportCache.fingerprint(Arrays.asList("a", "b")));
+        Assert.assertNotEquals(fingerprint, ExportCache.fingerprint(Arrays.asList("ab")));
+        Assert.assertNotEquals(fingerprint, ExportCache.fingerprint(Arrays.asList("a", "c")));
+    }
+
+    @Test
+    public void testFindDumpfiles() throws IOException {
+        File directory = folder.newFolder("dumps");
+        for (String name : new String[] {"export_01.dmp", "export_02.dmp", "export_HR.dmp", "full.dmp", "other.dmp",
+                "export_01.log"}) {
+            new File(directory, name).createNewFile();
+        }
+
+        List<File> found = ExportCache.findDumpfiles(directory, Arrays.asList("DIR:export_%U.dmp", "full"));
+
+        Assert.assertEquals(Arrays.asList(new File(directory, "export_01.dmp"), new File(directory, "export_02.dmp"),
+                new File(directory, "full.dmp")), found);
+    }
+
+    @Test
+    public void testStoreAndRestore() throws IOException {
+        File dumps = folder.newFolder("dumps");
+        File dump = new File(dumps, "export.dmp");
+        Files.write(dump.toPath(), "dump".getBytes(UTF_8));
+        ExportCache cache = new ExportCache(new File(folder.getRoot(), "cache"));
+
+        Assert.assertFalse(cache.contains("abc"));
+        cache.store("abc", Collections.singletonList(dump));
+        Assert.assertTrue(cache.contains("abc"));
+        Assert.assertEquals(1, new File(folder.getRoot(), "cache").list().length);
+
+        Assert.assertTrue(dump.delete());
+        List<File> restored = cache.restore("abc", dumps);
+        Assert.assertEquals(Collections.singletonList(dump), restored);
+        Assert.assertEquals("dump", new String(Files.readAllBytes(dump.toPath()), UTF_8));
+
+        Files.write(dump.toPath(), "DUMP".getBytes(UTF_8));
+        cache.restore("abc", dumps);
+        Assert.assertEquals("dump", new String(Files.readAllBytes(dump.toPath()), UTF_8));
+    }
+
+    @Test
+    public void testStoreWithoutDumpfiles() throws IOException {
+        ExportCache cache = new ExportCache(new File(folder.getRoot(), "cache"));
+
+        cache.store("abc", Collections.<File>emptyList());
+
+        Assert.assertTrue(cache.contains("abc"));
+        Assert.assertTrue(cache.restore("abc", null).isEmpty());
+    }
+}
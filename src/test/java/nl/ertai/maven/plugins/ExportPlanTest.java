@@ -0,0 +1,105 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.ertai.maven.plugins;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExportPlanTest {
+
+    private static final long GB = 1L << 30;
+
+    @Test
+    public void testSmallExport() {
+        ExportPlan plan = ExportPlan.choose(100L << 20, 10, GB, 8, 10 * GB, GB, "ALL", "MEDIUM");
+
+        Assert.assertEquals(1, plan.degree);
+        Assert.assertEquals(1, plan.files);
+        Assert.assertNull(plan.filesize);
+        Assert.assertNull(plan.compression);
+        Assert.assertNull(plan.compressionAlgorithm);
+    }
+
+    @Test
+    public void testLargeExport() {
+        ExportPlan plan = ExportPlan.choose(25 * GB, 10, GB, 8, 10 * GB, GB, "all", "medium");
+
+        Assert.assertEquals(8, plan.degree);
+        Assert.assertEquals(8, plan.files);
+        Assert.assertEquals("3200M", plan.filesize);
+        Assert.assertEquals("ALL", plan.compression);
+        Assert.assertEquals("MEDIUM", plan.compressionAlgorithm);
+        Assert.assertEquals("Export plan for 25.00 GB in 10 table(s): PARALLEL=8, 8 dump file(s), FILESIZE=3200M, "
+                + "COMPRESSION=ALL, COMPRESSION_ALGORITHM=MEDIUM", plan.describe());
+    }
+
+    @Test
+    public void testDegreeLimitedByTables() {
+        ExportPlan plan = ExportPlan.choose(40 * GB, 2, GB, 8, 10 * GB, GB, "METADATA_ONLY", "MEDIUM");
+
+        Assert.assertEquals(2, plan.degree);
+        Assert.assertEquals(4, plan.files);
+        Assert.assertEquals("10240M", plan.filesize);
+        Assert.assertEquals("METADATA_ONLY", plan.compression);
+        Assert.assertNull(plan.compressionAlgorithm);
+    }
+
+    @Test
+    public void testMinimumFilesize() {
+        ExportPlan plan = ExportPlan.choose(100L << 20, 4, 10L << 20, 8, 10 * GB, GB, null, null);
+
+        Assert.assertEquals(4, plan.degree);
+        Assert.assertEquals("64M", plan.filesize);
+    }
+
+    @Test
+    public void testParseSize() throws MojoFailureException {
+        Assert.assertEquals(10 * GB, ExportPlan.parseSize("10G", "size"));
+        Assert.assertEquals(512L << 20, ExportPlan.parseSize("512MB", "size"));
+        Assert.assertEquals(1048576L, ExportPlan.parseSize("1048576", "size"));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testParseInvalidSize() throws MojoFailureException {
+        ExportPlan.parseSize("ten gigabytes", "size");
+    }
+
+    @Test
+    public void testCompare() {
+        Map<String, Long> estimated = new LinkedHashMap<>();
+        estimated.put("HR.DEPT", GB);
+        estimated.put("HR.EMP", 3 * GB);
+        estimated.put("HR.JOBS", 2 * GB);
+        Map<String, Long> exported = new LinkedHashMap<>();
+        exported.put("HR.EMP", 2 * GB);
+
+        List<String> lines = ExportPlan.compare(6 * GB, 3 * GB, estimated, exported, 2);
+
+        Assert.assertEquals(4, lines.size());
+        Assert.assertEquals("Estimated 6.00 GB, exported 3.00 GB (50% of the estimate)", lines.get(0));
+        Assert.assertTrue(lines.get(2).endsWith("HR.EMP"));
+        Assert.assertTrue(lines.get(2).contains("2.00 GB"));
+        Assert.assertTrue(lines.get(3).endsWith("HR.JOBS"));
+        Assert.assertTrue(lines.get(3).contains("-"));
+    }
+}
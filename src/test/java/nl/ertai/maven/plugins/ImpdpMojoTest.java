@@ -16,13 +16,31 @@
 
 package nl.ertai.maven.plugins;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.exec.CommandLine;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class ImpdpMojoTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static final String EXECUTABLE = "impdp";
     private static final String USERNAME = "username";
     private static final String HOSTNAME = "localhost";
@@ -76,6 +94,303 @@ public class ImpdpMojoTest {
         Assert.assertEquals("TABLE_EXISTS_ACTION=" + DATA, cmd.getArguments()[1]);
     }
 
+    @Test
+    public void testBuildApiJob() throws MojoFailureException {
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.networkLink = "SOURCE";
+        mojo.remapSchema = "hr:hr_test,scott:scott_test";
+        mojo.tableExistsAction = "REPLACE";
+        DatapumpApiJob job = mojo.buildApiJob();
+
+        Assert.assertEquals(Arrays.<Object>asList(DatapumpApiJob.IMPORT, DatapumpApiJob.FULL, "SOURCE", null,
+                "REMAP_SCHEMA", "HR", "HR_TEST",
+                "REMAP_SCHEMA", "SCOTT", "SCOTT_TEST",
+                "TABLE_EXISTS_ACTION", "REPLACE"), job.getBinds());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testBuildApiJobInvalidRemap() throws MojoFailureException {
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.remapTablespace = DATA;
+        mojo.buildApiJob();
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        File log = folder.newFile("export.log");
+        Files.write(log.toPath(), Arrays.asList(
+                ". . exported \"HR\".\"EMP\"  17.08 KB  2 rows",
+                ". . exported \"HR\".\"DEPT\"  7.00 KB  1 rows",
+                ". . exported \"SCOTT\".\"BONUS\"  0 KB  0 rows"), UTF_8);
+        File arguments = new File(folder.getRoot(), "arguments");
+        ImpdpMojo mojo = createIncrementalMojo(log, arguments, "jdbc:h2:mem:impdpincremental;DB_CLOSE_DELAY=-1");
+        try (Connection connection = DriverManager.getConnection(mojo.jdbcUrl, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA HR");
+            statement.execute("CREATE TABLE HR.EMP (id INT)");
+            statement.execute("INSERT INTO HR.EMP VALUES (1), (2)");
+            statement.execute("CREATE TABLE HR.DEPT (id INT)");
+            statement.execute("INSERT INTO HR.DEPT VALUES (1)");
+
+            mojo.execute();
+            mojo.execute();
+            Files.write(log.toPath(), Arrays.asList(
+                    ". . exported \"HR\".\"EMP\"  17.08 KB  2 rows",
+                    ". . exported \"HR\".\"DEPT\"  7.10 KB  2 rows"), UTF_8);
+            statement.execute("INSERT INTO HR.DEPT VALUES (2)");
+            mojo.execute();
+            statement.execute("DELETE FROM HR.EMP WHERE id = 1");
+            mojo.execute();
+            // as the import would have done
+            statement.execute("INSERT INTO HR.EMP VALUES (1)");
+            statement.execute("DROP TABLE HR.DEPT");
+            mojo.execute();
+        }
+
+        List<String> runs = Files.readAllLines(arguments.toPath(), UTF_8);
+        Assert.assertEquals(4, runs.size());
+        Assert.assertTrue(runs.get(0), runs.get(0).endsWith(" TABLES=HR.EMP,HR.DEPT TABLE_EXISTS_ACTION=REPLACE"));
+        Assert.assertTrue(runs.get(1), runs.get(1).endsWith(" TABLES=HR.DEPT TABLE_EXISTS_ACTION=REPLACE"));
+        Assert.assertTrue(runs.get(2), runs.get(2).endsWith(" TABLES=HR.EMP TABLE_EXISTS_ACTION=REPLACE"));
+        Assert.assertTrue(runs.get(3), runs.get(3).endsWith(" TABLES=HR.DEPT TABLE_EXISTS_ACTION=REPLACE"));
+        Assert.assertFalse(runs.get(0).contains("SCHEMAS="));
+        Assert.assertEquals("hr", mojo.schemas);
+        Assert.assertNull(mojo.tables);
+    }
+
+    @Test
+    public void testIncrementalRemapSchema() throws Exception {
+        File log = folder.newFile("export.log");
+        Files.write(log.toPath(), Arrays.asList(". . exported \"HR\".\"EMP\"  17.08 KB  1 rows"), UTF_8);
+        File arguments = new File(folder.getRoot(), "arguments");
+        ImpdpMojo mojo = createIncrementalMojo(log, arguments, "jdbc:h2:mem:impdpremap;DB_CLOSE_DELAY=-1");
+        try (Connection connection = DriverManager.getConnection(mojo.jdbcUrl, "sa", "");
+                Statement statement = connection.createStatement()) {
+            for (String schema : new String[] {"HR_A", "HR_B"}) {
+                statement.execute("CREATE SCHEMA " + schema);
+                statement.execute("CREATE TABLE " + schema + ".EMP (id INT)");
+                statement.execute("INSERT INTO " + schema + ".EMP VALUES (1)");
+            }
+
+            mojo.remapSchema = "hr:hr_a";
+            mojo.execute();
+            mojo.remapSchema = "hr:hr_b";
+            mojo.execute();
+            mojo.execute();
+            mojo.remapTablespace = "users:data";
+            mojo.execute();
+        }
+
+        List<String> runs = Files.readAllLines(arguments.toPath(), UTF_8);
+        Assert.assertEquals(3, runs.size());
+        Assert.assertTrue(runs.get(1), runs.get(1).contains(" TABLES=HR.EMP REMAP_SCHEMA=hr:hr_b "));
+        Assert.assertTrue(runs.get(2), runs.get(2).contains(" REMAP_TABLESPACE=users:data "));
+    }
+
+    private ImpdpMojo createIncrementalMojo(File log, File arguments, String url) throws IOException {
+        File script = folder.newFile("incremental-impdp");
+        Files.write(script.toPath(), ("#!/bin/sh\necho \"$*\" >> '" + arguments.getAbsolutePath() + "'\n")
+                .getBytes(UTF_8));
+        script.setExecutable(true);
+
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.impdp = script.getAbsolutePath();
+        mojo.username = "sa";
+        mojo.password = "";
+        mojo.jdbcUrl = url;
+        mojo.incremental = true;
+        mojo.exportLogFile = log;
+        mojo.incrementalTable = "IMPDP_STATE";
+        mojo.tableExistsAction = "REPLACE";
+        mojo.schemas = "hr";
+        return mojo;
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        File arguments = new File(folder.getRoot(), "arguments");
+        File script = folder.newFile("resumable-impdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "echo \"$*\" >> '" + arguments.getAbsolutePath() + "'\n"
+                + "case \"$*\" in *ATTACH=*) cat >> '" + arguments.getAbsolutePath() + "' ;; esac\n")
+                .getBytes(UTF_8));
+        script.setExecutable(true);
+
+        String url = "jdbc:h2:mem:impdpresume;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE user_datapump_jobs (job_name VARCHAR(128), state VARCHAR(30))");
+
+            ImpdpMojo mojo = createBasicMojo();
+            mojo.impdp = script.getAbsolutePath();
+            mojo.username = "sa";
+            mojo.password = "";
+            mojo.jdbcUrl = url;
+            mojo.dumpfile = "testdata.dmp";
+            mojo.schemas = "HR";
+            mojo.resumable = true;
+            String job = mojo.getJobName();
+
+            mojo.execute();
+            statement.execute("INSERT INTO user_datapump_jobs VALUES ('" + job + "', 'EXECUTING')");
+            mojo.execute();
+
+            List<String> runs = Files.readAllLines(arguments.toPath(), UTF_8);
+            Assert.assertEquals(3, runs.size());
+            Assert.assertTrue(runs.get(0), runs.get(0).contains(" JOB_NAME=" + job + " "));
+            Assert.assertTrue(runs.get(1), runs.get(1).endsWith(" ATTACH=" + job));
+            Assert.assertEquals("CONTINUE_CLIENT", runs.get(2));
+            Assert.assertNull(mojo.jobName);
+        }
+    }
+
+    @Test
+    public void testResumableNeedsJdbcDriver() throws MojoExecutionException {
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.resumable = true;
+
+        try {
+            mojo.execute();
+            Assert.fail("there is no Oracle JDBC driver");
+        } catch (MojoFailureException e) {
+            Assert.assertEquals("A resumable job needs a JDBC connection, add the JDBC driver as a dependency of the "
+                    + "plugin, or set jdbcUrl and jdbcDriver", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testErrorKillsJob() throws Exception {
+        File input = new File(folder.getRoot(), "input");
+        File script = folder.newFile("hanging-impdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "case \"$*\" in *ATTACH=*) cat > '" + input.getAbsolutePath() + "' ; exit 0 ;; esac\n"
+                + "echo 'ORA-39001: invalid argument value'\n"
+                + "exec sleep 30\n").getBytes(UTF_8));
+        script.setExecutable(true);
+
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.impdp = script.getAbsolutePath();
+        mojo.jobName = "HR_IMPORT";
+        mojo.failOnError = true;
+        mojo.failFast = true;
+        long start = System.currentTimeMillis();
+        try {
+            mojo.execute();
+            Assert.fail();
+        } catch (MojoExecutionException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("ORA-39001"));
+        }
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 20000);
+        Assert.assertEquals(Arrays.asList("KILL_JOB", "yes"), Files.readAllLines(input.toPath(), UTF_8));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        File attempts = new File(folder.getRoot(), "attempts");
+        File script = folder.newFile("starting-impdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "echo attempt >> '" + attempts.getAbsolutePath() + "'\n"
+                + "if [ $(wc -l < '" + attempts.getAbsolutePath() + "') -lt 3 ]; then\n"
+                + "  echo 'ORA-01033: ORACLE initialization or shutdown in progress'\n"
+                + "  exit 1\n"
+                + "fi\n").getBytes(UTF_8));
+        script.setExecutable(true);
+
+        try (ServerSocket listener = new ServerSocket(0)) {
+            ImpdpMojo mojo = createBasicMojo();
+            mojo.impdp = script.getAbsolutePath();
+            mojo.port = listener.getLocalPort();
+            mojo.failOnError = true;
+            mojo.retryTimeout = 10;
+            mojo.retryOn = "connection";
+            mojo.retryDelay = 10;
+            mojo.retryMaxDelay = 100;
+
+            mojo.execute();
+
+            Assert.assertEquals(3, Files.readAllLines(attempts.toPath(), UTF_8).size());
+        }
+    }
+
+    @Test
+    public void testNoRetryAfterOtherErrors() throws Exception {
+        File attempts = new File(folder.getRoot(), "attempts");
+        File script = folder.newFile("failing-impdp");
+        Files.write(script.toPath(), ("#!/bin/sh\n"
+                + "echo attempt >> '" + attempts.getAbsolutePath() + "'\n"
+                + "echo 'ORA-39001: invalid argument value'\n"
+                + "exit 1\n").getBytes(UTF_8));
+        script.setExecutable(true);
+
+        try (ServerSocket listener = new ServerSocket(0)) {
+            ImpdpMojo mojo = createBasicMojo();
+            mojo.impdp = script.getAbsolutePath();
+            mojo.port = listener.getLocalPort();
+            mojo.failOnError = true;
+            mojo.retryTimeout = 10;
+            mojo.retryOn = "connection";
+            mojo.retryDelay = 10;
+            mojo.retryMaxDelay = 100;
+
+            try {
+                mojo.execute();
+                Assert.fail();
+            } catch (MojoExecutionException e) {
+                Assert.assertEquals(1, Files.readAllLines(attempts.toPath(), UTF_8).size());
+            }
+        }
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testNoListener() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.port = port;
+        mojo.failOnError = true;
+        mojo.retryTimeout = 1;
+        mojo.retryOn = "connection";
+        mojo.retryDelay = 100;
+        mojo.retryMaxDelay = 200;
+
+        mojo.execute();
+    }
+
+    @Test
+    public void testNoListenerProbeWithJdbcUrl() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            port = closed.getLocalPort();
+        }
+        File script = folder.newFile("jdbc-impdp");
+        Files.write(script.toPath(), "#!/bin/sh\necho imported\n".getBytes(UTF_8));
+        script.setExecutable(true);
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.impdp = script.getAbsolutePath();
+        mojo.port = port;
+        mojo.jdbcUrl = "jdbc:h2:mem:impdpnoprobe";
+        mojo.failOnError = true;
+        mojo.retryTimeout = 1;
+        mojo.retryOn = "connection";
+        mojo.retryDelay = 100;
+        mojo.retryMaxDelay = 200;
+
+        mojo.execute();
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testIncrementalWithTables() throws Exception {
+        ImpdpMojo mojo = createBasicMojo();
+        mojo.incremental = true;
+        mojo.exportLogFile = new File("export.log");
+        mojo.tables = "HR.EMP";
+
+        mojo.execute();
+    }
+
     private ImpdpMojo createBasicMojo() {
         ImpdpMojo mojo = new ImpdpMojo();
         mojo.useEasyConnect = Boolean.TRUE;
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class IncrementalImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadExportLog() throws IOException {
+        File log = folder.newFile("export.log");
+        Files.write(log.toPath(), Arrays.asList(
+                "Processing object type SCHEMA_EXPORT/TABLE/TABLE_DATA",
+                ". . exported \"HR\".\"EMPLOYEES\"                           17.08 KB     107 rows",
+                "18-OCT-26 10:00:00.123: W-1 . . exported \"HR\".\"SALES\":\"P2\"  1 MB  1,000 rows",
+                ". . exported \"HR\".\"SALES\":\"P1\"  2 MB  2,000 rows",
+                ". . exported \"HR\".\"My Table\"  0 KB  0 rows",
+                "Job \"HR\".\"SYS_EXPORT_SCHEMA_01\" successfully completed"), UTF_8);
+
+        Map<String, String> tables = IncrementalImport.readExportLog(log, UTF_8);
+
+        Assert.assertEquals(Arrays.asList("HR.EMPLOYEES", "HR.SALES", "HR.My Table"),
+                Arrays.asList(tables.keySet().toArray()));
+        Assert.assertEquals(ExportCache.fingerprint(Arrays.asList("P1=2MB/2,000", "P2=1MB/1,000")),
+                tables.get("HR.SALES"));
+        Assert.assertEquals(ExportCache.fingerprint(Arrays.asList("=17.08KB/107")), tables.get("HR.EMPLOYEES"));
+    }
+
+    @Test
+    public void testGetChanged() {
+        Map<String, String> exported = new LinkedHashMap<>();
+        exported.put("HR.EMP", "a");
+        exported.put("HR.DEPT", "b");
+        exported.put("HR.NEW", "c");
+        Map<String, String> imported = new HashMap<>();
+        imported.put("HR.EMP", "a");
+        imported.put("HR.DEPT", "old");
+        imported.put("HR.GONE", "d");
+
+        Assert.assertEquals(Arrays.asList("HR.DEPT", "HR.NEW"), IncrementalImport.getChanged(exported, imported));
+    }
+
+    @Test
+    public void testToTablesArgument() {
+        Assert.assertEquals("HR.EMP", IncrementalImport.toTablesArgument("HR.EMP"));
+        Assert.assertEquals("HR.\"My Table\"", IncrementalImport.toTablesArgument("HR.My Table"));
+    }
+
+    @Test
+    public void testReadAndRecord() throws SQLException, MojoFailureException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incremental", "sa", "")) {
+            IncrementalImport state = new IncrementalImport("IMPDP_STATE");
+
+            Assert.assertTrue(state.read(connection).isEmpty());
+            state.record(connection, Collections.singletonMap("HR.EMP", "a"));
+            state.record(connection, Collections.singletonMap("HR.EMP", "b"));
+            state.record(connection, Collections.singletonMap("HR.DEPT", "c"));
+
+            Map<String, String> imported = state.read(connection);
+            Assert.assertEquals(2, imported.size());
+            Assert.assertEquals("b", imported.get("HR.EMP"));
+            Assert.assertEquals("c", imported.get("HR.DEPT"));
+        }
+    }
+
+    @Test
+    public void testReadExportLogRows() throws IOException {
+        File log = folder.newFile("export.log");
+        Files.write(log.toPath(), Arrays.asList(
+                ". . exported \"HR\".\"SALES\":\"P2\"  1 MB  1,000 rows",
+                ". . exported \"HR\".\"SALES\":\"P1\"  2 MB  2,000 rows"), UTF_8);
+        Map<String, Long> rows = new HashMap<>();
+
+        IncrementalImport.readExportLog(log, UTF_8, rows);
+
+        Assert.assertEquals(Collections.singletonMap("HR.SALES", 3000L), rows);
+    }
+
+    @Test
+    public void testRemap() throws MojoFailureException {
+        Map<String, String> targets = IncrementalImport.remap(Arrays.asList("HR.EMP", "SCOTT.BONUS", "OE.My Table"),
+                "hr:hr_test, \"OE\":\"Oe Test\"");
+
+        Assert.assertEquals("HR_TEST.EMP", targets.get("HR.EMP"));
+        Assert.assertEquals("SCOTT.BONUS", targets.get("SCOTT.BONUS"));
+        Assert.assertEquals("Oe Test.My Table", targets.get("OE.My Table"));
+        Assert.assertEquals("HR.EMP", IncrementalImport.remap(Arrays.asList("HR.EMP"), null).get("HR.EMP"));
+    }
+
+    @Test
+    public void testIsLoaded() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incrementalloaded", "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE \"My Table\" (id INT)");
+            statement.execute("INSERT INTO \"My Table\" VALUES (1)");
+
+            Assert.assertTrue(IncrementalImport.isLoaded(connection, "PUBLIC.My Table", 1));
+            Assert.assertFalse(IncrementalImport.isLoaded(connection, "PUBLIC.My Table", 2));
+            Assert.assertFalse(IncrementalImport.isLoaded(connection, "PUBLIC.GONE", 0));
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void testReadOtherError() throws SQLException, MojoFailureException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:incrementalerror", "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IMPDP_STATE (name VARCHAR(300))");
+
+            new IncrementalImport("IMPDP_STATE").read(connection);
+        }
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testInvalidTableName() throws MojoFailureException {
+        new IncrementalImport("state; DROP TABLE x");
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class JdbcConnectionPoolTest {
+
+    private final List<Connection> opened = new ArrayList<>();
+
+    @After
+    public void closeAll() {
+        JdbcConnectionPool.closeAll();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        JdbcConnectionPool.Key key = createKey("reuse", 2, 60000);
+
+        Connection first = JdbcConnectionPool.borrow(key);
+        first.close();
+        Connection second = JdbcConnectionPool.borrow(key);
+        second.close();
+
+        Assert.assertEquals(1, opened.size());
+        Assert.assertTrue(first.isClosed());
+        Assert.assertFalse(opened.get(0).isClosed());
+        Assert.assertEquals(1, JdbcConnectionPool.size(key));
+    }
+
+    @Test
+    public void testBorrowWaitsAtMaximumSize() throws Exception {
+        final JdbcConnectionPool.Key key = createKey("maximum", 1, 60000);
+        Connection first = JdbcConnectionPool.borrow(key);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> second = executor.submit(new Callable<Connection>() {
+                @Override
+                public Connection call() throws Exception {
+                    return JdbcConnectionPool.borrow(key);
+                }
+            });
+            try {
+                second.get(200, TimeUnit.MILLISECONDS);
+                Assert.fail("the pool is exhausted");
+            } catch (TimeoutException e) {
+                // waiting for the first connection
+            }
+            first.close();
+            second.get(5, TimeUnit.SECONDS).close();
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void testInvalidConnectionIsReplaced() throws Exception {
+        JdbcConnectionPool.Key key = createKey("invalid", 2, 60000);
+        JdbcConnectionPool.borrow(key).close();
+        opened.get(0).close();
+
+        Connection connection = JdbcConnectionPool.borrow(key);
+        connection.close();
+
+        Assert.assertEquals(2, opened.size());
+        Assert.assertEquals(1, JdbcConnectionPool.size(key));
+    }
+
+    @Test
+    public void testTransactionIsRolledBackOnRelease() throws Exception {
+        JdbcConnectionPool.Key key = createKey("rollback", 1, 60000);
+        try (Connection connection = JdbcConnectionPool.borrow(key); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t (id INT)");
+            connection.setAutoCommit(false);
+            statement.execute("INSERT INTO t VALUES (1)");
+        }
+
+        try (Connection connection = JdbcConnectionPool.borrow(key); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM t")) {
+            Assert.assertTrue(connection.getAutoCommit());
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(0, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    public void testIdleConnectionsAreEvicted() throws Exception {
+        JdbcConnectionPool.Key key = createKey("evict", 2, 0);
+        JdbcConnectionPool.borrow(key).close();
+
+        JdbcConnectionPool.evictIdle();
+
+        Assert.assertEquals(0, JdbcConnectionPool.size(key));
+        Assert.assertTrue(opened.get(0).isClosed());
+    }
+
+    private JdbcConnectionPool.Key createKey(final String name, int maxSize, long idleTimeout) {
+        return new JdbcConnectionPool.Key(name, new JdbcConnectionPool.ConnectionFactory() {
+            @Override
+            public Connection connect() throws SQLException {
+                Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + name, "sa", "");
+                opened.add(connection);
+                return connection;
+            }
+        }, maxSize, idleTimeout);
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class LoadMojoTest {
+
+    private static final String URL = "jdbc:h2:mem:loadmojo;DB_CLOSE_DELAY=-1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+
+    @Before
+    public void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE emp (id INT PRIMARY KEY, name VARCHAR(20), salary DECIMAL(8, 2), "
+                    + "hired DATE)");
+            statement.execute("CREATE TABLE dept (id INT PRIMARY KEY, name VARCHAR(20))");
+        }
+    }
+
+    @After
+    public void closeDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testLoadFile() throws Exception {
+        LoadMojo mojo = createBasicMojo();
+        mojo.loadFile = write("employees.csv", "NAME,ID,HIRED,SALARY\n\"Smith, John\",1,2019-12-31,1000.50\n"
+                + "Jones,2,,\n");
+        mojo.table = "emp";
+
+        mojo.execute();
+
+        Assert.assertEquals(Arrays.asList("1|Smith, John|1000.50|2019-12-31", "2|Jones|null|null"),
+                select("SELECT id, name, salary, hired FROM emp ORDER BY id"));
+    }
+
+    @Test
+    public void testLoadFilesInParallel() throws Exception {
+        write("data/EMP.tsv", "1\tfirst\t\t\n2\tsecond\t\t\n3\tthird\t\t\n");
+        write("data/DEPT.csv", "1,sales\n2,research\n");
+        LoadMojo mojo = createBasicMojo();
+        mojo.header = false;
+        mojo.threads = 2;
+        mojo.loadFiles = new FileSet();
+        mojo.loadFiles.setDirectory("data");
+
+        mojo.execute();
+
+        Assert.assertEquals(Arrays.asList("3"), select("SELECT COUNT(*) FROM emp"));
+        Assert.assertEquals(Arrays.asList("1|sales", "2|research"), select("SELECT id, name FROM dept ORDER BY id"));
+    }
+
+    @Test
+    public void testCommitInChunks() throws Exception {
+        StringBuilder csv = new StringBuilder("id,name\n");
+        for (int i = 1; i <= 25; i++) {
+            csv.append(i).append(",row").append(i).append('\n');
+        }
+        csv.append("x,invalid\n");
+        LoadMojo mojo = createBasicMojo();
+        mojo.loadFile = write("dept.csv", csv.toString());
+        mojo.table = "dept";
+        mojo.batchSize = 4;
+        mojo.commitSize = 10;
+        mojo.failOnError = true;
+
+        try {
+            mojo.execute();
+            Assert.fail("the last row is invalid");
+        } catch (MojoExecutionException e) {
+            Assert.assertEquals("1 of 1 file(s) could not be loaded", e.getMessage());
+        }
+        // the batches up to row 24 were committed in chunks of 12 rows
+        Assert.assertEquals(Arrays.asList("24"), select("SELECT COUNT(*) FROM dept"));
+    }
+
+    @Test
+    public void testInvalidColumn() throws Exception {
+        LoadMojo mojo = createBasicMojo();
+        mojo.loadFile = write("dept.csv", "1,sales\n");
+        mojo.table = "dept";
+        mojo.header = false;
+        mojo.columns = "id, name; DROP TABLE dept";
+
+        mojo.execute();
+
+        Assert.assertEquals(new ArrayList<String>(), select("SELECT id FROM dept"));
+    }
+
+    @Test
+    public void testGetDelimiter() throws MojoFailureException {
+        LoadMojo mojo = new LoadMojo();
+        Assert.assertEquals(',', mojo.getDelimiter(new File("data.csv")));
+        Assert.assertEquals('\t', mojo.getDelimiter(new File("data.TSV")));
+        mojo.delimiter = "\\t";
+        Assert.assertEquals('\t', mojo.getDelimiter(new File("data.csv")));
+        mojo.delimiter = ";";
+        Assert.assertEquals(';', mojo.getDelimiter(new File("data.csv")));
+    }
+
+    @Test
+    public void testGetTableName() {
+        Assert.assertEquals("EMP", LoadMojo.getTableName(new File("data/EMP.csv")));
+        Assert.assertEquals("HR.EMP", LoadMojo.getTableName(new File("HR.EMP.csv")));
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+
+    private List<String> select(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(i > 1 ? "|" : "").append(resultSet.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    private LoadMojo createBasicMojo() {
+        LoadMojo mojo = new LoadMojo();
+        mojo.jdbcUrl = URL;
+        mojo.username = "sa";
+        mojo.password = "";
+        mojo.basedir = folder.getRoot();
+        mojo.header = true;
+        mojo.batchSize = 1000;
+        mojo.commitSize = 50000;
+        mojo.threads = 1;
+        mojo.encoding = "UTF-8";
+        return mojo;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class MappedFileReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCharactersAcrossWindows() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("é€").append(i).append("😀\n");
+        }
+        File file = folder.newFile("text.sql");
+        Files.write(file.toPath(), text.toString().getBytes(UTF_8));
+
+        // windows which do not end on character boundaries
+        for (int windowSize : new int[] {7, 13, 1024}) {
+            Assert.assertEquals(text.toString(), read(new MappedFileReader(file, UTF_8, windowSize)));
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        File file = folder.newFile("empty.sql");
+
+        try (Reader reader = new MappedFileReader(file, UTF_8)) {
+            Assert.assertEquals(-1, reader.read(new char[16]));
+            Assert.assertEquals(-1, reader.read(new char[16]));
+        }
+    }
+
+    @Test
+    public void testMalformedInputIsReplaced() throws IOException {
+        File file = folder.newFile("malformed.sql");
+        Files.write(file.toPath(), new byte[] {'a', (byte) 0xff, 'b'});
+
+        Assert.assertEquals("a�b", read(new MappedFileReader(file, UTF_8, 2)));
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader in = reader) {
+            char[] buffer = new char[5];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class OutputPipelineTest {
+
+    @Test
+    public void testLineOutputStreamSplitsLines() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        LineOutputStream out = new LineOutputStream(UTF_8) {
+            @Override
+            protected void processLine(String line) {
+                lines.add(line);
+            }
+        };
+
+        out.write("first\r\nsec".getBytes(UTF_8));
+        out.write("ond\n\nt".getBytes(UTF_8));
+        out.write('h');
+        out.write("ird".getBytes(UTF_8));
+        out.flush();
+
+        Assert.assertEquals(Arrays.asList("first", "second", "", "third"), lines);
+    }
+
+    @Test
+    public void testLineOutputStreamDecodesCompleteLines() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        LineOutputStream out = new LineOutputStream(UTF_8) {
+            @Override
+            protected void processLine(String line) {
+                lines.add(line);
+            }
+        };
+        byte[] bytes = "café\n".getBytes(UTF_8);
+
+        // the two bytes of the last character are written separately
+        out.write(bytes, 0, 4);
+        out.write(bytes, 4, bytes.length - 4);
+
+        Assert.assertEquals(Collections.singletonList("café"), lines);
+    }
+
+    @Test
+    public void testLineOutputStreamCharset() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        LineOutputStream out = new LineOutputStream(ISO_8859_1) {
+            @Override
+            protected void processLine(String line) {
+                lines.add(line);
+            }
+        };
+
+        out.write("café\n".getBytes(ISO_8859_1));
+
+        Assert.assertEquals(Collections.singletonList("café"), lines);
+    }
+
+    @Test
+    public void testDrainLogsAllLines() throws InterruptedException {
+        RecordingLog log = new RecordingLog();
+        OutputPipeline pipeline = new OutputPipeline(log, 100, 0, false, null);
+
+        pipeline.info("first");
+        pipeline.error("second");
+        pipeline.drain();
+
+        Assert.assertEquals(Arrays.asList("info first", "error second"), log.lines);
+    }
+
+    @Test
+    public void testLinesPerSecond() throws InterruptedException {
+        RecordingLog log = new RecordingLog();
+        OutputPipeline pipeline = new OutputPipeline(log, 100, 2, false, null);
+
+        pipeline.info("first");
+        pipeline.info("second");
+        pipeline.info("third");
+        pipeline.drain();
+
+        Assert.assertEquals(Arrays.asList("info first", "info second",
+                "warn 1 line(s) of output suppressed, more than 2 lines per second"), log.lines);
+    }
+
+    @Test
+    public void testSummary() throws InterruptedException {
+        RecordingLog log = new RecordingLog();
+        OutputPipeline pipeline = new OutputPipeline(log, 100, 0, true, null);
+
+        for (int i = 1; i <= 12; i++) {
+            pipeline.info("line " + i);
+        }
+        pipeline.error("ORA-00942: table or view does not exist");
+        pipeline.drain();
+
+        Assert.assertEquals("error ORA-00942: table or view does not exist", log.lines.get(0));
+        Assert.assertEquals("info 12 line(s) of output, the last 10:", log.lines.get(1));
+        Assert.assertEquals("info line 3", log.lines.get(2));
+        Assert.assertEquals("info line 12", log.lines.get(11));
+        Assert.assertEquals(12, log.lines.size());
+    }
+
+    @Test
+    public void testFullQueueDropsLines() throws InterruptedException {
+        BlockingLog log = new BlockingLog();
+        OutputPipeline pipeline = new OutputPipeline(log, 1, 0, false, null);
+
+        pipeline.info("first");
+        log.logging.acquire();
+        // the logger thread is stuck on the first line, so only one more line fits in the queue
+        pipeline.info("second");
+        pipeline.info("third");
+        log.release.release();
+        pipeline.drain();
+
+        Assert.assertEquals(Arrays.asList("info first", "info second",
+                "warn 1 line(s) of output dropped, logging could not keep up"), log.lines);
+    }
+
+    @Test
+    public void testFullQueueKeepsErrors() throws InterruptedException, MojoFailureException {
+        BlockingLog log = new BlockingLog();
+        final OutputPipeline pipeline = new OutputPipeline(log, 1, 0, false, new ErrorDetector(UTF_8, null));
+
+        pipeline.info("first");
+        log.logging.acquire();
+        pipeline.info("second");
+        pipeline.info("third");
+        Thread tool = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pipeline.error("standard error");
+                pipeline.info("ORA-00942: table or view does not exist");
+            }
+        });
+        tool.start();
+        while (tool.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        log.release.release();
+        tool.join();
+        pipeline.drain();
+
+        Assert.assertEquals(Arrays.asList("info first", "info second", "error standard error",
+                "info ORA-00942: table or view does not exist",
+                "warn 1 line(s) of output dropped, logging could not keep up"), log.lines);
+    }
+
+    @Test
+    public void testLinesPerSecondKeepsErrors() throws InterruptedException, MojoFailureException {
+        RecordingLog log = new RecordingLog();
+        OutputPipeline pipeline = new OutputPipeline(log, 100, 1, false, new ErrorDetector(UTF_8, null));
+
+        pipeline.info("first");
+        pipeline.info("second");
+        pipeline.info("SP2-0310: unable to open file");
+        pipeline.drain();
+
+        Assert.assertEquals(Arrays.asList("info first", "info SP2-0310: unable to open file",
+                "warn 1 line(s) of output suppressed, more than 1 lines per second"), log.lines);
+    }
+
+    private static class RecordingLog extends SystemStreamLog {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void info(CharSequence content) {
+            lines.add("info " + content);
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+            lines.add("warn " + content);
+        }
+
+        @Override
+        public void error(CharSequence content) {
+            lines.add("error " + content);
+        }
+    }
+
+    private static class BlockingLog extends RecordingLog {
+        final Semaphore logging = new Semaphore(0);
+        final Semaphore release = new Semaphore(0);
+
+        @Override
+        public void info(CharSequence content) {
+            super.info(content);
+            if ("first".contentEquals(content)) {
+                logging.release();
+                release.acquireUninterruptibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelExecutorTest {
+
+    @Test
+    public void testExecuteRespectsDependencies() throws InterruptedException {
+        final List<String> order = new CopyOnWriteArrayList<>();
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        dependencies.put("b", Collections.singleton("a"));
+        dependencies.put("c", Collections.singleton("b"));
+
+        Map<String, ParallelExecutor.Status> result = new ParallelExecutor<String>(4, true).execute(
+                Arrays.asList("a", "b", "c"), dependencies, new ParallelExecutor.Task<String>() {
+                    @Override
+                    public boolean run(String item) {
+                        order.add(item);
+                        return true;
+                    }
+                });
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), order);
+        Assert.assertEquals(ParallelExecutor.Status.SUCCEEDED, result.get("c"));
+    }
+
+    @Test
+    public void testExecuteRunsIndependentTasksTogether() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        Map<String, ParallelExecutor.Status> result = new ParallelExecutor<String>(2, true).execute(
+                Arrays.asList("a", "b"), Collections.<String, Set<String>>emptyMap(),
+                new ParallelExecutor.Task<String>() {
+                    @Override
+                    public boolean run(String item) throws InterruptedException {
+                        latch.countDown();
+                        return latch.await(5, TimeUnit.SECONDS);
+                    }
+                });
+
+        Assert.assertEquals(ParallelExecutor.Status.SUCCEEDED, result.get("a"));
+        Assert.assertEquals(ParallelExecutor.Status.SUCCEEDED, result.get("b"));
+    }
+
+    @Test
+    public void testExecuteSkipsDependentsOfFailedTask() throws InterruptedException {
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        dependencies.put("b", Collections.singleton("a"));
+
+        Map<String, ParallelExecutor.Status> result = new ParallelExecutor<String>(2, false).execute(
+                Arrays.asList("a", "b", "c"), dependencies, new ParallelExecutor.Task<String>() {
+                    @Override
+                    public boolean run(String item) {
+                        return !"a".equals(item);
+                    }
+                });
+
+        Assert.assertEquals(ParallelExecutor.Status.FAILED, result.get("a"));
+        Assert.assertEquals(ParallelExecutor.Status.SKIPPED, result.get("b"));
+        Assert.assertEquals(ParallelExecutor.Status.SUCCEEDED, result.get("c"));
+    }
+
+    @Test
+    public void testExecuteFailFastCancelsRunningTasks() throws InterruptedException {
+        Map<String, ParallelExecutor.Status> result = new ParallelExecutor<String>(2, true).execute(
+                Arrays.asList("slow", "failing"), Collections.<String, Set<String>>emptyMap(),
+                new ParallelExecutor.Task<String>() {
+                    @Override
+                    public boolean run(String item) throws InterruptedException {
+                        if ("slow".equals(item)) {
+                            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                        }
+                        return false;
+                    }
+                });
+
+        Assert.assertEquals(ParallelExecutor.Status.CANCELLED, result.get("slow"));
+        Assert.assertEquals(ParallelExecutor.Status.FAILED, result.get("failing"));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package nl.ertai.maven.plugins;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.SQLException;
+import java.util.Random;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testErrorClasses() throws MojoFailureException {
+        RetryPolicy policy = new RetryPolicy("connection", 60000, 1000, 30000, new Random(1));
+
+        Assert.assertEquals("ORA-01033", policy.findTransient("ORA-01033: ORACLE initialization or shutdown in progress"));
+        Assert.assertEquals("ORA-12541", policy.findTransient("TNS-12541: TNS:no listener"));
+        Assert.assertNull(policy.findTransient("ORA-00054: resource busy and acquire with NOWAIT specified"));
+        Assert.assertNull(policy.findTransient("ORA-00942: table or view does not exist"));
+
+        policy = new RetryPolicy("lock, ORA-04068", 60000, 1000, 30000, new Random(1));
+        Assert.assertEquals("ORA-00054", policy.findTransient("ORA-00054: resource busy"));
+        Assert.assertEquals("ORA-04068", policy.findTransient("ORA-04068: existing state of packages has been discarded"));
+        Assert.assertNull(policy.findTransient("ORA-12514: TNS:listener does not currently know of service"));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testUnknownErrorClass() throws MojoFailureException {
+        new RetryPolicy("network", 60000, 1000, 30000, new Random(1));
+    }
+
+    @Test
+    public void testTransientException() throws MojoFailureException {
+        RetryPolicy policy = new RetryPolicy("connection", 60000, 1000, 30000, new Random(1));
+
+        Assert.assertEquals("ORA-12514", policy.findTransient(new MojoExecutionException("Could not connect",
+                new SQLException("Listener refused the connection", "66000", 12514))));
+        Assert.assertEquals("ORA-01033", policy.findTransient(new MojoExecutionException(
+                "Stopped at error: ORA-01033: ORACLE initialization or shutdown in progress")));
+        Assert.assertNull(policy.findTransient(new MojoExecutionException("program exited with exitCode: 1")));
+    }
+
+    @Test
+    public void testDelay() throws MojoFailureException {
+        RetryPolicy policy = new RetryPolicy("connection", 60000, 1000, 5000, new Random(1));
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelay(i);
+            long maximum = Math.min(5000, 1000L << Math.min(i, 30));
+            Assert.assertTrue(delay + " for attempt " + i, delay > maximum / 2 && delay <= maximum);
+        }
+        Assert.assertFalse(new RetryPolicy("connection", 0, 1000, 5000, new Random(1)).isEnabled());
+    }
+
+    @Test
+    public void testProbe() throws IOException {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+            Assert.assertTrue(RetryPolicy.probe("localhost", port, 1000));
+        }
+        Assert.assertFalse(RetryPolicy.probe("localhost", port, 1000));
+    }
+}
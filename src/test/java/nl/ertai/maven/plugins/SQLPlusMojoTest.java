@@ -18,16 +18,21 @@ package nl.ertai.maven.plugins;
 
 import nl.ertai.maven.plugins.SQLPlusMojo;
 import org.apache.commons.exec.CommandLine;
+import org.apache.maven.model.FileSet;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 public class SQLPlusMojoTest {
 
@@ -39,6 +44,8 @@ public class SQLPlusMojoTest {
     private static final String DATA = "data";
 
     private static final File STATEMENT_FILE = new File("src/test/resources/statement.sql");
+    private static final File FILTERED_FILE = new File("src/test/resources/filtered.sql");
+    private static final String SCRIPTS_DIRECTORY = "src/test/resources/scripts";
 
     private static final String CONNECTION_STRING = USERNAME + "@//" + HOSTNAME + ":" + PORT + "/" + SERVICE_NAME;
 
@@ -74,7 +81,7 @@ public class SQLPlusMojoTest {
     @Test
     public void testGetEnvVarsNull() throws MojoExecutionException {
         SQLPlusMojo mojo = createBasicMojo();
-        Map vars = mojo.getEnvVars();
+        Map<String, String> vars = mojo.getEnvVars();
 
         Assert.assertNull(vars);
     }
@@ -83,11 +90,41 @@ public class SQLPlusMojoTest {
     public void testGetEnvVarsBeforeSql() throws MojoExecutionException {
         SQLPlusMojo mojo = createBasicMojo();
         mojo.beforeSql = DATA;
-        Map vars = mojo.getEnvVars();
+        Map<String, String> vars = mojo.getEnvVars();
 
         Assert.assertTrue(vars.containsKey("SQLPATH"));
     }
 
+    @Test
+    public void testGetEnvVarsLoginSql() throws MojoExecutionException, IOException {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+        File directory = new File(mojo.getEnvVars().get("SQLPATH"));
+
+        Assert.assertArrayEquals(new String[]{"login.sql"}, directory.list());
+        Assert.assertEquals(DATA, new String(Files.readAllBytes(new File(directory, "login.sql").toPath()), "UTF-8"));
+    }
+
+    @Test
+    public void testGetEnvVarsSameBeforeSql() throws MojoExecutionException {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+        SQLPlusMojo other = createBasicMojo();
+        other.beforeSql = DATA;
+
+        Assert.assertEquals(mojo.getEnvVars().get("SQLPATH"), other.getEnvVars().get("SQLPATH"));
+    }
+
+    @Test
+    public void testGetEnvVarsDifferentBeforeSql() throws MojoExecutionException {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+        SQLPlusMojo other = createBasicMojo();
+        other.beforeSql = DATA + DATA;
+
+        Assert.assertNotEquals(mojo.getEnvVars().get("SQLPATH"), other.getEnvVars().get("SQLPATH"));
+    }
+
     @Test
     public void testBuildCommandlineExecutable() throws MojoExecutionException, MojoFailureException {
         SQLPlusMojo mojo = createBasicMojo();
@@ -122,6 +159,128 @@ public class SQLPlusMojoTest {
         Assert.assertEquals(DATA, cmd.getArguments()[3]);
     }
 
+    @Test
+    public void testGetFilesDefaultIncludes() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.sqlFiles = new FileSet();
+        mojo.sqlFiles.setDirectory(SCRIPTS_DIRECTORY);
+        List<File> files = mojo.getFiles();
+
+        Assert.assertEquals(2, files.size());
+        Assert.assertEquals("010_tables.sql", files.get(0).getName());
+        Assert.assertEquals("020_views.sql", files.get(1).getName());
+    }
+
+    @Test
+    public void testGetFilesIncludesExcludes() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.sqlFiles = new FileSet();
+        mojo.sqlFiles.setDirectory(SCRIPTS_DIRECTORY);
+        mojo.sqlFiles.addInclude("*.*");
+        mojo.sqlFiles.addExclude("*_views.sql");
+        List<File> files = mojo.getFiles();
+
+        Assert.assertEquals(2, files.size());
+        Assert.assertEquals("010_tables.sql", files.get(0).getName());
+        Assert.assertEquals("cleanup.txt", files.get(1).getName());
+    }
+
+    @Test
+    public void testGetFilesBasedir() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.basedir = new File("src/test/resources");
+        mojo.sqlFiles = new FileSet();
+        mojo.sqlFiles.setDirectory("scripts");
+        List<File> files = mojo.getFiles();
+
+        Assert.assertEquals(2, files.size());
+    }
+
+    @Test
+    public void testGetFilesMissingDirectory() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.sqlFiles = new FileSet();
+        mojo.sqlFiles.setDirectory("does-not-exist");
+        List<File> files = mojo.getFiles();
+
+        Assert.assertTrue(files.isEmpty());
+    }
+
+    @Test
+    public void testGetStreamHeader() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+        mojo.arguments = Arrays.asList("first", "second");
+
+        Assert.assertEquals(DATA + "\nDEFINE 1 = \"first\"\nDEFINE 2 = \"second\"\n", mojo.getStreamHeader());
+    }
+
+    @Test
+    public void testGetStreamHeaderEmpty() {
+        SQLPlusMojo mojo = createBasicMojo();
+
+        Assert.assertEquals("", mojo.getStreamHeader());
+    }
+
+    @Test
+    public void testGetLoginSqlTimingReport() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+        mojo.timingReport = true;
+
+        Assert.assertEquals(DATA + "\nSET TIMING ON\nSET ECHO ON\n", mojo.getLoginSql());
+    }
+
+    @Test
+    public void testGetLoginSqlWithoutTimingReport() {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.beforeSql = DATA;
+
+        Assert.assertEquals(DATA, mojo.getLoginSql());
+    }
+
+    @Test
+    public void testBuildStreamCommandline() throws MojoFailureException {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.arguments = Arrays.asList(new String[]{DATA});
+        CommandLine cmd = mojo.buildStreamCommandline();
+
+        Assert.assertEquals(EXECUTABLE, cmd.getExecutable());
+        Assert.assertArrayEquals(new String[]{"-L", "-S", CONNECTION_STRING}, cmd.getArguments());
+    }
+
+    @Test
+    public void testOpenSqlFile() throws Exception {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.sqlFile = FILTERED_FILE;
+
+        Assert.assertEquals("SELECT * FROM ${schema}.table;\n", read(mojo.openSqlFile()));
+    }
+
+    @Test
+    public void testOpenSqlFileFiltered() throws Exception {
+        SQLPlusMojo mojo = createBasicMojo();
+        mojo.sqlFile = FILTERED_FILE;
+        mojo.filterSqlFile = true;
+        mojo.encoding = "UTF-8";
+        mojo.projectProperties = new Properties();
+        mojo.projectProperties.setProperty("schema", DATA);
+
+        Assert.assertEquals("SELECT * FROM " + DATA + ".table;\n", read(mojo.openSqlFile()));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[3];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), "UTF-8");
+        }
+    }
+
     private SQLPlusMojo createBasicMojo() {
         SQLPlusMojo mojo = new SQLPlusMojo();
         mojo.useEasyConnect = Boolean.TRUE;
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ScriptBatchTest {
+
+    private static final File FIRST = new File("src/test/resources/scripts/010_tables.sql");
+    private static final File SECOND = new File("src/test/resources/scripts/020_views.sql");
+
+    @Test
+    public void testToDriverScript() {
+        ScriptBatch batch = new ScriptBatch(Arrays.asList(FIRST, SECOND));
+
+        String driver = batch.toDriverScript(null);
+
+        Assert.assertEquals("PROMPT " + ScriptBatch.MARKER + "start 0\n"
+                + "@\"" + FIRST.getAbsolutePath() + "\"\n"
+                + "PROMPT " + ScriptBatch.MARKER + "end 0\n"
+                + "PROMPT " + ScriptBatch.MARKER + "start 1\n"
+                + "@\"" + SECOND.getAbsolutePath() + "\"\n"
+                + "PROMPT " + ScriptBatch.MARKER + "end 1\n", driver);
+    }
+
+    @Test
+    public void testToDriverScriptArguments() {
+        ScriptBatch batch = new ScriptBatch(Collections.singletonList(FIRST));
+
+        String driver = batch.toDriverScript(Arrays.asList("one", "two"));
+
+        Assert.assertTrue(driver.contains("@\"" + FIRST.getAbsolutePath() + "\" \"one\" \"two\"\n"));
+    }
+
+    @Test
+    public void testProcessLineMarker() {
+        ScriptBatch batch = new ScriptBatch(Arrays.asList(FIRST, SECOND));
+
+        Assert.assertTrue(batch.processLine(ScriptBatch.MARKER + "start 0"));
+        Assert.assertFalse(batch.processLine("Table created."));
+        Assert.assertTrue(batch.processLine(ScriptBatch.MARKER + "end 0"));
+
+        Assert.assertTrue(batch.getResults().get(0).isFinished());
+        Assert.assertFalse(batch.getResults().get(1).isStarted());
+        Assert.assertNull(batch.getUnfinished());
+    }
+
+    @Test
+    public void testProcessLineErrors() {
+        ScriptBatch batch = new ScriptBatch(Arrays.asList(FIRST, SECOND));
+
+        batch.processLine(ScriptBatch.MARKER + "start 0");
+        batch.processLine(ScriptBatch.MARKER + "end 0");
+        batch.processLine(ScriptBatch.MARKER + "start 1");
+        batch.processLine("ORA-00942: table or view does not exist");
+
+        Assert.assertEquals(0, batch.getResults().get(0).getErrors());
+        Assert.assertEquals(1, batch.getResults().get(1).getErrors());
+        Assert.assertSame(batch.getResults().get(1), batch.getUnfinished());
+    }
+}
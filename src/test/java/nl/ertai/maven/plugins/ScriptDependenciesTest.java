@@ -0,0 +1,154 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ScriptDependenciesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResolvePrefix() throws Exception {
+        File tables = script("010_tables.sql", "CREATE TABLE a (id NUMBER);");
+        File sequences = script("010_sequences.sql", "CREATE SEQUENCE s;");
+        File views = script("020_views.sql", "CREATE VIEW v AS SELECT * FROM a;");
+        List<File> scripts = Arrays.asList(sequences, tables, views);
+
+        Map<File, Set<File>> dependencies = ScriptDependencies.resolve(folder.getRoot(), scripts,
+                ScriptDependencies.PREFIX);
+
+        Assert.assertTrue(dependencies.get(sequences).isEmpty());
+        Assert.assertTrue(dependencies.get(tables).isEmpty());
+        Assert.assertEquals(2, dependencies.get(views).size());
+    }
+
+    @Test
+    public void testResolvePrefixWithoutNumber() throws Exception {
+        File first = script("a.sql", "SELECT 1 FROM dual;");
+        File second = script("b.sql", "SELECT 1 FROM dual;");
+
+        Map<File, Set<File>> dependencies = ScriptDependencies.resolve(folder.getRoot(), Arrays.asList(first, second),
+                ScriptDependencies.PREFIX);
+
+        Assert.assertTrue(dependencies.get(second).contains(first));
+    }
+
+    @Test
+    public void testResolveDirectory() throws Exception {
+        folder.newFolder("tables");
+        folder.newFolder("views");
+        File table1 = script("tables/a.sql", "CREATE TABLE a (id NUMBER);");
+        File table2 = script("tables/b.sql", "CREATE TABLE b (id NUMBER);");
+        File view = script("views/v.sql", "CREATE VIEW v AS SELECT * FROM a;");
+
+        Map<File, Set<File>> dependencies = ScriptDependencies.resolve(folder.getRoot(),
+                Arrays.asList(table1, table2, view), ScriptDependencies.DIRECTORY);
+
+        Assert.assertTrue(dependencies.get(table2).isEmpty());
+        Assert.assertEquals(2, dependencies.get(view).size());
+    }
+
+    @Test
+    public void testResolveDeclared() throws Exception {
+        File tables = script("tables.sql", "CREATE TABLE a (id NUMBER);");
+        File views = script("views.sql", "-- views on the tables\n-- depends: tables.sql\nCREATE VIEW v AS SELECT * FROM a;");
+
+        Map<File, Set<File>> dependencies = ScriptDependencies.resolve(folder.getRoot(), Arrays.asList(tables, views),
+                ScriptDependencies.NONE);
+
+        Assert.assertTrue(dependencies.get(views).contains(tables));
+    }
+
+    @Test
+    public void testRetainPending() throws Exception {
+        File tables = script("tables.sql", "CREATE TABLE a (id NUMBER);");
+        File views = script("views.sql", "-- depends: tables.sql\nCREATE VIEW v AS SELECT * FROM a;");
+        File grants = script("grants.sql", "-- depends: views.sql\nGRANT SELECT ON v TO PUBLIC;");
+        File data = script("data.sql", "-- depends: tables.sql\nINSERT INTO a VALUES (1);");
+        List<File> scripts = Arrays.asList(data, grants, tables, views);
+        Map<File, Set<File>> dependencies = ScriptDependencies.resolve(folder.getRoot(), scripts,
+                ScriptDependencies.NONE);
+
+        // the ledger records views.sql as applied in an earlier build
+        Map<File, Set<File>> pending = ScriptDependencies.retain(dependencies, Arrays.asList(data, grants, tables));
+
+        Assert.assertEquals(3, pending.size());
+        Assert.assertEquals(Collections.singleton(tables), pending.get(data));
+        Assert.assertEquals(Collections.singleton(tables), pending.get(grants));
+        Assert.assertTrue(pending.get(tables).isEmpty());
+
+        // and tables.sql as well
+        pending = ScriptDependencies.retain(dependencies, Arrays.asList(data, grants));
+        Assert.assertTrue(pending.get(data).isEmpty());
+        Assert.assertTrue(pending.get(grants).isEmpty());
+    }
+
+    @Test
+    public void testReadDeclaredDependenciesOnlyHeader() throws Exception {
+        File script = script("views.sql", "-- depends: a.sql, b.sql\nSELECT 1 FROM dual;\n-- depends: c.sql");
+
+        List<String> names = ScriptDependencies.readDeclaredDependencies(script);
+
+        Assert.assertEquals(Arrays.asList("a.sql", "b.sql"), names);
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testResolveUnknownDependency() throws Exception {
+        File views = script("views.sql", "-- depends: tables.sql");
+
+        ScriptDependencies.resolve(folder.getRoot(), Arrays.asList(views), ScriptDependencies.NONE);
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testResolveCycle() throws Exception {
+        File a = script("a.sql", "-- depends: b.sql");
+        File b = script("b.sql", "-- depends: a.sql");
+
+        ScriptDependencies.resolve(folder.getRoot(), Arrays.asList(a, b), ScriptDependencies.NONE);
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testResolveUnknownConvention() throws Exception {
+        File a = script("a.sql", "SELECT 1 FROM dual;");
+
+        ScriptDependencies.resolve(folder.getRoot(), Arrays.asList(a), "unknown");
+    }
+
+    private File script(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ScriptLedgerTest {
+
+    private static final File DIRECTORY = new File("src/test/resources/scripts");
+    private static final File TABLES = new File(DIRECTORY, "010_tables.sql");
+    private static final File VIEWS = new File(DIRECTORY, "020_views.sql");
+    private static final String TABLE = "LEDGER";
+    private static final String ROW = ScriptBatch.MARKER + "ledger ";
+
+    @Test
+    public void testChecksum() throws Exception {
+        String checksum = ScriptLedger.checksum(TABLES);
+
+        Assert.assertEquals(64, checksum.length());
+        Assert.assertEquals(checksum, ScriptLedger.checksum(TABLES));
+        Assert.assertNotEquals(checksum, ScriptLedger.checksum(VIEWS));
+    }
+
+    @Test
+    public void testGetPendingWithoutLedger() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        Assert.assertEquals(Arrays.asList(TABLES, VIEWS), ledger.getPending());
+        Assert.assertTrue(ledger.getChanged().isEmpty());
+    }
+
+    @Test
+    public void testGetPendingUnchanged() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        Assert.assertTrue(ledger.processLine(ROW + "SUCCESS|" + ScriptLedger.checksum(TABLES) + "|010_tables.sql"));
+
+        Assert.assertEquals(Collections.singletonList(VIEWS), ledger.getPending());
+    }
+
+    @Test
+    public void testGetPendingChanged() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        ledger.processLine(ROW + "SUCCESS|0000|010_tables.sql");
+
+        Assert.assertEquals(Arrays.asList(TABLES, VIEWS), ledger.getPending());
+        Assert.assertEquals(Collections.singletonList(TABLES), ledger.getChanged());
+        Assert.assertEquals("0000", ledger.getAppliedChecksum(TABLES));
+    }
+
+    @Test
+    public void testGetPendingFailed() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        ledger.processLine(ROW + "FAILED|" + ScriptLedger.checksum(TABLES) + "|010_tables.sql");
+
+        Assert.assertEquals(Arrays.asList(TABLES, VIEWS), ledger.getPending());
+    }
+
+    @Test
+    public void testProcessLineOtherOutput() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        Assert.assertFalse(ledger.processLine("PL/SQL procedure successfully completed."));
+    }
+
+    @Test
+    public void testToReadScript() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+
+        String script = ledger.toReadScript(true);
+
+        Assert.assertTrue(script.contains("CREATE TABLE " + TABLE + " ("));
+        Assert.assertTrue(script.endsWith("FROM " + TABLE + ";\nEXIT\n"));
+    }
+
+    @Test
+    public void testScriptsForPooledSession() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+        Map<File, ParallelExecutor.Status> results = new LinkedHashMap<>();
+        results.put(TABLES, ParallelExecutor.Status.SUCCEEDED);
+
+        Assert.assertTrue(ledger.toReadScript(false).endsWith("FROM " + TABLE + ";\n"));
+        Assert.assertTrue(ledger.toRecordScript(results, false).endsWith("COMMIT;\n"));
+    }
+
+    @Test
+    public void testToRecordScript() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+        Map<File, ParallelExecutor.Status> results = new LinkedHashMap<>();
+        results.put(TABLES, ParallelExecutor.Status.SUCCEEDED);
+        results.put(VIEWS, ParallelExecutor.Status.SKIPPED);
+
+        String script = ledger.toRecordScript(results, true);
+
+        Assert.assertTrue(script.contains("'010_tables.sql' script, '" + ScriptLedger.checksum(TABLES)
+                + "' checksum, 'SUCCESS' status"));
+        Assert.assertFalse(script.contains("020_views.sql"));
+        Assert.assertTrue(script.endsWith("COMMIT;\nEXIT\n"));
+    }
+
+    @Test
+    public void testToRecordScriptNothingExecuted() throws Exception {
+        ScriptLedger ledger = new ScriptLedger(TABLE, DIRECTORY, Arrays.asList(TABLES, VIEWS));
+        Map<File, ParallelExecutor.Status> results = new LinkedHashMap<>();
+        results.put(TABLES, ParallelExecutor.Status.SKIPPED);
+
+        Assert.assertNull(ledger.toRecordScript(results, true));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testInvalidTableName() throws Exception {
+        new ScriptLedger("LEDGER; DROP TABLE x", DIRECTORY, Arrays.asList(TABLES, VIEWS));
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class SqlLoaderMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBuildCommandline() throws MojoFailureException {
+        SqlLoaderMojo mojo = createBasicMojo();
+        mojo.direct = true;
+        mojo.multithreading = false;
+        mojo.rows = 5000;
+        mojo.bindsize = 1048576;
+        mojo.readsize = 2097152;
+        mojo.errors = 0;
+        mojo.skip = 1;
+
+        CommandLine commandLine = mojo.buildCommandline(new File("data.csv"), 0);
+
+        Assert.assertEquals("sqlldr", commandLine.getExecutable());
+        Assert.assertArrayEquals(new String[] {"'username/password@//localhost:1521/serviceName'", "CONTROL=load.ctl",
+                "DATA=data.csv", "LOG=load.log", "DIRECT=TRUE", "MULTITHREADING=FALSE", "ROWS=5000", "BINDSIZE=1048576",
+                "READSIZE=2097152", "ERRORS=0", "SKIP=1"}, commandLine.getArguments());
+    }
+
+    @Test
+    public void testBuildCommandlineForPart() throws MojoFailureException {
+        SqlLoaderMojo mojo = createBasicMojo();
+        mojo.badFile = new File("load.bad");
+        mojo.skip = 1;
+
+        String[] arguments = mojo.buildCommandline(new File("data_2.csv"), 2).getArguments();
+
+        Assert.assertEquals("CONTROL=load.ctl", arguments[1]);
+        Assert.assertEquals("DATA=data_2.csv", arguments[2]);
+        Assert.assertEquals("LOG=load_2.log", arguments[3]);
+        Assert.assertEquals("BAD=load_2.bad", arguments[4]);
+        Assert.assertEquals("DIRECT=TRUE", arguments[5]);
+        Assert.assertEquals("PARALLEL=TRUE", arguments[6]);
+        Assert.assertEquals(7, arguments.length);
+    }
+
+    @Test
+    public void testDefaultLogForPart() throws MojoFailureException {
+        SqlLoaderMojo mojo = createBasicMojo();
+        mojo.logFile = null;
+        mojo.partsDirectory = new File("parts");
+
+        Assert.assertEquals("LOG=" + new File("parts", "load_3.log").getPath(),
+                mojo.buildCommandline(new File("data_3.csv"), 3).getArguments()[3]);
+        Assert.assertEquals(3, mojo.buildCommandline(new File("data.csv"), 0).getArguments().length);
+    }
+
+    @Test
+    public void testPartsAreDeleted() throws Exception {
+        File arguments = new File(folder.getRoot(), "arguments");
+        File script = folder.newFile("sqlldr");
+        Files.write(script.toPath(), ("#!/bin/sh\necho \"$*\" >> '" + arguments.getAbsolutePath() + "'\n")
+                .getBytes(UTF_8));
+        script.setExecutable(true);
+        File data = folder.newFile("data.csv");
+        Files.write(data.toPath(), "1,a\n2,b\n3,c\n4,d\n".getBytes(UTF_8));
+
+        SqlLoaderMojo mojo = createBasicMojo();
+        mojo.sqlldr = script.getAbsolutePath();
+        mojo.dataFile = data;
+        mojo.sessions = 2;
+        mojo.partsDirectory = new File(folder.getRoot(), "parts");
+        mojo.execute();
+
+        Assert.assertEquals(2, Files.readAllLines(arguments.toPath(), UTF_8).size());
+        Assert.assertEquals(0, mojo.partsDirectory.list().length);
+    }
+
+    @Test
+    public void testSplit() throws IOException {
+        StringBuilder data = new StringBuilder("id,name\n");
+        for (int i = 1; i <= 100; i++) {
+            data.append(i).append(",name").append(i).append('\n');
+        }
+        File file = folder.newFile("data.csv");
+        Files.write(file.toPath(), data.toString().getBytes(UTF_8));
+
+        List<File> parts = DataFileSplitter.split(file, 3, 1, new File(folder.getRoot(), "parts"));
+
+        Assert.assertEquals(3, parts.size());
+        Assert.assertEquals("data_3.csv", parts.get(2).getName());
+        StringBuilder joined = new StringBuilder();
+        for (File part : parts) {
+            String content = new String(Files.readAllBytes(part.toPath()), UTF_8);
+            Assert.assertTrue(content.endsWith("\n"));
+            joined.append(content);
+        }
+        Assert.assertEquals(data.substring("id,name\n".length()), joined.toString());
+    }
+
+    @Test
+    public void testSplitSmallFile() throws IOException {
+        File file = folder.newFile("data.csv");
+        Files.write(file.toPath(), "1,a\n2,b".getBytes(UTF_8));
+
+        List<File> parts = DataFileSplitter.split(file, 8, 0, new File(folder.getRoot(), "parts"));
+
+        Assert.assertEquals(2, parts.size());
+        Assert.assertEquals("2,b", new String(Files.readAllBytes(parts.get(1).toPath()), UTF_8));
+    }
+
+    private SqlLoaderMojo createBasicMojo() {
+        SqlLoaderMojo mojo = new SqlLoaderMojo();
+        mojo.sqlldr = "sqlldr";
+        mojo.username = "username";
+        mojo.password = "password";
+        mojo.hostname = "localhost";
+        mojo.port = 1521;
+        mojo.serviceName = "serviceName";
+        mojo.useEasyConnect = true;
+        mojo.controlFile = new File("load.ctl");
+        mojo.logFile = new File("load.log");
+        return mojo;
+    }
+}
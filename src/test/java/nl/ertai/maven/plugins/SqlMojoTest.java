@@ -0,0 +1,228 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SqlMojoTest {
+
+    private static final String URL = "jdbc:h2:mem:sqlmojo;DB_CLOSE_DELAY=-1";
+
+    private Connection connection;
+
+    @Before
+    public void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE emp (id INT PRIMARY KEY, name VARCHAR(20))");
+        }
+    }
+
+    @After
+    public void closeDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testExecuteSqlCommand() throws MojoExecutionException, MojoFailureException, SQLException {
+        SqlMojo mojo = createBasicMojo();
+        mojo.sqlCommand = "INSERT INTO emp VALUES (1, 'first');\nINSERT INTO emp VALUES (2, 'second');\n"
+                + "UPDATE emp SET name = 'changed' WHERE id = 2;";
+
+        mojo.execute();
+
+        Assert.assertEquals(Arrays.asList("1 first", "2 changed"), selectAll());
+    }
+
+    @Test
+    public void testFailedStatementRollsBack() throws MojoFailureException, SQLException {
+        SqlMojo mojo = createBasicMojo();
+        mojo.failOnError = true;
+        mojo.sqlCommand = "INSERT INTO emp VALUES (1, 'first');\nINSERT INTO emp VALUES (1, 'duplicate');";
+
+        try {
+            mojo.execute();
+            Assert.fail("the duplicate key should fail");
+        } catch (MojoExecutionException e) {
+            Assert.assertTrue(e.getMessage().contains("INSERT INTO emp VALUES (1, 'duplicate')"));
+            Assert.assertTrue(e.getMessage().contains("at sqlCommand:2"));
+        }
+        Assert.assertEquals(new ArrayList<String>(), selectAll());
+    }
+
+    @Test
+    public void testRunnerBatchesDml() throws IOException, SQLException {
+        final List<String> output = new ArrayList<>();
+        connection.setAutoCommit(false);
+        try (JdbcScriptRunner runner = new JdbcScriptRunner(connection, 2, 10, 5, new LineTee.Listener() {
+            @Override
+            public void processLine(String line) {
+                output.add(line);
+            }
+        })) {
+            int statements = runner.run(new SqlScriptReader(new StringReader(
+                    "INSERT INTO emp VALUES (1, 'a');\nINSERT INTO emp VALUES (2, 'b');\n"
+                    + "INSERT INTO emp VALUES (3, 'c');\nSELECT name FROM emp ORDER BY id;")));
+
+            Assert.assertEquals(4, statements);
+        }
+        Assert.assertEquals(Arrays.asList("NAME", "a", "b", "c", "3 row(s) selected."), output);
+    }
+
+    @Test
+    public void testRunnerReportsFailedStatementInBatch() throws IOException {
+        JdbcScriptRunner runner = new JdbcScriptRunner(connection, 10, 10, 5, null);
+        try {
+            runner.run(new SqlScriptReader(new StringReader(
+                    "INSERT INTO emp VALUES (1, 'a');\nINSERT INTO missing VALUES (2, 'b');")));
+            Assert.fail("the missing table should fail");
+        } catch (SQLException e) {
+            Assert.assertEquals("INSERT INTO missing VALUES (2, 'b')", runner.getFailedStatement());
+        } finally {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void testRunnerExecutesExec() throws IOException, SQLException {
+        // H2 has no anonymous blocks, so only record what is sent to the database
+        List<String> executed = new ArrayList<>();
+        try (JdbcScriptRunner runner = new JdbcScriptRunner(recording(executed), 10, 10, 5, null)) {
+            int statements = runner.run(new SqlScriptReader(new StringReader(
+                    "EXEC dbms_stats.gather_table_stats(user, 'EMP');\nSELECT 1 FROM dual;")));
+
+            Assert.assertEquals(2, statements);
+        }
+        Assert.assertEquals(Arrays.asList("unescaped BEGIN dbms_stats.gather_table_stats(user, 'EMP'); END;",
+                "prepared SELECT 1 FROM dual"), executed);
+    }
+
+    @Test
+    public void testRunnerDoesNotPrepareTriggers() throws IOException, SQLException {
+        String trigger = "CREATE OR REPLACE TRIGGER emp_name BEFORE INSERT ON emp FOR EACH ROW\nBEGIN\n"
+                + "  :NEW.name := UPPER(:NEW.name);\nEND;";
+        List<String> executed = new ArrayList<>();
+        try (JdbcScriptRunner runner = new JdbcScriptRunner(recording(executed), 1, 10, 5, null)) {
+            runner.run(new SqlScriptReader(new StringReader(trigger + "\n/\nCREATE INDEX emp_name ON emp (name);\n"
+                    + "INSERT INTO emp VALUES (1, 'a');\nINSERT INTO emp VALUES (1, 'a');")));
+        }
+        Assert.assertEquals(Arrays.asList("unescaped " + trigger, "unescaped CREATE INDEX emp_name ON emp (name)",
+                "prepared INSERT INTO emp VALUES (1, 'a')", "prepared INSERT INTO emp VALUES (1, 'a')"), executed);
+    }
+
+    @Test
+    public void testRunnerExecutesDdl() throws IOException, SQLException {
+        try (JdbcScriptRunner runner = new JdbcScriptRunner(connection, 1, 10, 5, null)) {
+            runner.run(new SqlScriptReader(new StringReader("CREATE INDEX emp_name ON emp (name);\n"
+                    + "INSERT INTO emp VALUES (1, 'a');")));
+        }
+        Assert.assertEquals(Arrays.asList("1 a"), selectAll());
+    }
+
+    @Test
+    public void testGetJdbcUrlDefault() {
+        SqlMojo mojo = new SqlMojo();
+        mojo.useEasyConnect = true;
+        mojo.hostname = "localhost";
+        mojo.port = 1521;
+        mojo.serviceName = "serviceName";
+
+        Assert.assertEquals("jdbc:oracle:thin:@//localhost:1521/serviceName", mojo.getJdbcUrl());
+    }
+
+    /**
+     * Returns a connection whose statements only record the SQL they execute, prefixed with how it was executed:
+     * prepared, escaped or unescaped.
+     */
+    static Connection recording(final List<String> executed) {
+        return (Connection) Proxy.newProxyInstance(SqlMojoTest.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                final String sql = args != null && args.length > 0 && args[0] instanceof String
+                        ? (String) args[0] : null;
+                if (!method.getName().equals("createStatement") && !method.getName().equals("prepareStatement")) {
+                    return null;
+                }
+                return Proxy.newProxyInstance(SqlMojoTest.class.getClassLoader(),
+                        new Class<?>[] {PreparedStatement.class}, new InvocationHandler() {
+                    private boolean escaping = true;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("setEscapeProcessing")) {
+                            escaping = (Boolean) args[0];
+                        } else if (method.getName().equals("execute")) {
+                            if (args == null) {
+                                executed.add("prepared " + sql);
+                            } else {
+                                executed.add((escaping ? "escaped " : "unescaped ") + args[0]);
+                            }
+                            return false;
+                        }
+                        return method.getReturnType() == int.class ? (Object) 0 : null;
+                    }
+                });
+            }
+        });
+    }
+
+    private List<String> selectAll() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name FROM emp ORDER BY id")) {
+            while (resultSet.next()) {
+                rows.add(resultSet.getInt(1) + " " + resultSet.getString(2));
+            }
+        }
+        return rows;
+    }
+
+    private SqlMojo createBasicMojo() {
+        SqlMojo mojo = new SqlMojo();
+        mojo.jdbcUrl = URL;
+        mojo.username = "sa";
+        mojo.password = "";
+        mojo.batchSize = 100;
+        mojo.fetchSize = 100;
+        mojo.statementCacheSize = 20;
+        return mojo;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class SqlPlusSessionTest {
+
+    /**
+     * Behaves like SQL*Plus for the commands used by the session: PROMPT prints its text, COMMIT prints the
+     * feedback, EXIT ends the process, a block takes all lines up to a dot or a slash, empty lines and dots are
+     * ignored and everything else is echoed. SLEEP hangs for a while.
+     */
+    private static final List<String> FAKE_SQLPLUS = Arrays.asList("sh", "-c",
+            "block=; while read line; do "
+                    + "if [ -n \"$block\" ]; then case \"$line\" in .) block=;; /) block=; echo 'ran block';; esac; "
+                    + "continue; fi; "
+                    + "case \"$line\" in "
+                    + "''|.) ;; "
+                    + "BEGIN*) block=1;; "
+                    + "SLEEP*) sleep 5;; "
+                    + "PROMPT*) echo \"${line#PROMPT }\";; "
+                    + "COMMIT*) echo 'Commit complete.';; "
+                    + "EXIT*) exit ${line#EXIT };; "
+                    + "*) echo \"ran $line\";; "
+                    + "esac; done");
+
+    private static InputStream input(String script) {
+        return new ByteArrayInputStream(script.getBytes(UTF_8));
+    }
+
+    @Before
+    public void unixOnly() {
+        Assume.assumeTrue(new File("/bin/sh").exists());
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int exitValue = session.execute(input("@script.sql"), out, 0);
+
+        Assert.assertEquals(0, exitValue);
+        Assert.assertEquals("ran @script.sql\n", out.toString());
+        Assert.assertTrue(session.isAlive());
+        session.close();
+    }
+
+    @Test
+    public void testExecuteReusesSession() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        session.execute(input("@first.sql"), first, 0);
+        session.execute(input("@second.sql"), second, 0);
+
+        Assert.assertEquals("ran @first.sql\n", first.toString());
+        Assert.assertEquals("ran @second.sql\n", second.toString());
+        session.close();
+    }
+
+    @Test
+    public void testExecuteExitStatus() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+
+        int exitValue = session.execute(input("EXIT 3"), new ByteArrayOutputStream(), 0);
+
+        Assert.assertEquals(3, exitValue);
+        Assert.assertFalse(session.isAlive());
+    }
+
+    @Test
+    public void testExecuteUnterminatedBlock() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int exitValue = session.execute(input("BEGIN\n  NULL;\nEND;"), out, 10000);
+
+        Assert.assertEquals(0, exitValue);
+        Assert.assertEquals("", out.toString());
+        Assert.assertTrue(session.isAlive());
+        session.close();
+    }
+
+    @Test
+    public void testExecuteTimeout() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+
+        try {
+            session.execute(input("SLEEP"), new ByteArrayOutputStream(), 200);
+            Assert.fail("the script should not finish in time");
+        } catch (ToolWatchdog.StoppedException e) {
+            Assert.assertTrue(e.getMessage().startsWith("SQL*Plus was stopped: not finished within"));
+        }
+        Assert.assertFalse(session.isAlive());
+    }
+
+    @Test
+    public void testAwaitReady() throws Exception {
+        SqlPlusSession session = new SqlPlusSession(FAKE_SQLPLUS, null, null, UTF_8);
+
+        Assert.assertTrue(session.awaitReady());
+        session.close();
+    }
+
+    @Test
+    public void testPoolReusesReleasedSession() throws Exception {
+        SqlPlusSessionPool.Key key = new SqlPlusSessionPool.Key("test", FAKE_SQLPLUS, null, null, UTF_8);
+
+        SqlPlusSession session = SqlPlusSessionPool.borrow(key);
+        SqlPlusSessionPool.release(key, session);
+
+        Assert.assertSame(session, SqlPlusSessionPool.borrow(key));
+        SqlPlusSessionPool.closeAll();
+    }
+
+    @Test
+    public void testPoolDropsDestroyedSession() throws Exception {
+        SqlPlusSessionPool.Key key = new SqlPlusSessionPool.Key("destroyed", FAKE_SQLPLUS, null, null, UTF_8);
+
+        SqlPlusSession session = SqlPlusSessionPool.borrow(key);
+        session.destroy();
+        SqlPlusSessionPool.release(key, session);
+
+        Assert.assertNotSame(session, SqlPlusSessionPool.borrow(key));
+        SqlPlusSessionPool.closeAll();
+    }
+
+    @Test
+    public void testPoolKeepsAtMostMaxIdle() throws Exception {
+        SqlPlusSessionPool.Key key = new SqlPlusSessionPool.Key("bounded", FAKE_SQLPLUS, null, null, UTF_8);
+        List<SqlPlusSession> sessions = new ArrayList<>();
+        for (int i = 0; i <= SqlPlusSessionPool.MAX_IDLE; i++) {
+            sessions.add(SqlPlusSessionPool.borrow(key));
+        }
+
+        for (SqlPlusSession session : sessions) {
+            SqlPlusSessionPool.release(key, session);
+        }
+
+        Assert.assertFalse(sessions.get(SqlPlusSessionPool.MAX_IDLE).isAlive());
+        Assert.assertTrue(sessions.get(0).isAlive());
+        SqlPlusSessionPool.closeAll();
+    }
+
+    @Test
+    public void testPoolPrestart() throws Exception {
+        SqlPlusSessionPool.Key key = new SqlPlusSessionPool.Key("prestart", FAKE_SQLPLUS, null, null, UTF_8);
+
+        SqlPlusSessionPool.prestart(key, 1);
+        SqlPlusSession session = SqlPlusSessionPool.borrow(key);
+
+        Assert.assertTrue(session.isAlive());
+        SqlPlusSessionPool.closeAll();
+    }
+}
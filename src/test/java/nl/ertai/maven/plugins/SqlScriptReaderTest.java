@@ -0,0 +1,208 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class SqlScriptReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSemicolons() throws IOException {
+        Assert.assertEquals(Arrays.asList("SELECT 1 FROM dual", "SELECT 2\nFROM dual", "SELECT 3 FROM dual"),
+                read("SELECT 1 FROM dual; SELECT 2\nFROM dual;\nSELECT 3 FROM dual"));
+    }
+
+    @Test
+    public void testSlash() throws IOException {
+        Assert.assertEquals(Arrays.asList("SELECT 1 FROM dual", "SELECT 2 FROM dual"),
+                read("SELECT 1 FROM dual\n/\nSELECT 2 FROM dual;\n/\n"));
+    }
+
+    @Test
+    public void testQuotesAndComments() throws IOException {
+        Assert.assertEquals(Arrays.asList("INSERT INTO t VALUES ('a;b', \"c;d\") -- e;f",
+                "/* g; */ SELECT 1 FROM dual"),
+                read("INSERT INTO t VALUES ('a;b', \"c;d\") -- e;f\n;\n/* g; */ SELECT 1 FROM dual;\n-- the end\n"));
+    }
+
+    @Test
+    public void testMultiLineString() throws IOException {
+        Assert.assertEquals(Arrays.asList("INSERT INTO t VALUES ('first;\n/\nsecond')"),
+                read("INSERT INTO t VALUES ('first;\n/\nsecond');"));
+    }
+
+    @Test
+    public void testPlsql() throws IOException {
+        String procedure = "CREATE OR REPLACE PROCEDURE p IS\nBEGIN\n  NULL;\nEND;";
+        String block = "-- a block\nDECLARE\n  x NUMBER;\nBEGIN\n  x := 1;\nEND;";
+        Assert.assertEquals(Arrays.asList(procedure, block, "SELECT 1 FROM dual"),
+                read(procedure + "\n/\n" + block + "\n/\nSELECT 1 FROM dual;"));
+    }
+
+    @Test
+    public void testSqlPlusCommandsAreSkipped() throws IOException {
+        Assert.assertEquals(Arrays.asList("SELECT 1 FROM dual", "SELECT 2 FROM dual"),
+                read("SET DEFINE OFF\nPROMPT creating\nSELECT 1 FROM dual;\nREM comment\n"
+                        + "SELECT 2 FROM dual;\nEXIT\n"));
+    }
+
+    @Test
+    public void testSetStatementsAreExecuted() throws IOException {
+        Assert.assertEquals(Arrays.asList("SET CONSTRAINTS ALL DEFERRED", "set transaction read only",
+                "SET ROLE ALL", "SET CONSTRAINT fk_dept IMMEDIATE"),
+                read("SET CONSTRAINTS ALL DEFERRED;\nSET ECHO ON\nset transaction read only;\nSET ROLE ALL;\n"
+                        + "SET CONSTRAINT fk_dept IMMEDIATE;\nSET TRIMSPOOL ON\n"));
+    }
+
+    @Test
+    public void testExecute() throws IOException {
+        Assert.assertEquals(Arrays.asList("BEGIN dbms_stats.gather_schema_stats('APP'); END;", "BEGIN p; END;"),
+                read("EXEC dbms_stats.gather_schema_stats('APP');\nexecute p\n"));
+    }
+
+    @Test
+    public void testExitEndsAllScripts() throws IOException {
+        File main = write("main.sql", "@sub.sql\nSELECT 2 FROM dual;\n");
+        write("sub.sql", "SELECT 1 FROM dual;\nWHENEVER SQLERROR EXIT FAILURE\nEXIT\nSELECT 3 FROM dual;\n");
+
+        try (SqlScriptReader reader = SqlScriptReader.open(main, UTF_8, null)) {
+            Assert.assertEquals("SELECT 1 FROM dual", reader.next());
+            Assert.assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testUnsupportedCommand() throws IOException {
+        try {
+            read("SELECT 1 FROM dual;\nSPOOL out.log\nhost rm -rf /tmp/x\n");
+            Assert.fail("HOST cannot be executed over JDBC");
+        } catch (IOException e) {
+            Assert.assertEquals("SQL*Plus command HOST is not supported over JDBC at line 3", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testQQuotes() throws IOException {
+        Assert.assertEquals(Arrays.asList("INSERT INTO t VALUES (q'[it''s; x]', Nq'{a'}b}', q'!x;!')",
+                "SELECT seq FROM t"),
+                read("INSERT INTO t VALUES (q'[it''s; x]', Nq'{a'}b}', q'!x;!');\nSELECT seq FROM t;"));
+    }
+
+    @Test
+    public void testPrompt() throws IOException {
+        final List<String> output = new ArrayList<>();
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader("PROMPT loading data\nPROMPT\n"
+                + "SELECT 1 FROM dual;\n"), null, null, UTF_8, new LineTee.Listener() {
+            @Override
+            public void processLine(String line) {
+                output.add(line);
+            }
+        })) {
+            Assert.assertEquals("SELECT 1 FROM dual", reader.next());
+            Assert.assertNull(reader.next());
+        }
+        Assert.assertEquals(Arrays.asList("loading data", ""), output);
+    }
+
+    @Test
+    public void testIncludes() throws IOException {
+        File main = write("main.sql", "SELECT 1 FROM dual;\n@sub/first\nSELECT 4 FROM dual;\n");
+        write("sub/first.sql", "SELECT 2 FROM dual;\n@@second.sql arg\n");
+        write("sub/second.sql", "SELECT 3 FROM dual\n");
+
+        List<String> statements = new ArrayList<>();
+        List<String> locations = new ArrayList<>();
+        try (SqlScriptReader reader = SqlScriptReader.open(main, UTF_8, null)) {
+            String statement;
+            while ((statement = reader.next()) != null) {
+                statements.add(statement);
+                locations.add(reader.getLocation());
+            }
+        }
+
+        Assert.assertEquals(Arrays.asList("SELECT 1 FROM dual", "SELECT 2 FROM dual", "SELECT 3 FROM dual",
+                "SELECT 4 FROM dual"), statements);
+        Assert.assertEquals(Arrays.asList("main.sql:1", "first.sql:1", "second.sql:1", "main.sql:3"), locations);
+    }
+
+    @Test
+    public void testRecursiveInclude() throws IOException {
+        File script = write("loop.sql", "SELECT 1 FROM dual;\n@@loop\n");
+
+        try (SqlScriptReader reader = SqlScriptReader.open(script, UTF_8, null)) {
+            while (reader.next() != null) {
+                // read on until the maximum depth
+            }
+            Assert.fail("the nesting should be limited");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Scripts may only be nested to a depth of 20"));
+        }
+    }
+
+    @Test
+    public void testMissingInclude() throws IOException {
+        File script = write("main.sql", "SELECT 1 FROM dual;\n@missing.sql\n");
+
+        try (SqlScriptReader reader = SqlScriptReader.open(script, UTF_8, null)) {
+            Assert.assertEquals("SELECT 1 FROM dual", reader.next());
+            reader.next();
+            Assert.fail("the script does not exist");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().endsWith("missing.sql at main.sql:2"));
+        }
+    }
+
+    @Test
+    public void testGetKeyword() {
+        Assert.assertEquals("INSERT", JdbcScriptRunner.getKeyword("/* comment */\n-- line\ninsert into t values (1)"));
+        Assert.assertEquals("", JdbcScriptRunner.getKeyword("-- only a comment"));
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+
+    private static List<String> read(String script) throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader(script))) {
+            String statement;
+            while ((statement = reader.next()) != null) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class TimingReportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCollectEchoedStatements() {
+        TimingReport report = new TimingReport();
+        LineTee.Listener collector = report.collector("010_tables.sql", null, true);
+
+        for (String line : Arrays.asList("SQL> CREATE TABLE emp (id NUMBER);", "", "Table created.", "",
+                "Elapsed: 00:00:00.05", "SQL> INSERT INTO emp", "  2  SELECT level FROM dual CONNECT BY level < 1000;",
+                "", "999 rows created.", "", "Elapsed: 00:01:02.30")) {
+            collector.processLine(line);
+        }
+
+        List<TimingReport.Timing> timings = report.getTimings();
+        Assert.assertEquals(2, timings.size());
+        Assert.assertEquals("010_tables.sql", timings.get(0).getScript());
+        Assert.assertEquals("CREATE TABLE emp (id NUMBER);", timings.get(0).getStatement());
+        Assert.assertEquals(50, timings.get(0).getElapsedMillis());
+        Assert.assertEquals("INSERT INTO emp", timings.get(1).getStatement());
+        Assert.assertEquals(62300, timings.get(1).getElapsedMillis());
+    }
+
+    @Test
+    public void testCollectStreamedStatements() {
+        TimingReport report = new TimingReport();
+        LineTee.Listener collector = report.collector("sqlCommand", null, false);
+
+        for (String line : Arrays.asList("1 row created.", "", "Elapsed: 00:00:00.01", "Table dropped.",
+                "Elapsed: 00:00:00.02")) {
+            collector.processLine(line);
+        }
+
+        List<TimingReport.Timing> timings = report.getTimings();
+        Assert.assertEquals("statement 1 (1 row created.)", timings.get(0).getStatement());
+        Assert.assertEquals("statement 2 (Table dropped.)", timings.get(1).getStatement());
+    }
+
+    @Test
+    public void testScriptFromBatch() {
+        File first = new File("src/test/resources/scripts/010_tables.sql");
+        File second = new File("src/test/resources/scripts/020_views.sql");
+        ScriptBatch batch = new ScriptBatch(Arrays.asList(first, second));
+        TimingReport report = new TimingReport();
+        LineTee.Listener collector = report.collector(null, batch, true);
+
+        for (String line : Arrays.asList(ScriptBatch.MARKER + "start 0", "CREATE TABLE emp (id NUMBER);",
+                "Elapsed: 00:00:00.01", ScriptBatch.MARKER + "end 0", ScriptBatch.MARKER + "start 1",
+                "CREATE VIEW emp_v AS SELECT * FROM emp;", "Elapsed: 00:00:00.02", ScriptBatch.MARKER + "end 1")) {
+            batch.processLine(line);
+            collector.processLine(line);
+        }
+
+        List<TimingReport.Timing> timings = report.getTimings();
+        Assert.assertEquals("010_tables.sql", timings.get(0).getScript());
+        Assert.assertEquals("020_views.sql", timings.get(1).getScript());
+        Assert.assertEquals("CREATE VIEW emp_v AS SELECT * FROM emp;", timings.get(1).getStatement());
+    }
+
+    @Test
+    public void testGetSlowest() {
+        TimingReport report = new TimingReport();
+        LineTee.Listener collector = report.collector("script.sql", null, true);
+        for (String line : Arrays.asList("fast", "Elapsed: 00:00:00.01", "slow", "Elapsed: 00:00:03.00",
+                "medium", "Elapsed: 00:00:00.50")) {
+            collector.processLine(line);
+        }
+
+        List<TimingReport.Timing> slowest = report.getSlowest(2);
+
+        Assert.assertEquals(2, slowest.size());
+        Assert.assertEquals("slow", slowest.get(0).getStatement());
+        Assert.assertEquals("medium", slowest.get(1).getStatement());
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        TimingReport report = new TimingReport();
+        LineTee.Listener collector = report.collector("script.sql", null, true);
+        collector.processLine("SELECT 'a \"quoted\" value' FROM dual;");
+        collector.processLine("Elapsed: 00:00:00.01");
+        File file = new File(folder.getRoot(), "oracledb/sqlplus-timings.json");
+
+        report.write(file);
+
+        Assert.assertEquals("[\n"
+                + "  {\"script\": \"script.sql\", \"statement\": \"SELECT 'a \\\"quoted\\\" value' FROM dual;\", "
+                + "\"elapsedMillis\": 10}\n"
+                + "]\n", new String(Files.readAllBytes(file.toPath()), UTF_8));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2019 Torsten Walter, Rob Snelders
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.ertai.maven.plugins;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ToolWatchdogTest {
+
+    @Before
+    public void assumeShell() {
+        Assume.assumeTrue(new File("/bin/sh").exists());
+    }
+
+    @Test
+    public void testConnectTimeout() throws IOException {
+        ToolWatchdog watchdog = new ToolWatchdog("tool", 1, 0, UTF_8);
+
+        ExecuteException e = run(watchdog, "echo SQL*Plus: Release 19.0.0.0.0; exec sleep 30");
+
+        Assert.assertTrue(e instanceof ToolWatchdog.StoppedException);
+        Assert.assertTrue(e.getMessage().startsWith("tool was stopped: no connection within 1 s"));
+    }
+
+    @Test
+    public void testTimeout() throws IOException {
+        ToolWatchdog watchdog = new ToolWatchdog("tool", 1, 2, UTF_8);
+
+        ExecuteException e = run(watchdog, "echo Connected to: Oracle Database; exec sleep 30");
+
+        Assert.assertTrue(e instanceof ToolWatchdog.StoppedException);
+        Assert.assertTrue(e.getMessage().startsWith("tool was stopped: not finished within 2 s"));
+    }
+
+    @Test
+    public void testConnectedMarker() throws IOException {
+        ToolWatchdog watchdog = new ToolWatchdog("tool", 1, 0, UTF_8);
+
+        ExecuteException e = run(watchdog, "echo '" + ToolWatchdog.CONNECTED + "'; sleep 2");
+
+        Assert.assertNull(e);
+        Assert.assertNull(watchdog.getReason());
+    }
+
+    private static ExecuteException run(ToolWatchdog watchdog, String script) throws IOException {
+        Executor exec = AbstractDBMojo.createExecutor(null, watchdog);
+        exec.setStreamHandler(new PumpStreamHandler(watchdog.watch(new ByteArrayOutputStream())));
+        CommandLine commandLine = new CommandLine("/bin/sh");
+        commandLine.addArgument("-c");
+        commandLine.addArgument(script, false);
+        long start = System.currentTimeMillis();
+        watchdog.start();
+        try {
+            exec.execute(commandLine);
+            return null;
+        } catch (ExecuteException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 20000);
+            return watchdog.explain(e);
+        } finally {
+            watchdog.cancel();
+        }
+    }
+}
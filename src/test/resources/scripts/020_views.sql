@@ -0,0 +1 @@
+CREATE VIEW b AS SELECT * FROM a;